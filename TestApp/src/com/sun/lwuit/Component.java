@@ -131,6 +131,21 @@ public class Component implements Animation, StyleListener {
     private Rectangle painterBounds;
     private int scrollX;
     private int scrollY;
+
+    /**
+     * Incremented whenever any component is moved, scrolled or reparented which
+     * invalidates the absolute position cached by every component
+     */
+    static int positionEpoch;
+
+    /**
+     * Incremented whenever a component is added, removed or changes its focusable,
+     * enabled or visible state which invalidates the focus index of every form
+     */
+    static int focusEpoch;
+    private int absoluteX;
+    private int absoluteY;
+    private int absoluteEpoch = -1;
     private boolean sizeRequestedByUser = false;
     private Dimension preferredSize;
     private boolean scrollSizeRequestedByUser = false;
@@ -368,6 +383,9 @@ public class Component implements Animation, StyleListener {
      * @param visible true if component is visible; otherwise false 
      */
     public void setVisible(boolean visible) {
+        if(this.visible != visible) {
+            focusEpoch++;
+        }
         this.visible = visible;
     }
 
@@ -397,6 +415,12 @@ public class Component implements Animation, StyleListener {
      * @param x the current x coordinate of the components origin
      */
     public void setX(int x) {
+        if(x != bounds.getX()) {
+            positionEpoch++;
+            if(parent != null) {
+                parent.invalidateSpatialIndex();
+            }
+        }
         bounds.setX(x);
     }
 
@@ -408,6 +432,12 @@ public class Component implements Animation, StyleListener {
      * @param y the current y coordinate of the components origin
      */
     public void setY(int y) {
+        if(y != bounds.getY()) {
+            positionEpoch++;
+            if(parent != null) {
+                parent.invalidateSpatialIndex();
+            }
+        }
         bounds.setY(y);
     }
 
@@ -561,6 +591,9 @@ public class Component implements Animation, StyleListener {
      * @see #setPreferredSize
      */
     public void setWidth(int width) {
+        if(parent != null && width != bounds.getSize().getWidth()) {
+            parent.invalidateSpatialIndex();
+        }
         bounds.getSize().setWidth(width);
     }
 
@@ -574,6 +607,9 @@ public class Component implements Animation, StyleListener {
      * @see #setPreferredSize
      */
     public void setHeight(int height) {
+        if(parent != null && height != bounds.getSize().getHeight()) {
+            parent.invalidateSpatialIndex();
+        }
         bounds.getSize().setHeight(height);
     }
 
@@ -588,6 +624,9 @@ public class Component implements Animation, StyleListener {
      */
     public void setSize(Dimension d) {
         Dimension d2 = bounds.getSize();
+        if(parent != null && (d2.getWidth() != d.getWidth() || d2.getHeight() != d.getHeight())) {
+            parent.invalidateSpatialIndex();
+        }
         d2.setWidth(d.getWidth());
         d2.setHeight(d.getHeight());
     }
@@ -636,6 +675,7 @@ public class Component implements Animation, StyleListener {
      */
     void setParent(Container parent) {
         this.parent = parent;
+        positionEpoch++;
     }
 
     /**
@@ -843,12 +883,10 @@ public class Component implements Animation, StyleListener {
      * @see #getX
      */
     public int getAbsoluteX() {
-        int x = getX() - getScrollX();
-        Container parent = getParent();
-        if (parent != null) {
-            x += parent.getAbsoluteX();
+        if(absoluteEpoch != positionEpoch) {
+            updateAbsolutePosition();
         }
-        return x;
+        return absoluteX;
     }
 
     /**
@@ -860,12 +898,28 @@ public class Component implements Animation, StyleListener {
      * @see #getY
      */
     public int getAbsoluteY() {
+        if(absoluteEpoch != positionEpoch) {
+            updateAbsolutePosition();
+        }
+        return absoluteY;
+    }
+
+    /**
+     * Sums the positions of the parents into the cached absolute position, the parents
+     * cache their own positions so the hierarchy is walked once until a component is
+     * moved, scrolled or reparented
+     */
+    private void updateAbsolutePosition() {
+        int x = getX() - getScrollX();
         int y = getY() - getScrollY();
         Container parent = getParent();
         if (parent != null) {
+            x += parent.getAbsoluteX();
             y += parent.getAbsoluteY();
         }
-        return y;
+        absoluteX = x;
+        absoluteY = y;
+        absoluteEpoch = positionEpoch;
     }
 
     /**
@@ -1308,6 +1362,7 @@ public class Component implements Animation, StyleListener {
      */
     protected void setScrollX(int scrollX) {
         // the setter must always update the value regardless...
+        positionEpoch++;
         this.scrollX = scrollX;
         if(!isSmoothScrolling() || !isTensileDragEnabled()) {
             this.scrollX = Math.min(this.scrollX, getScrollDimension().getWidth() - getWidth());
@@ -1327,6 +1382,7 @@ public class Component implements Animation, StyleListener {
      */
     protected void setScrollY(int scrollY) {
         // the setter must always update the value regardless... 
+        positionEpoch++;
         this.scrollY = scrollY;
         if(!isSmoothScrolling() || !isTensileDragEnabled()) {
             int h = getScrollDimension().getHeight() - getHeight();
@@ -1413,6 +1469,18 @@ public class Component implements Animation, StyleListener {
         return d;
     }
 
+    /**
+     * Returns the preferred size without calculating it
+     *
+     * @return the preferred size or null if it must be calculated
+     */
+    Dimension getCachedPreferredSize() {
+        if (!sizeRequestedByUser && (shouldCalcPreferredSize || preferredSize == null)) {
+            return null;
+        }
+        return preferredSize;
+    }
+
     private Dimension preferredSize() {
 
         if (!sizeRequestedByUser && (shouldCalcPreferredSize || preferredSize == null)) {
@@ -1467,6 +1535,9 @@ public class Component implements Animation, StyleListener {
      * @param focusable indicate whether this component can get focused
      */
     public void setFocusable(boolean focusable) {
+        if(this.focusable != focusable) {
+            focusEpoch++;
+        }
         this.focusable = focusable;
     }
 
@@ -2630,6 +2701,7 @@ public class Component implements Animation, StyleListener {
                 }
             }
 
+            positionEpoch++;
             if (isScrollableY()) {
                 scrollY = dragVal;
                 updateTensileHighlightIntensity();
@@ -2998,7 +3070,7 @@ public class Component implements Animation, StyleListener {
             setShouldCalcPreferredSize(true);
             Container parent = getParent();
             if (parent != null && parent.getComponentForm() != null) {
-                parent.revalidate();
+                parent.layoutInvalid();
             }
         }
     }
@@ -3112,6 +3184,7 @@ public class Component implements Animation, StyleListener {
         if(this.enabled == enabled) {
             return;
         }
+        focusEpoch++;
         this.enabled = enabled;
         repaint();
     }
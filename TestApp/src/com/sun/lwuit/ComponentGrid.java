@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit;
+
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Uniform grid over the bounds of the children of a container allowing hit testing and
+ * paint culling to visit only the children near a point or rectangle rather than all of
+ * them. The grid covers the bounding box of the children and is divided into roughly one
+ * cell per child, every child is listed in each cell its bounds overlap. Queries return
+ * candidate indexes in ascending (painting) order, the caller performs the exact test.
+ * <p>The grid is a snapshot of the bounds and indexes of the children, the container
+ * discards it whenever a child is added, removed, moved or resized and builds a new
+ * one lazily.
+ */
+class ComponentGrid {
+    /**
+     * Upper bound for the number of columns and rows
+     */
+    private static final int MAX_CELLS = 64;
+
+    private int originX;
+    private int originY;
+    private int cellWidth;
+    private int cellHeight;
+    private int columns;
+    private int rows;
+
+    /**
+     * Child indexes in ascending order per cell (row major) and the number of
+     * indexes used in each cell
+     */
+    private int[][] cells;
+    private int[] cellSizes;
+
+    /**
+     * Maps a child to its index so the container doesn't need to search the children
+     */
+    private Hashtable indexes;
+
+    /**
+     * Query results and the query stamp of every child used to remove duplicates
+     * when a child spans several cells
+     */
+    private int[] results;
+    private int[] marks;
+    private int stamp;
+
+    /**
+     * Builds a grid from the current bounds of the given components
+     *
+     * @param components the children of the container
+     */
+    public ComponentGrid(Vector components) {
+        int count = components.size();
+        indexes = new Hashtable(count * 2 + 1);
+        results = new int[Math.max(1, count)];
+        marks = new int[Math.max(1, count)];
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component c = (Component)components.elementAt(iter);
+            indexes.put(c, new Integer(iter));
+            int w = c.getWidth();
+            int h = c.getHeight();
+            if(w > 0 && h > 0) {
+                int x = c.getX();
+                int y = c.getY();
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x + w);
+                maxY = Math.max(maxY, y + h);
+            }
+        }
+        if(minX > maxX) {
+            // no child can be hit or painted
+            return;
+        }
+        int width = maxX - minX;
+        int height = maxY - minY;
+
+        // roughly one cell per child shaped after the bounding box
+        columns = (int)Math.sqrt(((double)count) * width / height);
+        columns = Math.max(1, Math.min(MAX_CELLS, columns));
+        rows = Math.max(1, Math.min(MAX_CELLS, count / columns));
+        cellWidth = (width + columns - 1) / columns;
+        cellHeight = (height + rows - 1) / rows;
+        originX = minX;
+        originY = minY;
+        cells = new int[columns * rows][];
+        cellSizes = new int[columns * rows];
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component c = (Component)components.elementAt(iter);
+            int w = c.getWidth();
+            int h = c.getHeight();
+            if(w > 0 && h > 0) {
+                int x = c.getX() - originX;
+                int y = c.getY() - originY;
+                int lastColumn = (x + w - 1) / cellWidth;
+                int lastRow = (y + h - 1) / cellHeight;
+                for(int row = y / cellHeight ; row <= lastRow ; row++) {
+                    for(int column = x / cellWidth ; column <= lastColumn ; column++) {
+                        add(row * columns + column, iter);
+                    }
+                }
+            }
+        }
+    }
+
+    private void add(int cell, int index) {
+        int[] arr = cells[cell];
+        int size = cellSizes[cell];
+        if(arr == null) {
+            arr = new int[4];
+            cells[cell] = arr;
+        } else {
+            if(size == arr.length) {
+                int[] n = new int[size * 2];
+                System.arraycopy(arr, 0, n, 0, size);
+                arr = n;
+                cells[cell] = arr;
+            }
+        }
+        arr[size] = index;
+        cellSizes[cell] = size + 1;
+    }
+
+    /**
+     * Returns the index of the given child
+     *
+     * @param c the child
+     * @return the index of the child or -1 if it wasn't a child when the grid was built
+     */
+    public int indexOf(Component c) {
+        Integer i = (Integer)indexes.get(c);
+        if(i == null) {
+            return -1;
+        }
+        return i.intValue();
+    }
+
+    /**
+     * Finds the children whose bounds may intersect the given rectangle, the indexes are
+     * available from getResults() until the next query
+     *
+     * @param x the x position of the rectangle relative to the container
+     * @param y the y position of the rectangle relative to the container
+     * @param w the width of the rectangle
+     * @param h the height of the rectangle
+     * @return the number of candidate children
+     */
+    public int query(int x, int y, int w, int h) {
+        if(cells == null || w <= 0 || h <= 0) {
+            return 0;
+        }
+        x -= originX;
+        y -= originY;
+        int firstColumn = Math.max(0, x / cellWidth);
+        int firstRow = Math.max(0, y / cellHeight);
+        int lastColumn = Math.min(columns - 1, (x + w - 1) / cellWidth);
+        int lastRow = Math.min(rows - 1, (y + h - 1) / cellHeight);
+        if(x + w <= 0 || y + h <= 0 || firstColumn > lastColumn || firstRow > lastRow) {
+            return 0;
+        }
+        if(firstColumn == lastColumn && firstRow == lastRow) {
+            int cell = firstRow * columns + firstColumn;
+            int size = cellSizes[cell];
+            if(size > 0) {
+                System.arraycopy(cells[cell], 0, results, 0, size);
+            }
+            return size;
+        }
+
+        // mark the candidates and collect them in ascending order
+        stamp++;
+        if(stamp == 0) {
+            for(int iter = 0 ; iter < marks.length ; iter++) {
+                marks[iter] = 0;
+            }
+            stamp = 1;
+        }
+        int first = Integer.MAX_VALUE;
+        int last = -1;
+        for(int row = firstRow ; row <= lastRow ; row++) {
+            for(int column = firstColumn ; column <= lastColumn ; column++) {
+                int cell = row * columns + column;
+                int size = cellSizes[cell];
+                if(size > 0) {
+                    int[] arr = cells[cell];
+                    marks[arr[0]] = stamp;
+                    first = Math.min(first, arr[0]);
+                    for(int iter = 1 ; iter < size ; iter++) {
+                        marks[arr[iter]] = stamp;
+                    }
+                    last = Math.max(last, arr[size - 1]);
+                }
+            }
+        }
+        int count = 0;
+        for(int iter = first ; iter <= last ; iter++) {
+            if(marks[iter] == stamp) {
+                results[count] = iter;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Returns the candidate indexes found by the last query in ascending order
+     *
+     * @return the results array which may be longer than the number of results
+     */
+    public int[] getResults() {
+        return results;
+    }
+}
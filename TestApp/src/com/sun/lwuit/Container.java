@@ -57,6 +57,32 @@ public class Container extends Component {
     private java.util.Vector cmpTransitions;
     private int scrollIncrement = 20;
     private boolean blockFocus = false;
+    private boolean spatialIndexEnabled;
+
+    /**
+     * Grid of the children bounds, discarded whenever a child is added, removed,
+     * moved or resized and rebuilt lazily
+     */
+    private ComponentGrid spatialIndex;
+
+    /**
+     * Set when the layout must run on the next layout pass even if none of its inputs
+     * changed, e.g. when the container was explicitly invalidated or its children changed
+     */
+    private boolean forceLayout = true;
+
+    /**
+     * The inputs of the last layout and the bounds it produced, see snapshotLayout.
+     * The spare array is reused when comparing against the current values
+     */
+    private int[] layoutInputs;
+    private int[] spareLayoutInputs;
+
+    /**
+     * The size of the container when it was last laid out
+     */
+    private int laidOutWidth = -1;
+    private int laidOutHeight = -1;
 
     /**
      * Constructs a new Container with a new layout manager.
@@ -190,6 +216,7 @@ public class Container extends Component {
      */
     public void setLayout(Layout layout) {
         this.layout = layout;
+        forceLayout = true;
     }
 
     /**
@@ -223,6 +250,9 @@ public class Container extends Component {
      * @inheritDoc
      */
     public void setShouldCalcPreferredSize(boolean shouldCalcPreferredSize) {
+        if(shouldCalcPreferredSize) {
+            forceLayout = true;
+        }
         // minor optimization preventing repeated invokations to setShouldCalcPreferredSize
         if(shouldCalcPreferredSize && this.shouldLayout && this.shouldCalcPreferredSize && !isInitialized()) {
             Container p = getParent();
@@ -243,6 +273,21 @@ public class Container extends Component {
         }
     }
 
+    /**
+     * Discards the preferred size of this container and its ancestors and forces its
+     * layout, unlike setShouldCalcPreferredSize the descendants keep their layout and
+     * preferred sizes. This is used when the children of the container change.
+     */
+    void invalidateLayout() {
+        forceLayout = true;
+        super.setShouldCalcPreferredSize(true);
+        shouldLayout = true;
+        Container parent = getParent();
+        if(parent != null) {
+            parent.setShouldLayout(true);
+        }
+    }
+
     /**
      * Returns the width for layout manager purposes, this takes scrolling
      * into consideration unlike the getWidth method.
@@ -376,7 +421,12 @@ public class Container extends Component {
         }
         cmp.setParent(this);
         components.insertElementAt(cmp, index);
-        setShouldCalcPreferredSize(true);
+        spatialIndex = null;
+        focusEpoch++;
+        invalidateLayout();
+        if(cmp instanceof Container) {
+            cmp.setShouldCalcPreferredSize(true);
+        }
         if (isInitialized()) {
             cmp.initComponentImpl();
         }
@@ -639,6 +689,8 @@ public class Container extends Component {
         layout.removeLayoutComponent(cmp);
         cmp.deinitializeImpl();
         components.removeElement(cmp);
+        spatialIndex = null;
+        focusEpoch++;
         cmp.setParent(null);
         if (parentForm != null) {
             if (parentForm.getFocused() == cmp || cmp instanceof Container && ((Container) cmp).contains(parentForm.getFocused())) {
@@ -652,7 +704,7 @@ public class Container extends Component {
         if(cmp instanceof Form) {
             cmp.setVisible(false);
         }
-        setShouldCalcPreferredSize(true);
+        invalidateLayout();
     }
 
     /**
@@ -709,6 +761,14 @@ public class Container extends Component {
      */
     public void revalidate() {
         setShouldCalcPreferredSize(true);
+        layoutInvalid();
+    }
+
+    /**
+     * Lays out the containers that were invalidated since the last layout and repaints,
+     * unlike revalidate this doesn't invalidate the descendants of this container
+     */
+    void layoutInvalid() {
         Form root = getComponentForm();
         
         if (root != null) {
@@ -728,11 +788,21 @@ public class Container extends Component {
             layoutContainer();
         }
         g.translate(getX(), getY());
-        int size = components.size();
         LWUITImplementation impl = Display.getInstance().getImplementation();
-        for (int i = 0; i < size; i++) {
-            Component cmp = (Component)components.elementAt(i);
-            cmp.paintInternal(impl.getComponentScreenGraphics(this, g), false);
+        if(spatialIndexEnabled) {
+            ComponentGrid index = getSpatialIndex();
+            int size = index.query(g.getClipX(), g.getClipY(), g.getClipWidth(), g.getClipHeight());
+            int[] candidates = index.getResults();
+            for (int i = 0; i < size; i++) {
+                Component cmp = (Component)components.elementAt(candidates[i]);
+                cmp.paintInternal(impl.getComponentScreenGraphics(this, g), false);
+            }
+        } else {
+            int size = components.size();
+            for (int i = 0; i < size; i++) {
+                Component cmp = (Component)components.elementAt(i);
+                cmp.paintInternal(impl.getComponentScreenGraphics(this, g), false);
+            }
         }
         int tx = g.getTranslateX();
         int ty = g.getTranslateY();
@@ -769,6 +839,12 @@ public class Container extends Component {
     }
 
     void paintIntersecting(Graphics g, Component cmp, int x, int y, int w, int h, boolean above) {
+        if (spatialIndexEnabled) {
+            if (layout.isOverlapSupported()) {
+                paintIntersectingIndexed(g, cmp, x, y, w, h, above);
+            }
+            return;
+        }
 
         if (layout.isOverlapSupported() && components.contains(cmp)) {
             int indexOfComponent = components.indexOf(cmp);
@@ -796,6 +872,67 @@ public class Container extends Component {
         }
     }
 
+    private void paintIntersectingIndexed(Graphics g, Component cmp, int x, int y, int w, int h, boolean above) {
+        ComponentGrid index = getSpatialIndex();
+        int indexOfComponent = index.indexOf(cmp);
+        if (indexOfComponent < 0) {
+            return;
+        }
+        int size = index.query(x - getAbsoluteX(), y - getAbsoluteY(), w, h);
+        int[] candidates = index.getResults();
+        for (int i = 0; i < size; i++) {
+            int current = candidates[i];
+            if (above == (current > indexOfComponent) && current != indexOfComponent) {
+                Component cmp2 = (Component) components.elementAt(current);
+                if(Rectangle.intersects(x, y, w, h,
+                        cmp2.getAbsoluteX() + cmp2.getScrollX(),
+                        cmp2.getAbsoluteY() + cmp2.getScrollY(),
+                        cmp2.getBounds().getSize().getWidth(),
+                        cmp2.getBounds().getSize().getHeight())){
+                    cmp2.paintInternal(g, false);
+                }
+            }
+        }
+    }
+
+    /**
+     * Indicates whether hit testing and painting should use a grid of the children bounds
+     * to visit only the children near the point or the clip instead of all of them. This
+     * is useful for containers with many children such as a large coordinate or layered
+     * layout and has an overhead when the children are moved on every frame (e.g. during
+     * an animated layout) since the grid is rebuilt after any child is moved or resized.
+     *
+     * @param spatialIndexEnabled true to index the children
+     */
+    public void setSpatialIndexEnabled(boolean spatialIndexEnabled) {
+        this.spatialIndexEnabled = spatialIndexEnabled;
+        spatialIndex = null;
+    }
+
+    /**
+     * Indicates whether hit testing and painting should use a grid of the children bounds
+     * to visit only the children near the point or the clip instead of all of them
+     *
+     * @return true if the children are indexed
+     */
+    public boolean isSpatialIndexEnabled() {
+        return spatialIndexEnabled;
+    }
+
+    /**
+     * Invoked by a child whose bounds changed
+     */
+    void invalidateSpatialIndex() {
+        spatialIndex = null;
+    }
+
+    private ComponentGrid getSpatialIndex() {
+        if(spatialIndex == null) {
+            spatialIndex = new ComponentGrid(components);
+        }
+        return spatialIndex;
+    }
+
     /**
      * Performs the layout of the container if a layout is necessary
      */
@@ -804,14 +941,29 @@ public class Container extends Component {
         if (shouldLayout) {
             shouldLayout = false;
             doLayout();            
+        } else if(laidOutWidth != getWidth() || laidOutHeight != getHeight()) {
+            // the parent resized this container without invalidating it
+            doLayout();
         }
     }
 
     /**
-     * Lays out the container
+     * Lays out the container, the layout manager is skipped when it supports incremental
+     * layout and none of its inputs changed since it last ran
      */
     void doLayout() {
-        layout.layoutContainer(this);
+        if(forceLayout || !layout.isIncrementalLayoutSupported() || !isLayoutCurrent()) {
+            forceLayout = false;
+            layout.layoutContainer(this);
+            if(layout.isIncrementalLayoutSupported()) {
+                layoutInputs = snapshotLayout(layoutInputs);
+                snapshotMetrics(layoutInputs);
+            } else {
+                layoutInputs = null;
+            }
+        }
+        laidOutWidth = getWidth();
+        laidOutHeight = getHeight();
         int count = getComponentCount();
         for (int i = 0; i < count; i++) {
             Component c = getComponentAt(i);
@@ -824,6 +976,118 @@ public class Container extends Component {
         laidOut();
     }
 
+    /**
+     * Returns true if none of the inputs of the layout manager or the bounds it
+     * produced changed since the last layout. The values that are cached are compared
+     * first so a layout that must run anyway doesn't trigger any calculation.
+     */
+    private boolean isLayoutCurrent() {
+        if(layoutInputs == null) {
+            return false;
+        }
+        int count = getComponentCount();
+        for(int iter = 0 ; iter < count ; iter++) {
+            if(getComponentAt(iter).getCachedPreferredSize() == null) {
+                return false;
+            }
+        }
+        int[] current = snapshotLayout(spareLayoutInputs);
+        spareLayoutInputs = current;
+        int length = current.length - 4;
+        if(layoutInputs.length != current.length || !isSameLayout(current, layoutInputs, length) ||
+                !isLayoutMetricsCached()) {
+            return false;
+        }
+        snapshotMetrics(current);
+        return isSameLayout(current, layoutInputs, current.length);
+    }
+
+    private static boolean isSameLayout(int[] a, int[] b, int length) {
+        for(int iter = 0 ; iter < length ; iter++) {
+            if(a[iter] != b[iter]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records the size, padding, margin and orientation of the container, the display
+     * size and the preferred size, margin, visibility and bounds of every child. Only
+     * cached preferred sizes are recorded, a missing one is recorded as -1.
+     * The last 4 entries are reserved for snapshotMetrics.
+     *
+     * @param dest array to reuse if it has the right size or null
+     * @return the recorded values
+     */
+    private int[] snapshotLayout(int[] dest) {
+        int count = getComponentCount();
+        int length = 13 + count * 11 + 4;
+        if(dest == null || dest.length != length) {
+            dest = new int[length];
+        }
+        Style s = getStyle();
+        Display d = Display.getInstance();
+        dest[0] = getWidth();
+        dest[1] = getHeight();
+        dest[2] = isRTL() ? 1 : 0;
+        dest[3] = d.getDisplayWidth();
+        dest[4] = d.getDisplayHeight();
+        int offset = 5;
+        for(int side = TOP ; side <= RIGHT ; side++) {
+            dest[offset++] = s.getPadding(false, side);
+            dest[offset++] = s.getMargin(false, side);
+        }
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component c = getComponentAt(iter);
+            Style cs = c.getStyle();
+            Dimension pref = c.getCachedPreferredSize();
+            if(pref != null) {
+                dest[offset++] = pref.getWidth();
+                dest[offset++] = pref.getHeight();
+            } else {
+                dest[offset++] = -1;
+                dest[offset++] = -1;
+            }
+            for(int side = TOP ; side <= RIGHT ; side++) {
+                dest[offset++] = cs.getMargin(false, side);
+            }
+            dest[offset++] = c.isVisible() ? 1 : 0;
+            dest[offset++] = c.getX();
+            dest[offset++] = c.getY();
+            dest[offset++] = c.getWidth();
+            dest[offset++] = c.getHeight();
+        }
+        return dest;
+    }
+
+    /**
+     * Returns true if the layout size and the scrollbar gaps can be read without
+     * calculating the preferred or scroll size of the container
+     */
+    private boolean isLayoutMetricsCached() {
+        return getCachedPreferredSize() != null && (!shouldCalcScrollSize || !(scrollableX || scrollableY));
+    }
+
+    /**
+     * Records the layout size and the scrollbar gaps at the end of the snapshot, they
+     * are recorded as -1 if reading them requires a calculation
+     */
+    private void snapshotMetrics(int[] dest) {
+        int offset = dest.length - 4;
+        if(!isLayoutMetricsCached()) {
+            dest[offset] = -1;
+            dest[offset + 1] = -1;
+            dest[offset + 2] = -1;
+            dest[offset + 3] = -1;
+            return;
+        }
+        dest[offset] = getLayoutWidth();
+        dest[offset + 1] = getLayoutHeight();
+        dest[offset + 2] = getSideGap();
+        dest[offset + 3] = getBottomGap();
+    }
+
     /**
      * Returns the number of components
      * 
@@ -1051,11 +1315,24 @@ public class Container extends Component {
      * @see Component#contains
      */
     public Component getComponentAt(int x, int y) {
-        int count = getComponentCount();
+        int count;
+        int[] candidates = null;
+        if(spatialIndexEnabled) {
+            ComponentGrid index = getSpatialIndex();
+            count = index.query(x - getAbsoluteX(), y - getAbsoluteY(), 1, 1);
+            candidates = index.getResults();
+        } else {
+            count = getComponentCount();
+        }
         boolean overlaps = getLayout().isOverlapSupported();
         Component component = null;
         for (int i = count - 1; i >= 0; i--) {
-            Component cmp = getComponentAt(i);
+            Component cmp;
+            if(candidates != null) {
+                cmp = getComponentAt(candidates[i]);
+            } else {
+                cmp = getComponentAt(i);
+            }
             if (cmp.contains(x, y)) {
                 component = cmp;
                 if (!overlaps && component.isFocusable()) {
@@ -1417,6 +1694,9 @@ public class Container extends Component {
      * @param blockFocus
      */
     void setBlockFocus(boolean blockFocus) {
+        if(this.blockFocus != blockFocus) {
+            focusEpoch++;
+        }
         this.blockFocus = blockFocus;
     }
 
@@ -23,9 +23,9 @@
  */
 package com.sun.lwuit;
 
-import java.util.Hashtable;
-
-
+import com.sun.lwuit.impl.LRUCache;
+import java.util.Enumeration;
+import java.util.Vector;
 
 /**
  * Implements a bitmap font that uses an image and sets of offsets to draw a font
@@ -35,16 +35,36 @@ import java.util.Hashtable;
  */
 class CustomFont extends Font {
     /**
-     * Keep two colors in cache by default to allow faster selection colors
+     * Width of the strips in which the bitmap is tinted
+     */
+    private static final int STRIP_WIDTH = 64;
+
+    /**
+     * Characters below this value are mapped to glyphs through a direct lookup table
      */
-    private static final int COLOR_CACHE_SIZE = 20;
+    private static final int DENSE_SIZE = 256;
     
-    private Hashtable colorCache = new Hashtable();
+    /**
+     * The tinted bitmaps of all the bitmap fonts keyed by font and color, weighted by
+     * the bytes of the atlas and its tinted strips
+     */
+    private static LRUCache atlases = new LRUCache(256 * 1024);
+
+    /**
+     * Reused for looking up atlases so a cache hit doesn't allocate
+     */
+    private static TintedAtlas atlasProbe = new TintedAtlas();
+    private static int cacheHits;
+    private static int cacheMisses;
 
     private String charsets;
-    private int color;
+
+    /**
+     * The bitmap tinted in the current color or null when drawing in black
+     */
+    private TintedAtlas atlas;
     
-    // package protected for the resource editor
+    // package protected for the resource editor, the bitmap in black
     Image cache;
     
     /**
@@ -61,6 +81,18 @@ class CustomFont extends Font {
      */
     int[] charWidth;
 
+    /**
+     * Glyph offset of every character below DENSE_SIZE or -1 if the font doesn't contain it
+     */
+    private short[] denseGlyphs;
+
+    /**
+     * Open addressing hash table (linear probing, power of 2 size) mapping the other
+     * characters to their glyph offset, 0 marks an empty slot since char 0 is always dense
+     */
+    private char[] sparseKeys;
+    private short[] sparseGlyphs;
+
     private int imageWidth;
     private int imageHeight;
     private Object imageArrayRef;
@@ -96,6 +128,7 @@ class CustomFont extends Font {
         this.cutOffsets = cutOffsets;
         this.charWidth = charWidth;
         this.charsets = charsets;
+        initGlyphs();
         imageWidth = bitmap.getWidth();
         imageHeight = bitmap.getHeight();
         int[] imageArray = new int[imageWidth * imageHeight];
@@ -112,11 +145,81 @@ class CustomFont extends Font {
         imageArrayRef = Display.getInstance().createSoftWeakRef(imageArray);
     }
     
+    /**
+     * Builds the character to glyph tables, when a character appears more than once in
+     * the charset its first glyph is used
+     */
+    private void initGlyphs() {
+        denseGlyphs = new short[DENSE_SIZE];
+        for(int iter = 0 ; iter < DENSE_SIZE ; iter++) {
+            denseGlyphs[iter] = -1;
+        }
+        int len = charsets.length();
+        int sparseCount = 0;
+        for(int iter = 0 ; iter < len ; iter++) {
+            char c = charsets.charAt(iter);
+            if(c < DENSE_SIZE) {
+                if(denseGlyphs[c] < 0) {
+                    denseGlyphs[c] = (short)iter;
+                }
+            } else {
+                sparseCount++;
+            }
+        }
+        if(sparseCount > 0) {
+            int capacity = 4;
+            while(capacity < sparseCount * 2) {
+                capacity *= 2;
+            }
+            sparseKeys = new char[capacity];
+            sparseGlyphs = new short[capacity];
+            int mask = capacity - 1;
+            for(int iter = 0 ; iter < len ; iter++) {
+                char c = charsets.charAt(iter);
+                if(c >= DENSE_SIZE) {
+                    int slot = c & mask;
+                    while(sparseKeys[slot] != 0 && sparseKeys[slot] != c) {
+                        slot = (slot + 1) & mask;
+                    }
+                    if(sparseKeys[slot] == 0) {
+                        sparseKeys[slot] = c;
+                        sparseGlyphs[slot] = (short)iter;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the glyph of the character within the charset or -1 if the
+     * font doesn't contain the character
+     */
+    private int glyphIndex(char ch) {
+        if(ch < DENSE_SIZE) {
+            return denseGlyphs[ch];
+        }
+        if(sparseKeys == null) {
+            return -1;
+        }
+        int mask = sparseKeys.length - 1;
+        int slot = ch & mask;
+        while(true) {
+            char k = sparseKeys[slot];
+            if(k == ch) {
+                return sparseGlyphs[slot];
+            }
+            if(k == 0) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
     /**
      * @inheritDoc
      */
     public int charWidth(char ch) {
-        int i = charsets.indexOf(ch);
+        int i = glyphIndex(ch);
         if(i < 0) {
             return 0;
         }
@@ -130,71 +233,158 @@ class CustomFont extends Font {
         return imageHeight;
     }
 
-    private boolean checkCacheCurrentColor(int newColor) {
-        Integer currentColor = new Integer(color);
-        Integer newColorKey = new Integer(newColor);
-        if(colorCache.get(currentColor) == null){
-            colorCache.put(currentColor, Display.getInstance().createSoftWeakRef(cache));
-        }
-        color = newColor;
-        Object newCache = Display.getInstance().extractHardRef(colorCache.get(newColorKey));
-        if(newCache != null) {
-            Image i = (Image)newCache;
-            if(i != null) {
-                cache = i;
-                if(colorCache.size() > COLOR_CACHE_SIZE) {
-                    // remove a random cache element
-                    colorCache.remove(colorCache.keys().nextElement());
-                }
-                return true;
-            }else{
-                colorCache.remove(newColorKey);
+    /**
+     * Copy of the font bitmap tinted in a single color, the bitmap is split into vertical
+     * strips that are tinted only once a glyph within them is drawn
+     */
+    private static class TintedAtlas extends LRUCache.Entry {
+        CustomFont font;
+        int color;
+        Image[] strips;
+
+        /**
+         * The approximate bytes taken by the atlas before any strip is tinted, so an
+         * atlas that is never drawn still counts against the budget and is discarded
+         */
+        int getEmptyWeight() {
+            return 32 + strips.length * 4;
+        }
+
+        /**
+         * Discards the tinted strips, a font still using the atlas will tint them again
+         */
+        protected void discarded() {
+            for(int iter = 0 ; iter < strips.length ; iter++) {
+                strips[iter] = null;
             }
         }
-        if(colorCache.size() > COLOR_CACHE_SIZE) {
-            // remove a random cache element
-            colorCache.remove(colorCache.keys().nextElement());
-        }        
-        return false;
+
+        public int hashCode() {
+            return 31 * System.identityHashCode(font) + color;
+        }
+
+        public boolean equals(Object o) {
+            TintedAtlas a = (TintedAtlas)o;
+            return font == a.font && color == a.color;
+        }
     }
-    
+
     private void initColor(Graphics g) {
-        int newColor = g.getColor();
-        
-        if(newColor != color && !checkCacheCurrentColor(newColor)) {
-            color = newColor & 0xffffff;
-            int[] imageArray = getImageArray();
-            for(int iter = 0 ; iter < imageArray.length ; iter++) {
-                // extract the red component from the font image
-                // shift the alpha 8 bits to the left
-                // apply the alpha to the image
-                imageArray[iter] = color | (imageArray[iter] & 0xff000000);
+        int newColor = g.getColor() & 0xffffff;
+        if(newColor == 0) {
+            // the black bitmap is always available
+            atlas = null;
+            return;
+        }
+        if(atlas != null && atlas.color == newColor) {
+            atlases.touch(atlas);
+            return;
+        }
+        atlasProbe.font = this;
+        atlasProbe.color = newColor;
+        atlas = (TintedAtlas)atlases.get(atlasProbe);
+        atlasProbe.font = null;
+        if(atlas == null) {
+            atlas = new TintedAtlas();
+            atlas.font = this;
+            atlas.color = newColor;
+            atlas.strips = new Image[(imageWidth + STRIP_WIDTH - 1) / STRIP_WIDTH];
+            atlases.put(atlas, atlas.getEmptyWeight());
+        }
+    }
+
+    /**
+     * Returns the strip of the current atlas, tinting it if necessary
+     */
+    private Image getStrip(int strip) {
+        Image i = atlas.strips[strip];
+        if(i != null) {
+            cacheHits++;
+            return i;
+        }
+        cacheMisses++;
+        int start = strip * STRIP_WIDTH;
+        int width = Math.min(STRIP_WIDTH, imageWidth - start);
+        int[] imageArray = getImageArray();
+        int[] rgb = new int[width * imageHeight];
+        int color = atlas.color;
+        int dest = 0;
+        for(int y = 0 ; y < imageHeight ; y++) {
+            int src = y * imageWidth + start;
+            for(int x = 0 ; x < width ; x++) {
+                rgb[dest] = color | (imageArray[src] & 0xff000000);
+                dest++;
+                src++;
             }
-            cache = Image.createImage(imageArray, imageWidth, imageHeight);
         }
+        i = Image.createImage(rgb, width, imageHeight);
+        if(!atlas.isCached()) {
+            // the atlas was discarded while this font still used it
+            atlases.put(atlas, atlas.getEmptyWeight());
+        }
+        atlas.strips[strip] = i;
+
+        // the atlas in use is kept even if it exceeds the budget on its own
+        if(atlas.isCached()) {
+            atlases.addWeight(atlas, rgb.length * 4);
+        }
+        return i;
+    }
+
+    /**
+     * Sets the maximum number of bytes used by the tinted bitmaps of all bitmap fonts
+     *
+     * @param bytes the byte budget of the cache
+     */
+    static void setCacheBudget(int bytes) {
+        atlases.setBudget(bytes);
+    }
+
+    /**
+     * Returns the maximum number of bytes used by the tinted bitmaps of all bitmap fonts
+     *
+     * @return the byte budget of the cache
+     */
+    static int getCacheBudget() {
+        return atlases.getBudget();
+    }
+
+    /**
+     * Returns the number of bytes currently used by tinted bitmaps
+     *
+     * @return the number of bytes in the cache
+     */
+    static int getCacheBytes() {
+        return atlases.getWeight();
+    }
+
+    /**
+     * Returns the number of times a glyph was drawn from a strip that was already tinted
+     *
+     * @return the number of cache hits
+     */
+    static int getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns the number of times a strip of the bitmap had to be tinted
+     *
+     * @return the number of cache misses
+     */
+    static int getCacheMisses() {
+        return cacheMisses;
     }
     
     /**
      * @inheritDoc
      */
     void drawChar(Graphics g, char character, int x, int y) {
-        int clipX = g.getClipX();
-        int clipY = g.getClipY();
-        int clipWidth = g.getClipWidth();
-        int clipHeight = g.getClipHeight();
-
-        int i = charsets.indexOf(character);
+        int i = glyphIndex(character);
         if(i > -1) {
             initColor(g);
-            
-            // draw region is flaky on some devices, use setClip instead
-            g.clipRect(x, y, charWidth[i], imageHeight);
-            g.drawImage(cache, x - cutOffsets[i], y);
-            //g.drawRegion(cache, cutOffsets[i], 0, charWidth[i], imageHeight, x, y);
+            drawRun(g, x, y, cutOffsets[i], charWidth[i], g.getClipX(), g.getClipY(), g.getClipWidth(), g.getClipHeight());
         }
-
-        // restore the clip
-        g.setClip(clipX, clipY, clipWidth, clipHeight);
     }
 
     /**
@@ -202,13 +392,29 @@ class CustomFont extends Font {
      */
     public void addContrast(byte value) {
         int[] imageArray = getImageArray();
+        int[] contrast = new int[imageArray.length];
         for(int iter = 0 ; iter < imageArray.length ; iter++) {
             int alpha = (imageArray[iter] >> 24) & 0xff;
             if(alpha != 0) {
                 alpha = Math.min(alpha + value, 255);
-                imageArray[iter] = ((alpha << 24) & 0xff000000) | color;
             }
+            contrast[iter] = (alpha << 24) & 0xff000000;
+        }
+        cache = Image.createImage(contrast, imageWidth, imageHeight);
+        imageArrayRef = Display.getInstance().createSoftWeakRef(contrast);
+
+        // the tinted strips were cut from the previous bitmap
+        Vector stale = new Vector();
+        for(Enumeration e = atlases.elements() ; e.hasMoreElements() ; ) {
+            TintedAtlas a = (TintedAtlas)e.nextElement();
+            if(a.font == this) {
+                stale.addElement(a);
+            }
+        }
+        for(int iter = 0 ; iter < stale.size() ; iter++) {
+            atlases.remove((TintedAtlas)stale.elementAt(iter));
         }
+        atlas = null;
     }
 
     /**
@@ -223,7 +429,7 @@ class CustomFont extends Font {
      */
     void drawChars(Graphics g, char[] data, int offset, int length, int x, int y) {
         if(Display.getInstance().isBidiAlgorithm()) {
-            for(int i = offset ; i < length ; i++) {
+            for(int i = offset ; i < offset + length ; i++) {
                 if(Display.getInstance().isRTL(data[i])) {
                     String s = Display.getInstance().convertBidiLogicalToVisual(new String(data, offset, length));
                     data = s.toCharArray();
@@ -233,6 +439,37 @@ class CustomFont extends Font {
                 }
             }
         }
+        drawGlyphs(g, data, null, offset, length, x, y);
+    }
+
+    /**
+     * Draws a string without copying it into a char array
+     *
+     * @param g the component graphics
+     * @param str the string to draw
+     * @param x the x coordinate to draw the string
+     * @param y the y coordinate to draw the string
+     */
+    void drawString(Graphics g, String str, int x, int y) {
+        int length = str.length();
+        if(Display.getInstance().isBidiAlgorithm()) {
+            for(int i = 0 ; i < length ; i++) {
+                if(Display.getInstance().isRTL(str.charAt(i))) {
+                    str = Display.getInstance().convertBidiLogicalToVisual(str);
+                    length = str.length();
+                    break;
+                }
+            }
+        }
+        drawGlyphs(g, null, str, 0, length, x, y);
+    }
+
+    /**
+     * Draws the characters of either the char array or the string. Consecutive glyphs
+     * that are also adjacent in the font bitmap are drawn as a single run with one clip
+     * and image draw, glyphs past the right edge of the clip aren't drawn at all.
+     */
+    private void drawGlyphs(Graphics g, char[] data, String str, int offset, int length, int x, int y) {
         initColor(g);
         int clipX = g.getClipX();
         int clipY = g.getClipY();
@@ -240,21 +477,69 @@ class CustomFont extends Font {
         int clipHeight = g.getClipHeight();
 
         if(clipY <= y + getHeight() && clipY + clipHeight >= y) {
-            char c;
+            int clipRight = clipX + clipWidth;
+            int runX = x;
+            int runCut = 0;
+            int runWidth = 0;
             for ( int i = 0; i < length; i++ ) {
-                c = data[offset+i];
-                int position = charsets.indexOf(c);
+                char c;
+                if(data != null) {
+                    c = data[offset + i];
+                } else {
+                    c = str.charAt(offset + i);
+                }
+                int position = glyphIndex(c);
                 if(position < 0) {
                     continue;
                 }
-                // draw region is flaky on some devices, use setClip instead
-                g.clipRect(x, y, charWidth[position], imageHeight);
-                if(g.getClipWidth() > 0 && g.getClipHeight() > 0) {
-                    g.drawImage(cache, x - cutOffsets[position], y);
+                int w = charWidth[position];
+                if(cutOffsets[position] == runCut + runWidth && runWidth > 0) {
+                    runWidth += w;
+                } else {
+                    drawRun(g, runX, y, runCut, runWidth, clipX, clipY, clipWidth, clipHeight);
+                    runX = x;
+                    runCut = cutOffsets[position];
+                    runWidth = w;
+                }
+                x += w;
+                if(x >= clipRight) {
+                    break;
                 }
-                x += charWidth[position];
-                g.setClip(clipX, clipY, clipWidth, clipHeight);
             }
+            drawRun(g, runX, y, runCut, runWidth, clipX, clipY, clipWidth, clipHeight);
+        }
+    }
+
+    private void drawRun(Graphics g, int x, int y, int cut, int width, int clipX, int clipY, int clipWidth, int clipHeight) {
+        if(width <= 0 || x + width <= clipX) {
+            return;
+        }
+        if(atlas == null) {
+            // draw region is flaky on some devices, use setClip instead
+            g.clipRect(x, y, width, imageHeight);
+            if(g.getClipWidth() > 0 && g.getClipHeight() > 0) {
+                g.drawImage(cache, x - cut, y);
+            }
+            g.setClip(clipX, clipY, clipWidth, clipHeight);
+            return;
+        }
+
+        // draw the part of the run within every tinted strip it crosses
+        int end = Math.min(cut + width, imageWidth);
+        int clipRight = clipX + clipWidth;
+        for(int strip = cut / STRIP_WIDTH ; strip * STRIP_WIDTH < end ; strip++) {
+            int stripStart = strip * STRIP_WIDTH;
+            int from = Math.max(cut, stripStart);
+            int to = Math.min(end, stripStart + STRIP_WIDTH);
+            int drawX = x + from - cut;
+            if(drawX + to - from <= clipX || drawX >= clipRight) {
+                continue;
+            }
+            g.clipRect(drawX, y, to - from, imageHeight);
+            if(g.getClipWidth() > 0 && g.getClipHeight() > 0) {
+                g.drawImage(getStrip(strip), x - cut + stripStart, y);
+            }
+            g.setClip(clipX, clipY, clipWidth, clipHeight);
         }
     }
 
@@ -270,8 +555,12 @@ class CustomFont extends Font {
      */
     public int charsWidth(char[] ch, int offset, int length){
         int retVal = 0;
-        for(int i=0; i<length; i++){
-            retVal += charWidth(ch[i + offset]);
+        int end = offset + length;
+        for(int i = offset ; i < end ; i++) {
+            int position = glyphIndex(ch[i]);
+            if(position > -1) {
+                retVal += charWidth[position];
+            }
         }
         return retVal;
     }
@@ -281,7 +570,15 @@ class CustomFont extends Font {
      * @inheritDoc
      */
     public int substringWidth(String str, int offset, int len){
-        return charsWidth(str.toCharArray(), offset, len);
+        int retVal = 0;
+        int end = offset + len;
+        for(int i = offset ; i < end ; i++) {
+            int position = glyphIndex(str.charAt(i));
+            if(position > -1) {
+                retVal += charWidth[position];
+            }
+        }
+        return retVal;
     }
 
     /**
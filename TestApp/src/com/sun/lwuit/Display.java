@@ -240,9 +240,20 @@ public final class Display {
 
 
     /**
-     * Contains the call serially pending elements
+     * Head and tail of the linked queue of call serially pending elements, threads
+     * append to the tail under the lock and the EDT detaches batches from the head
      */
-    private Vector pendingSerialCalls = new Vector();
+    private EDTFuture pendingSerialCallsHead;
+    private EDTFuture pendingSerialCallsTail;
+    private int pendingSerialCallsCount;
+
+    /**
+     * The maximum number of serial calls processed by a single EDT cycle
+     */
+    private int serialCallBatchSize = 64;
+
+    private long serialCallsTime;
+    private int serialCallsExecuted;
 
     /**
      * This is the instance of the EDT used internally to indicate whether
@@ -294,10 +305,23 @@ public final class Display {
 
     static final Object lock = new Object();
 
+    /**
+     * The initial number of input events that can wait for the EDT, the queue grows
+     * when more events that can't be discarded are pending
+     */
+    private static final int INPUT_EVENT_QUEUE_SIZE = 128;
+
     /**
      * Events to broadcast on the EDT
      */
-    private Vector inputEvents = new Vector();
+    private InputEventQueue inputEvents = new InputEventQueue(INPUT_EVENT_QUEUE_SIZE);
+
+    /**
+     * Buffer into which the EDT copies the event it is currently handling
+     */
+    private int[] inputEventBuffer;
+
+    private boolean coalesceInputEvents = true;
 
     private boolean longPointerCharged;
     private boolean pointerPressedAndNotReleasedOrDragged;
@@ -603,12 +627,110 @@ public final class Display {
      * the paint and key handling events
      */
     public void callSerially(Runnable r){
+        addSerialCall(new EDTFuture(r, false));
+    }
+
+    /**
+     * Submits the runnable for execution on the event dispatch thread, this method returns
+     * immediately with a future that can be used to wait for the runnable to complete.
+     * Unlike callSerially an exception thrown by the runnable is captured by the future
+     * and thrown from its get method.
+     *
+     * @param r runnable (NOT A THREAD!) that will be invoked on the EDT serial to
+     * the paint and key handling events
+     * @return future tracking the completion of the runnable
+     */
+    public EDTFuture submit(Runnable r) {
+        EDTFuture f = new EDTFuture(r, true);
+        addSerialCall(f);
+        return f;
+    }
+
+    /**
+     * Submits the callable for execution on the event dispatch thread, this method returns
+     * immediately with a future that can be used to wait for the result.
+     *
+     * @param c callable that will be invoked on the EDT serial to the paint and key
+     * handling events
+     * @return future providing the value returned by the callable
+     */
+    public EDTFuture submit(EDTCallable c) {
+        EDTFuture f = new EDTFuture(c);
+        addSerialCall(f);
+        return f;
+    }
+
+    private void addSerialCall(EDTFuture f) {
         synchronized(lock) {
-            pendingSerialCalls.addElement(r);
+            if(pendingSerialCallsTail == null) {
+                pendingSerialCallsHead = f;
+            } else {
+                pendingSerialCallsTail.next = f;
+            }
+            pendingSerialCallsTail = f;
+            pendingSerialCallsCount++;
             lock.notify();
         }
     }
 
+    /**
+     * Returns the number of serial calls waiting for the EDT
+     *
+     * @return the number of pending serial calls
+     */
+    public int getSerialCallQueueDepth() {
+        return pendingSerialCallsCount;
+    }
+
+    /**
+     * Returns the number of serial calls executed by the EDT since the last call to
+     * resetSerialCallStatistics
+     *
+     * @return number of executed serial calls
+     */
+    public int getSerialCallsExecuted() {
+        return serialCallsExecuted;
+    }
+
+    /**
+     * Returns the total time the EDT spent executing serial calls since the last call to
+     * resetSerialCallStatistics, the time of an individual task is available from
+     * {@link EDTFuture#getExecutionTime()}
+     *
+     * @return time in milliseconds
+     */
+    public long getSerialCallsTime() {
+        return serialCallsTime;
+    }
+
+    /**
+     * Resets the serial call execution counters
+     */
+    public void resetSerialCallStatistics() {
+        serialCallsExecuted = 0;
+        serialCallsTime = 0;
+    }
+
+    /**
+     * Sets the maximum number of serial calls executed in a single EDT cycle, remaining
+     * calls are executed in the following cycles after pending input and paints are
+     * processed
+     *
+     * @param serialCallBatchSize the batch size, must be positive
+     */
+    public void setSerialCallBatchSize(int serialCallBatchSize) {
+        this.serialCallBatchSize = Math.max(1, serialCallBatchSize);
+    }
+
+    /**
+     * Returns the maximum number of serial calls executed in a single EDT cycle
+     *
+     * @return the batch size
+     */
+    public int getSerialCallBatchSize() {
+        return serialCallBatchSize;
+    }
+
 
     /**
      * Identical to callSerially with the added benefit of waiting for the Runnable method to complete.
@@ -619,17 +741,10 @@ public final class Display {
      * paint or event handling).
      */
     public void callSeriallyAndWait(Runnable r){
-        RunnableWrapper c = new RunnableWrapper(r, 0);
-        callSerially(c);
+        EDTFuture c = new EDTFuture(r, false);
+        addSerialCall(c);
         flushEdt();
-        synchronized(lock) {
-            while(!c.isDone()) {
-                try {
-                    // poll doneness to prevent potential race conditions
-                    lock.wait(50);
-                } catch(InterruptedException err) {}
-            }
-        }
+        c.get();
     }
 
     /**
@@ -642,20 +757,9 @@ public final class Display {
      * paint or event handling).
      */
     public void callSeriallyAndWait(Runnable r, int timeout){
-        RunnableWrapper c = new RunnableWrapper(r, 0);
-        callSerially(c);
-        synchronized(lock) {
-            long t = System.currentTimeMillis();
-            while(!c.isDone()) {
-                try {
-                    // poll doneness to prevent potential race conditions
-                    lock.wait(20);
-                } catch(InterruptedException err) {}
-                if(System.currentTimeMillis() - t >= timeout) {
-                    return;
-                }
-            }
-        }
+        EDTFuture c = new EDTFuture(r, false);
+        addSerialCall(c);
+        c.get(Math.max(1, timeout));
     }
 
     /**
@@ -809,7 +913,11 @@ public final class Display {
                 // is the same as waiting with no time limit
                 if(!noSleep){
                     synchronized(lock){
-                        lock.wait(Math.max(1, framerateLock - (time)));
+                        // serial calls left over from the previous batch shouldn't wait
+                        // for the next frame
+                        if(hasNoSerialCallsPending()) {
+                            lock.wait(Math.max(1, framerateLock - (time)));
+                        }
                     }
                 }
             } else {
@@ -823,10 +931,18 @@ public final class Display {
         }
         long currentTime = System.currentTimeMillis();
 
-        while(inputEvents.size() > 0) {
-            int[] i = (int[])inputEvents.elementAt(0);
-            inputEvents.removeElementAt(0);
-            handleEvent(i);
+        while(!inputEvents.isEmpty()) {
+            int length;
+            int[] ev;
+            synchronized(lock) {
+                if(inputEvents.isEmpty()) {
+                    break;
+                }
+                length = inputEvents.peekLength();
+                ev = inputEvents.poll(inputEventBuffer);
+                inputEventBuffer = ev;
+            }
+            handleEvent(ev, length);
         }
 
         lwuitGraphics.setGraphics(impl.getNativeGraphics());
@@ -856,7 +972,7 @@ public final class Display {
     }
 
     boolean hasNoSerialCallsPending() {
-        return pendingSerialCalls.size() == 0;
+        return pendingSerialCallsHead == null;
     }
 
     /**
@@ -876,36 +992,54 @@ public final class Display {
      */
     void processSerialCalls() {
         processingSerialCalls = true;
-        int size = pendingSerialCalls.size();
-        if(size > 0) {
-            Runnable[] array = null;
+        if(pendingSerialCallsHead != null) {
+            EDTFuture batch;
             synchronized(lock) {
-                size = pendingSerialCalls.size();
-                array = new Runnable[size];
-
-                // copy all elements to an array and remove them otherwise invokeAndBlock from
+                // detach a batch from the queue otherwise invokeAndBlock from
                 // within a callSerially() can cause an infinite loop...
-                pendingSerialCalls.copyInto(array);
-
-                if(size == pendingSerialCalls.size()) {
-                    // this is faster
-                    pendingSerialCalls.removeAllElements();
-                } else {
-                    // this can occur if an element was added during the loop
-                    for(int iter = 0 ; iter < size ; iter++) {
-                        pendingSerialCalls.removeElementAt(0);
-                    }
+                batch = pendingSerialCallsHead;
+                EDTFuture last = batch;
+                int size = 1;
+                while(size < serialCallBatchSize && last.next != null) {
+                    last = last.next;
+                    size++;
                 }
+                pendingSerialCallsHead = last.next;
+                if(pendingSerialCallsHead == null) {
+                    pendingSerialCallsTail = null;
+                }
+                last.next = null;
+                pendingSerialCallsCount -= size;
             }
 
-            for(int iter = 0 ; iter < size ; iter++) {
-                array[iter].run();
-            }
-
-            // after finishing an event cycle there might be serial calls waiting
-            // to return.
-            synchronized(lock){
-                lock.notify();
+            try {
+                while(batch != null) {
+                    EDTFuture current = batch;
+                    batch = batch.next;
+                    current.next = null;
+                    current.execute();
+                    serialCallsExecuted++;
+                    serialCallsTime += current.getExecutionTime();
+                }
+            } finally {
+                if(batch != null) {
+                    // a serial call threw an exception, return the rest of the batch
+                    // to the front of the queue
+                    synchronized(lock) {
+                        EDTFuture last = batch;
+                        int size = 1;
+                        while(last.next != null) {
+                            last = last.next;
+                            size++;
+                        }
+                        last.next = pendingSerialCallsHead;
+                        if(pendingSerialCallsHead == null) {
+                            pendingSerialCallsTail = last;
+                        }
+                        pendingSerialCallsHead = batch;
+                        pendingSerialCallsCount += size;
+                    }
+                }
             }
         }
         processingSerialCalls = false;
@@ -941,16 +1075,8 @@ public final class Display {
             RunnableWrapper w = new RunnableWrapper(r, 1);
             RunnableWrapper.pushToThreadPool(w);
 
-            synchronized(lock) {
-                try {
-                    // yeald the CPU for a very short time to let the invoke thread
-                    // get started
-                    lock.wait(2);
-                } catch (InterruptedException ex) {
-                    ex.printStackTrace();
-                }
-            }
-            // loop over the EDT until the thread completes then return
+            // loop over the EDT until the thread completes then return, the wrapper
+            // notifies the lock on completion so the loop doesn't wait for a full frame
             while(!w.isDone() && lwuitRunning) {
                 edtLoopImpl();
             }
@@ -1245,48 +1371,104 @@ public final class Display {
         getImplementation().restoreMinimizedApplication();
     }
 
-    private void addInputEvent(int[] ev) {
+    private boolean shouldDropEvent(int type) {
+        if (this.dropEvents && (type == KEY_PRESSED || type == KEY_RELEASED
+                || type == POINTER_PRESSED || type == POINTER_RELEASED
+                || type == POINTER_DRAGGED || type == POINTER_HOVER)) {
+            inputEvents.eventDropped();
+            return true;
+        }
+        return false;
+    }
+
+    private void addInputEvent(int type, int argCount, int a, int b) {
         synchronized(lock) {
-            if (this.dropEvents && (ev[0] == KEY_PRESSED || ev[0] == KEY_RELEASED
-                    || ev[0] == POINTER_PRESSED || ev[0] == POINTER_RELEASED
-                    || ev[0] == POINTER_DRAGGED || ev[0] == POINTER_HOVER)) {
+            if (shouldDropEvent(type)) {
                 return;
             }
-            inputEvents.addElement(ev);
+            // a key press arriving while the same press is still pending (without a release)
+            // is a native key repeat and can be merged
+            inputEvents.push(type, argCount, a, b, coalesceInputEvents && type == KEY_PRESSED);
             lock.notify();
         }
     }
 
     /**
-     * Creates a pointer event with the following properties
+     * Queues a pointer event with the following properties
      */
-    private int[] createPointerEvent(int[] x, int[] y, int eventType) {
+    private void addPointerEvent(int[] x, int[] y, int eventType) {
         // apply timestamp early to ensure the timing happens on the native UI
         // thread and not later on the EDT.
         final int stamp = (int) (System.currentTimeMillis() - displayInitTime);
-        if (x.length == 1) {
-            return new int[]{eventType, x[0], y[0], stamp};
-         }
-        int[] arr = new int[2 + x.length * 2];
-
-        arr[0] = eventType;
-        int arrayOffset = 1;
-        for(int iter = 0 ; iter < x.length ; iter++) {
-            arr[arrayOffset] = x[iter];
-            arrayOffset++;
-            arr[arrayOffset] = y[iter];
-            arrayOffset++;
+        synchronized(lock) {
+            if (shouldDropEvent(eventType)) {
+                return;
+            }
+            // consecutive motion events that the EDT didn't get to yet are merged
+            // into the last one
+            inputEvents.pushPointer(eventType, x, y, stamp, coalesceInputEvents &&
+                    (eventType == POINTER_DRAGGED || eventType == POINTER_HOVER));
+            lock.notify();
         }
-        arr[arrayOffset] = stamp;
-        return arr;
     }
 
+    /**
+     * Indicates whether consecutive pointer drag/hover events and repeated key presses
+     * that are still pending for the EDT are merged into a single event. This reduces
+     * the EDT load during fast drag operations, notice that this affects the number of
+     * pointerDragged callbacks a component receives but not the final position.
+     *
+     * @param coalesceInputEvents true to merge pending events (the default)
+     */
+    public void setCoalesceInputEvents(boolean coalesceInputEvents) {
+        this.coalesceInputEvents = coalesceInputEvents;
+    }
 
-    private int[] createKeyEvent(int keyCode, boolean pressed) {
-        if(pressed) {
-            return new int[] {KEY_PRESSED, keyCode};
-        } else {
-            return new int[] {KEY_RELEASED, keyCode};
+    /**
+     * Indicates whether consecutive pointer drag/hover events and repeated key presses
+     * that are still pending for the EDT are merged into a single event.
+     *
+     * @return true if pending events are merged
+     */
+    public boolean isCoalesceInputEvents() {
+        return coalesceInputEvents;
+    }
+
+    /**
+     * Returns the number of input events discarded since the EDT was blocked with
+     * event dropping enabled (see invokeAndBlock)
+     *
+     * @return the number of dropped input events
+     */
+    public int getDroppedInputEventCount() {
+        return inputEvents.getDroppedCount();
+    }
+
+    /**
+     * Returns the number of pointer motion events lost because the EDT didn't keep up
+     * and the input queue was full, other events are never discarded
+     *
+     * @return the number of input events lost on overflow
+     */
+    public int getInputEventOverflowCount() {
+        return inputEvents.getOverflowCount();
+    }
+
+    /**
+     * Returns the number of input events that were merged into a pending event
+     *
+     * @return the number of coalesced input events
+     */
+    public int getCoalescedInputEventCount() {
+        return inputEvents.getCoalescedCount();
+    }
+
+    /**
+     * Resets the dropped, overflow and coalesced input event counters
+     */
+    public void resetInputEventCounters() {
+        synchronized(lock) {
+            inputEvents.resetCounters();
         }
     }
 
@@ -1302,7 +1484,7 @@ public final class Display {
         if(impl.getCurrentForm() == null){
             return;
         }
-        addInputEvent(createKeyEvent(keyCode, true));
+        addInputEvent(KEY_PRESSED, 1, keyCode, 0);
 
         lastInteractionWasKeypad = lastInteractionWasKeypad || (keyCode != MenuBar.leftSK && keyCode != MenuBar.clearSK && keyCode != MenuBar.backSK);
 
@@ -1344,7 +1526,7 @@ public final class Display {
         } else {
             lastKeyPressed = 0;
         }
-        addInputEvent(createKeyEvent(keyCode, false));
+        addInputEvent(KEY_RELEASED, 1, keyCode, 0);
     }
 
     void keyRepeatedInternal(final int keyCode){
@@ -1361,7 +1543,7 @@ public final class Display {
             return;
         }
         longPointerCharged = false;
-        addInputEvent(createPointerEvent(x, y, POINTER_DRAGGED));
+        addPointerEvent(x, y, POINTER_DRAGGED);
     }
 
     /**
@@ -1374,7 +1556,7 @@ public final class Display {
         if(impl.getCurrentForm() == null){
             return;
         }
-        addInputEvent(createPointerEvent(x, y, POINTER_HOVER));
+        addPointerEvent(x, y, POINTER_HOVER);
     }
 
 
@@ -1388,7 +1570,7 @@ public final class Display {
         if(impl.getCurrentForm() == null){
             return;
         }
-        addInputEvent(createPointerEvent(x, y, POINTER_HOVER_PRESSED));
+        addPointerEvent(x, y, POINTER_HOVER_PRESSED);
     }
 
     /**
@@ -1401,7 +1583,7 @@ public final class Display {
         if(impl.getCurrentForm() == null){
             return;
         }
-        addInputEvent(createPointerEvent(x, y, POINTER_HOVER_RELEASED));
+        addPointerEvent(x, y, POINTER_HOVER_RELEASED);
     }
 
     /**
@@ -1420,7 +1602,7 @@ public final class Display {
         longKeyPressTime = System.currentTimeMillis();
         pointerX = x[0];
         pointerY = y[0];
-        addInputEvent(createPointerEvent(x, y, POINTER_PRESSED));
+        addPointerEvent(x, y, POINTER_PRESSED);
     }
 
     /**
@@ -1434,7 +1616,7 @@ public final class Display {
         if(impl.getCurrentForm() == null){
             return;
         }
-        addInputEvent(createPointerEvent(x, y, POINTER_RELEASED));
+        addPointerEvent(x, y, POINTER_RELEASED);
     }
 
     /**
@@ -1453,11 +1635,7 @@ public final class Display {
             return;
         }
 
-        addInputEvent(createSizeChangedEvent(w, h));
-    }
-
-    private int[] createSizeChangedEvent(int w, int h) {
-        return new int[] {SIZE_CHANGED, w, h};
+        addInputEvent(SIZE_CHANGED, 2, w, h);
     }
 
 
@@ -1470,7 +1648,7 @@ public final class Display {
         longPressCharged = false;
         longPointerCharged = false;
         pointerPressedAndNotReleasedOrDragged = false;
-        addInputEvent(new int[]{HIDE_NOTIFY});
+        addInputEvent(HIDE_NOTIFY, 0, 0, 0);
     }
 
     /**
@@ -1478,7 +1656,7 @@ public final class Display {
      * to notify LWUIT of showNotify events
      */
     public void showNotify(){
-        addInputEvent(new int[]{SHOW_NOTIFY});
+        addInputEvent(SHOW_NOTIFY, 0, 0, 0);
     }
 
 
@@ -1489,18 +1667,18 @@ public final class Display {
     boolean shouldEDTSleepNoFormAnimation() {
         boolean b;
         synchronized(lock){
-            b = inputEvents.size() == 0 &&
+            b = inputEvents.isEmpty() &&
                     hasNoSerialCallsPending() &&
                     (!keyRepeatCharged || !longPressCharged);
         }
         return b;
     }
 
-    private void updateDragSpeedStatus(int[] ev) {
+    private void updateDragSpeedStatus(int[] ev, int length) {
             //save dragging input to calculate the dragging speed later
-            dragPathX[dragPathOffset] = pointerEvent(1, ev)[0];
-            dragPathY[dragPathOffset] = pointerEvent(2, ev)[0];
-            dragPathTime[dragPathOffset] = displayInitTime + (long) ev[ev.length - 1];
+            dragPathX[dragPathOffset] = ev[1];
+            dragPathY[dragPathOffset] = ev[2];
+            dragPathTime[dragPathOffset] = displayInitTime + (long) ev[length - 1];
             if (dragPathLength < PATHLENGTH) {
                 dragPathLength++;
             }
@@ -1511,9 +1689,10 @@ public final class Display {
     }
 
     /**
-     * Invoked on the EDT to propagate the event
+     * Invoked on the EDT to propagate the event, the event array might be longer
+     * than the event itself since it is reused
      */
-    private void handleEvent(int[] ev) {
+    private void handleEvent(int[] ev, int length) {
         Form f = getCurrentUpcomingForm(true);
 
         // might happen when returning from a deinitialized version of LWUIT
@@ -1532,27 +1711,27 @@ public final class Display {
             dragOccured = false;
             dragPathLength = 0;
             pointerPressedAndNotReleasedOrDragged = true;
-            f.pointerPressed(pointerEvent(1, ev), pointerEvent(2, ev));
+            f.pointerPressed(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case POINTER_RELEASED:
             pointerPressedAndNotReleasedOrDragged = false;
-            f.pointerReleased(pointerEvent(1, ev), pointerEvent(2, ev));
+            f.pointerReleased(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case POINTER_DRAGGED:
             dragOccured = true;
-            updateDragSpeedStatus(ev);
+            updateDragSpeedStatus(ev, length);
             pointerPressedAndNotReleasedOrDragged = false;
-            f.pointerDragged(pointerEvent(1, ev), pointerEvent(2, ev));
+            f.pointerDragged(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case POINTER_HOVER:
-            updateDragSpeedStatus(ev);
-            f.pointerHover(pointerEvent(1, ev), pointerEvent(2, ev));
+            updateDragSpeedStatus(ev, length);
+            f.pointerHover(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case POINTER_HOVER_RELEASED:
-            f.pointerHoverReleased(pointerEvent(1, ev), pointerEvent(2, ev));
+            f.pointerHoverReleased(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case POINTER_HOVER_PRESSED:
-            f.pointerHoverPressed(pointerEvent(1, ev), pointerEvent(2, ev));
+            f.pointerHoverPressed(pointerEvent(1, ev, length), pointerEvent(2, ev, length));
             break;
         case SIZE_CHANGED:
             f.sizeChangedInternal(ev[1], ev[2]);
@@ -1577,10 +1756,10 @@ public final class Display {
        return dragOccured;
     }
 
-    private int[] pointerEvent(int off, int[] event) {
-        int[] peX = new int[(event.length - 1) / 2];
+    private int[] pointerEvent(int off, int[] event, int length) {
+        int[] peX = new int[(length - 1) / 2];
         int offset = 0;
-        for (int iter = off; iter < (event.length - 1); iter += 2) {
+        for (int iter = off; iter < (length - 1); iter += 2) {
             peX[offset] = event[iter];
             offset++;
         }
@@ -1594,7 +1773,7 @@ public final class Display {
         Form current = impl.getCurrentForm();
         return (current == null || (!current.hasAnimations())) &&
                 (animationQueue == null || animationQueue.size() == 0) &&
-                inputEvents.size() == 0 &&
+                inputEvents.isEmpty() &&
                 (!impl.hasPendingPaints()) &&
                 hasNoSerialCallsPending() && !keyRepeatCharged
                 && !longPointerCharged;
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit;
+
+import com.sun.lwuit.events.ActionEvent;
+import com.sun.lwuit.events.ActionListener;
+import com.sun.lwuit.util.EventDispatcher;
+
+/**
+ * Represents a task submitted to the EDT via {@link Display#submit(Runnable)} or
+ * {@link Display#submit(EDTCallable)}. The future allows a thread to block until the
+ * task completes and to register listeners that are invoked on the EDT once it does.
+ * <p>Futures also serve as the nodes of the serial call queue, a future can only be
+ * submitted once.
+ */
+public class EDTFuture {
+    private Runnable runnable;
+    private EDTCallable callable;
+    private Object result;
+    private RuntimeException error;
+    private boolean done;
+    private boolean captureErrors;
+    private int executionTime;
+    private EventDispatcher listeners;
+
+    /**
+     * The next task in the serial call queue
+     */
+    EDTFuture next;
+
+    EDTFuture(Runnable runnable, boolean captureErrors) {
+        this.runnable = runnable;
+        this.captureErrors = captureErrors;
+    }
+
+    EDTFuture(EDTCallable callable) {
+        this.callable = callable;
+        this.captureErrors = true;
+    }
+
+    /**
+     * Invoked by the EDT to perform the task
+     */
+    void execute() {
+        long start = System.currentTimeMillis();
+        try {
+            if(callable != null) {
+                result = callable.call();
+            } else {
+                runnable.run();
+            }
+        } catch(RuntimeException err) {
+            error = err;
+            if(!captureErrors) {
+                throw err;
+            }
+        } finally {
+            executionTime = (int)(System.currentTimeMillis() - start);
+            synchronized(this) {
+                done = true;
+                notifyAll();
+            }
+            runnable = null;
+            callable = null;
+            if(listeners != null) {
+                listeners.fireActionEvent(new ActionEvent(this));
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the task finished executing (successfully or with an exception)
+     *
+     * @return true if the task completed
+     */
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    /**
+     * Blocks until the task completes and returns its result, this method must not
+     * be invoked on the EDT before the task completes since the EDT is the thread
+     * executing the task.
+     *
+     * @return the value returned by the callable or null for a runnable
+     * @throws IllegalStateException if invoked on the EDT for a task that didn't complete
+     * @throws RuntimeException the exception thrown by the task
+     */
+    public Object get() {
+        return get(0);
+    }
+
+    /**
+     * Blocks until the task completes or the timeout elapses and returns the result
+     * of the task
+     *
+     * @param timeout the maximum time to wait in milliseconds, 0 to wait indefinitely
+     * @return the value returned by the callable or null if the task is a runnable or
+     * didn't complete within the timeout
+     * @throws IllegalStateException if invoked on the EDT for a task that didn't complete
+     * @throws RuntimeException the exception thrown by the task
+     */
+    public Object get(int timeout) {
+        synchronized(this) {
+            if(!done) {
+                if(Display.getInstance().isEdt()) {
+                    throw new IllegalStateException("The EDT can't block waiting for its own task");
+                }
+                long end = System.currentTimeMillis() + timeout;
+                while(!done) {
+                    try {
+                        if(timeout > 0) {
+                            long remaining = end - System.currentTimeMillis();
+                            if(remaining <= 0) {
+                                return null;
+                            }
+                            wait(remaining);
+                        } else {
+                            wait();
+                        }
+                    } catch(InterruptedException err) {
+                    }
+                }
+            }
+        }
+        if(error != null) {
+            throw error;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the exception thrown by the task if it failed
+     *
+     * @return the exception thrown by the task or null
+     */
+    public RuntimeException getError() {
+        return error;
+    }
+
+    /**
+     * Returns the time the task took to execute on the EDT
+     *
+     * @return execution time in milliseconds, 0 if the task didn't complete
+     */
+    public int getExecutionTime() {
+        return executionTime;
+    }
+
+    /**
+     * Adds a listener that is invoked on the EDT when the task completes, the source of
+     * the event is this future. If the task already completed the listener is invoked
+     * on the EDT through callSerially, after this method returns even when it is called
+     * on the EDT.
+     *
+     * @param l the listener
+     */
+    public void addCompletionListener(final ActionListener l) {
+        synchronized(this) {
+            if(!done) {
+                if(listeners == null) {
+                    listeners = new EventDispatcher();
+                }
+                listeners.addListener(l);
+                return;
+            }
+        }
+        final ActionEvent ev = new ActionEvent(this);
+        Display.getInstance().callSerially(new Runnable() {
+            public void run() {
+                l.actionPerformed(ev);
+            }
+        });
+    }
+
+    /**
+     * Removes a completion listener
+     *
+     * @param l the listener
+     */
+    public synchronized void removeCompletionListener(ActionListener l) {
+        if(listeners != null) {
+            listeners.removeListener(l);
+        }
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit;
+
+import com.sun.lwuit.geom.Rectangle;
+
+/**
+ * Flattened index of the focusable components within a form used for directional focus
+ * traversal. The components are kept in the order of a depth first traversal of the
+ * hierarchy (skipping containers that block focus) with their absolute positions, so a
+ * query scans a few arrays rather than walking the hierarchy and summing the positions
+ * of the parents for every candidate.
+ * <p>The index is built when the focus structure changes (a component is added or removed,
+ * or becomes focusable, enabled or visible) and the positions are refreshed when any
+ * component is moved or scrolled. Components are checked for focusability again during
+ * the query so a component that lost focusability by other means is never returned.
+ */
+class FocusIndex {
+    private Component[] candidates;
+
+    /**
+     * The offset following the last descendant of every candidate, traversal skips the
+     * descendants of a focusable container that was rejected
+     */
+    private int[] subtreeEnd;
+    private int[] x;
+    private int[] y;
+    private int count;
+    private int focusEpoch;
+    private int positionEpoch = -1;
+
+    /**
+     * Builds the index of the focusable components within the given container
+     *
+     * @param root the root of the hierarchy
+     */
+    public FocusIndex(Container root) {
+        focusEpoch = Component.focusEpoch;
+        candidates = new Component[16];
+        subtreeEnd = new int[16];
+        add(root);
+        x = new int[count];
+        y = new int[count];
+    }
+
+    private void add(Container root) {
+        int size = root.getComponentCount();
+        for(int iter = 0 ; iter < size ; iter++) {
+            Component current = root.getComponentAt(iter);
+            int offset = -1;
+            if(current.isFocusable()) {
+                if(count == candidates.length) {
+                    Component[] c = new Component[count * 2];
+                    System.arraycopy(candidates, 0, c, 0, count);
+                    candidates = c;
+                    int[] e = new int[count * 2];
+                    System.arraycopy(subtreeEnd, 0, e, 0, count);
+                    subtreeEnd = e;
+                }
+                offset = count;
+                candidates[count] = current;
+                count++;
+            }
+            if(current instanceof Container && !((Container)current).isBlockFocus()) {
+                add((Container)current);
+            }
+            if(offset > -1) {
+                subtreeEnd[offset] = count;
+            }
+        }
+    }
+
+    /**
+     * Returns true if no component was added, removed or changed its focusability since
+     * the index was built
+     *
+     * @return true if the index can be used
+     */
+    public boolean isValid() {
+        return focusEpoch == Component.focusEpoch;
+    }
+
+    private void updatePositions() {
+        if(positionEpoch != Component.positionEpoch) {
+            for(int iter = 0 ; iter < count ; iter++) {
+                x[iter] = candidates[iter].getAbsoluteX();
+                y[iter] = candidates[iter].getAbsoluteY();
+            }
+            positionEpoch = Component.positionEpoch;
+        }
+    }
+
+    /**
+     * Finds the next focusable component to the right or left of the focused component
+     *
+     * @param focused the component from which focus moves
+     * @param right true to move right, false to move left
+     * @return the next focusable component or null
+     */
+    public Component findNextHorizontal(Component focused, boolean right) {
+        if(focused == null) {
+            return null;
+        }
+        updatePositions();
+        int focusedX = focused.getAbsoluteX();
+        int focusedY = focused.getAbsoluteY();
+        int focusedHeight = focused.getHeight();
+        int best = -1;
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component current = candidates[iter];
+            if(!current.isFocusable()) {
+                continue;
+            }
+            if(Rectangle.intersects(0, focusedY, Integer.MAX_VALUE, focusedHeight,
+                    x[iter], y[iter], current.getWidth(), current.getHeight())) {
+                int currentX = x[iter];
+                if(right) {
+                    if(focusedX < currentX) {
+                        if(best > -1 && x[best] < currentX) {
+                            iter = subtreeEnd[iter] - 1;
+                            continue;
+                        }
+                        best = iter;
+                    }
+                } else {
+                    if(focusedX > currentX) {
+                        if(best > -1 && x[best] > currentX) {
+                            iter = subtreeEnd[iter] - 1;
+                            continue;
+                        }
+                        best = iter;
+                    }
+                }
+            }
+        }
+        if(best < 0) {
+            return null;
+        }
+        return candidates[best];
+    }
+
+    /**
+     * Finds the next focusable component below or above the focused component
+     *
+     * @param focused the component from which focus moves
+     * @param down true to move down, false to move up
+     * @return the next focusable component or null
+     */
+    public Component findNextVertical(Component focused, boolean down) {
+        if(focused == null) {
+            return null;
+        }
+        updatePositions();
+        int focusedX = focused.getAbsoluteX();
+        int focusedY = focused.getAbsoluteY();
+        int focusedWidth = focused.getWidth();
+        int best = -1;
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component current = candidates[iter];
+            if(!current.isFocusable()) {
+                continue;
+            }
+            int currentY = y[iter];
+            boolean beyond;
+            if(down) {
+                beyond = focusedY < currentY;
+            } else {
+                beyond = focusedY > currentY;
+            }
+            if(beyond) {
+                if(best > -1) {
+                    boolean exitingInSame = isInColumn(focusedX, focusedWidth, best);
+                    boolean fartherThanBest;
+                    if(down) {
+                        fartherThanBest = y[best] < currentY;
+                    } else {
+                        fartherThanBest = y[best] > currentY;
+                    }
+                    if(fartherThanBest) {
+                        if(exitingInSame) {
+                            iter = subtreeEnd[iter] - 1;
+                            continue;
+                        }
+                        if(isInRow(iter, best) && !isInColumn(focusedX, focusedWidth, iter)) {
+                            iter = subtreeEnd[iter] - 1;
+                            continue;
+                        }
+                    }
+                    if(exitingInSame && isInRow(iter, best)) {
+                        iter = subtreeEnd[iter] - 1;
+                        continue;
+                    }
+                }
+                best = iter;
+            }
+        }
+        if(best < 0) {
+            return null;
+        }
+        return candidates[best];
+    }
+
+    /**
+     * Returns true if the candidate is within the column spanning the given horizontal range
+     */
+    private boolean isInColumn(int columnX, int columnWidth, int candidate) {
+        Component c = candidates[candidate];
+        return Rectangle.intersects(columnX, 0, columnWidth, Integer.MAX_VALUE,
+                x[candidate], y[candidate], c.getWidth(), c.getHeight());
+    }
+
+    /**
+     * Returns true if the dest candidate is within the row of the source candidate
+     */
+    private boolean isInRow(int source, int dest) {
+        Component c = candidates[dest];
+        return Rectangle.intersects(0, y[source], Integer.MAX_VALUE, candidates[source].getHeight(),
+                x[dest], y[dest], c.getWidth(), c.getHeight());
+    }
+}
@@ -23,6 +23,7 @@
  */
 package com.sun.lwuit;
 
+import com.sun.lwuit.impl.LWUITImplementation;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Hashtable;
@@ -118,8 +119,39 @@ public class Font {
 
     private static boolean enableBitmapFont = true;
 
+    /**
+     * Number of measured strings cached by every font, must be a power of 2
+     */
+    private static final int WIDTH_CACHE_SIZE = 64;
+
+    /**
+     * Number of slots checked when looking up a string in the width cache
+     */
+    private static final int WIDTH_CACHE_PROBES = 4;
+
+    /**
+     * Longer strings aren't cached so the cache doesn't keep large texts such as the
+     * content of a text area alive
+     */
+    private static final int WIDTH_CACHE_MAX_LENGTH = 64;
+
     private Object font;
 
+    /**
+     * Open addressing table of recently measured strings, the table is created lazily and
+     * discarded if the implementation it was measured with is replaced
+     */
+    private WidthEntry[] widthCache;
+    private LWUITImplementation widthCacheImpl;
+
+    private boolean stableCharAdvances;
+
+    /**
+     * Width of the characters below 256 or -1 for characters that weren't measured, only
+     * used when the char advances are stable
+     */
+    private int[] charAdvances;
+
     /**
      * Creates a new Font
      */
@@ -274,7 +306,32 @@ public class Font {
      * @return the width of the given characters in this font instance
      */
     public int charsWidth(char[] ch, int offset, int length){
-        return Display.getInstance().getImplementation().charsWidth(font, ch, offset, length);
+        LWUITImplementation impl = Display.getInstance().getImplementation();
+        WidthEntry[] cache = getWidthCache(impl);
+        if(stableCharAdvances) {
+            int w = 0;
+            for(int iter = offset ; iter < offset + length ; iter++) {
+                w += charAdvance(impl, ch[iter]);
+            }
+            return w;
+        }
+        if(length > WIDTH_CACHE_MAX_LENGTH) {
+            return impl.charsWidth(font, ch, offset, length);
+        }
+        int hash = 0;
+        for(int iter = offset ; iter < offset + length ; iter++) {
+            hash = 31 * hash + ch[iter];
+        }
+        int mask = WIDTH_CACHE_SIZE - 1;
+        for(int iter = 0 ; iter < WIDTH_CACHE_PROBES ; iter++) {
+            WidthEntry e = cache[(hash + iter) & mask];
+            if(e != null && e.hash == hash && e.matches(ch, offset, length)) {
+                return e.width;
+            }
+        }
+        int w = impl.charsWidth(font, ch, offset, length);
+        putWidth(cache, new WidthEntry(new String(ch, offset, length), hash, w));
+        return w;
     }
     
     /**
@@ -286,7 +343,36 @@ public class Font {
      * @return the width of the given string subset in this font instance
      */
     public int substringWidth(String str, int offset, int len){
-        return Display.getInstance().getImplementation().stringWidth(font, str.substring(offset, offset + len));
+        if(offset == 0 && len == str.length()) {
+            return stringWidth(str);
+        }
+        LWUITImplementation impl = Display.getInstance().getImplementation();
+        WidthEntry[] cache = getWidthCache(impl);
+        if(stableCharAdvances) {
+            int w = 0;
+            for(int iter = offset ; iter < offset + len ; iter++) {
+                w += charAdvance(impl, str.charAt(iter));
+            }
+            return w;
+        }
+        if(len > WIDTH_CACHE_MAX_LENGTH) {
+            return impl.stringWidth(font, str.substring(offset, offset + len));
+        }
+        int hash = 0;
+        for(int iter = offset ; iter < offset + len ; iter++) {
+            hash = 31 * hash + str.charAt(iter);
+        }
+        int mask = WIDTH_CACHE_SIZE - 1;
+        for(int iter = 0 ; iter < WIDTH_CACHE_PROBES ; iter++) {
+            WidthEntry e = cache[(hash + iter) & mask];
+            if(e != null && e.hash == hash && e.matches(str, offset, len)) {
+                return e.width;
+            }
+        }
+        String sub = str.substring(offset, offset + len);
+        int w = impl.stringWidth(font, sub);
+        putWidth(cache, new WidthEntry(sub, hash, w));
+        return w;
     }
     
     /**
@@ -300,7 +386,142 @@ public class Font {
         if(str == null || str.length() == 0) {
             return 0;
         }
-        return Display.getInstance().getImplementation().stringWidth(font, str);
+        LWUITImplementation impl = Display.getInstance().getImplementation();
+        WidthEntry[] cache = getWidthCache(impl);
+        if(stableCharAdvances) {
+            int w = 0;
+            int len = str.length();
+            for(int iter = 0 ; iter < len ; iter++) {
+                w += charAdvance(impl, str.charAt(iter));
+            }
+            return w;
+        }
+        if(str.length() > WIDTH_CACHE_MAX_LENGTH) {
+            return impl.stringWidth(font, str);
+        }
+        int hash = str.hashCode();
+        int mask = WIDTH_CACHE_SIZE - 1;
+        for(int iter = 0 ; iter < WIDTH_CACHE_PROBES ; iter++) {
+            WidthEntry e = cache[(hash + iter) & mask];
+            if(e != null && (e.text == str || (e.hash == hash && e.text.equals(str)))) {
+                return e.width;
+            }
+        }
+        int w = impl.stringWidth(font, str);
+        putWidth(cache, new WidthEntry(str, hash, w));
+        return w;
+    }
+
+    /**
+     * Returns the width cache for the given implementation, the cache is discarded
+     * when the implementation changes
+     */
+    private WidthEntry[] getWidthCache(LWUITImplementation impl) {
+        WidthEntry[] cache = widthCache;
+        if(cache == null || widthCacheImpl != impl) {
+            cache = new WidthEntry[WIDTH_CACHE_SIZE];
+            charAdvances = null;
+            widthCacheImpl = impl;
+            widthCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * Places the entry in the first free slot it probes or replaces the entry in its
+     * home slot when all of them are taken
+     */
+    private static void putWidth(WidthEntry[] cache, WidthEntry entry) {
+        int mask = WIDTH_CACHE_SIZE - 1;
+        for(int iter = 0 ; iter < WIDTH_CACHE_PROBES ; iter++) {
+            int slot = (entry.hash + iter) & mask;
+            if(cache[slot] == null) {
+                cache[slot] = entry;
+                return;
+            }
+        }
+        cache[entry.hash & mask] = entry;
+    }
+
+    private int charAdvance(LWUITImplementation impl, char ch) {
+        if(ch >= 256) {
+            return impl.charWidth(font, ch);
+        }
+        int[] advances = charAdvances;
+        if(advances == null) {
+            advances = new int[256];
+            for(int iter = 0 ; iter < advances.length ; iter++) {
+                advances[iter] = -1;
+            }
+            charAdvances = advances;
+        }
+        int w = advances[ch];
+        if(w < 0) {
+            w = impl.charWidth(font, ch);
+            advances[ch] = w;
+        }
+        return w;
+    }
+
+    /**
+     * Indicates that the width of a string in this font is always the sum of the widths of
+     * its characters (no kerning, ligatures or complex script shaping) so strings can be measured
+     * from a table of character widths instead of asking the platform for every new string.
+     * This is off by default and only applies to system fonts.
+     *
+     * @param stableCharAdvances true to measure strings by adding up character widths
+     */
+    public void setStableCharAdvances(boolean stableCharAdvances) {
+        this.stableCharAdvances = stableCharAdvances;
+    }
+
+    /**
+     * Indicates whether strings are measured by adding up the widths of their characters
+     *
+     * @return true if the character advances of this font are stable
+     * @see #setStableCharAdvances(boolean)
+     */
+    public boolean isStableCharAdvances() {
+        return stableCharAdvances;
+    }
+
+    /**
+     * A measured string, entries are immutable so the cache can be read without locking
+     */
+    private static final class WidthEntry {
+        final String text;
+        final int hash;
+        final int width;
+
+        WidthEntry(String text, int hash, int width) {
+            this.text = text;
+            this.hash = hash;
+            this.width = width;
+        }
+
+        boolean matches(String str, int offset, int length) {
+            if(text.length() != length) {
+                return false;
+            }
+            for(int iter = 0 ; iter < length ; iter++) {
+                if(text.charAt(iter) != str.charAt(offset + iter)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean matches(char[] ch, int offset, int length) {
+            if(text.length() != length) {
+                return false;
+            }
+            for(int iter = 0 ; iter < length ; iter++) {
+                if(text.charAt(iter) != ch[offset + iter]) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
     
     /**
@@ -310,6 +531,11 @@ public class Font {
      * @return the width of the specific character when rendered alone
      */
     public int charWidth(char ch) {
+        if(stableCharAdvances) {
+            LWUITImplementation impl = Display.getInstance().getImplementation();
+            getWidthCache(impl);
+            return charAdvance(impl, ch);
+        }
         return Display.getInstance().getImplementation().charWidth(font, ch);
     }
     
@@ -429,6 +655,54 @@ public class Font {
         return enableBitmapFont;
     }
 
+    /**
+     * Bitmap fonts keep copies of their bitmap tinted in the colors they are drawn with,
+     * this sets the number of bytes all these copies may use together. Copies are tinted
+     * lazily in vertical strips and the least recently used colors are discarded when the
+     * budget is exceeded.
+     *
+     * @param bytes the number of bytes used for tinted bitmap font copies, 256kb by default
+     */
+    public static void setBitmapFontCacheSize(int bytes) {
+        CustomFont.setCacheBudget(bytes);
+    }
+
+    /**
+     * Returns the number of bytes all the tinted copies of bitmap fonts may use together
+     *
+     * @return the number of bytes used for tinted bitmap font copies
+     */
+    public static int getBitmapFontCacheSize() {
+        return CustomFont.getCacheBudget();
+    }
+
+    /**
+     * Returns the number of bytes currently used by tinted copies of bitmap fonts
+     *
+     * @return the number of bytes in use
+     */
+    public static int getBitmapFontCacheBytesUsed() {
+        return CustomFont.getCacheBytes();
+    }
+
+    /**
+     * Returns the number of times a bitmap font drew glyphs from an already tinted copy
+     *
+     * @return the number of cache hits
+     */
+    public static int getBitmapFontCacheHits() {
+        return CustomFont.getCacheHits();
+    }
+
+    /**
+     * Returns the number of times a bitmap font had to tint a strip of its bitmap
+     *
+     * @return the number of cache misses
+     */
+    public static int getBitmapFontCacheMisses() {
+        return CustomFont.getCacheMisses();
+    }
+
 
     /**
      * Returns the internal implementation specific font object
@@ -72,6 +72,12 @@ public class Form extends Container {
     private Label title = new Label("", "Title");
     private MenuBar menuBar;
     private Component dragged;
+
+    /**
+     * Focusable components of the content pane used for directional focus traversal,
+     * rebuilt lazily when the focus structure changes
+     */
+    private FocusIndex focusIndex;
     /**
      * Indicates whether lists and containers should scroll only via focus and thus "jump" when
      * moving to a larger component as was the case in older versions of LWUIT.
@@ -580,25 +586,6 @@ public class Form extends Container {
     }
 
 
-    /**
-     * Returns true if the given dest component is in the column of the source component
-     */
-    private boolean isInSameColumn(Component source, Component dest) {
-        return Rectangle.intersects(source.getAbsoluteX(), 0,
-                source.getWidth(), Integer.MAX_VALUE, dest.getAbsoluteX(), dest.getAbsoluteY(),
-                dest.getWidth(), dest.getHeight());
-    }
-
-    /**
-     * Returns true if the given dest component is in the row of the source component
-     */
-    private boolean isInSameRow(Component source, Component dest) {
-        return Rectangle.intersects(0, source.getAbsoluteY(),
-                Integer.MAX_VALUE, source.getHeight(), dest.getAbsoluteX(), dest.getAbsoluteY(),
-                dest.getWidth(), dest.getHeight());
-    }
-
-
     /**
      * Default command is invoked when a user presses fire, this functionality works
      * well in some situations but might collide with elements such as navigation
@@ -2046,92 +2033,11 @@ public class Form extends Container {
         this.cyclicFocus = cyclicFocus;
     }
 
-    private Component findNextFocusHorizontal(Component focused, Component bestCandidate, Container root, boolean right) {
-        int count = root.getComponentCount();
-        for(int iter = 0 ; iter < count ; iter++) {
-            Component current = root.getComponentAt(iter);
-            if(current.isFocusable()) {
-                if(isInSameRow(focused, current)) {
-                    int currentX = current.getAbsoluteX();
-                    int focusedX = focused.getAbsoluteX();
-                    if(right) {
-                        if(focusedX < currentX) {
-                            if(bestCandidate != null) {
-                                if(bestCandidate.getAbsoluteX() < currentX) {
-                                    continue;
-                                }
-                            }
-                            bestCandidate = current;
-                        }
-                    } else {
-                        if(focusedX > currentX) {
-                            if(bestCandidate != null) {
-                                if(bestCandidate.getAbsoluteX() > currentX) {
-                                    continue;
-                                }
-                            }
-                            bestCandidate = current;
-                        }
-                    }
-                }
-            }
-            if(current instanceof Container && !(((Container)current).isBlockFocus())) {
-                bestCandidate = findNextFocusHorizontal(focused, bestCandidate, (Container)current, right);
-            }
-        }
-        return bestCandidate;
-    }
-
-    private Component findNextFocusVertical(Component focused, Component bestCandidate, Container root, boolean down) {
-        int count = root.getComponentCount();
-        for(int iter = 0 ; iter < count ; iter++) {
-            Component current = root.getComponentAt(iter);
-            if(current.isFocusable()) {
-                int currentY = current.getAbsoluteY();
-                int focusedY = focused.getAbsoluteY();
-                if(down) {
-                    if(focusedY < currentY) {
-                        if(bestCandidate != null) {
-                            boolean exitingInSame = isInSameColumn(focused, bestCandidate);
-                            if(bestCandidate.getAbsoluteY() < currentY) {
-                                if(exitingInSame) {
-                                    continue;
-                                }
-                                if(isInSameRow(current, bestCandidate) && !isInSameColumn(focused, current)) {
-                                    continue;
-                                }
-                            }
-                            if(exitingInSame && isInSameRow(current, bestCandidate)) {
-                                continue;
-                            }
-                        }
-                        bestCandidate = current;
-                    }
-                } else {
-                    if(focusedY > currentY) {
-                        if(bestCandidate != null) {
-                            boolean exitingInSame = isInSameColumn(focused, bestCandidate);
-                            if(bestCandidate.getAbsoluteY() > currentY) {
-                                if(exitingInSame) {
-                                    continue;
-                                }
-                                if(isInSameRow(current, bestCandidate) && !isInSameColumn(focused, current)) {
-                                    continue;
-                                }
-                            }
-                            if(exitingInSame && isInSameRow(current, bestCandidate)) {
-                                continue;
-                            }
-                        }
-                        bestCandidate = current;
-                    }
-                }
-            }
-            if(current instanceof Container && !(((Container)current).isBlockFocus())) {
-                bestCandidate = findNextFocusVertical(focused, bestCandidate, (Container)current, down);
-            }
+    private FocusIndex getFocusIndex() {
+        if(focusIndex == null || !focusIndex.isValid()) {
+            focusIndex = new FocusIndex(contentPane);
         }
-        return bestCandidate;
+        return focusIndex;
     }
 
     /**
@@ -2141,17 +2047,18 @@ public class Form extends Container {
      * @return a focusable Component or null if not found
      */
     public Component findNextFocusVertical(boolean down) {
-        Component c = findNextFocusVertical(focused, null, contentPane, down);
+        FocusIndex index = getFocusIndex();
+        Component c = index.findNextVertical(focused, down);
         if(c != null) {
             return c;
         }
         if(cyclicFocus) {
-            c = findNextFocusVertical(focused, null, contentPane, !down);
+            c = index.findNextVertical(focused, !down);
             if(c != null) {
-                Component current = findNextFocusVertical(c, null, contentPane, !down);
+                Component current = index.findNextVertical(c, !down);
                 while(current != null) {
                     c = current;
-                    current = findNextFocusVertical(c, null, contentPane, !down);
+                    current = index.findNextVertical(c, !down);
                 }
                 return c;
             }
@@ -2166,17 +2073,18 @@ public class Form extends Container {
      * @return a focusable Component or null if not found
      */
     public Component findNextFocusHorizontal(boolean right) {
-        Component c = findNextFocusHorizontal(focused, null, contentPane, right);
+        FocusIndex index = getFocusIndex();
+        Component c = index.findNextHorizontal(focused, right);
         if(c != null) {
             return c;
         }
         if(cyclicFocus) {
-            c = findNextFocusHorizontal(focused, null, contentPane, !right);
+            c = index.findNextHorizontal(focused, !right);
             if(c != null) {
-                Component current = findNextFocusHorizontal(c, null, contentPane, !right);
+                Component current = index.findNextHorizontal(c, !right);
                 while(current != null) {
                     c = current;
-                    current = findNextFocusHorizontal(c, null, contentPane, !right);
+                    current = index.findNextHorizontal(c, !right);
                 }
                 return c;
             }
@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit;
+
+/**
+ * Ring buffer holding the input events that the native thread pushes into the
+ * EDT. Every slot owns a reusable int array (the event record) so pushing an
+ * event doesn't allocate and removing the head doesn't shift the remaining
+ * elements. The record layout is identical to the arrays Display used to queue:
+ * the event type followed by the event arguments. When the buffer is full the
+ * oldest motion event is discarded, if there is none the buffer grows so no
+ * other event is ever lost.
+ * <p>This class isn't thread safe, Display guards all access with its lock.
+ */
+class InputEventQueue {
+    /**
+     * The initial size of an event record, enough for a single pointer event
+     * (type, x, y, timestamp)
+     */
+    private static final int RECORD_SIZE = 4;
+
+    private int[][] records;
+    private int[] lengths;
+
+    /**
+     * Indicates whether the record in the given slot is a motion event that may be
+     * merged with a following event of the same type or discarded when the queue is full
+     */
+    private boolean[] replaceable;
+
+    private int head;
+    private int size;
+
+    /**
+     * The type of the last pointer event pushed into the queue
+     */
+    private int lastPointerType = -1;
+
+    private int droppedCount;
+    private int overflowCount;
+    private int coalescedCount;
+
+    /**
+     * Creates a queue with the given initial capacity
+     *
+     * @param capacity the number of events held before the buffer grows
+     */
+    public InputEventQueue(int capacity) {
+        records = new int[capacity][];
+        lengths = new int[capacity];
+        replaceable = new boolean[capacity];
+        for(int iter = 0 ; iter < capacity ; iter++) {
+            records[iter] = new int[RECORD_SIZE];
+        }
+    }
+
+    /**
+     * Pushes an event with up to two arguments into the queue
+     *
+     * @param type the event type
+     * @param argCount the number of arguments (0 - 2)
+     * @param a the first argument
+     * @param b the second argument
+     * @param coalesce true to merge the event into an identical event waiting
+     * at the tail of the queue (e.g. a repeated key press)
+     */
+    public void push(int type, int argCount, int a, int b, boolean coalesce) {
+        int length = argCount + 1;
+        if(coalesce && size > 0) {
+            int tail = slot(size - 1);
+            int[] rec = records[tail];
+            if(rec[0] == type && lengths[tail] == length &&
+                    (argCount == 0 || rec[1] == a) && (argCount < 2 || rec[2] == b)) {
+                coalescedCount++;
+                return;
+            }
+        }
+        int s = allocate(length, false);
+        int[] rec = records[s];
+        rec[0] = type;
+        rec[1] = a;
+        rec[2] = b;
+    }
+
+    /**
+     * Pushes a pointer event into the queue, the record holds the event type followed by the
+     * x/y pairs and the timestamp
+     *
+     * @param type the event type
+     * @param x the x coordinates of the pointers
+     * @param y the y coordinates of the pointers
+     * @param stamp the event timestamp
+     * @param coalesce true to replace the coordinates of a pointer event of the same type
+     * waiting at the tail of the queue instead of adding a new event. The first event
+     * following an event of another type (e.g. the first drag after a press) is never
+     * replaced since components use it to start the motion
+     */
+    public void pushPointer(int type, int[] x, int[] y, int stamp, boolean coalesce) {
+        int length = x.length * 2 + 2;
+        int s = -1;
+        if(coalesce && size > 0) {
+            int tail = slot(size - 1);
+            if(replaceable[tail] && records[tail][0] == type && lengths[tail] == length) {
+                s = tail;
+                coalescedCount++;
+            }
+        }
+        if(s < 0) {
+            s = allocate(length, coalesce && lastPointerType == type);
+        }
+        lastPointerType = type;
+        int[] rec = records[s];
+        rec[0] = type;
+        int offset = 1;
+        for(int iter = 0 ; iter < x.length ; iter++) {
+            rec[offset] = x[iter];
+            offset++;
+            rec[offset] = y[iter];
+            offset++;
+        }
+        rec[offset] = stamp;
+    }
+
+    /**
+     * Removes the event at the head of the queue and copies it into the given buffer
+     *
+     * @param dest destination buffer, if it is too small a larger buffer is returned
+     * @return the buffer containing the event
+     */
+    public int[] poll(int[] dest) {
+        int len = lengths[head];
+        if(dest == null || dest.length < len) {
+            dest = new int[Math.max(len, RECORD_SIZE)];
+        }
+        System.arraycopy(records[head], 0, dest, 0, len);
+        head = (head + 1) % records.length;
+        size--;
+        return dest;
+    }
+
+    /**
+     * Returns the length of the event at the head of the queue
+     *
+     * @return the number of elements in the head record
+     */
+    public int peekLength() {
+        return lengths[head];
+    }
+
+    /**
+     * Indicates whether the queue has no pending events
+     *
+     * @return true if there are no pending events
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of pending events
+     *
+     * @return the number of pending events
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indicates an event was rejected before reaching the queue
+     */
+    public void eventDropped() {
+        droppedCount++;
+    }
+
+    /**
+     * Returns the number of events rejected before reaching the queue
+     *
+     * @return the drop counter
+     */
+    public int getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Returns the number of motion events discarded because the queue was full
+     *
+     * @return the overflow counter
+     */
+    public int getOverflowCount() {
+        return overflowCount;
+    }
+
+    /**
+     * Returns the number of events merged into a pending event
+     *
+     * @return the coalesce counter
+     */
+    public int getCoalescedCount() {
+        return coalescedCount;
+    }
+
+    /**
+     * Resets the drop, overflow and coalesce counters
+     */
+    public void resetCounters() {
+        droppedCount = 0;
+        overflowCount = 0;
+        coalescedCount = 0;
+    }
+
+    private int slot(int offset) {
+        return (head + offset) % records.length;
+    }
+
+    /**
+     * Reserves the slot at the tail of the queue for a record of the given length,
+     * when the queue is full the oldest replaceable event is discarded to make room
+     * and if there is none the buffer grows.
+     */
+    private int allocate(int length, boolean isReplaceable) {
+        if(size == records.length) {
+            if(discardOldestReplaceable()) {
+                overflowCount++;
+            } else {
+                grow();
+            }
+        }
+        int s = slot(size);
+        if(records[s].length < length) {
+            records[s] = new int[length];
+        }
+        lengths[s] = length;
+        replaceable[s] = isReplaceable;
+        size++;
+        return s;
+    }
+
+    private void grow() {
+        int capacity = records.length;
+        int[][] r = new int[capacity * 2][];
+        int[] l = new int[capacity * 2];
+        boolean[] rep = new boolean[capacity * 2];
+        for(int iter = 0 ; iter < capacity ; iter++) {
+            int s = slot(iter);
+            r[iter] = records[s];
+            l[iter] = lengths[s];
+            rep[iter] = replaceable[s];
+        }
+        for(int iter = capacity ; iter < r.length ; iter++) {
+            r[iter] = new int[RECORD_SIZE];
+        }
+        records = r;
+        lengths = l;
+        replaceable = rep;
+        head = 0;
+    }
+
+    private boolean discardOldestReplaceable() {
+        for(int iter = 0 ; iter < size ; iter++) {
+            if(replaceable[slot(iter)]) {
+                // shift the older events forward by one slot, the record arrays
+                // are swapped so no record is lost
+                int current = slot(iter);
+                int[] discarded = records[current];
+                for(int back = iter ; back > 0 ; back--) {
+                    int prev = slot(back - 1);
+                    records[current] = records[prev];
+                    lengths[current] = lengths[prev];
+                    replaceable[current] = replaceable[prev];
+                    current = prev;
+                }
+                records[head] = discarded;
+                head = (head + 1) % records.length;
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+}
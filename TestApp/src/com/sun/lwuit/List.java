@@ -32,6 +32,7 @@ import com.sun.lwuit.events.DataChangedListener;
 import com.sun.lwuit.events.SelectionListener;
 import com.sun.lwuit.geom.Dimension;
 import com.sun.lwuit.geom.Rectangle;
+import com.sun.lwuit.impl.RowHeightIndex;
 import com.sun.lwuit.list.DefaultListCellRenderer;
 import com.sun.lwuit.list.DefaultListModel;
 import com.sun.lwuit.list.ListCellRenderer;
@@ -174,6 +175,22 @@ public class List extends Component {
      */
     private int itemGap = 2;
 
+    /**
+     * Indicates whether the height of every row is measured separately
+     */
+    private boolean variableRowHeight;
+
+    /**
+     * Measured row heights in variable row height mode, created lazily
+     */
+    private RowHeightIndex rowHeights;
+
+    /**
+     * The row for which the extra height of the selected renderer was measured
+     */
+    private int rowHeightsSelection = -1;
+    private int rowHeightsSelectedDiff;
+
     private Listeners listener;
     /**
      * Indicates the position within the current animation, 0 means no animation
@@ -516,6 +533,7 @@ public class List extends Component {
 
 
     void dataChanged(int status, int index) {
+        updateRowHeights(status, index);
         setShouldCalcPreferredSize(true);
         if (getSelectedIndex() >= model.getSize()) {
             setSelectedIndex(Math.max(model.getSize() - 1, 0));
@@ -540,6 +558,7 @@ public class List extends Component {
      */
     public void setModel(ListModel model) {
         if (this.model != null) {
+            resetRowHeights();
             setShouldCalcPreferredSize(true);
             this.model.removeDataChangedListener(listener);
             this.model.removeSelectionListener(listener);
@@ -691,6 +710,7 @@ public class List extends Component {
             //calculate the item list size and the list size.
             elemSize = null;
             selectedElemSize = null;
+            resetRowHeights();
             setShouldCalcPreferredSize(true);
         }
         this.renderer = renderer;
@@ -736,6 +756,7 @@ public class List extends Component {
         if (focus != null) {
             focus.refreshTheme();
         }
+        resetRowHeights();
         super.refreshTheme();
     }
 
@@ -750,6 +771,34 @@ public class List extends Component {
         this.orientation = orientation;
     }
 
+    /**
+     * Indicates whether the rows of the list may have different heights. In this mode the
+     * height of every row is measured from the renderer the first time the row is laid out
+     * (rows that weren't measured yet are estimated using the element size) and the offsets
+     * of the rows are looked up in an index so painting and pointer selection remain cheap
+     * for very large lists. The index is updated incrementally when the model fires data
+     * change events.
+     * <p>This mode only applies to vertical lists whose selection isn't fixed, other lists
+     * use the element size for every row.
+     *
+     * @param variableRowHeight true to measure the height of every row separately
+     */
+    public void setVariableRowHeight(boolean variableRowHeight) {
+        this.variableRowHeight = variableRowHeight;
+        resetRowHeights();
+        setShouldCalcPreferredSize(true);
+    }
+
+    /**
+     * Indicates whether the rows of the list may have different heights
+     *
+     * @return true if the height of every row is measured separately
+     * @see #setVariableRowHeight(boolean)
+     */
+    public boolean isVariableRowHeight() {
+        return variableRowHeight;
+    }
+
     /**
      * Makes sure the selected index is visible if it is not in the current view
      * rect the list will scroll so it fits within
@@ -914,7 +963,17 @@ public class List extends Component {
     void selectElement(int selectedIndex) {
         Dimension size = getElementSize(false, true);
         Rectangle rect;
-        if (getOrientation() != HORIZONTAL) {
+        if (isVariableRowHeightActive()) {
+            if(selectedIndex < 0 || selectedIndex >= model.getSize()) {
+                return;
+            }
+            int height = getRowHeight(selectedIndex);
+            if(selectedIndex == getCurrentSelected()) {
+                height += getSelectedRowDiff(selectedIndex);
+            }
+            rect = new Rectangle(getX(), getRowHeights().getOffset(selectedIndex, size.getHeight(), itemGap),
+                    getElementSize(true, true).getWidth(), height);
+        } else if (getOrientation() != HORIZONTAL) {
             rect = new Rectangle(getX(), (size.getHeight() + itemGap) * selectedIndex, getElementSize(true, true));
         } else {
             int x = (size.getWidth() + itemGap) * selectedIndex;
@@ -954,7 +1013,10 @@ public class List extends Component {
         }
         
         if (isSmoothScrolling()) {
-            if (orientation != HORIZONTAL) {
+            int selection = getCurrentSelected();
+            if (isVariableRowHeightActive() && selection > -1 && selection < model.getSize()) {
+                animationPosition += (direction * getRowHeight(selection));
+            } else if (orientation != HORIZONTAL) {
                 animationPosition += (direction * getElementSize(false, true).getHeight());
             } else {
                 animationPosition += (direction * getElementSize(false, true).getWidth());
@@ -988,10 +1050,34 @@ public class List extends Component {
         }
 
         int selection = getCurrentSelected();
-        
+
         Dimension d = rect.getSize();
         int selectedDiff;
 
+        if (isVariableRowHeightActive()) {
+            rect.setX(initialX);
+            d.setWidth(defaultWidth);
+            int size = model.getSize();
+            if (index < 0 || index >= size) {
+                // an invalid selection has no row, place it at the edge of the list
+                index = Math.max(0, Math.min(index, size));
+                rect.setY(initialY + getRowHeights().getOffset(index, rendererSize.getHeight(), itemGap));
+                d.setHeight(0);
+                return;
+            }
+            int height = getRowHeight(index);
+            int y = getRowHeights().getOffset(index, rendererSize.getHeight(), itemGap);
+            if (!beforeSelected) {
+                y += getSelectedRowDiff(selection);
+            }
+            if (index == selection) {
+                height += getSelectedRowDiff(selection);
+            }
+            rect.setY(y + initialY);
+            d.setHeight(height);
+            return;
+        }
+
         // the algorithm illustrated here is very simple despite the "mess" of code...
         // The idea is that if we have a "fixed" element we just add up the amount of pixels
         // to get it into its place in the screen (nothing for top obviously).
@@ -1117,6 +1203,101 @@ public class List extends Component {
         return offset;
     }
 
+    private boolean isVariableRowHeightActive() {
+        return variableRowHeight && orientation == VERTICAL && fixedSelection < FIXED_NONE_BOUNDRY;
+    }
+
+    private void resetRowHeights() {
+        rowHeights = null;
+        rowHeightsSelection = -1;
+    }
+
+    /**
+     * Returns the row height index, the index is rebuilt if it went out of sync with the model
+     */
+    private RowHeightIndex getRowHeights() {
+        int size = model.getSize();
+        if (rowHeights == null || rowHeights.size() != size) {
+            rowHeights = new RowHeightIndex(size);
+            rowHeightsSelection = -1;
+        }
+        return rowHeights;
+    }
+
+    /**
+     * Applies a model change to the row height index without measuring any row, events
+     * that don't match the size of the index (e.g. events delivered after further changes
+     * to the model) discard the index
+     */
+    private void updateRowHeights(int status, int index) {
+        rowHeightsSelection = -1;
+        if (rowHeights == null) {
+            return;
+        }
+        int size = model.getSize();
+        int indexSize = rowHeights.size();
+        if (status == DataChangedListener.ADDED && indexSize + 1 == size && index > -1) {
+            // DefaultListModel.addItem fires the new size as the index
+            rowHeights.insert(Math.min(index, indexSize));
+        } else if (status == DataChangedListener.REMOVED && indexSize - 1 == size && index > -1 && index < indexSize) {
+            rowHeights.remove(index);
+        } else if (status == DataChangedListener.CHANGED && indexSize == size && index > -1 && index < size) {
+            rowHeights.invalidate(index);
+        } else {
+            rowHeights = null;
+        }
+    }
+
+    /**
+     * Returns the height of the row including its margin, the row is measured from the
+     * unselected renderer the first time it is needed
+     */
+    private int getRowHeight(int index) {
+        RowHeightIndex heights = getRowHeights();
+        int height = heights.getHeight(index);
+        if (height < 0) {
+            height = measureRow(index, false);
+            heights.setHeight(index, height);
+            if (height != getElementSize(false, true).getHeight()) {
+                // the preferred/scroll size was calculated using the estimate
+                shouldCalcPreferredSize = true;
+                shouldCalcScrollSize = true;
+            }
+        }
+        return height;
+    }
+
+    /**
+     * Returns the height the selected renderer adds to the row of the given selection
+     */
+    private int getSelectedRowDiff(int selection) {
+        if (selection < 0 || selection >= model.getSize()) {
+            return 0;
+        }
+        if (rowHeightsSelection != selection) {
+            int diff = measureRow(selection, true) - getRowHeight(selection);
+            rowHeightsSelectedDiff = diff;
+            rowHeightsSelection = selection;
+        }
+        return rowHeightsSelectedDiff;
+    }
+
+    private int measureRow(int index, boolean selected) {
+        Component cmp = renderer.getListCellRendererComponent(this, model.getItemAt(index), index, selected);
+        if (cmp instanceof Container) {
+            cmp.setShouldCalcPreferredSize(true);
+        }
+        Style s = cmp.getStyle();
+        return cmp.getPreferredH() + s.getMargin(TOP) + s.getMargin(BOTTOM);
+    }
+
+    /**
+     * Returns the row covering the given offset from the top of the first row
+     */
+    private int getRowAt(int offset) {
+        return getRowHeights().find(offset, getElementSize(false, true).getHeight(), itemGap);
+    }
+
     /**
      * @inheritDoc
      */
@@ -1748,7 +1929,19 @@ public class List extends Component {
         if (fixedSelection < FIXED_NONE_BOUNDRY) {
             calculateComponentPosition(getSelectedIndex(), width, pos, rendererSize, getElementSize(true, true), true);
 
-            if (orientation != HORIZONTAL) {
+            if (isVariableRowHeightActive()) {
+                int initialY = style.getPadding(false, TOP);
+                if(y < pos.getY()){
+                    selectedIndex = getRowAt(y - initialY);
+                }else{
+                    int selectedHeight = pos.getSize().getHeight();
+                    if(y < pos.getY() + selectedHeight){
+                        selectedIndex = getSelectedIndex();
+                    }else{
+                        selectedIndex = getRowAt(y - initialY - getSelectedRowDiff(getSelectedIndex()));
+                    }
+                }
+            } else if (orientation != HORIZONTAL) {
                 if(y < pos.getY()){
                     selectedIndex = y / (rendererSize.getHeight() + itemGap);
                 }else{
@@ -1902,6 +2095,21 @@ public class List extends Component {
             }
         }
         Dimension d = UIManager.getInstance().getLookAndFeel().getListPreferredSize(this);
+        int size = model.getSize();
+        if(isVariableRowHeightActive() && size > 0) {
+            // the look and feel estimates the height based on a sample of the rows
+            Style style = getStyle();
+            int estimate = getElementSize(false, true).getHeight();
+            int height = getRowHeights().getTotal(estimate, itemGap) + getSelectedRowDiff(getSelectedIndex()) +
+                    style.getPadding(false, TOP) + style.getPadding(false, BOTTOM);
+            if(minElementHeight > size) {
+                height += (estimate + itemGap) * (minElementHeight - size);
+            }
+            if(style.getBorder() != null) {
+                height = Math.max(style.getBorder().getMinimumHeight(), height);
+            }
+            d.setHeight(height);
+        }
         if(spinnerOverlay != null) {
             if(spinnerOverlay.getBorder() != null) {
                 d.setWidth(Math.max(spinnerOverlay.getBorder().getMinimumWidth(), d.getWidth()));
@@ -2046,8 +2254,21 @@ public class List extends Component {
      * @inheritDoc
      */
     protected int getGridPosY() {
-        int gridSize = getElementSize(false, true).getHeight() + itemGap;
         int scroll = getScrollY();
+        if(isVariableRowHeightActive()) {
+            // snap to the start of the nearest row
+            int estimate = getElementSize(false, true).getHeight();
+            int row = Math.max(0, getRowAt(scroll));
+            int start = getRowHeights().getOffset(Math.min(row, model.getSize()), estimate, itemGap);
+            if(row < model.getSize()) {
+                int end = getRowHeights().getOffset(row + 1, estimate, itemGap);
+                if(end - scroll < scroll - start) {
+                    return end;
+                }
+            }
+            return start;
+        }
+        int gridSize = getElementSize(false, true).getHeight() + itemGap;
         return calcGrid(scroll, gridSize);
     }
 
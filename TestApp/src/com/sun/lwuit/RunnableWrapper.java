@@ -103,6 +103,11 @@ class RunnableWrapper implements Runnable {
                     } catch(RuntimeException ex) {
                         this.err = ex;
                     }
+                    // wake up the EDT blocked in invokeAndBlock
+                    done = true;
+                    synchronized(Display.lock) {
+                        Display.lock.notifyAll();
+                    }
                     break;
                 case 2:
                     while(!done) {
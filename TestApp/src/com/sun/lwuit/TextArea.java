@@ -179,7 +179,8 @@ public class TextArea extends Component {
     
     // problematic  maxSize = 20; //maximum size (number of characters) that can be stored in this TextField.
     
-    private Vector rowStrings;
+    private TextLineIndex rowIndex = new TextLineIndex();
+    private boolean rowIndexValid;
     private int widthForRowCalculations = -1;
 
     private int rowsGap = 2;
@@ -207,8 +208,6 @@ public class TextArea extends Component {
      */
     private boolean singleLineTextArea;
 
-    private int currentRowWidth;
-    
     private Label hintLabel;
 
     /**
@@ -354,7 +353,7 @@ public class TextArea extends Component {
      */
     public void setWidth(int width) {
         super.setWidth(width);
-        getRowStrings();
+        getRowIndex();
     }
 
     
@@ -371,8 +370,8 @@ public class TextArea extends Component {
         }
         
         synchronized(this) {
-            //zero the vector inorder to initialize it on the next paint
-            rowStrings=null; 
+            //invalidate the rows inorder to break them again on the next paint
+            rowIndexValid = false;
         }
         repaint();
     }
@@ -628,16 +627,16 @@ public class TextArea extends Component {
     }
     
     void initComponentImpl() {
-        getRowStrings();
+        getRowIndex();
         super.initComponentImpl();
     }
     
-    private Vector getRowStrings() {
-        if(rowStrings == null || widthForRowCalculations != getWidth() - getUnselectedStyle().getPadding(false, RIGHT) - getUnselectedStyle().getPadding(false, LEFT)){
+    private TextLineIndex getRowIndex() {
+        if(!rowIndexValid || widthForRowCalculations != getWidth() - getUnselectedStyle().getPadding(false, RIGHT) - getUnselectedStyle().getPadding(false, LEFT)){
             initRowString();
             setShouldCalcPreferredSize(true);
         }
-        return rowStrings;
+        return rowIndex;
     }
     
     
@@ -647,10 +646,7 @@ public class TextArea extends Component {
      * @return the number of text lines in the TextArea
      */
     public int getLines(){
-        int retVal;
-        Vector v = getRowStrings();
-        retVal = v.size();
-        return retVal;
+        return getRowIndex().size();
     }
     
     /**
@@ -660,25 +656,44 @@ public class TextArea extends Component {
      * @return the text of the line
      */
     public String getTextAt(int line){
-        Vector rowsV = getRowStrings();
-        int size = rowsV.size();
+        TextLineIndex index = getRowIndex();
+        int size = index.size();
         if(size == 0){
             return "";
         }
         if(line >= size){
-            return (String)rowsV.elementAt(size-1);        
+            return index.getRow(size-1);
         }            
-        return (String)rowsV.elementAt(line);
+        return index.getRow(line);
+    }
+
+    /**
+     * Returns the offset within the text of the first character in the given line
+     * 
+     * @param line the line number in the text box
+     * @return the offset of the line, the length of the text for a line beyond the last line
+     */
+    int getLineOffset(int line) {
+        TextLineIndex index = getRowIndex();
+        if(line <= 0) {
+            return 0;
+        }
+        if(line >= index.size()) {
+            return text.length();
+        }
+        return index.getRowStart(line);
+    }
+
+    /**
+     * Returns the line containing the character at the given offset, a space or
+     * newline separating two lines belongs to the line preceding it
+     * 
+     * @param offset the offset within the text
+     * @return the line number or -1 if the text box has no lines
+     */
+    int getLineAt(int offset) {
+        return getRowIndex().findRow(offset);
     }
-    
-    private int indexOf(char[] t, char c, int offset, int length) {
-        for(int iter = offset ; iter < t.length && iter < offset+length; iter++) {
-            if(t[iter] == c) {
-                return iter;
-           }
-       }
-       return -1;
-   }
 
     
     /**
@@ -693,37 +708,21 @@ public class TextArea extends Component {
         return text.toCharArray();
     }
 
-    private int updateRowWidth(char c, Font font) {
-        currentRowWidth += font.charWidth(c);
-        return currentRowWidth;
-    }
-
-    private boolean fastCharWidthCheck(char[] chrs, int off, int length, int width, int charWidth, Font f) {
-        if(length * charWidth < width) {
-            return true;
-        }
-        length = Math.min(chrs.length, length);
-        return f.charsWidth(chrs, off, length) < width;
-    }
-
     private synchronized void initRowString() {
         Style style = getUnselectedStyle();
-        rowStrings= new Vector();
+        rowIndexValid = true;
         widthForRowCalculations = getWidth() - style.getPadding(false, RIGHT) - style.getPadding(false, LEFT);
         // single line text area is essentially a text field, we call the method
         // to allow subclasses to override it
         if ((isSingleLineTextArea()) || (widthForRowCalculations<=0)) {
-            rowStrings.addElement(getText());
+            rowIndex.setSingleLine(getText());
             return;
         }
         if(text == null || text.equals("")){
+            rowIndex.clear();
             return;
         }
         char[] text = preprocess(getText());
-        int rows = this.rows;
-        if(growByContent) {
-            rows = Math.max(rows, getLines());
-        }
         
         Font font = style.getFont();
         int charWidth = font.charWidth(widestChar);
@@ -738,21 +737,8 @@ public class TextArea extends Component {
         style = getStyle();
         int tPadding = style.getPadding(false, RIGHT) + style.getPadding(false, LEFT);
         int textAreaWidth = getWidth() - tPadding;
-        /*if(textAreaWidth <= 0) {
-            if(columns < 1) {
-                textAreaWidth = Math.min(Display.getInstance().getDisplayWidth() - tPadding, getText().length()) * charWidth;
-            } else {
-                textAreaWidth = Math.min(Display.getInstance().getDisplayWidth() - tPadding, columns) * charWidth;
-            }
-        }*/
-        
         int minCharactersInRow = Math.max(1, textAreaWidth / charWidth);
-        int rowIndex=0;
-        int from=0;
-        int to=from+minCharactersInRow;
         int textLength=text.length;
-        String rowText = null;
-        int i,spaceIndex;
         
         // if there is any possibility of a scrollbar we need to reduce the textArea
         // width to accommodate it
@@ -761,137 +747,17 @@ public class TextArea extends Component {
             textAreaWidth -= charWidth/2;
         }
         String unsupported = getUnsupportedChars();
-        
-        /*
-        iteration over the string using indexes, from - the beginning of the row , to - end of a row
-        for each row we will try to search for a "space" character at the end of the row ( row is text area available width)
-        indorder to improve the efficiency we do not search an entire row but we start from minCharactersInRow which indicates
-        what is the minimum amount of characters that can feet in the text area width.
-        if we dont find we will go backwards and search for the first space available,
-        if there is no space in the entire row we will cut the line inorder to fit in.
-         */
-
-        //Don't rely on the fact that short text has no newline character. we always have to parse the text.
-        to = Math.max( Math.min(textLength-1,to), 0 );
-        while(to<textLength) {
-            if(to>textLength){
-                to=textLength;
-            }
-
-            spaceIndex=-1;
-            rowText="";
-            int maxLength = to;
-
-            if(useStringWidth) {
-                // fix for an infinite loop issue: http://forums.java.net/jive/thread.jspa?messageID=482802
-                //currentRowWidth = 0;
-                String currentRow = "";
-                
-                // search for "space" character at close as possible to the end of the row
-                for( i=to; i < textLength && fastCharWidthCheck(text, from, i - from + 1, textAreaWidth, charWidth, font) ; i++){
-                    char c = text[i];
-                    /*if(updateRowWidth(c, font) >= textAreaWidth) {
-                        break;
-                    }*/
-                    currentRow+=c;
-                    if(font.stringWidth(currentRow) >= textAreaWidth) {
-                        break;
-                    }
-                    if(unsupported.indexOf(c) > -1) {
-                        text[i] = ' ';
-                        c = ' ';
-                    }
-                    if(c == ' ' || c == '\n') {
-                        spaceIndex=i;
-                        // newline has been found. We can end the loop here as the line cannot grow more
-                        if (c == '\n')
-                            break;
-                    }
-                    maxLength++;
-                }
-            } else {
-                currentRowWidth = 0;
-                if(to != from) {
-                    currentRowWidth = font.charsWidth(text, from, to - from);
+        if(unsupported.length() > 0) {
+            for(int iter = 0 ; iter < textLength ; iter++) {
+                if(unsupported.indexOf(text[iter]) > -1) {
+                    text[iter] = ' ';
                 }
-
-                // search for "space" character at close as possible to the end of the row
-                for( i=to; i < textLength ; i++){
-                    char c = text[i];
-                    if(updateRowWidth(c, font) >= textAreaWidth) {
-                        break;
-                    }
-                    if(unsupported.indexOf(c) > -1) {
-                        text[i] = ' ';
-                        c = ' ';
-                    }
-                    if(c == ' ' || c == '\n') {
-                        spaceIndex=i;
-                        // newline has been found. We can end the loop here as the line cannot grow more
-                        if (c == '\n')
-                            break;
-                    }
-                    maxLength++;
-                }
-            }
-            
-            // if we got to the end of the text use the entire row,
-            // also if space is next character (in the next row) we can cut the line
-            if(i == textLength || text[i] == ' ' || text[i] == '\n') {
-                spaceIndex=i;
             }
-
-            // if we found space in the limit width of the row (searched only from minCharactersInRow)
-            if(spaceIndex!=-1){
-                // make sure that if we have a newline character before the end of the line we should
-                // break there instead
-                int newLine = indexOf(text, '\n', from, spaceIndex - from);
-                if(newLine > -1 && newLine < spaceIndex) {
-                    spaceIndex = newLine;
-                }
-
-                rowText = new String(text, from, spaceIndex - from);
-                from=spaceIndex+1;
-
-            } // if there is no space from minCharactersInRow to limit need to search backwards
-            else{
-                for( i=to; spaceIndex==-1 && i>=from ; i--){
-                    char chr = text[i];
-                    if(chr == ' ' || chr == '\n' || chr == '\t') {
-                        spaceIndex=i;
-                        
-                        // don't forget to search for line breaks in the
-                        // remaining part. otherwise we overlook possible
-                        // line breaks!
-                        int newLine = indexOf(text, '\n', from, i - from);
-                        if(newLine > -1 && newLine < spaceIndex) {
-                           spaceIndex = newLine;
-                        }
-                        rowText = new String(text, from, spaceIndex - from);
-                        from=spaceIndex+1;
-                    }
-
-                }
-                if(spaceIndex==-1) {
-                    // from = to + 1;
-                    if(maxLength <= 0) {
-                        maxLength = 1;
-                    }
-                    spaceIndex = maxLength;
-                    rowText = new String(text, from, spaceIndex - from);
-                    from = spaceIndex;
-                }
-            }
-
-            rowStrings.addElement(rowText);
-            //adding minCharactersInRow doesn't work if what is left is less
-            //then minCharactersInRow
-            to=from;//+minCharactersInRow;
-            rowIndex++;
-        }
-        if(text[text.length -1 ] == '\n'){
-            rowStrings.addElement("");
         }
+
+        // rows are broken at the last space that fits within the width or at a newline,
+        // when the text was edited only the rows from the edit onwards are broken again
+        rowIndex.layout(text, font, textAreaWidth, useStringWidth);
     }
     
     /**
@@ -989,7 +855,7 @@ public class TextArea extends Component {
     void onEditComplete(String text) {
         setText(text);
         if(getParent() != null) {
-            getParent().revalidate();
+            getParent().layoutInvalid();
         }
     }
     
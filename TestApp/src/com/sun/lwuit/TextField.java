@@ -669,27 +669,14 @@ public class TextField extends TextArea {
             cursorX = pos;
             return;
         }
-        String text = getText();
-        String currentLine = "";
-        int currentLineLength = 0;
-        int numOfChars = 0;
-        int currentY = 0;
-        while( numOfChars <= pos && currentY < getLines()){
-            currentLine = getTextAt(currentY);
-            currentLineLength = currentLine.length();
-            if(numOfChars + currentLineLength < text.length() && 
-                    (text.charAt(numOfChars + currentLineLength) == '\n' ||
-                    text.charAt(numOfChars + currentLineLength) == ' ')){
-                currentLineLength++;
-            }
-            numOfChars += currentLineLength;
-            currentY++;
-        }
-        cursorY = Math.max(0, currentY-1);
-        cursorX = currentLineLength - (numOfChars - pos);
-        if(cursorX == currentLineLength && currentLineLength > currentLine.length()){
-            cursorX--;
+        int line = getLineAt(pos);
+        if(line < 0) {
+            cursorY = 0;
+            cursorX = pos;
+            return;
         }
+        cursorY = line;
+        cursorX = Math.min(pos - getLineOffset(line), getTextAt(line).length());
     }
     
     
@@ -740,17 +727,7 @@ public class TextField extends TextArea {
             return getCursorX();
         }
         
-        int pos = 0;
-        int line = 0;
-        while(line < cursorY && line < getLines()){
-            String l = getTextAt(line);
-            pos += l.length();
-            if(pos < txt.length() && (txt.charAt(pos) == '\n' || 
-                    txt.charAt(pos) == ' ') ){
-                pos++;
-            }
-            line++;
-        }
+        int pos = getLineOffset(cursorY);
         return  Math.min(getText().length(), pos + cursorX);
     }
 
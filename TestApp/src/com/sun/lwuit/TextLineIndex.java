@@ -0,0 +1,437 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit;
+
+/**
+ * Line break index of a multi line TextArea. Every row is kept as the offset of its
+ * first char and the offset following its last visible char, the space or newline
+ * separating it from the next row (if any) is skipped. When the text changes only the
+ * rows starting at the edit are broken again until a new row starts where a row of
+ * the previous text started, the remaining rows are shifted by the change in length
+ * without being measured.
+ * <p>Char widths are cached per font so breaking a row is linear in its length, when
+ * string width is used a row is measured as a whole only to verify its break.
+ */
+class TextLineIndex {
+    /**
+     * Chars below this value have their width cached
+     */
+    private static final int WIDTH_CACHE_SIZE = 256;
+
+    /**
+     * The text the rows were computed for, null for a single line index
+     */
+    private char[] text;
+    private int[] starts;
+    private int[] ends;
+
+    /**
+     * The offset of the last char examined while breaking the row, a row can only
+     * change when the text changes at or before this offset
+     */
+    private int[] limits;
+
+    /**
+     * Strings of the rows created lazily
+     */
+    private String[] strings;
+    private int count;
+
+    /**
+     * Indicates the text ends with a newline which is followed by an empty row
+     */
+    private boolean trailingRow;
+
+    private Font font;
+    private int width;
+    private boolean useStringWidth;
+    private int[] charWidths;
+
+    /**
+     * Rows broken during an incremental update before they replace the old rows
+     */
+    private int[] newStarts;
+    private int[] newEnds;
+    private int[] newLimits;
+
+    /**
+     * The end and limit of the row broken by the last call to breakRow
+     */
+    private int rowEnd;
+    private int rowLimit;
+
+    /**
+     * Creates an empty index
+     */
+    public TextLineIndex() {
+        starts = new int[16];
+        ends = new int[16];
+        limits = new int[16];
+        strings = new String[16];
+        newStarts = new int[16];
+        newEnds = new int[16];
+        newLimits = new int[16];
+    }
+
+    /**
+     * Returns the number of rows
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        if(trailingRow) {
+            return count + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the text of the row
+     *
+     * @param row the row offset
+     * @return the text of the row
+     */
+    public String getRow(int row) {
+        if(row == count) {
+            return "";
+        }
+        String s = strings[row];
+        if(s == null) {
+            s = new String(text, starts[row], ends[row] - starts[row]);
+            strings[row] = s;
+        }
+        return s;
+    }
+
+    /**
+     * Returns the offset of the first char of the row within the text
+     *
+     * @param row the row offset
+     * @return offset within the text
+     */
+    public int getRowStart(int row) {
+        if(row == count) {
+            return text.length;
+        }
+        return starts[row];
+    }
+
+    /**
+     * Returns the row containing the given offset within the text, an offset of a
+     * separator belongs to the row preceding it
+     *
+     * @param offset offset within the text
+     * @return the row offset or -1 if the index is empty
+     */
+    public int findRow(int offset) {
+        int last = size() - 1;
+        if(last < 0 || getRowStart(last) <= offset) {
+            return last;
+        }
+        int low = 0;
+        int high = Math.min(last, count - 1);
+        while(low < high) {
+            int mid = (low + high + 1) >> 1;
+            if(starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Removes all the rows
+     */
+    public void clear() {
+        text = null;
+        count = 0;
+        trailingRow = false;
+    }
+
+    /**
+     * Holds the given text as a single row without breaking it
+     *
+     * @param s the text of the row
+     */
+    public void setSingleLine(String s) {
+        text = null;
+        trailingRow = false;
+        count = 1;
+        starts[0] = 0;
+        ends[0] = s.length();
+        strings[0] = s;
+    }
+
+    /**
+     * Breaks the given text into rows, if the text was previously broken with the same
+     * font and width only the rows affected by the change are broken again
+     *
+     * @param t the text, the index keeps a reference to the array
+     * @param f the font used to measure the text
+     * @param w the width available for a row
+     * @param stringWidth true to verify row breaks by measuring the whole row
+     */
+    public void layout(char[] t, Font f, int w, boolean stringWidth) {
+        if(text == null || text == t || f != font || w != width || stringWidth != useStringWidth) {
+            if(f != font || charWidths == null) {
+                font = f;
+                if(charWidths == null) {
+                    charWidths = new int[WIDTH_CACHE_SIZE];
+                }
+                for(int iter = 0 ; iter < WIDTH_CACHE_SIZE ; iter++) {
+                    charWidths[iter] = -1;
+                }
+            }
+            width = w;
+            useStringWidth = stringWidth;
+            text = t;
+            count = 0;
+            int from = 0;
+            while(from < t.length) {
+                int next = breakRow(from);
+                addRow(from);
+                from = next;
+            }
+            trailingRow = t.length > 0 && t[t.length - 1] == '\n';
+            return;
+        }
+        char[] old = text;
+        int oldLength = old.length;
+        int newLength = t.length;
+        int prefix = 0;
+        int limit = Math.min(oldLength, newLength);
+        while(prefix < limit && old[prefix] == t[prefix]) {
+            prefix++;
+        }
+        int suffix = 0;
+        limit -= prefix;
+        while(suffix < limit && old[oldLength - 1 - suffix] == t[newLength - 1 - suffix]) {
+            suffix++;
+        }
+        text = t;
+        trailingRow = newLength > 0 && t[newLength - 1] == '\n';
+        if(prefix == oldLength && prefix == newLength) {
+            return;
+        }
+        int delta = newLength - oldLength;
+        int changeEnd = newLength - suffix;
+
+        // the limits grow with the rows so the first row to break again is found
+        // with a binary search
+        int first = Math.max(0, Math.min(count - 1, findRowLimit(prefix)));
+        int from = 0;
+        if(first < count) {
+            from = starts[first];
+        }
+        int newCount = 0;
+        int oldRow = first + 1;
+        while(from < newLength) {
+            int next = breakRow(from);
+            if(newCount == newStarts.length) {
+                newStarts = grow(newStarts, newCount);
+                newEnds = grow(newEnds, newCount);
+                newLimits = grow(newLimits, newCount);
+            }
+            newStarts[newCount] = from;
+            newEnds[newCount] = rowEnd;
+            newLimits[newCount] = rowLimit;
+            newCount++;
+            from = next;
+            if(from >= changeEnd) {
+                // past the change the rows of the old text can be reused once a row
+                // starts at the same (shifted) offset
+                int oldFrom = from - delta;
+                while(oldRow < count && starts[oldRow] < oldFrom) {
+                    oldRow++;
+                }
+                if(oldRow < count && starts[oldRow] == oldFrom) {
+                    replaceRows(first, oldRow, newCount, delta);
+                    return;
+                }
+            }
+        }
+        replaceRows(first, count, newCount, 0);
+    }
+
+    /**
+     * Replaces the rows in the range [first, last) with the rows broken into the new row
+     * arrays and shifts the rows following them by delta
+     */
+    private void replaceRows(int first, int last, int newCount, int delta) {
+        int tail = count - last;
+        int total = first + newCount + tail;
+        ensureCapacity(total);
+        int dest = first + newCount;
+        if(dest != last && tail > 0) {
+            System.arraycopy(starts, last, starts, dest, tail);
+            System.arraycopy(ends, last, ends, dest, tail);
+            System.arraycopy(limits, last, limits, dest, tail);
+            System.arraycopy(strings, last, strings, dest, tail);
+        }
+        if(delta != 0) {
+            for(int iter = dest ; iter < total ; iter++) {
+                starts[iter] += delta;
+                ends[iter] += delta;
+                limits[iter] += delta;
+            }
+        }
+        System.arraycopy(newStarts, 0, starts, first, newCount);
+        System.arraycopy(newEnds, 0, ends, first, newCount);
+        System.arraycopy(newLimits, 0, limits, first, newCount);
+        for(int iter = first ; iter < dest ; iter++) {
+            strings[iter] = null;
+        }
+        for(int iter = total ; iter < count ; iter++) {
+            strings[iter] = null;
+        }
+        count = total;
+    }
+
+    /**
+     * Returns the first row whose limit is at or after the given offset
+     */
+    private int findRowLimit(int offset) {
+        int low = 0;
+        int high = count;
+        while(low < high) {
+            int mid = (low + high) >> 1;
+            if(limits[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private void addRow(int start) {
+        ensureCapacity(count + 1);
+        starts[count] = start;
+        ends[count] = rowEnd;
+        limits[count] = rowLimit;
+        strings[count] = null;
+        count++;
+    }
+
+    private void ensureCapacity(int size) {
+        if(size > starts.length) {
+            int capacity = Math.max(size, starts.length * 2);
+            int[] s = new int[capacity];
+            System.arraycopy(starts, 0, s, 0, count);
+            starts = s;
+            s = new int[capacity];
+            System.arraycopy(ends, 0, s, 0, count);
+            ends = s;
+            s = new int[capacity];
+            System.arraycopy(limits, 0, s, 0, count);
+            limits = s;
+            String[] str = new String[capacity];
+            System.arraycopy(strings, 0, str, 0, count);
+            strings = str;
+        }
+    }
+
+    private static int[] grow(int[] arr, int size) {
+        int[] n = new int[arr.length * 2];
+        System.arraycopy(arr, 0, n, 0, size);
+        return n;
+    }
+
+    private int charWidth(char c) {
+        if(c < WIDTH_CACHE_SIZE) {
+            int w = charWidths[c];
+            if(w < 0) {
+                w = font.charWidth(c);
+                charWidths[c] = w;
+            }
+            return w;
+        }
+        return font.charWidth(c);
+    }
+
+    /**
+     * Breaks the row starting at the given offset, the row is broken at the last space
+     * preceding the first char that doesn't fit or at a newline. A row with no space is
+     * cut before the char that doesn't fit.
+     *
+     * @return the offset of the next row, the end and limit of the row are stored in
+     * rowEnd and rowLimit
+     */
+    private int breakRow(int from) {
+        char[] t = text;
+        int length = t.length;
+        int space = -1;
+        int rowWidth = 0;
+        int i;
+        for(i = from ; i < length ; i++) {
+            char c = t[i];
+            rowWidth += charWidth(c);
+            if(rowWidth >= width && (!useStringWidth || font.charsWidth(t, from, i - from + 1) >= width)) {
+                break;
+            }
+            if(c == ' ' || c == '\n') {
+                space = i;
+                // newline has been found. We can end the loop here as the line cannot grow more
+                if(c == '\n') {
+                    break;
+                }
+            }
+        }
+        rowLimit = i;
+        if(useStringWidth && i > from) {
+            // the sum of the char widths might be narrower than the string
+            int fit = i;
+            while(fit > from && font.charsWidth(t, from, fit - from) >= width) {
+                fit--;
+            }
+            if(fit < i) {
+                i = fit;
+                space = -1;
+                for(int iter = from ; iter < i ; iter++) {
+                    if(t[iter] == ' ' || t[iter] == '\n') {
+                        space = iter;
+                        if(t[iter] == '\n') {
+                            i = iter;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+
+        // if we got to the end of the text use the entire row,
+        // also if space is next character (in the next row) we can cut the line
+        if(i == length || t[i] == ' ' || t[i] == '\n') {
+            space = i;
+        }
+        if(space > -1) {
+            rowEnd = space;
+            return space + 1;
+        }
+        rowEnd = Math.max(i, from + 1);
+        return rowEnd;
+    }
+}
@@ -196,12 +196,20 @@ class CSSEngine {
 
     /**
      * Sorts the CSS directives by their specificity level
+     * The specificity of every selector is calculated once upfront and the selectors are then merge sorted by it.
+     * The sort is stable so selectors with the same specificity keep their order (External CSS files first and then embedded CSS segments, each in document order)
      * 
      * @param css A css vector holding CSSElements, where each element holds CSS selectors as its children
      * @return a flat vector containing CSS selectors, sorted by specificity
      */
     private CSSElement[] sortSelectorsBySpecificity(CSSElement[] css) {
-        Vector sortedSelectors=new Vector();
+        int count=0;
+        for(int s=0;s<css.length;s++) {
+            count+=css[s].getNumChildren();
+        }
+        CSSElement[] selectors=new CSSElement[count];
+        int[] specificity=new int[count];
+        count=0;
 
         for(int s=0;s<css.length;s++) {
             CSSElement cssRoot=css[s];
@@ -221,21 +229,51 @@ class CSSEngine {
                         }
                     }
                 }
-                int i=0;
-                int specificity=currentSelector.getSelectorSpecificity(); //Note that it is important to get the specificity outside the loop, so it will necessarily get called (triggering the cal)
-                while((i<sortedSelectors.size()) && (specificity>=((CSSElement)sortedSelectors.elementAt(i)).getSelectorSpecificity())) {
-                    i++;
-                }
-                sortedSelectors.insertElementAt(currentSelector, i);
+                selectors[count]=currentSelector;
+                specificity[count]=currentSelector.getSelectorSpecificity(); // This also triggers the calculation of the selector's tag, id and class
+                count++;
             }
         }
 
-        css = new CSSElement[sortedSelectors.size()];
-        for(int i=0;i<sortedSelectors.size();i++) {
-            css[i]=(CSSElement)sortedSelectors.elementAt(i);
-        }
+        mergeSort(selectors, specificity, new CSSElement[count], new int[count], 0, count);
+        return selectors;
+    }
 
-        return css;
+    /**
+     * Stable merge sort of the selectors in the given range by their pre-calculated specificity
+     *
+     * @param selectors The selectors to sort
+     * @param specificity The specificity of each selector, sorted along with the selectors
+     * @param tmpSelectors A temporary array the same size as selectors
+     * @param tmpSpecificity A temporary array the same size as specificity
+     * @param start The start of the range (inclusive)
+     * @param end The end of the range (exclusive)
+     */
+    private static void mergeSort(CSSElement[] selectors,int[] specificity,CSSElement[] tmpSelectors,int[] tmpSpecificity,int start,int end) {
+        if (end-start<2) {
+            return;
+        }
+        int mid=(start+end)/2;
+        mergeSort(selectors, specificity, tmpSelectors, tmpSpecificity, start, mid);
+        mergeSort(selectors, specificity, tmpSelectors, tmpSpecificity, mid, end);
+        if (specificity[mid-1]<=specificity[mid]) { // Already in order
+            return;
+        }
+        int left=start;
+        int right=mid;
+        for(int i=start;i<end;i++) {
+            if ((right>=end) || ((left<mid) && (specificity[left]<=specificity[right]))) {
+                tmpSelectors[i]=selectors[left];
+                tmpSpecificity[i]=specificity[left];
+                left++;
+            } else {
+                tmpSelectors[i]=selectors[right];
+                tmpSpecificity[i]=specificity[right];
+                right++;
+            }
+        }
+        System.arraycopy(tmpSelectors, start, selectors, start, end-start);
+        System.arraycopy(tmpSpecificity, start, specificity, start, end-start);
     }
 
     /**
@@ -273,7 +311,7 @@ class CSSEngine {
             }
 
             css=sortSelectorsBySpecificity(css);
-            applyCSS(document, htmlC, css, null, null);
+            applyCSS(document, htmlC, new CSSSelectorIndex(css, document));
         }
         //System.out.println("Total: "+count+", Time="+(System.currentTimeMillis()-startTime));
     }
@@ -314,139 +352,47 @@ class CSSEngine {
     }
     
     /**
-     * A recursive method that tries to match all CSS selectors with the specified element
+     * A recursive method that applies all CSS selectors matching the specified element and its descendants
+     * Selectors are applied by their specificity order, and then the element's style attribute is applied.
      *
      * @param element The specific element in the document to apply the CSS on
      * @param htmlC The HTMLComponent to apply the CSS on
-     * @param css An array containing selectors sorted by specificity from all the external CSS files and then the embedded CSS segments
-     * @param nestedSelectors A vector containing nested selectors, or null if none
+     * @param index An index of the selectors from all the external CSS files and then the embedded CSS segments
      */
-    private Vector applyCSS(HTMLElement element,HTMLComponent htmlC,CSSElement[] css,Vector nestedSelectors,Vector siblingSelectors) { //Vector styleAttributes
-        String id=element.getAttributeById(HTMLElement.ATTR_ID);
-        String className=element.getAttributeById(HTMLElement.ATTR_CLASS);
-
-        Vector nextNestedSelectors=new Vector();
-        Vector nextSiblingSelectors=null;
-        if (!HTMLComponent.PROCESS_HTML_MP1_ONLY) { // sibling selectors are not supported in HTML-MP1
-            nextSiblingSelectors=new Vector();
-        }
-        for (int e=0;e<css.length;e++) {
-            CSSElement currentSelector = css[e];
-            checkSelector(currentSelector, element, htmlC, className, id,nextNestedSelectors,nextSiblingSelectors);
-        }
-
-        if (nestedSelectors!=null) {
-            for (Enumeration e=nestedSelectors.elements();e.hasMoreElements();) {
-                CSSElement currentSelector=(CSSElement)e.nextElement();
-                checkSelector(currentSelector, element, htmlC, className, id,nextNestedSelectors,nextSiblingSelectors);
-            }
-        }
-
-        if ((!HTMLComponent.PROCESS_HTML_MP1_ONLY) && (siblingSelectors!=null)) {
-            for (Enumeration e=siblingSelectors.elements();e.hasMoreElements();) {
-                CSSElement currentSelector=(CSSElement)e.nextElement();
-                checkSelector(currentSelector, element, htmlC, className, id,nextNestedSelectors,nextSiblingSelectors);
+    private void applyCSS(HTMLElement element,HTMLComponent htmlC,CSSSelectorIndex index) {
+        int count=index.match(element);
+        for(int i=0;i<count;i++) {
+            CSSElement currentSelector=index.getMatch(i);
+            if (matchesLinkState(element, currentSelector)) {
+                applyStyle(element, currentSelector,htmlC);
             }
         }
 
-
-        if (nextNestedSelectors.size()==0) {
-            nextNestedSelectors=null;
-        }
-
-        if ((!HTMLComponent.PROCESS_HTML_MP1_ONLY) && (nextSiblingSelectors.size()==0)) {
-            nextSiblingSelectors=null;
-        }
-
         applyStyleAttribute(element, htmlC);
 
-        Vector curSiblingSelectors=null;
-        for(int i=0;i<element.getNumChildren();i++) {
-            HTMLElement child=(HTMLElement)element.getChildAt(i);
-            Vector v=applyCSS(child, htmlC,css,nextNestedSelectors,curSiblingSelectors);
-            if (!child.isTextElement()) { // Sibling selectors skip text elements
-                curSiblingSelectors=v;
+        if (element.getNumChildren()>0) {
+            index.pushAncestor(element);
+            for(int i=0;i<element.getNumChildren();i++) {
+                HTMLElement child=(HTMLElement)element.getChildAt(i);
+                applyCSS(child, htmlC, index);
             }
-        }
-
-        return nextSiblingSelectors;
-    }
-    
-    /**
-     * Checks if the given selector matches the given element either by its tag name, class name or id.
-     * If there's a match but the selector has children, it means that it is a nested selector, and thus 
-     * its only child is added to the nested selectors vector to be checked against the children of this element in the next recursion of applyCSS
-     * 
-     * @param currentSelector The current CSS selector to check
-     * @param element The element to check
-     * @param htmlC The HTMLComponent
-     * @param className The element's class name (Can be derived from element but since this method is called a lot it is extracted before and sent as a parameter)
-     * @param id The element's id (Same comment as in className)
-     * @param nextNestedSelectors A vector containing the nested selectors
-     */
-    private void checkSelector(CSSElement currentSelector,HTMLElement element,HTMLComponent htmlC,String className,String id,Vector nextNestedSelectors,Vector nextSiblingSelectors) {
-
-        if (((currentSelector.getSelectorTag()==null) || ((!element.isTextElement()) && (currentSelector.getSelectorTag().equalsIgnoreCase(element.getTagName())))) &&
-            ((currentSelector.getSelectorClass()==null) || (containsClass(className,currentSelector.getSelectorClass()))) &&
-            ((currentSelector.getSelectorId()==null) || (currentSelector.getSelectorId().equalsIgnoreCase(id))) &&
-            (((currentSelector.getSelectorPseudoClass() & (CSSElement.PC_FIRST_CHILD))==0) || (element.isFirstChild())) && //element.getParent().getChildIndex(element)==0)) &&
-            (currentSelector.matchAttributeSelections(element))) {
-                if (currentSelector.getNumChildren()==0) {
-                    if ((element.getTagId()!=HTMLElement.TAG_A) ||
-                        ((currentSelector.getSelectorPseudoClass() & (CSSElement.PC_LINK+CSSElement.PC_VISITED))==0) || // not link/visited (but can be active/focus)
-                        ((element.getUi().size()>0) && !(element.getUi().firstElement() instanceof HTMLLink)) ||
-                        ((element.getUi().size()>0) && (!((HTMLLink)element.getUi().firstElement()).linkVisited) && ((currentSelector.getSelectorPseudoClass() & CSSElement.PC_LINK)!=0)) ||
-                        ((element.getUi().size()>0) && ((HTMLLink)element.getUi().firstElement()).linkVisited) && ((currentSelector.getSelectorPseudoClass() & CSSElement.PC_VISITED)!=0)) {
-                        applyStyle(element, currentSelector,htmlC);
-                    }
-                } else {
-                    CSSElement child=currentSelector.getCSSChildAt(0);
-                    if (child.siblingSelector) {
-                        if (!HTMLComponent.PROCESS_HTML_MP1_ONLY) { // sibling selectors are not supported in HTML-MP1
-                            nextSiblingSelectors.addElement(child);
-                        }
-                    } else {
-                        nextNestedSelectors.addElement(child);
-                        // Check if this is a Descendant selector (i.e. div b - which means match any b that is the descendant of div
-                        // If so then we pass not only the child selector (i.e. the b) but also the "* b" to allow matching later decendants
-                        if (child.descendantSelector) {
-                            CSSElement elem=new CSSElement("*");
-                            elem.addChild(new CSSElement(child));
-                            nextNestedSelectors.addElement(elem);
-                        }
-                    }
-                }
+            index.popAncestor(element);
         }
     }
 
     /**
-     * Checks if the specified class is contained in the specified text
-     * This is used for elements that have several classes i.e. class="class1 class2"
-     * Note: A simple indexOf could not be used since we need to find whole words and not frgaments of words
-     *
-     * @param selectorClass The text
-     * @param elementClass The word to find in the text
-     * @return true if the word is found, false otherwise
+     * Checks whether the :link/:visited pseudo classes of the selector (if any) match the state of the link the element represents
+     * 
+     * @param element The element the selector matched
+     * @param currentSelector The rightmost simple selector of the matching selector
+     * @return true if the selector should be applied
      */
-    private boolean containsClass(String elementClass,String selectorClass) {
-        if ((elementClass==null) || (selectorClass==null)) {
-            return false;
-        }
-        // The spaces addition is to make sure we get a whole word and not a fragment of a word
-        elementClass=" "+elementClass+" ";
-        
-        // Selector can require multiple classes, i.e. class.1class2 (which needs to match to "class 1 class2" and "class2 class1" and also "class1 otherclasses class2"
-        int dotIndex=selectorClass.indexOf('.');
-        while (dotIndex!=-1) {
-            String curWord=selectorClass.substring(0, dotIndex);
-            if (elementClass.indexOf(" "+curWord+" ")==-1) {
-                return false;
-            }
-            selectorClass=selectorClass.substring(dotIndex+1);
-            dotIndex=selectorClass.indexOf('.');
-        }
-
-        return (elementClass.indexOf(" "+selectorClass+" ")!=-1);
+    private boolean matchesLinkState(HTMLElement element,CSSElement currentSelector) {
+        return ((element.getTagId()!=HTMLElement.TAG_A) ||
+            ((currentSelector.getSelectorPseudoClass() & (CSSElement.PC_LINK+CSSElement.PC_VISITED))==0) || // not link/visited (but can be active/focus)
+            ((element.getUi().size()>0) && !(element.getUi().firstElement() instanceof HTMLLink)) ||
+            ((element.getUi().size()>0) && (!((HTMLLink)element.getUi().firstElement()).linkVisited) && ((currentSelector.getSelectorPseudoClass() & CSSElement.PC_LINK)!=0)) ||
+            ((element.getUi().size()>0) && ((HTMLLink)element.getUi().firstElement()).linkVisited) && ((currentSelector.getSelectorPseudoClass() & CSSElement.PC_VISITED)!=0));
     }
 
     /**
@@ -641,7 +587,9 @@ class CSSEngine {
     private void setTextAlignmentRecursive(Component cmp,int align) {
         if (cmp instanceof Container) {
             Container cont=(Container)cmp;
-            if (cont.getLayout() instanceof FlowLayout) {
+            if (cont.getLayout() instanceof HTMLInlineLayout) {
+                cont.setLayout(new HTMLInlineLayout(align));
+            } else if (cont.getLayout() instanceof FlowLayout) {
                 cont.setLayout(new FlowLayout(align));
             }
             for(int i=0;i<cont.getComponentCount();i++) {
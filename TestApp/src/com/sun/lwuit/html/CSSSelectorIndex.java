@@ -0,0 +1,482 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.html;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.Vector;
+
+/**
+ * Index of the CSS selectors applied to a document, used by CSSEngine to find the selectors
+ * matching an element without checking all of them.
+ * Every selector is placed in a single bucket according to its rightmost simple selector (The one
+ * the style applies to): By its id, else by its first class, else by its tag, else in the universal bucket.
+ * An element only checks the buckets of its own id, classes and tag and the universal bucket.
+ * Candidates are matched from right to left, walking up the ancestors/preceding siblings as needed.
+ * While the document is traversed a counting Bloom filter holds the tags, ids and classes of the ancestors of the
+ * current element, so a descendant/child selector requiring an ancestor that is surely absent is rejected without walking the tree.
+ */
+class CSSSelectorIndex {
+
+    /**
+     * Combinators between two simple selectors in a chain
+     */
+    private static final int COMBINATOR_DESCENDANT = 0;
+    private static final int COMBINATOR_CHILD = 1;
+    private static final int COMBINATOR_SIBLING = 2;
+
+    /**
+     * Seeds of the hash codes used by the ancestor filter, so the same string as tag, id and class yields different keys
+     */
+    private static final int SEED_TAG = 1;
+    private static final int SEED_ID = 2;
+    private static final int SEED_CLASS = 3;
+
+    /**
+     * The number of counters in the ancestor filter, must be a power of 2
+     */
+    private static final int FILTER_SIZE = 1024;
+
+    /**
+     * The simple selectors of every selector ordered from left to right, selectors are ordered by specificity
+     */
+    private CSSElement[][] chains;
+
+    /**
+     * The combinator preceding each simple selector in the chain (The first entry is unused)
+     */
+    private int[][] combinators;
+
+    /**
+     * The ancestor filter keys of every selector, an element can match the selector only if the filter contains all of them
+     */
+    private int[][] ancestorKeys;
+
+    private Hashtable idBuckets=new Hashtable();
+    private Hashtable classBuckets=new Hashtable();
+    private Hashtable tagBuckets=new Hashtable();
+    private int[] universalBucket;
+
+    private int[] ancestorFilter=new int[FILTER_SIZE];
+
+    /**
+     * The topmost element the selectors are applied to, matching doesn't go beyond it
+     */
+    private HTMLElement root;
+
+    /**
+     * Marks the selectors already checked against the current element, since the same selector may be in several class buckets of the element
+     */
+    private int[] visited;
+    private int visitStamp;
+
+    private int[] matches;
+    private int matchCount;
+
+    /**
+     * Constructs an index of the given selectors
+     *
+     * @param selectors The selectors sorted by specificity, each being the leftmost simple selector of its chain
+     * @param root The topmost element the selectors are applied to
+     */
+    CSSSelectorIndex(CSSElement[] selectors,HTMLElement root) {
+        this.root=root;
+        int count=selectors.length;
+        chains=new CSSElement[count][];
+        combinators=new int[count][];
+        ancestorKeys=new int[count][];
+        visited=new int[count];
+        matches=new int[count];
+
+        Vector universal=new Vector();
+        for(int s=0;s<count;s++) {
+            CSSElement selector=selectors[s];
+            selector.getSelectorSpecificity(); // Makes sure the tag, id and class of the whole chain were calculated
+
+            int length=1;
+            CSSElement current=selector;
+            while (current.getNumChildren()>0) {
+                current=current.getCSSChildAt(0);
+                length++;
+            }
+            CSSElement[] chain=new CSSElement[length];
+            int[] chainCombinators=new int[length];
+            current=selector;
+            for(int i=0;i<length;i++) {
+                chain[i]=current;
+                if (current.siblingSelector) {
+                    chainCombinators[i]=COMBINATOR_SIBLING;
+                } else if (current.descendantSelector) {
+                    chainCombinators[i]=COMBINATOR_DESCENDANT;
+                } else {
+                    chainCombinators[i]=COMBINATOR_CHILD;
+                }
+                if (i<length-1) {
+                    current=current.getCSSChildAt(0);
+                }
+            }
+            chains[s]=chain;
+            combinators[s]=chainCombinators;
+            ancestorKeys[s]=getAncestorKeys(chain, chainCombinators);
+
+            CSSElement target=chain[length-1];
+            if (target.getSelectorId()!=null) {
+                addToBucket(idBuckets, target.getSelectorId().toLowerCase(), s);
+            } else if (target.getSelectorClass()!=null) {
+                String selectorClass=target.getSelectorClass();
+                int dotIndex=selectorClass.indexOf('.');
+                if (dotIndex!=-1) {
+                    selectorClass=selectorClass.substring(0, dotIndex);
+                }
+                addToBucket(classBuckets, selectorClass, s);
+            } else if (target.getSelectorTag()!=null) {
+                addToBucket(tagBuckets, target.getSelectorTag().toLowerCase(), s);
+            } else {
+                universal.addElement(new Integer(s));
+            }
+        }
+
+        universalBucket=toArray(universal);
+        toArrays(idBuckets);
+        toArrays(classBuckets);
+        toArrays(tagBuckets);
+    }
+
+    /**
+     * Returns the filter keys of the simple selectors that must match ancestors of the element the chain applies to.
+     * These are all the simple selectors followed by a descendant or child combinator (Even if a sibling combinator comes later in the chain).
+     */
+    private static int[] getAncestorKeys(CSSElement[] chain,int[] chainCombinators) {
+        Vector keys=new Vector();
+        for(int i=0;i<chain.length-1;i++) {
+            if (chainCombinators[i+1]!=COMBINATOR_SIBLING) {
+                CSSElement selector=chain[i];
+                if (selector.getSelectorTag()!=null) {
+                    keys.addElement(new Integer(hash(SEED_TAG, selector.getSelectorTag(), 0, selector.getSelectorTag().length(), true)));
+                }
+                if (selector.getSelectorId()!=null) {
+                    keys.addElement(new Integer(hash(SEED_ID, selector.getSelectorId(), 0, selector.getSelectorId().length(), true)));
+                }
+                String selectorClass=selector.getSelectorClass();
+                if (selectorClass!=null) {
+                    int start=0;
+                    int dotIndex=selectorClass.indexOf('.');
+                    while (dotIndex!=-1) {
+                        keys.addElement(new Integer(hash(SEED_CLASS, selectorClass, start, dotIndex, false)));
+                        start=dotIndex+1;
+                        dotIndex=selectorClass.indexOf('.', start);
+                    }
+                    keys.addElement(new Integer(hash(SEED_CLASS, selectorClass, start, selectorClass.length(), false)));
+                }
+            }
+        }
+        return toArray(keys);
+    }
+
+    private static void addToBucket(Hashtable buckets,String key,int selectorIndex) {
+        Vector bucket=(Vector)buckets.get(key);
+        if (bucket==null) {
+            bucket=new Vector();
+            buckets.put(key, bucket);
+        }
+        bucket.addElement(new Integer(selectorIndex));
+    }
+
+    private static void toArrays(Hashtable buckets) {
+        Vector keys=new Vector();
+        for(Enumeration e=buckets.keys();e.hasMoreElements();) {
+            keys.addElement(e.nextElement());
+        }
+        for(int i=0;i<keys.size();i++) {
+            Object key=keys.elementAt(i);
+            buckets.put(key, toArray((Vector)buckets.get(key)));
+        }
+    }
+
+    private static int[] toArray(Vector v) {
+        int[] result=new int[v.size()];
+        for(int i=0;i<result.length;i++) {
+            result[i]=((Integer)v.elementAt(i)).intValue();
+        }
+        return result;
+    }
+
+    /**
+     * Finds the selectors matching the given element, the results are available via getMatch until the next call.
+     * The ancestor filter must hold exactly the ancestors of the element (up to the root), see pushAncestor/popAncestor
+     *
+     * @param element The element to match
+     * @return The number of matching selectors
+     */
+    int match(HTMLElement element) {
+        matchCount=0;
+        visitStamp++;
+        if (!element.isTextElement()) {
+            String id=element.getAttributeById(HTMLElement.ATTR_ID);
+            if (id!=null) {
+                addCandidates((int[])idBuckets.get(id.toLowerCase()), element);
+            }
+            String className=element.getAttributeById(HTMLElement.ATTR_CLASS);
+            if (className!=null) {
+                int start=0;
+                int spaceIndex=className.indexOf(' ');
+                while (spaceIndex!=-1) {
+                    if (spaceIndex>start) {
+                        addCandidates((int[])classBuckets.get(className.substring(start, spaceIndex)), element);
+                    }
+                    start=spaceIndex+1;
+                    spaceIndex=className.indexOf(' ', start);
+                }
+                if (start<className.length()) {
+                    addCandidates((int[])classBuckets.get(className.substring(start)), element);
+                }
+            }
+            addCandidates((int[])tagBuckets.get(element.getTagName().toLowerCase()), element);
+        }
+        addCandidates(universalBucket, element);
+
+        // Candidates from different buckets are interleaved, restore the specificity order (There are usually only a few matches)
+        for(int i=1;i<matchCount;i++) {
+            int s=matches[i];
+            int j=i-1;
+            while ((j>=0) && (matches[j]>s)) {
+                matches[j+1]=matches[j];
+                j--;
+            }
+            matches[j+1]=s;
+        }
+        return matchCount;
+    }
+
+    /**
+     * Returns the matching selector at the given index, as found in the last call to match
+     *
+     * @param index The index of the match, lower indexes have a lower specificity
+     * @return the rightmost simple selector of the matching selector (The one holding the style)
+     */
+    CSSElement getMatch(int index) {
+        CSSElement[] chain=chains[matches[index]];
+        return chain[chain.length-1];
+    }
+
+    private void addCandidates(int[] bucket,HTMLElement element) {
+        if (bucket==null) {
+            return;
+        }
+        for(int i=0;i<bucket.length;i++) {
+            int s=bucket[i];
+            if (visited[s]!=visitStamp) {
+                visited[s]=visitStamp;
+                if (matches(s, element)) {
+                    matches[matchCount]=s;
+                    matchCount++;
+                }
+            }
+        }
+    }
+
+    private boolean matches(int selectorIndex,HTMLElement element) {
+        CSSElement[] chain=chains[selectorIndex];
+        int last=chain.length-1;
+        if (!matchesSimple(chain[last], element)) {
+            return false;
+        }
+        if (last==0) {
+            return true;
+        }
+        int[] keys=ancestorKeys[selectorIndex];
+        for(int i=0;i<keys.length;i++) {
+            if (!mayContain(keys[i])) {
+                return false;
+            }
+        }
+        return matchesPreceding(selectorIndex, last, element);
+    }
+
+    /**
+     * Checks whether the simple selectors preceding the given position in the chain match, given that the simple selector at the position matches the element
+     */
+    private boolean matchesPreceding(int selectorIndex,int position,HTMLElement element) {
+        CSSElement selector=chains[selectorIndex][position-1];
+        switch(combinators[selectorIndex][position]) {
+            case COMBINATOR_SIBLING:
+                if (HTMLComponent.PROCESS_HTML_MP1_ONLY) { // sibling selectors are not supported in HTML-MP1
+                    return false;
+                }
+                HTMLElement sibling=getPreviousSibling(element);
+                return ((sibling!=null) && (matchesSimple(selector, sibling)) &&
+                        ((position==1) || (matchesPreceding(selectorIndex, position-1, sibling))));
+            case COMBINATOR_CHILD:
+                HTMLElement parent=getParent(element);
+                return ((parent!=null) && (matchesSimple(selector, parent)) &&
+                        ((position==1) || (matchesPreceding(selectorIndex, position-1, parent))));
+            default:
+                for(HTMLElement ancestor=getParent(element);ancestor!=null;ancestor=getParent(ancestor)) {
+                    if ((matchesSimple(selector, ancestor)) &&
+                        ((position==1) || (matchesPreceding(selectorIndex, position-1, ancestor)))) {
+                        return true;
+                    }
+                }
+                return false;
+        }
+    }
+
+    /**
+     * Checks if the given simple selector matches the given element either by its tag name, class name, id, pseudo class and attributes
+     *
+     * @param selector The simple selector to check
+     * @param element The element to check
+     * @return true if the selector matches the element
+     */
+    static boolean matchesSimple(CSSElement selector,HTMLElement element) {
+        return (((selector.getSelectorTag()==null) || ((!element.isTextElement()) && (selector.getSelectorTag().equalsIgnoreCase(element.getTagName())))) &&
+            ((selector.getSelectorClass()==null) || (containsClass(element.getAttributeById(HTMLElement.ATTR_CLASS),selector.getSelectorClass()))) &&
+            ((selector.getSelectorId()==null) || (selector.getSelectorId().equalsIgnoreCase(element.getAttributeById(HTMLElement.ATTR_ID)))) &&
+            (((selector.getSelectorPseudoClass() & (CSSElement.PC_FIRST_CHILD))==0) || (element.isFirstChild())) &&
+            (selector.matchAttributeSelections(element)));
+    }
+
+    /**
+     * Checks if the specified class is contained in the specified text
+     * This is used for elements that have several classes i.e. class="class1 class2"
+     * Note: A simple indexOf could not be used since we need to find whole words and not frgaments of words
+     *
+     * @param elementClass The text
+     * @param selectorClass The word to find in the text
+     * @return true if the word is found, false otherwise
+     */
+    private static boolean containsClass(String elementClass,String selectorClass) {
+        if ((elementClass==null) || (selectorClass==null)) {
+            return false;
+        }
+        // The spaces addition is to make sure we get a whole word and not a fragment of a word
+        elementClass=" "+elementClass+" ";
+
+        // Selector can require multiple classes, i.e. class.1class2 (which needs to match to "class 1 class2" and "class2 class1" and also "class1 otherclasses class2"
+        int dotIndex=selectorClass.indexOf('.');
+        while (dotIndex!=-1) {
+            String curWord=selectorClass.substring(0, dotIndex);
+            if (elementClass.indexOf(" "+curWord+" ")==-1) {
+                return false;
+            }
+            selectorClass=selectorClass.substring(dotIndex+1);
+            dotIndex=selectorClass.indexOf('.');
+        }
+
+        return (elementClass.indexOf(" "+selectorClass+" ")!=-1);
+    }
+
+    private HTMLElement getParent(HTMLElement element) {
+        if (element==root) {
+            return null;
+        }
+        return (HTMLElement)element.getParent();
+    }
+
+    /**
+     * Returns the preceding non-text sibling of the element, since sibling selectors skip text elements
+     */
+    private HTMLElement getPreviousSibling(HTMLElement element) {
+        HTMLElement parent=getParent(element);
+        if (parent==null) {
+            return null;
+        }
+        for(int i=parent.getChildIndex(element)-1;i>=0;i--) {
+            HTMLElement sibling=(HTMLElement)parent.getChildAt(i);
+            if (!sibling.isTextElement()) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds the given element to the ancestor filter, called before traversing its children
+     *
+     * @param element The element whose children are about to be traversed
+     */
+    void pushAncestor(HTMLElement element) {
+        updateFilter(element, 1);
+    }
+
+    /**
+     * Removes the given element from the ancestor filter, called after traversing its children
+     *
+     * @param element The element whose children were traversed
+     */
+    void popAncestor(HTMLElement element) {
+        updateFilter(element, -1);
+    }
+
+    private void updateFilter(HTMLElement element,int delta) {
+        if (element.isTextElement()) {
+            return;
+        }
+        String tagName=element.getTagName();
+        updateFilter(hash(SEED_TAG, tagName, 0, tagName.length(), true), delta);
+        String id=element.getAttributeById(HTMLElement.ATTR_ID);
+        if (id!=null) {
+            updateFilter(hash(SEED_ID, id, 0, id.length(), true), delta);
+        }
+        String className=element.getAttributeById(HTMLElement.ATTR_CLASS);
+        if (className!=null) {
+            int start=0;
+            int spaceIndex=className.indexOf(' ');
+            while (spaceIndex!=-1) {
+                if (spaceIndex>start) {
+                    updateFilter(hash(SEED_CLASS, className, start, spaceIndex, false), delta);
+                }
+                start=spaceIndex+1;
+                spaceIndex=className.indexOf(' ', start);
+            }
+            if (start<className.length()) {
+                updateFilter(hash(SEED_CLASS, className, start, className.length(), false), delta);
+            }
+        }
+    }
+
+    private void updateFilter(int key,int delta) {
+        ancestorFilter[key & (FILTER_SIZE-1)]+=delta;
+        ancestorFilter[(key>>>16) & (FILTER_SIZE-1)]+=delta;
+    }
+
+    private boolean mayContain(int key) {
+        return ((ancestorFilter[key & (FILTER_SIZE-1)]>0) && (ancestorFilter[(key>>>16) & (FILTER_SIZE-1)]>0));
+    }
+
+    /**
+     * Hashes the given string range without allocating a substring
+     */
+    private static int hash(int seed,String str,int start,int end,boolean ignoreCase) {
+        int h=seed;
+        for(int i=start;i<end;i++) {
+            char c=str.charAt(i);
+            if (ignoreCase) {
+                c=Character.toLowerCase(c);
+            }
+            h=31*h+c;
+        }
+        return h^(h>>>7);
+    }
+}
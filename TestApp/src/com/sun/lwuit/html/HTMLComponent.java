@@ -1601,6 +1601,9 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
 
         curContainer=mainContainer;
         curLine=new Container();
+        if (!FIXED_WIDTH) {
+            curLine.setLayout(new HTMLInlineLayout(Component.LEFT));
+        }
         lastWasEmpty=false;
 
         width=Display.getInstance().getDisplayWidth()-getStyle().getMargin(Component.LEFT)-getStyle().getPadding(Component.LEFT)-
@@ -1880,7 +1883,7 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
       curLine=new Container();
       curLine.getStyle().setBgTransparency(0);
       if (!FIXED_WIDTH) {
-        FlowLayout fl=new FlowLayout(align);
+        FlowLayout fl=new HTMLInlineLayout(align);
         fl.setValign(Component.BOTTOM);
         fl.setValignByRow(true);
         curLine.setLayout(fl);
@@ -1948,57 +1951,104 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
         return comps;
     }
 
-    Vector getWords(String text,int align,boolean returnComps) {
-        Vector words=new Vector();
-        String word="";
-        String leadSpace="";
-        for(int c=0;c<text.length();c++) {
-            char ch=text.charAt(c);
-            if ((CJK_SUPPORT) &&
+    /**
+     * Returns true if a line can break after the given character even if it is not followed by a space.
+     * This is the case with CJK (Chinese, Japanese, Korean) ideographs.
+     *
+     * @param ch The character to check
+     * @return true if the character is a CJK ideograph and CJK support is on
+     */
+    static boolean isBreakableChar(char ch) {
+        return ((CJK_SUPPORT) &&
                (((ch>=0x3400) && (ch<=0x9fff)) || //4E00-9FFF: CJK Unified Ideographs (Common), 3400-4DFF: CJK Unified Ideographs Extension A (Rare)
                 ((ch>=0xf900) && (ch<=0xfaff)) //|| //CJK Compatibility Ideographs (Duplicates, unifiable variants, corporate characters)
                 // Since char can get a max value of 0xffff, the following are not applicable
                 //((ch>=0x20000) && (ch<=0x2a6df)) || //CJK Unified Ideographs Extension B (Rare, historic)
                 //((ch>=0x2f800) && (ch<=0x2fa1f)) //CJK Compatibility Ideographs Supplement (Unifiable variants)
-                    )) { // CJK (Chinese, Japanese, Korean)
-                word+=ch;
-                if (returnComps) {
-                    words.addElement(addString(word, align));
-                } else {
-                    words.addElement(word);
+                    )); // CJK (Chinese, Japanese, Korean)
+    }
+
+    /**
+     * Breaks the given text into words, or adds it to the current line
+     *
+     * @param text The text to process
+     * @param align The current horizontal alignment
+     * @param returnComps If true the text is added to the current line as a single component that breaks into lines by itself (See HTMLInlineLayout), and a vector containing this component is returned.
+     * If false, a vector containing the words of the text is returned. Words that are longer than the component's width are broken as well.
+     * @return a vector containing the words or the components
+     */
+    Vector getWords(String text,int align,boolean returnComps) {
+        Vector words=new Vector();
+        if (returnComps) {
+            String str=collapseWhiteSpaces(text);
+            if (str.length()!=0) {
+                Label lbl=addString(str, align);
+                if (lbl!=null) {
+                    words.addElement(lbl);
+                }
+            }
+            return words;
+        }
+
+        StringBuffer word=new StringBuffer();
+        int wordWidth=0;
+        Font f=font.getFont();
+        for(int c=0;c<text.length();c++) {
+            char ch=text.charAt(c);
+            if (isBreakableChar(ch)) {
+                word.append(ch);
+                words.addElement(word.toString());
+                word.setLength(0);
+                wordWidth=0;
+            } else if ((ch==' ') || (ch==10) || (ch==13) || (ch=='\t') || (ch=='\n')) {
+                if (word.length()!=0) {
+                    words.addElement(word.toString());
+                    word.setLength(0);
+                    wordWidth=0;
                 }
-                word="";
             } else {
-                if ((ch==' ') || (ch==10) || (ch==13) || (ch=='\t') || (ch=='\n')) {
-                    if (word.length()!=0) {
-                        if (returnComps) {
-                            words.addElement(addString(leadSpace+word+' ', align));
-                            leadSpace="";
-                        } else {
-                            words.addElement(word);
-                        }
-                        word="";
-                    } else if ((words.isEmpty()) && (text.length()>1)) { // The first word can have a leading space (only one, all whitespaces are aggregated to one space) - Unless this is just a space with no text
-                        leadSpace=" ";
-                    }
-                } else if ((!returnComps) && (font.stringWidth(word+ch)>width-leftIndent)) { //break words that are longer than the component's width
-                   words.addElement(word);
-                   word=""+ch;
-                } else {
-                   word+=ch;
+                int charWidth=f.charWidth(ch);
+                if ((word.length()!=0) && (wordWidth+charWidth>width-leftIndent)) { //break words that are longer than the component's width
+                    words.addElement(word.toString());
+                    word.setLength(0);
+                    wordWidth=0;
                 }
+                word.append(ch);
+                wordWidth+=charWidth;
             }
         }
-        if ((word.length()!=0) || (leadSpace.length()!=0)) {
-            if (returnComps) {
-                words.addElement(addString(leadSpace+word, align));
+        if (word.length()!=0) {
+            words.addElement(word.toString());
+        }
+        return words;
+    }
+
+    /**
+     * Collapses every sequence of white spaces in the given text to a single space.
+     * A leading white space is kept, unless the text is just a single white space character.
+     *
+     * @param text The text to process
+     * @return the text with collapsed white spaces
+     */
+    private String collapseWhiteSpaces(String text) {
+        StringBuffer str=new StringBuffer(text.length());
+        boolean space=false;
+        for(int c=0;c<text.length();c++) {
+            char ch=text.charAt(c);
+            if ((ch==' ') || (ch==10) || (ch==13) || (ch=='\t') || (ch=='\n')) {
+                space=true;
             } else {
-                if (word.length()!=0) {
-                    words.addElement(word);
+                if ((space) && ((str.length()!=0) || (text.length()>1))) {
+                    str.append(' ');
                 }
-            }   
+                space=false;
+                str.append(ch);
+            }
         }
-        return words;
+        if ((space) && ((str.length()!=0) || (text.length()>1))) {
+            str.append(' ');
+        }
+        return str.toString();
     }
 
     /*
@@ -2074,8 +2124,12 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
             }
         }
 
+        boolean wrap=((!FIXED_WIDTH) && (preTagCount==0)); // In non fixed width mode the text breaks into lines by itself (See HTMLInlineLayout), unless it is preformatted
         if (link!=null) {
             lbl=new HTMLLink(str,link,this,mainLink,linkVisited);
+            if (wrap) {
+                ((HTMLLink)lbl).inlineText=new InlineText(lbl);
+            }
             color=linkColor;
             if (linkVisited) {
                 color=COLOR_VISITED_LINKS;
@@ -2099,11 +2153,16 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
         } else {
             if (labelForID!=null) {
                 lbl=new ForLabel(str, this, labelForID);
+                if (!wrap) {
+                    ((ForLabel)lbl).inlineText=null;
+                }
                 if (accesskey!='\0') {
                     addAccessKey(accesskey, lbl, false);//accessKeys.put(new Integer(accesskey), lbl);
                     accesskey='\0'; // To prevent the access key from adding again to all words of the link
                 }
                 labelForID=null;
+            } else if (wrap) {
+                lbl=new HTMLTextRun(str);
             } else {
                 lbl=new Label(str);
             }
@@ -3584,7 +3643,7 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
     private void adjustAlignment(int align,int curAlign) {
         if ((!FIXED_WIDTH) && (align!=curAlign)) {
             if (curLine.getComponentCount()==0) {
-                curLine.setLayout(new FlowLayout(curAlign));
+                curLine.setLayout(new HTMLInlineLayout(curAlign));
             }
         }
     }
@@ -4089,7 +4148,7 @@ public class HTMLComponent extends Container implements ActionListener,AsyncDocu
      *
      * @author Ofir Leitner
      */
-    class ForLabel extends Label {
+    class ForLabel extends HTMLTextRun {
 
         String id;
         HTMLComponent htmlC;
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.html;
+
+import com.sun.lwuit.Component;
+import com.sun.lwuit.Container;
+import com.sun.lwuit.geom.Dimension;
+import com.sun.lwuit.layouts.FlowLayout;
+import com.sun.lwuit.plaf.Style;
+
+/**
+ * A FlowLayout used for the line containers of HTMLComponent, in which text labels (HTMLTextRun/HTMLLink) break into lines themselves.
+ * A text label is split into line fragments: the first continues the current row, the following start new rows and the component that follows continues the last row.
+ * Other components are laid out like in FlowLayout. Rows are aligned horizontally by the layout's alignment and vertically by its valign (always per row).
+ * This allows holding a whole text element in one label rather than creating a label per word.
+ */
+class HTMLInlineLayout extends FlowLayout {
+
+    /**
+     * The fragments of the current layout, a fragment is either a whole component or a line of a text label
+     */
+    private Component[] fragCmp=new Component[16];
+    private int[] fragLine=new int[16]; // The line index within the text label or -1 for a regular component
+    private int[] fragX=new int[16];
+    private int[] fragWidth=new int[16];
+    private int[] fragHeight=new int[16]; // The height including the vertical margins
+    private int fragCount;
+
+    private int[] rowEnd=new int[8]; // The fragment following the last fragment of each row
+    private int[] rowHeight=new int[8];
+    private int[] rowWidth=new int[8];
+    private int rowCount;
+
+    /**
+     * Creates a new instance of HTMLInlineLayout with the given alignment
+     *
+     * @param orientation one of LEFT, RIGHT or CENTER
+     */
+    HTMLInlineLayout(int orientation) {
+        super(orientation);
+    }
+
+    /**
+     * Returns the inline text of the given component, or null if the component isn't a text label which can break into lines
+     *
+     * @param cmp The component
+     * @return the inline text of the given component, or null if none
+     */
+    static InlineText getInlineText(Component cmp) {
+        if (cmp instanceof HTMLTextRun) {
+            return ((HTMLTextRun)cmp).inlineText;
+        }
+        if ((cmp instanceof HTMLLink) && (((HTMLLink)cmp).getIcon()==null)) {
+            return ((HTMLLink)cmp).inlineText;
+        }
+        return null;
+    }
+
+    /**
+     * The line fragments of the text labels are positioned by the layout itself and
+     * aren't covered by the inputs the container tracks
+     *
+     * @return false
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return false;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void layoutContainer(Container parent) {
+        Style style=parent.getStyle();
+        boolean rtl=parent.isRTL();
+        int initX=style.getPadding(rtl, Component.LEFT);
+        if (rtl) {
+            initX+=parent.getSideGap();
+        }
+        int width=parent.getLayoutWidth()-parent.getSideGap()-style.getPadding(rtl, Component.RIGHT)-style.getPadding(rtl, Component.LEFT);
+        breakRows(parent, width, true);
+
+        int y=style.getPadding(false, Component.TOP);
+        int frag=0;
+        int align=getAlign();
+        int valign=getValign();
+        for(int r=0;r<rowCount;r++) {
+            int offset=0;
+            if (align==Component.CENTER) {
+                offset=(width-rowWidth[r])/2;
+            } else if (align==Component.RIGHT) {
+                offset=width-rowWidth[r];
+            }
+            offset=Math.max(0, offset);
+            for(;frag<rowEnd[r];frag++) {
+                Component cmp=fragCmp[frag];
+                Style cmpStyle=cmp.getStyle();
+                int marginTop=cmpStyle.getMargin(false, Component.TOP);
+                int h=fragHeight[frag]-marginTop-cmpStyle.getMargin(false, Component.BOTTOM);
+                int x=offset+fragX[frag];
+                if (rtl) {
+                    x=width-x-fragWidth[frag];
+                }
+                x+=initX;
+                int fragY=y+marginTop;
+                if (valign==Component.BOTTOM) {
+                    fragY=y+Math.max(marginTop, rowHeight[r]-h);
+                } else if (valign==Component.CENTER) {
+                    fragY=y+Math.max(marginTop, (rowHeight[r]-h)/2);
+                }
+                int line=fragLine[frag];
+                if (line==-1) {
+                    cmp.setX(x);
+                    cmp.setY(fragY);
+                } else {
+                    InlineText text=getInlineText(cmp);
+                    text.setLineX(line, x);
+                    text.setLineY(line, fragY);
+                    if (line==text.getLineCount()-1) {
+                        text.setBounds();
+                    }
+                }
+            }
+            y+=rowHeight[r];
+        }
+        for(int i=0;i<fragCount;i++) {
+            fragCmp[i]=null;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Dimension getPreferredSize(Container parent) {
+        int parentWidth=parent.getWidth();
+        Style style=parent.getStyle();
+        int padding=style.getPadding(false, Component.LEFT)+style.getPadding(false, Component.RIGHT);
+        int width;
+        if (parentWidth==0) {
+            parent.invalidate();
+            width=Integer.MAX_VALUE/2; // The width is unknown yet, lay out everything in a single row
+        } else {
+            width=parentWidth-parent.getSideGap()-padding;
+        }
+        breakRows(parent, width, false);
+        int w=0;
+        int h=0;
+        for(int r=0;r<rowCount;r++) {
+            w=Math.max(w, rowWidth[r]);
+            h+=rowHeight[r];
+        }
+        for(int i=0;i<fragCount;i++) {
+            fragCmp[i]=null;
+        }
+        return new Dimension(w+padding, h+style.getPadding(false, Component.TOP)+style.getPadding(false, Component.BOTTOM));
+    }
+
+    /**
+     * Splits the components and text labels of the container into rows of fragments
+     *
+     * @param parent The container
+     * @param width The available width
+     * @param apply true to set the component sizes and the line fragments of the text labels, false to calculate the rows only
+     */
+    private void breakRows(Container parent,int width,boolean apply) {
+        fragCount=0;
+        rowCount=0;
+        int x=0;
+        int count=parent.getComponentCount();
+        for(int i=0;i<count;i++) {
+            Component cmp=parent.getComponentAt(i);
+            Style style=cmp.getStyle();
+            int marginLeft=style.getMargin(false, Component.LEFT);
+            int marginRight=style.getMargin(false, Component.RIGHT);
+            int marginY=style.getMargin(false, Component.TOP)+style.getMargin(false, Component.BOTTOM);
+            InlineText text=getInlineText(cmp);
+            if ((text!=null) && (apply)) {
+                text.clearLines();
+            }
+            if ((text==null) || (text.update()==0)) {
+                int prefW=cmp.getPreferredW();
+                int prefH=cmp.getPreferredH();
+                int w=Math.min(width-marginLeft-marginRight, prefW);
+                if ((x>0) && (x+prefW>width)) {
+                    x=endRow(x);
+                }
+                if (apply) {
+                    cmp.setWidth(w);
+                    cmp.setHeight(prefH);
+                }
+                addFragment(cmp, -1, x+marginLeft, w, prefH+marginY);
+                x+=marginLeft+w+marginRight;
+            } else {
+                int padLeft=style.getPadding(false, Component.LEFT);
+                int padRight=style.getPadding(false, Component.RIGHT);
+                int lineH=text.getTextHeight()+style.getPadding(false, Component.TOP)+style.getPadding(false, Component.BOTTOM);
+                int segments=text.getSegmentCount();
+                int segment=0;
+                while (segment<segments) {
+                    int start=segment;
+                    int lead=(start==0)?marginLeft+padLeft:0;
+                    int w=text.getSegmentWidth(segment);
+                    int trail=(segment==segments-1)?padRight:0;
+                    if ((x>0) && (x+lead+w+trail>width)) { // Not even a single segment fits in this row
+                        x=endRow(x);
+                    }
+                    segment++;
+                    while (segment<segments) {
+                        int segmentW=text.getSegmentWidth(segment);
+                        trail=(segment==segments-1)?padRight:0;
+                        if (x+lead+w+segmentW+trail>width) {
+                            break;
+                        }
+                        w+=segmentW;
+                        segment++;
+                    }
+                    int textOffset=0;
+                    if (start==0) {
+                        w+=padLeft;
+                        textOffset=padLeft;
+                    }
+                    if (segment==segments) {
+                        w+=padRight;
+                    }
+                    int line=-1;
+                    if (apply) {
+                        line=text.getLineCount();
+                        text.addLine(start, segment, 0, 0, w, lineH, textOffset);
+                    }
+                    int fragStart=(start==0)?x+marginLeft:x;
+                    addFragment(cmp, line, fragStart, w, lineH+marginY);
+                    x=fragStart+w;
+                    if (segment<segments) {
+                        x=endRow(x);
+                    } else {
+                        x+=marginRight;
+                    }
+                }
+            }
+        }
+        if (fragCount>((rowCount==0)?0:rowEnd[rowCount-1])) {
+            endRow(x);
+        }
+    }
+
+    private void addFragment(Component cmp,int line,int x,int w,int h) {
+        if (fragCount==fragCmp.length) {
+            Component[] newCmp=new Component[fragCount*2];
+            System.arraycopy(fragCmp, 0, newCmp, 0, fragCount);
+            fragCmp=newCmp;
+            fragLine=grow(fragLine);
+            fragX=grow(fragX);
+            fragWidth=grow(fragWidth);
+            fragHeight=grow(fragHeight);
+        }
+        fragCmp[fragCount]=cmp;
+        fragLine[fragCount]=line;
+        fragX[fragCount]=x;
+        fragWidth[fragCount]=w;
+        fragHeight[fragCount]=h;
+        fragCount++;
+    }
+
+    /**
+     * Ends the current row and returns the x position at the start of the next row
+     */
+    private int endRow(int x) {
+        if (rowCount==rowEnd.length) {
+            rowEnd=grow(rowEnd);
+            rowHeight=grow(rowHeight);
+            rowWidth=grow(rowWidth);
+        }
+        int start=(rowCount==0)?0:rowEnd[rowCount-1];
+        int h=0;
+        for(int i=start;i<fragCount;i++) {
+            h=Math.max(h, fragHeight[i]);
+        }
+        rowEnd[rowCount]=fragCount;
+        rowHeight[rowCount]=h;
+        rowWidth[rowCount]=x;
+        rowCount++;
+        return 0;
+    }
+
+    private static int[] grow(int[] arr) {
+        int[] newArr=new int[arr.length*2];
+        System.arraycopy(arr, 0, newArr, 0, arr.length);
+        return newArr;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public String toString() {
+        return "HTMLInlineLayout";
+    }
+}
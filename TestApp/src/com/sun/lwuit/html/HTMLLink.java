@@ -27,6 +27,7 @@ import java.util.Enumeration;
 import java.util.Vector;
 
 import com.sun.lwuit.Button;
+import com.sun.lwuit.Graphics;
 import com.sun.lwuit.events.ActionEvent;
 import com.sun.lwuit.events.ActionListener;
 
@@ -47,6 +48,7 @@ class HTMLLink extends Button implements ActionListener {
     boolean linkVisited;
     boolean parentChangesOnFocus;
     boolean isMap; // denotes that this is a server image map (img tag with the ismap property, and a child of the a tag)
+    InlineText inlineText; // The line fragments of the link text when it is broken into lines by HTMLInlineLayout, null if the text should not wrap
 
     /**
      * Constructs the HTMLLink
@@ -132,6 +134,60 @@ class HTMLLink extends Button implements ActionListener {
 
 
 
+    /**
+     * {@inheritDoc}
+     */
+    public void paint(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isLaidOut())) {
+            inlineText.paint(g);
+        } else {
+            super.paint(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void paintBackground(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            inlineText.paintBackground(g, getBorder());
+        } else {
+            super.paintBackground(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void paintBorder(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            inlineText.paintBorder(g, getBorder());
+        } else {
+            super.paintBorder(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void repaint() {
+        if ((inlineText!=null) && (inlineText.isWrapped()) && (getParent()!=null)) { // The bounds of a wrapped link overlap the components on its first and last rows
+            getParent().repaint();
+        } else {
+            super.repaint();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(int x, int y) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            return inlineText.contains(x, y);
+        }
+        return super.contains(x, y);
+    }
+
     /**
      * If this is called it indicates that when the link is focused, its parent should change to focused as well
      */
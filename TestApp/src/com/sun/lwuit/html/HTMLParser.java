@@ -60,7 +60,7 @@ public class HTMLParser extends XMLParser {
 
     /**
      * Pair this HTMLParser with the HTMLComponent that uses it.
-     * This pairing is necessary to allow access to the htmlC in parseTagContent upon finding a CSS embedded segment
+     * This pairing is necessary to allow access to the htmlC in parseElementContent upon finding a CSS embedded segment
      * 
      * @param htmlC The HTMLComponent that uses this parser
      */
@@ -72,20 +72,20 @@ public class HTMLParser extends XMLParser {
     }
     
     /**
-     * Overrides XMLParser.parseTagContent to enable embedded CSS segments (Style tags)
+     * Overrides XMLParser.parseElementContent to enable embedded CSS segments (Style tags)
      * 
-     * @param element The current parent element
+     * @param element The element whose content follows
      * @param is The reader containing the XML
+     * @return true if the element is a style tag whose content was parsed as CSS
      * @throws IOException if an I/O error in the stream is encountered
      */
-    protected void parseTagContent(Element element, Reader is) throws IOException {
+    protected boolean parseElementContent(Element element, Reader is) throws IOException {
         if ((HTMLComponent.SUPPORT_CSS) && (htmlC.loadCSS) && (((HTMLElement)element).getTagId() == HTMLElement.TAG_STYLE)) { // We aren't strict and don't require text/css in a style tag // && "text/css".equals(element.getAttributeById(Element.ATTR_TYPE)))) {
             CSSElement addTo = CSSParser.getInstance().parseCSSSegment(is,null,htmlC,null);
             htmlC.addToEmebeddedCSS(addTo);
-            return;
+            return true;
         }
-
-        super.parseTagContent(element, is);
+        return false;
     }
 
     /**
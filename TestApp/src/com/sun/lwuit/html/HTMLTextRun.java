@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.html;
+
+import com.sun.lwuit.Graphics;
+import com.sun.lwuit.Label;
+
+/**
+ * HTMLTextRun is a label holding the text of a whole text element, which HTMLInlineLayout breaks into lines.
+ * When laid out on several lines, the text, background and border are painted per line fragment and only the fragments respond to pointer events.
+ * Outside of an HTMLInlineLayout it behaves as a regular label.
+ */
+class HTMLTextRun extends Label {
+
+    InlineText inlineText; // The line fragments of the text, null if the text should not wrap (i.e. inside a PRE tag)
+
+    /**
+     * Constructs the HTMLTextRun
+     *
+     * @param text The text
+     */
+    HTMLTextRun(String text) {
+        super(text);
+        inlineText=new InlineText(this);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void paint(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isLaidOut())) {
+            inlineText.paint(g);
+        } else {
+            super.paint(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void paintBackground(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            inlineText.paintBackground(g, getBorder());
+        } else {
+            super.paintBackground(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    protected void paintBorder(Graphics g) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            inlineText.paintBorder(g, getBorder());
+        } else {
+            super.paintBorder(g);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public void repaint() {
+        if ((inlineText!=null) && (inlineText.isWrapped()) && (getParent()!=null)) { // The bounds of a wrapped run overlap the components on its first and last rows
+            getParent().repaint();
+        } else {
+            super.repaint();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(int x, int y) {
+        if ((inlineText!=null) && (inlineText.isWrapped())) {
+            return inlineText.contains(x, y);
+        }
+        return super.contains(x, y);
+    }
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.html;
+
+import com.sun.lwuit.Component;
+import com.sun.lwuit.Font;
+import com.sun.lwuit.Graphics;
+import com.sun.lwuit.Label;
+import com.sun.lwuit.geom.Rectangle;
+import com.sun.lwuit.plaf.Border;
+import com.sun.lwuit.plaf.Style;
+
+/**
+ * The text of a label (HTMLTextRun or HTMLLink) laid out by HTMLInlineLayout, which may span several lines.
+ * The text is split into segments, each being a word followed by its white space or a single CJK character, these are the places where a line may break.
+ * Segment boundaries and widths are kept in arrays and are measured again only when the text or the font change.
+ * HTMLInlineLayout assigns the segments to lines and positions each line fragment relative to the label, which then paints the fragments instead of its bounds.
+ */
+class InlineText {
+
+    private Label label;
+
+    /**
+     * The text and font the segments were measured with
+     */
+    private String text;
+    private Font font;
+
+    private int segmentCount;
+    private int[] segmentEnd;
+    private int[] segmentWidth;
+
+    /**
+     * The line fragments, the bounds are relative to the label and include the padding at the start of the first fragment and the end of the last
+     */
+    private int lineCount;
+    private String[] lineText;
+    private int[] lineX;
+    private int[] lineY;
+    private int[] lineWidth;
+    private int[] lineHeight;
+    private int[] textX;
+
+    /**
+     * The bounds of the fragment whose background/border is painted, reused for all fragments
+     */
+    private Rectangle fragmentBounds=new Rectangle(0, 0, 0, 0);
+
+    /**
+     * Constructs the inline text of the given label
+     *
+     * @param label The label whose text is laid out
+     */
+    InlineText(Label label) {
+        this.label=label;
+    }
+
+    /**
+     * Splits the text into segments if the text or font changed since the last call
+     *
+     * @return the number of segments
+     */
+    int update() {
+        String curText=label.getText();
+        Font curFont=label.getStyle().getFont();
+        if ((curText==text) && (curFont==font)) {
+            return segmentCount;
+        }
+        text=curText;
+        font=curFont;
+        segmentCount=0;
+        if (text==null) {
+            return 0;
+        }
+        int length=text.length();
+        if ((segmentEnd==null) || (segmentEnd.length<length)) {
+            segmentEnd=new int[length];
+            segmentWidth=new int[length];
+        }
+        int c=0;
+        while ((c<length) && (text.charAt(c)==' ')) { // Leading white space stays with the first word
+            c++;
+        }
+        int start=0;
+        while (c<length) {
+            char ch=text.charAt(c);
+            c++;
+            if (!HTMLComponent.isBreakableChar(ch)) { // A CJK character is a segment of its own, otherwise read up to the end of the word
+                while ((c<length) && (text.charAt(c)!=' ') && (!HTMLComponent.isBreakableChar(text.charAt(c)))) {
+                    c++;
+                }
+            }
+            while ((c<length) && (text.charAt(c)==' ')) {
+                c++;
+            }
+            addSegment(start, c);
+            start=c;
+        }
+        if (start<length) { // The text is only white space
+            addSegment(start, length);
+        }
+        return segmentCount;
+    }
+
+    private void addSegment(int start,int end) {
+        segmentEnd[segmentCount]=end;
+        segmentWidth[segmentCount]=font.substringWidth(text, start, end-start);
+        segmentCount++;
+    }
+
+    /**
+     * Returns the number of segments, valid after update
+     *
+     * @return the number of segments
+     */
+    int getSegmentCount() {
+        return segmentCount;
+    }
+
+    /**
+     * Returns the width of the given segment, valid after update
+     *
+     * @param segment The segment index
+     * @return the width of the given segment in pixels
+     */
+    int getSegmentWidth(int segment) {
+        return segmentWidth[segment];
+    }
+
+    /**
+     * Returns the height of a text line (Without padding)
+     *
+     * @return the height of a text line
+     */
+    int getTextHeight() {
+        return font.getHeight();
+    }
+
+    /**
+     * Removes all line fragments, called by the layout before laying out the text
+     */
+    void clearLines() {
+        lineCount=0;
+    }
+
+    /**
+     * Adds a line fragment holding the given segments, the bounds are absolute at this point and made relative to the label by setBounds
+     *
+     * @param startSegment The first segment in the fragment
+     * @param endSegment The segment following the last segment in the fragment
+     * @param x The x position of the fragment
+     * @param y The y position of the fragment
+     * @param w The width of the fragment
+     * @param h The height of the fragment
+     * @param textOffset The horizontal offset of the text within the fragment
+     */
+    void addLine(int startSegment,int endSegment,int x,int y,int w,int h,int textOffset) {
+        if ((lineText==null) || (lineCount==lineText.length)) {
+            int size=(lineText==null)?2:lineCount*2;
+            String[] newText=new String[size];
+            int[] newX=new int[size];
+            int[] newY=new int[size];
+            int[] newWidth=new int[size];
+            int[] newHeight=new int[size];
+            int[] newTextX=new int[size];
+            if (lineText!=null) {
+                System.arraycopy(lineText, 0, newText, 0, lineCount);
+                System.arraycopy(lineX, 0, newX, 0, lineCount);
+                System.arraycopy(lineY, 0, newY, 0, lineCount);
+                System.arraycopy(lineWidth, 0, newWidth, 0, lineCount);
+                System.arraycopy(lineHeight, 0, newHeight, 0, lineCount);
+                System.arraycopy(textX, 0, newTextX, 0, lineCount);
+            }
+            lineText=newText;
+            lineX=newX;
+            lineY=newY;
+            lineWidth=newWidth;
+            lineHeight=newHeight;
+            textX=newTextX;
+        }
+        int start=(startSegment==0)?0:segmentEnd[startSegment-1];
+        int end=segmentEnd[endSegment-1];
+        if ((start==0) && (end==text.length())) {
+            lineText[lineCount]=text;
+        } else {
+            lineText[lineCount]=text.substring(start, end);
+        }
+        lineX[lineCount]=x;
+        lineY[lineCount]=y;
+        lineWidth[lineCount]=w;
+        lineHeight[lineCount]=h;
+        textX[lineCount]=textOffset;
+        lineCount++;
+    }
+
+    /**
+     * Moves the line fragment horizontally, used for alignment and RTL
+     *
+     * @param line The fragment index
+     * @param x The new x position of the fragment
+     */
+    void setLineX(int line,int x) {
+        lineX[line]=x;
+    }
+
+    /**
+     * Returns the x position of the line fragment
+     *
+     * @param line The fragment index
+     * @return the x position of the fragment
+     */
+    int getLineX(int line) {
+        return lineX[line];
+    }
+
+    /**
+     * Moves the line fragment vertically, used for vertical alignment
+     *
+     * @param line The fragment index
+     * @param y The new y position of the fragment
+     */
+    void setLineY(int line,int y) {
+        lineY[line]=y;
+    }
+
+    /**
+     * Returns the height of the line fragment
+     *
+     * @param line The fragment index
+     * @return the height of the fragment
+     */
+    int getLineHeight(int line) {
+        return lineHeight[line];
+    }
+
+    /**
+     * Returns the width of the line fragment
+     *
+     * @param line The fragment index
+     * @return the width of the fragment
+     */
+    int getLineWidth(int line) {
+        return lineWidth[line];
+    }
+
+    /**
+     * Returns the number of line fragments
+     *
+     * @return the number of line fragments
+     */
+    int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Sets the bounds of the label to enclose all of its line fragments and makes the fragment positions relative to the label
+     */
+    void setBounds() {
+        int x1=Integer.MAX_VALUE;
+        int y1=Integer.MAX_VALUE;
+        int x2=Integer.MIN_VALUE;
+        int y2=Integer.MIN_VALUE;
+        for(int i=0;i<lineCount;i++) {
+            x1=Math.min(x1, lineX[i]);
+            y1=Math.min(y1, lineY[i]);
+            x2=Math.max(x2, lineX[i]+lineWidth[i]);
+            y2=Math.max(y2, lineY[i]+lineHeight[i]);
+        }
+        for(int i=0;i<lineCount;i++) {
+            lineX[i]-=x1;
+            lineY[i]-=y1;
+        }
+        label.setX(x1);
+        label.setY(y1);
+        label.setWidth(x2-x1);
+        label.setHeight(y2-y1);
+    }
+
+    /**
+     * Returns true if the text is painted by the line fragments and not by the label's look and feel
+     *
+     * @return true if the text was laid out by HTMLInlineLayout
+     */
+    boolean isLaidOut() {
+        return lineCount>0;
+    }
+
+    /**
+     * Returns true if the label spans more than one line, in that case the label's bounds also cover areas that don't belong to it
+     *
+     * @return true if the label spans more than one line
+     */
+    boolean isWrapped() {
+        return lineCount>1;
+    }
+
+    /**
+     * Sets fragmentBounds to the bounds of the given fragment in the coordinates of the label bounds
+     *
+     * @param line The fragment index
+     * @return fragmentBounds
+     */
+    private Rectangle getFragmentBounds(int line) {
+        fragmentBounds.setX(label.getX()+lineX[line]);
+        fragmentBounds.setY(label.getY()+lineY[line]);
+        fragmentBounds.getSize().setWidth(lineWidth[line]);
+        fragmentBounds.getSize().setHeight(lineHeight[line]);
+        return fragmentBounds;
+    }
+
+    /**
+     * Paints the background of each line fragment the way the label paints the background of its bounds
+     *
+     * @param g The graphics to paint on
+     * @param border The border of the label in its current state
+     */
+    void paintBackground(Graphics g,Border border) {
+        if (label.isFlatten()) {
+            return;
+        }
+        Style style=label.getStyle();
+        for(int i=0;i<lineCount;i++) {
+            if ((style.getBorder()!=null) && (border!=null) && (border.isBackgroundPainter())) {
+                border.paintBorderBackground(g, label, getFragmentBounds(i));
+            } else if (style.getBgPainter()!=null) {
+                style.getBgPainter().paint(g, getFragmentBounds(i));
+            }
+        }
+    }
+
+    /**
+     * Paints the border of each line fragment the way the label paints the border of its bounds
+     *
+     * @param g The graphics to paint on
+     * @param border The border of the label in its current state
+     */
+    void paintBorder(Graphics g,Border border) {
+        if (border!=null) {
+            g.setColor(label.getStyle().getFgColor());
+            for(int i=0;i<lineCount;i++) {
+                border.paint(g, label, getFragmentBounds(i));
+            }
+        }
+    }
+
+    /**
+     * Paints the text of all line fragments
+     *
+     * @param g The graphics to paint on
+     */
+    void paint(Graphics g) {
+        Style style=label.getStyle();
+        g.setColor(style.getFgColor());
+        g.setFont(style.getFont());
+        int decoration=style.getTextDecoration();
+        int padTop=style.getPadding(false, Component.TOP);
+        int x=label.getX();
+        int y=label.getY();
+        for(int i=0;i<lineCount;i++) {
+            g.drawString(lineText[i], x+lineX[i]+textX[i], y+lineY[i]+padTop, decoration);
+        }
+    }
+
+    /**
+     * Checks whether the given absolute coordinate is in one of the line fragments
+     *
+     * @param x The absolute x coordinate
+     * @param y The absolute y coordinate
+     * @return true if the coordinate is in one of the line fragments
+     */
+    boolean contains(int x,int y) {
+        x-=label.getAbsoluteX()+label.getScrollX();
+        y-=label.getAbsoluteY()+label.getScrollY();
+        for(int i=0;i<lineCount;i++) {
+            if ((x>=lineX[i]) && (x<lineX[i]+lineWidth[i]) && (y>=lineY[i]) && (y<lineY[i]+lineHeight[i])) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
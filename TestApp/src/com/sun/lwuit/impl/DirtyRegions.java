@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl;
+
+/**
+ * Bounded set of disjoint screen rectangles that were painted during a single
+ * paintDirty cycle and must be flushed to the screen. A rectangle overlapping an
+ * existing region is merged with it, a rectangle that doesn't is merged only when
+ * the area wasted by the union is cheaper than flushing another region. When the
+ * number of regions exceeds the limit the cheapest pair is merged.
+ * <p>Regions are stored as edges (x1, y1, x2, y2) with exclusive x2/y2.
+ */
+class DirtyRegions {
+    private int[] x1;
+    private int[] y1;
+    private int[] x2;
+    private int[] y2;
+    private int count;
+    private int maxRegions;
+    private int flushCost;
+
+    /**
+     * Creates a region set
+     *
+     * @param maxRegions the maximum number of regions held at once, 1 yields a single bounding box
+     * @param flushCost the cost of flushing an additional region expressed in pixels
+     */
+    public DirtyRegions(int maxRegions, int flushCost) {
+        maxRegions = Math.max(1, maxRegions);
+        this.maxRegions = maxRegions;
+        this.flushCost = flushCost;
+        // one extra slot is used while adding before the pair merge kicks in
+        x1 = new int[maxRegions + 1];
+        y1 = new int[maxRegions + 1];
+        x2 = new int[maxRegions + 1];
+        y2 = new int[maxRegions + 1];
+    }
+
+    /**
+     * Sets the maximum number of regions held at once, the set must be empty
+     *
+     * @param maxRegions the maximum number of regions held at once, 1 yields a single bounding box
+     */
+    public void setMaxRegions(int maxRegions) {
+        maxRegions = Math.max(1, maxRegions);
+        this.maxRegions = maxRegions;
+        if(x1.length < maxRegions + 1) {
+            x1 = new int[maxRegions + 1];
+            y1 = new int[maxRegions + 1];
+            x2 = new int[maxRegions + 1];
+            y2 = new int[maxRegions + 1];
+        }
+    }
+
+    /**
+     * Sets the cost of flushing an additional region, e.g. when the display size changed
+     *
+     * @param flushCost the cost of flushing an additional region expressed in pixels
+     */
+    public void setFlushCost(int flushCost) {
+        this.flushCost = flushCost;
+    }
+
+    /**
+     * Adds the given rectangle clipped to the given bounds
+     *
+     * @param x x position of the rectangle
+     * @param y y position of the rectangle
+     * @param w width of the rectangle
+     * @param h height of the rectangle
+     * @param clipW width of the clip bounds (starting at 0, 0)
+     * @param clipH height of the clip bounds (starting at 0, 0)
+     */
+    public void add(int x, int y, int w, int h, int clipW, int clipH) {
+        int ax1 = Math.max(0, x);
+        int ay1 = Math.max(0, y);
+        int ax2 = Math.min(clipW, x + w);
+        int ay2 = Math.min(clipH, y + h);
+        if(ax2 <= ax1 || ay2 <= ay1) {
+            return;
+        }
+        for(int iter = 0 ; iter < count ; iter++) {
+            if(x1[iter] <= ax1 && y1[iter] <= ay1 && x2[iter] >= ax2 && y2[iter] >= ay2) {
+                // already covered
+                return;
+            }
+        }
+        x1[count] = ax1;
+        y1[count] = ay1;
+        x2[count] = ax2;
+        y2[count] = ay2;
+        count++;
+        mergeInto(count - 1);
+        while(count > maxRegions) {
+            mergeCheapestPair();
+        }
+    }
+
+    /**
+     * Merges the region at the given offset with the regions that overlap it or that are
+     * cheap to merge until the set is disjoint again
+     */
+    private void mergeInto(int offset) {
+        boolean merged = true;
+        while(merged) {
+            merged = false;
+            for(int iter = 0 ; iter < count ; iter++) {
+                if(iter == offset) {
+                    continue;
+                }
+                if(intersects(iter, offset) || mergeCost(iter, offset) <= flushCost) {
+                    union(offset, iter);
+                    offset = removeRegion(iter, offset);
+                    merged = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    private void mergeCheapestPair() {
+        int bestA = 0;
+        int bestB = 1;
+        int bestCost = Integer.MAX_VALUE;
+        for(int a = 0 ; a < count ; a++) {
+            for(int b = a + 1 ; b < count ; b++) {
+                int cost = mergeCost(a, b);
+                if(cost < bestCost) {
+                    bestCost = cost;
+                    bestA = a;
+                    bestB = b;
+                }
+            }
+        }
+        union(bestA, bestB);
+        bestA = removeRegion(bestB, bestA);
+        mergeInto(bestA);
+    }
+
+    /**
+     * The number of pixels that would be painted needlessly if the two regions were
+     * replaced by their union, the regions are disjoint
+     */
+    private int mergeCost(int a, int b) {
+        int w = Math.max(x2[a], x2[b]) - Math.min(x1[a], x1[b]);
+        int h = Math.max(y2[a], y2[b]) - Math.min(y1[a], y1[b]);
+        return w * h - area(a) - area(b);
+    }
+
+    private int area(int a) {
+        return (x2[a] - x1[a]) * (y2[a] - y1[a]);
+    }
+
+    private boolean intersects(int a, int b) {
+        return x1[a] < x2[b] && x1[b] < x2[a] && y1[a] < y2[b] && y1[b] < y2[a];
+    }
+
+    /**
+     * Stores the union of both regions in dest
+     */
+    private void union(int dest, int other) {
+        x1[dest] = Math.min(x1[dest], x1[other]);
+        y1[dest] = Math.min(y1[dest], y1[other]);
+        x2[dest] = Math.max(x2[dest], x2[other]);
+        y2[dest] = Math.max(y2[dest], y2[other]);
+    }
+
+    /**
+     * Removes the region by moving the last region into its place and returns the
+     * new offset of the tracked region
+     */
+    private int removeRegion(int offset, int tracked) {
+        count--;
+        x1[offset] = x1[count];
+        y1[offset] = y1[count];
+        x2[offset] = x2[count];
+        y2[offset] = y2[count];
+        if(tracked == count) {
+            return offset;
+        }
+        return tracked;
+    }
+
+    /**
+     * Returns the number of disjoint regions
+     *
+     * @return the number of regions
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the x position of the region
+     *
+     * @param offset the region offset
+     * @return x position
+     */
+    public int getX(int offset) {
+        return x1[offset];
+    }
+
+    /**
+     * Returns the y position of the region
+     *
+     * @param offset the region offset
+     * @return y position
+     */
+    public int getY(int offset) {
+        return y1[offset];
+    }
+
+    /**
+     * Returns the width of the region
+     *
+     * @param offset the region offset
+     * @return width
+     */
+    public int getWidth(int offset) {
+        return x2[offset] - x1[offset];
+    }
+
+    /**
+     * Returns the height of the region
+     *
+     * @param offset the region offset
+     * @return height
+     */
+    public int getHeight(int offset) {
+        return y2[offset] - y1[offset];
+    }
+
+    /**
+     * Removes all the regions
+     */
+    public void clear() {
+        count = 0;
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl;
+
+/**
+ * Cache of rendered gradient images keyed by everything that affects their pixels
+ * (type, colors, dimensions and the position of a radial gradient within its region)
+ * but not by where they are drawn. The least recently used images are discarded once
+ * their total number of pixels exceeds the budget.
+ */
+class GradientCache {
+    /**
+     * Gradient types
+     */
+    public static final int LINEAR_HORIZONTAL = 0;
+    public static final int LINEAR_VERTICAL = 1;
+    public static final int RADIAL = 2;
+
+    private LRUCache cache;
+
+    /**
+     * Reused for lookups so a cache hit doesn't allocate
+     */
+    private Entry probe = new Entry();
+
+    /**
+     * Creates a cache
+     *
+     * @param budget the maximum number of pixels in all cached images
+     */
+    public GradientCache(int budget) {
+        cache = new LRUCache(budget);
+    }
+
+    /**
+     * Returns a cached gradient image
+     *
+     * @param type one of the gradient type constants
+     * @param startColor the starting RGB color
+     * @param endColor the ending RGB color
+     * @param width the width of the gradient
+     * @param height the height of the gradient
+     * @param x the x position of a radial gradient within its region
+     * @param y the y position of a radial gradient within its region
+     * @param size the size of a radial gradient
+     * @return the native image or null if it isn't cached
+     */
+    public Object get(int type, int startColor, int endColor, int width, int height, int x, int y, int size) {
+        probe.set(type, startColor, endColor, width, height, x, y, size);
+        Entry e = (Entry)cache.get(probe);
+        if(e == null) {
+            return null;
+        }
+        return e.image;
+    }
+
+    /**
+     * Adds a gradient image to the cache, images larger than the budget aren't cached
+     *
+     * @param image the native image
+     * @param imagePixels the number of pixels in the image
+     * @param type one of the gradient type constants
+     * @param startColor the starting RGB color
+     * @param endColor the ending RGB color
+     * @param width the width of the gradient
+     * @param height the height of the gradient
+     * @param x the x position of a radial gradient within its region
+     * @param y the y position of a radial gradient within its region
+     * @param size the size of a radial gradient
+     */
+    public void put(Object image, int imagePixels, int type, int startColor, int endColor, int width, int height, int x, int y, int size) {
+        if(!cache.fits(imagePixels)) {
+            return;
+        }
+        Entry e = new Entry();
+        e.set(type, startColor, endColor, width, height, x, y, size);
+        e.image = image;
+        cache.put(e, imagePixels);
+    }
+
+    /**
+     * Returns the number of pixels in all cached images
+     *
+     * @return the number of cached pixels
+     */
+    public int getPixels() {
+        return cache.getWeight();
+    }
+
+    /**
+     * Discards all the cached images
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    static class Entry extends LRUCache.Entry {
+        int type;
+        int startColor;
+        int endColor;
+        int width;
+        int height;
+        int x;
+        int y;
+        int size;
+        Object image;
+
+        void set(int type, int startColor, int endColor, int width, int height, int x, int y, int size) {
+            this.type = type;
+            this.startColor = startColor;
+            this.endColor = endColor;
+            this.width = width;
+            this.height = height;
+            this.x = x;
+            this.y = y;
+            this.size = size;
+        }
+
+        public int hashCode() {
+            int h = type;
+            h = 31 * h + startColor;
+            h = 31 * h + endColor;
+            h = 31 * h + width;
+            h = 31 * h + height;
+            h = 31 * h + x;
+            h = 31 * h + y;
+            return 31 * h + size;
+        }
+
+        public boolean equals(Object o) {
+            Entry e = (Entry)o;
+            return type == e.type && startColor == e.startColor && endColor == e.endColor &&
+                    width == e.width && height == e.height && x == e.x && y == e.y && size == e.size;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl;
+
+import java.util.Enumeration;
+import java.util.Hashtable;
+
+/**
+ * Least recently used cache of weighted entries, the weight is typically the memory
+ * held by an entry (e.g. the bytes of a cached image). Entries act as their own keys
+ * so subclasses of Entry hold the key fields and implement hashCode and equals, a
+ * single probe entry can be reused for lookups so a cache hit doesn't allocate. Once
+ * the total weight exceeds the budget the least recently used entries are discarded.
+ * <p>This class is shared by the font, gradient and border image caches and isn't
+ * thread safe.
+ */
+public class LRUCache {
+    private Hashtable entries = new Hashtable();
+
+    /**
+     * Least recently used list, the head is the most recently used
+     */
+    private Entry head;
+    private Entry tail;
+    private int weight;
+    private int budget;
+
+    /**
+     * Creates a cache
+     *
+     * @param budget the maximum total weight of the cached entries
+     */
+    public LRUCache(int budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * Returns the cached entry equal to the given entry and marks it as the most
+     * recently used
+     *
+     * @param probe an entry holding the key
+     * @return the cached entry or null if it isn't cached
+     */
+    public Entry get(Entry probe) {
+        Entry e = (Entry)entries.get(probe);
+        if(e != null) {
+            touch(e);
+        }
+        return e;
+    }
+
+    /**
+     * Marks the entry as the most recently used if it is cached
+     *
+     * @param e the entry
+     */
+    public void touch(Entry e) {
+        if(e.cached && e != head) {
+            unlink(e);
+            link(e);
+        }
+    }
+
+    /**
+     * Returns true if an entry of the given weight fits within the budget and would be cached
+     *
+     * @param entryWeight the weight of the entry
+     * @return true if the entry would be cached
+     */
+    public boolean fits(int entryWeight) {
+        return entryWeight <= budget;
+    }
+
+    /**
+     * Adds an entry to the cache replacing an equal entry, entries heavier than the
+     * budget aren't cached
+     *
+     * @param e the entry
+     * @param entryWeight the weight of the entry
+     */
+    public void put(Entry e, int entryWeight) {
+        if(!fits(entryWeight)) {
+            return;
+        }
+        if(e.cached) {
+            remove(e);
+        }
+        Entry old = (Entry)entries.put(e, e);
+        if(old != null && old != e) {
+            unlink(old);
+            old.cached = false;
+        }
+        e.weight = entryWeight;
+        e.cached = true;
+        link(e);
+        trim(e);
+    }
+
+    /**
+     * Adds to the weight of a cached entry, e.g. when more of its content is rendered.
+     * Less recently used entries are discarded if the budget is exceeded but the given
+     * entry is kept even if it exceeds the budget on its own
+     *
+     * @param e the cached entry
+     * @param delta the weight to add
+     */
+    public void addWeight(Entry e, int delta) {
+        e.weight += delta;
+        weight += delta;
+        trim(e);
+    }
+
+    /**
+     * Removes the entry from the cache
+     *
+     * @param e the entry
+     */
+    public void remove(Entry e) {
+        if(!e.cached) {
+            return;
+        }
+        entries.remove(e);
+        unlink(e);
+        e.cached = false;
+        e.weight = 0;
+    }
+
+    /**
+     * Returns the cached entries
+     *
+     * @return an enumeration of the cached entries
+     */
+    public Enumeration elements() {
+        return entries.elements();
+    }
+
+    /**
+     * Returns the maximum total weight of the cached entries
+     *
+     * @return the budget
+     */
+    public int getBudget() {
+        return budget;
+    }
+
+    /**
+     * Sets the maximum total weight of the cached entries discarding entries
+     * exceeding the new budget
+     *
+     * @param budget the budget
+     */
+    public void setBudget(int budget) {
+        this.budget = budget;
+        trim(null);
+    }
+
+    /**
+     * Returns the total weight of the cached entries
+     *
+     * @return the total weight
+     */
+    public int getWeight() {
+        return weight;
+    }
+
+    /**
+     * Discards all the cached entries
+     */
+    public void clear() {
+        while(tail != null) {
+            discard(tail);
+        }
+    }
+
+    private void trim(Entry keep) {
+        while(weight > budget && tail != null && tail != keep) {
+            discard(tail);
+        }
+    }
+
+    private void discard(Entry e) {
+        remove(e);
+        e.discarded();
+    }
+
+    private void link(Entry e) {
+        e.previous = null;
+        e.next = head;
+        if(head != null) {
+            head.previous = e;
+        } else {
+            tail = e;
+        }
+        head = e;
+        weight += e.weight;
+    }
+
+    private void unlink(Entry e) {
+        if(e.previous != null) {
+            e.previous.next = e.next;
+        } else {
+            head = e.next;
+        }
+        if(e.next != null) {
+            e.next.previous = e.previous;
+        } else {
+            tail = e.previous;
+        }
+        e.previous = null;
+        e.next = null;
+        weight -= e.weight;
+    }
+
+    /**
+     * An entry of the cache, subclasses hold the key fields and the cached value
+     * and must implement hashCode and equals based on the key
+     */
+    public static class Entry {
+        private Entry previous;
+        private Entry next;
+        private int weight;
+        private boolean cached;
+
+        /**
+         * Returns true if the entry is in the cache
+         *
+         * @return true if the entry is cached
+         */
+        public boolean isCached() {
+            return cached;
+        }
+
+        /**
+         * Invoked when the entry is discarded to keep the cache within its budget,
+         * subclasses may release the cached value here
+         */
+        protected void discarded() {
+        }
+    }
+}
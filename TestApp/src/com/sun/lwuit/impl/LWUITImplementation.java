@@ -27,7 +27,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.ref.WeakReference;
-import java.util.Enumeration;
 import java.util.Hashtable;
 import java.util.Vector;
 
@@ -63,8 +62,13 @@ public abstract class LWUITImplementation {
 
     private Object lightweightClipboard;
 
-    private Hashtable linearGradientCache;
-    private Hashtable radialGradientCache;
+    private GradientCache gradientCache;
+
+    /**
+     * Size of the cached linear gradient strips across the gradient, wider regions
+     * are filled by tiling the strip
+     */
+    private static final int GRADIENT_TILE = 64;
 
     private boolean builtinSoundEnabled = true;
     private int dragActivationCounter = 0;
@@ -73,9 +77,15 @@ public abstract class LWUITImplementation {
     private int dragStartPercentage = 3;
     private Form currentForm;
     private static Object displayLock;
-    private Animation[] paintQueue = new Animation[50];
-    private Animation[] paintQueueTemp = new Animation[50];
-    private int paintQueueFill = 0;
+    private RepaintQueue paintQueue = new RepaintQueue(64);
+    private Animation[] paintQueueTemp = new Animation[64];
+    private DirtyRegions dirtyRegions;
+
+    /**
+     * The display size for which the flush cost of the dirty regions was calculated
+     */
+    private int dirtyRegionsWidth;
+    private int dirtyRegionsHeight;
     private Graphics lwuitGraphics;
 
     private static boolean bidi;
@@ -191,7 +201,7 @@ public abstract class LWUITImplementation {
      * @return false by default
      */
     public boolean hasPendingPaints() {
-        return paintQueueFill != 0;
+        return !paintQueue.isEmpty();
     }
 
     /**
@@ -251,18 +261,26 @@ public abstract class LWUITImplementation {
     public void paintDirty() {
         int size = 0;
         synchronized (displayLock) {
-            size = paintQueueFill;
-            Animation[] array = paintQueue;
-            paintQueue = paintQueueTemp;
-            paintQueueTemp = array;
-            paintQueueFill = 0;
+            size = paintQueue.size();
+            paintQueueTemp = paintQueue.drain(paintQueueTemp);
         }
         if (size > 0) {
             Graphics wrapper = getLWUITGraphics();
-            int topX = getDisplayWidth();
-            int topY = getDisplayHeight();
-            int bottomX = 0;
-            int bottomY = 0;
+            int displayWidth = getDisplayWidth();
+            int displayHeight = getDisplayHeight();
+            int maxRegions = getMaxDirtyRegions();
+            if(dirtyRegions == null) {
+                dirtyRegions = new DirtyRegions(maxRegions, getDirtyRegionFlushCost());
+                dirtyRegionsWidth = displayWidth;
+                dirtyRegionsHeight = displayHeight;
+            } else if(dirtyRegionsWidth != displayWidth || dirtyRegionsHeight != displayHeight) {
+                // the default cost is relative to the screen size which changes on rotation
+                dirtyRegions.setFlushCost(getDirtyRegionFlushCost());
+                dirtyRegionsWidth = displayWidth;
+                dirtyRegionsHeight = displayHeight;
+            }
+            dirtyRegions.clear();
+            dirtyRegions.setMaxRegions(maxRegions);
             for (int iter = 0; iter < size; iter++) {
                 Animation ani = paintQueueTemp[iter];
                 
@@ -272,37 +290,70 @@ public abstract class LWUITImplementation {
                 }
                 paintQueueTemp[iter] = null;
                 wrapper.translate(-wrapper.getTranslateX(), -wrapper.getTranslateY());
-                wrapper.setClip(0, 0, getDisplayWidth(), getDisplayHeight());
+                wrapper.setClip(0, 0, displayWidth, displayHeight);
                 if (ani instanceof Component) {
                     Component cmp = (Component) ani;
+                    int cmpAbsX = cmp.getAbsoluteX() + cmp.getScrollX();
+                    int cmpAbsY = cmp.getAbsoluteY() + cmp.getScrollY();
                     Rectangle dirty = cmp.getDirtyRegion();
                     if (dirty != null) {
-                        wrapper.setClip(dirty.getX(), dirty.getY(), dirty.getSize().getWidth(), dirty.getSize().getHeight());
+                        int dirtyW = dirty.getSize().getWidth();
+                        int dirtyH = dirty.getSize().getHeight();
+                        wrapper.setClip(dirty.getX(), dirty.getY(), dirtyW, dirtyH);
                         cmp.setDirtyRegion(null);
+
+                        // only the intersection of the dirty region and the component changes
+                        int x = Math.max(dirty.getX(), cmpAbsX);
+                        int y = Math.max(dirty.getY(), cmpAbsY);
+                        dirtyRegions.add(x, y,
+                                Math.min(dirty.getX() + dirtyW, cmpAbsX + cmp.getWidth()) - x,
+                                Math.min(dirty.getY() + dirtyH, cmpAbsY + cmp.getHeight()) - y,
+                                displayWidth, displayHeight);
+                    } else {
+                        dirtyRegions.add(cmpAbsX, cmpAbsY, cmp.getWidth(), cmp.getHeight(),
+                                displayWidth, displayHeight);
                     }
 
                     cmp.paintComponent(wrapper);
-                    int cmpAbsX = cmp.getAbsoluteX() + cmp.getScrollX();
-                    topX = Math.min(cmpAbsX, topX);
-                    bottomX = Math.max(cmpAbsX + cmp.getWidth(), bottomX);
-                    int cmpAbsY = cmp.getAbsoluteY() + cmp.getScrollY();
-                    topY = Math.min(cmpAbsY, topY);
-                    bottomY = Math.max(cmpAbsY + cmp.getHeight(), bottomY);
                 } else {
-                    bottomX = getDisplayWidth();
-                    bottomY = getDisplayHeight();
-                    topX = 0;
-                    topY = 0;
+                    dirtyRegions.add(0, 0, displayWidth, displayHeight, displayWidth, displayHeight);
                     ani.paint(wrapper);
                 }
             }
 
             paintOverlay(wrapper);
 
-            flushGraphics(topX, topY, bottomX - topX, bottomY - topY);
+            int regions = dirtyRegions.size();
+            for (int iter = 0; iter < regions; iter++) {
+                flushGraphics(dirtyRegions.getX(iter), dirtyRegions.getY(iter),
+                        dirtyRegions.getWidth(iter), dirtyRegions.getHeight(iter));
+            }
         }
     }
 
+    /**
+     * Returns the maximum number of separate screen regions flushed at the end of a
+     * paint cycle, regions beyond this number are merged. Implementations for which
+     * every flushGraphics call is expensive can return 1 to always flush a single
+     * bounding box. This method is invoked on every paint cycle.
+     *
+     * @return the maximum number of regions to flush per paint cycle, 8 by default
+     */
+    protected int getMaxDirtyRegions() {
+        return 8;
+    }
+
+    /**
+     * Returns the cost of flushing an additional screen region expressed in pixels,
+     * two regions are merged when the area their union adds is smaller than this cost.
+     * The cost is queried again whenever the display size changes.
+     *
+     * @return the cost of a flushGraphics call in pixels, defaults to 1/32 of the screen
+     */
+    protected int getDirtyRegionFlushCost() {
+        return getDisplayWidth() * getDisplayHeight() / 32;
+    }
+
     /**
      * This method is a callback from the edt before the edt enters to an idle 
      * state
@@ -377,12 +428,7 @@ public abstract class LWUITImplementation {
      */
     public void cancelRepaint(Animation cmp) {
         synchronized (displayLock) {
-            for (int iter = 0; iter < paintQueueFill; iter++) {
-                if (paintQueue[iter] == cmp) {
-                    paintQueue[iter] = null;
-                    return;
-                }
-            }
+            paintQueue.remove(cmp);
         }
     }
 
@@ -393,21 +439,9 @@ public abstract class LWUITImplementation {
      */
     public void repaint(Animation cmp) {
         synchronized (displayLock) {
-            for (int iter = 0; iter < paintQueueFill; iter++) {
-                Animation ani = paintQueue[iter];
-                if (ani == cmp) {
-                    return;
-                }
-            }
-            // overcrowding the queue don't try to grow the array!
-            if (paintQueueFill >= paintQueue.length) {
-                System.out.println("Warning paint queue size exceeded, please watch the amount of repaint calls");
-                return;
+            if (paintQueue.add(cmp)) {
+                displayLock.notify();
             }
-
-            paintQueue[paintQueueFill] = cmp;
-            paintQueueFill++;
-            displayLock.notify();
         }
     }
 
@@ -1518,49 +1552,134 @@ public abstract class LWUITImplementation {
         Display.getInstance().showNotify();
     }
 
-    private Object findCachedGradient(Hashtable cache, int startColor, int endColor, int x, int y, int width, int height, boolean horizontal, int centerX, int centerY, int size) {
-        if(cache != null) {
-            Enumeration e = cache.keys();
-            while(e.hasMoreElements()) {
-                int[] current = (int[])e.nextElement();
-                Object currentRef = cache.get(current);
-                if(currentRef == null) {
-                    cache.remove(current);
-                    e = cache.keys();
-                    continue;
-                }
-                Object currentImage = extractHardRef(currentRef);
-                if(currentImage == null) {
-                    cache.remove(current);
-                    e = cache.keys();
-                    continue;
-                }
-                if(current[0] == startColor &&
-                        current[1] == endColor &&
-                        current[2] == x &&
-                        current[3] == y &&
-                        current[5] == centerX &&
-                        current[6] == centerY &&
-                        current[7] == size &&
-                        getImageWidth(currentImage) == width &&
-                        getImageHeight(currentImage) == height) {
-                    if((horizontal && current[4] == 1) || ((!horizontal) && current[4] == 0)) {
-                        return currentImage;
+    private GradientCache getGradientCache() {
+        if(gradientCache == null) {
+            gradientCache = new GradientCache(getGradientCacheSize());
+        }
+        return gradientCache;
+    }
+
+    /**
+     * Renders a radial gradient into an RGB image, pixels are colored by the smallest of
+     * the concentric circles drawn by fillRadialGradientImpl that covers them
+     */
+    private Object createRadialGradientImage(int startColor, int endColor, int width, int height, int x, int y, int size) {
+        int[] rgb = new int[width * height];
+        int outside = 0xff000000 | endColor;
+        int rings = (size + 1) / 2;
+        int[] palette = new int[Math.max(rings, 1)];
+        int sourceR = startColor >> 16 & 0xff;
+        int sourceG = startColor >> 8 & 0xff;
+        int sourceB = startColor & 0xff;
+        int destR = endColor >> 16 & 0xff;
+        int destG = endColor >> 8 & 0xff;
+        int destB = endColor & 0xff;
+        for(int iter = 0 ; iter < rings ; iter++) {
+            palette[iter] = gradientColor(sourceR, sourceG, sourceB, destR, destG, destB, size, size - 2 * iter);
+        }
+
+        // coordinates are doubled so the center and the pixel centers are integers
+        int centerX = 2 * x + size;
+        int centerY = 2 * y + size;
+        int offset = 0;
+        for(int py = 0 ; py < height ; py++) {
+            int dy = 2 * py + 1 - centerY;
+            int dy2 = dy * dy;
+            for(int px = 0 ; px < width ; px++) {
+                int dx = 2 * px + 1 - centerX;
+                int d2 = dx * dx + dy2;
+                int color = outside;
+                if(d2 <= size * size) {
+                    // the smallest diameter covering the pixel
+                    int d = (int)Math.sqrt(d2);
+                    if(d * d < d2) {
+                        d++;
+                    }
+                    int ring = (size - Math.max(d, 1)) / 2;
+                    if(ring >= 0) {
+                        color = palette[ring];
                     }
                 }
+                rgb[offset] = color;
+                offset++;
             }
         }
-        return null;
+        return createImage(rgb, width, height);
     }
 
-    private void storeCachedGradient(Object img, Hashtable cache, int startColor, int endColor, int x, int y, boolean horizontal, int centerX, int centerY, int size) {
-        int[] key;
+    /**
+     * Renders a linear gradient into an RGB strip GRADIENT_TILE pixels wide across the gradient
+     */
+    private Object createLinearGradientStrip(int startColor, int endColor, int length, boolean horizontal) {
+        int sourceR = startColor >> 16 & 0xff;
+        int sourceG = startColor >> 8 & 0xff;
+        int sourceB = startColor & 0xff;
+        int destR = endColor >> 16 & 0xff;
+        int destG = endColor >> 8 & 0xff;
+        int destB = endColor & 0xff;
+        int[] rgb = new int[length * GRADIENT_TILE];
         if(horizontal) {
-            key = new int[] {startColor, endColor, x, y, 1, centerX, centerY, size};
-        } else {
-            key = new int[] {startColor, endColor, x, y, 0, centerX, centerY, size};
+            for(int iter = 0 ; iter < length ; iter++) {
+                rgb[iter] = gradientColor(sourceR, sourceG, sourceB, destR, destG, destB, length, iter);
+            }
+            for(int row = 1 ; row < GRADIENT_TILE ; row++) {
+                System.arraycopy(rgb, 0, rgb, row * length, length);
+            }
+            return createImage(rgb, length, GRADIENT_TILE);
+        }
+        for(int iter = 0 ; iter < length ; iter++) {
+            int color = gradientColor(sourceR, sourceG, sourceB, destR, destG, destB, length, iter);
+            int offset = iter * GRADIENT_TILE;
+            for(int col = 0 ; col < GRADIENT_TILE ; col++) {
+                rgb[offset + col] = color;
+            }
+        }
+        return createImage(rgb, GRADIENT_TILE, length);
+    }
+
+    /**
+     * Fills the region by tiling a linear gradient strip across the gradient, tiles outside
+     * of the clip aren't drawn
+     */
+    private void drawLinearGradientStrip(Object graphics, Object strip, int x, int y, int width, int height, boolean horizontal) {
+        int clipX = getClipX(graphics);
+        int clipY = getClipY(graphics);
+        int clipWidth = getClipWidth(graphics);
+        int clipHeight = getClipHeight(graphics);
+        clipRect(graphics, x, y, width, height);
+        int visibleX = getClipX(graphics);
+        int visibleY = getClipY(graphics);
+        int visibleWidth = getClipWidth(graphics);
+        int visibleHeight = getClipHeight(graphics);
+        if(visibleWidth > 0 && visibleHeight > 0) {
+            if(horizontal) {
+                int tile = y + Math.max(0, visibleY - y) / GRADIENT_TILE * GRADIENT_TILE;
+                while(tile < visibleY + visibleHeight) {
+                    drawImage(graphics, strip, x, tile);
+                    tile += GRADIENT_TILE;
+                }
+            } else {
+                int tile = x + Math.max(0, visibleX - x) / GRADIENT_TILE * GRADIENT_TILE;
+                while(tile < visibleX + visibleWidth) {
+                    drawImage(graphics, strip, tile, y);
+                    tile += GRADIENT_TILE;
+                }
+            }
         }
-        cache.put(key, createSoftWeakRef(img));
+        setClip(graphics, clipX, clipY, clipWidth, clipHeight);
+    }
+
+    /**
+     * Returns the number of pixels the implementation is willing to keep in cached
+     * gradient images, the least recently used gradients are discarded when the budget is
+     * exceeded. This is only relevant when gradient caching is active.
+     *
+     * @return the number of pixels in cached gradients, defaults to the size of the screen
+     * @see #cacheLinearGradients()
+     * @see #cacheRadialGradients()
+     */
+    protected int getGradientCacheSize() {
+        return getDisplayWidth() * getDisplayHeight();
     }
 
     /**
@@ -1581,8 +1700,6 @@ public abstract class LWUITImplementation {
      * @param relativeSize  indicates the relative size of the gradient within the drawing region
      */
     public void fillRectRadialGradient(Object graphics, int startColor, int endColor, int x, int y, int width, int height, float relativeX, float relativeY, float relativeSize) {
-        int centerX = (int) (width * (1 - relativeX));
-        int centerY = (int) (height * (1 - relativeY));
         int size = (int)(Math.min(width, height) * relativeSize);
         int x2 = (int)(width / 2 - (size * relativeX));
         int y2 = (int)(height / 2 - (size * relativeY));
@@ -1590,20 +1707,14 @@ public abstract class LWUITImplementation {
         setAntiAliased(graphics, false);
 
         if(cacheRadialGradients()) {
-            Object r = findCachedGradient(radialGradientCache, startColor, endColor, x, y, width, height, true, centerX, centerY, size);
-            if(r != null) {
-                drawImage(graphics, r, x, y);
-            } else {
-                r = createMutableImage(width, height, 0xffffffff);
-                Object imageGraphics = getNativeGraphics(r);
-                setColor(imageGraphics, endColor);
-                fillRect(imageGraphics, 0, 0, width, height);
-                fillRadialGradientImpl(imageGraphics, startColor, endColor, x2, y2, size, size);
-                drawImage(graphics, r, x, y);
-                if(radialGradientCache == null) {
-                    radialGradientCache = new Hashtable();
+            if(width > 0 && height > 0) {
+                GradientCache cache = getGradientCache();
+                Object r = cache.get(GradientCache.RADIAL, startColor, endColor, width, height, x2, y2, size);
+                if(r == null) {
+                    r = createRadialGradientImage(startColor, endColor, width, height, x2, y2, size);
+                    cache.put(r, width * height, GradientCache.RADIAL, startColor, endColor, width, height, x2, y2, size);
                 }
-                storeCachedGradient(r, radialGradientCache, startColor, endColor, x, y, true, centerX, centerY, size);
+                drawImage(graphics, r, x, y);
             }
         } else {
             setColor(graphics, endColor);
@@ -1660,6 +1771,17 @@ public abstract class LWUITImplementation {
         }
     }
 
+    /**
+     * Returns the opaque gradient color at the offset within the distance
+     */
+    private int gradientColor(int sourceR, int sourceG, int sourceB, int destR,
+            int destG, int destB, int distance, int offset) {
+        int r = calculateGraidentChannel(sourceR, destR, distance, offset);
+        int g = calculateGraidentChannel(sourceG, destG, distance, offset);
+        int b = calculateGraidentChannel(sourceB, destB, distance, offset);
+        return 0xff000000 | ((r << 16) & 0xff0000) | ((g << 8) & 0xff00) | (b & 0xff);
+    }
+
     private void updateGradientColor(Object nativeGraphics, int sourceR, int sourceG, int sourceB, int destR,
             int destG, int destB, int distance, int offset) {
         //int a = calculateGraidentChannel(sourceA, destA, distance, offset);
@@ -1704,17 +1826,22 @@ public abstract class LWUITImplementation {
         boolean aa = isAntiAliased(graphics);
         setAntiAliased(graphics, false);
         if(cacheLinearGradients()) {
-            Object r = findCachedGradient(linearGradientCache, startColor, endColor, x, y, width, height, horizontal, 0, 0, 0);
-            if(r != null) {
-                drawImage(graphics, r, x, y);
-            } else {
-                r = createMutableImage(width, height, 0xffffffff);
-                fillLinearGradientImpl(getNativeGraphics(r), startColor, endColor, 0, 0, width, height, horizontal);
-                drawImage(graphics, r, x, y);
-                if(linearGradientCache == null) {
-                    linearGradientCache = new Hashtable();
+            if(width > 0 && height > 0) {
+                // the strip only depends on the length of the gradient so every region
+                // with the same colors and length shares it regardless of its position
+                int type = GradientCache.LINEAR_VERTICAL;
+                int length = height;
+                if(horizontal) {
+                    type = GradientCache.LINEAR_HORIZONTAL;
+                    length = width;
+                }
+                GradientCache cache = getGradientCache();
+                Object r = cache.get(type, startColor, endColor, length, 0, 0, 0, 0);
+                if(r == null) {
+                    r = createLinearGradientStrip(startColor, endColor, length, horizontal);
+                    cache.put(r, length * GRADIENT_TILE, type, startColor, endColor, length, 0, 0, 0, 0);
                 }
-                storeCachedGradient(r, linearGradientCache, startColor, endColor, x, y, horizontal, 0, 0, 0);
+                drawLinearGradientStrip(graphics, r, x, y, width, height, horizontal);
             }
         } else {
             fillLinearGradientImpl(graphics, startColor, endColor, x, y, width, height, horizontal);
@@ -0,0 +1,183 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl;
+
+import com.sun.lwuit.animations.Animation;
+
+/**
+ * Ordered set of the animations/components waiting to be painted. An identity
+ * keyed open addressing table maps every queued element to its slot so duplicate
+ * detection in repaint and removal in cancelRepaint don't scan the queue. The queue
+ * grows as needed rather than dropping repaint requests.
+ * <p>This class isn't thread safe, the implementation guards it with the display lock.
+ */
+class RepaintQueue {
+    private Animation[] queue;
+    private int fill;
+
+    /**
+     * Linear probing table of keys and the queue slot of each key, the table is
+     * kept at most half full
+     */
+    private Animation[] keys;
+    private int[] slots;
+
+    /**
+     * Creates a queue with the given initial capacity
+     *
+     * @param capacity initial capacity, must be a power of 2
+     */
+    public RepaintQueue(int capacity) {
+        queue = new Animation[capacity];
+        keys = new Animation[capacity * 2];
+        slots = new int[capacity * 2];
+    }
+
+    /**
+     * Adds the element to the end of the queue unless it is already queued
+     *
+     * @param a the element to add
+     * @return true if the element was added, false if it was already queued
+     */
+    public boolean add(Animation a) {
+        int pos = find(a);
+        if(keys[pos] == a) {
+            return false;
+        }
+        if(fill == queue.length) {
+            grow();
+            pos = find(a);
+        }
+        keys[pos] = a;
+        slots[pos] = fill;
+        queue[fill] = a;
+        fill++;
+        return true;
+    }
+
+    /**
+     * Removes the element from the queue, the slot it occupied is left empty
+     *
+     * @param a the element to remove
+     */
+    public void remove(Animation a) {
+        int pos = find(a);
+        if(keys[pos] != a) {
+            return;
+        }
+        queue[slots[pos]] = null;
+        delete(pos);
+    }
+
+    /**
+     * Indicates whether the queue is empty
+     *
+     * @return true if no element was added since the last drain
+     */
+    public boolean isEmpty() {
+        return fill == 0;
+    }
+
+    /**
+     * Moves the queued elements into the given array and empties the queue, removed
+     * elements leave null entries in the array
+     *
+     * @param dest the destination array, a larger array is returned if it is too small
+     * @return the array holding the elements
+     */
+    public Animation[] drain(Animation[] dest) {
+        if(dest == null || dest.length < fill) {
+            dest = new Animation[queue.length];
+        }
+        System.arraycopy(queue, 0, dest, 0, fill);
+        for(int iter = 0 ; iter < fill ; iter++) {
+            queue[iter] = null;
+        }
+        for(int iter = 0 ; iter < keys.length ; iter++) {
+            keys[iter] = null;
+        }
+        fill = 0;
+        return dest;
+    }
+
+    /**
+     * Returns the number of queued slots including slots of removed elements
+     *
+     * @return the number of slots to iterate after a drain
+     */
+    public int size() {
+        return fill;
+    }
+
+    private int find(Animation a) {
+        int mask = keys.length - 1;
+        int pos = hash(a) & mask;
+        while(keys[pos] != null && keys[pos] != a) {
+            pos = (pos + 1) & mask;
+        }
+        return pos;
+    }
+
+    private static int hash(Object o) {
+        int h = System.identityHashCode(o);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Removes the key at the given position shifting following keys of the same
+     * probe sequence back so lookups never need tombstones
+     */
+    private void delete(int pos) {
+        int mask = keys.length - 1;
+        keys[pos] = null;
+        int next = (pos + 1) & mask;
+        while(keys[next] != null) {
+            int home = hash(keys[next]) & mask;
+            // move the key if its home position isn't in the range (pos, next]
+            if((next > pos && (home <= pos || home > next)) ||
+                    (next < pos && (home <= pos && home > next))) {
+                keys[pos] = keys[next];
+                slots[pos] = slots[next];
+                keys[next] = null;
+                pos = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        Animation[] newQueue = new Animation[queue.length * 2];
+        System.arraycopy(queue, 0, newQueue, 0, fill);
+        queue = newQueue;
+        keys = new Animation[queue.length * 2];
+        slots = new int[keys.length];
+        for(int iter = 0 ; iter < fill ; iter++) {
+            if(queue[iter] != null) {
+                int pos = find(queue[iter]);
+                keys[pos] = queue[iter];
+                slots[pos] = iter;
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl;
+
+/**
+ * Prefix sum index over the heights of list rows allowing a list with variable row
+ * heights to map a row to its offset and an offset to its row in O(log n). Heights are
+ * measured lazily, rows that weren't measured yet are counted separately so their
+ * size can be estimated with a value that may change at any time. Both counts are
+ * kept in Fenwick trees (binary indexed trees) sharing the same layout.
+ * <p>Setting the height of a row and appending a row are O(log n), inserting or
+ * removing a row in the middle shifts the row heights and rebuilds the trees in O(n)
+ * without measuring any row.
+ * <p>This class is shared by the list and table components.
+ */
+public class RowHeightIndex {
+    /**
+     * Measured height of every row or -1 for a row that wasn't measured
+     */
+    private int[] heights;
+
+    /**
+     * Fenwick trees (1 based) of the measured heights and of the unmeasured row count
+     */
+    private int[] heightTree;
+    private int[] unmeasuredTree;
+    private int size;
+
+    /**
+     * Creates an index of rows that weren't measured yet
+     *
+     * @param size the number of rows
+     */
+    public RowHeightIndex(int size) {
+        this.size = size;
+        int capacity = Math.max(16, size);
+        heights = new int[capacity];
+        heightTree = new int[capacity + 1];
+        unmeasuredTree = new int[capacity + 1];
+        for(int iter = 0 ; iter < size ; iter++) {
+            heights[iter] = -1;
+        }
+        rebuild();
+    }
+
+    /**
+     * Returns the number of rows in the index
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the measured height of the row
+     *
+     * @param row the row offset
+     * @return the height of the row or -1 if it wasn't measured
+     */
+    public int getHeight(int row) {
+        return heights[row];
+    }
+
+    /**
+     * Sets the measured height of the row
+     *
+     * @param row the row offset
+     * @param height the height of the row
+     */
+    public void setHeight(int row, int height) {
+        int old = heights[row];
+        if(old == height) {
+            return;
+        }
+        heights[row] = height;
+        if(old < 0) {
+            update(unmeasuredTree, row, -1);
+            update(heightTree, row, height);
+        } else {
+            update(heightTree, row, height - old);
+        }
+    }
+
+    /**
+     * Discards the measured height of the row so it will be measured again
+     *
+     * @param row the row offset
+     */
+    public void invalidate(int row) {
+        int old = heights[row];
+        if(old > -1) {
+            heights[row] = -1;
+            update(heightTree, row, -old);
+            update(unmeasuredTree, row, 1);
+        }
+    }
+
+    /**
+     * Inserts an unmeasured row at the given offset
+     *
+     * @param row the offset of the new row, size() appends a row
+     */
+    public void insert(int row) {
+        insert(row, 1);
+    }
+
+    /**
+     * Inserts unmeasured rows at the given offset
+     *
+     * @param row the offset of the first new row, size() appends the rows
+     * @param count the number of rows to insert
+     */
+    public void insert(int row, int count) {
+        if(size + count > heights.length) {
+            int[] h = new int[Math.max(size * 2, size + count)];
+            System.arraycopy(heights, 0, h, 0, size);
+            heights = h;
+            int[] t = new int[h.length + 1];
+            System.arraycopy(heightTree, 0, t, 0, size + 1);
+            heightTree = t;
+            t = new int[h.length + 1];
+            System.arraycopy(unmeasuredTree, 0, t, 0, size + 1);
+            unmeasuredTree = t;
+        }
+        if(row >= size) {
+            for(int iter = 0 ; iter < count ; iter++) {
+                // the node of the new element covers the range (size + 1 - lowbit, size + 1]
+                // which is the sum of existing nodes plus the new element
+                heights[size] = -1;
+                size++;
+                int lowbit = size & (-size);
+                heightTree[size] = prefix(heightTree, size - 1) - prefix(heightTree, size - lowbit);
+                unmeasuredTree[size] = prefix(unmeasuredTree, size - 1) - prefix(unmeasuredTree, size - lowbit) + 1;
+            }
+            return;
+        }
+        System.arraycopy(heights, row, heights, row + count, size - row);
+        for(int iter = 0 ; iter < count ; iter++) {
+            heights[row + iter] = -1;
+        }
+        size += count;
+        rebuild();
+    }
+
+    /**
+     * Removes the row at the given offset
+     *
+     * @param row the offset of the row
+     */
+    public void remove(int row) {
+        remove(row, 1);
+    }
+
+    /**
+     * Removes the rows starting at the given offset
+     *
+     * @param row the offset of the first row
+     * @param count the number of rows to remove
+     */
+    public void remove(int row, int count) {
+        int oldSize = size;
+        size -= count;
+        if(row < size) {
+            System.arraycopy(heights, row + count, heights, row, size - row);
+            rebuild();
+        } else {
+            // the removed nodes aren't covered by any node of the remaining elements
+            for(int iter = size + 1 ; iter <= oldSize ; iter++) {
+                heightTree[iter] = 0;
+                unmeasuredTree[iter] = 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the offset of the row which is the sum of the heights of the rows before it
+     * and the gaps following them
+     *
+     * @param row the row offset, size() returns the offset following the last row
+     * @param estimate the height used for rows that weren't measured
+     * @param gap the gap between rows
+     * @return the offset of the row
+     */
+    public int getOffset(int row, int estimate, int gap) {
+        return prefix(heightTree, row) + prefix(unmeasuredTree, row) * estimate + row * gap;
+    }
+
+    /**
+     * Returns the total height of all the rows and the gaps between them
+     *
+     * @param estimate the height used for rows that weren't measured
+     * @param gap the gap between rows
+     * @return the total height
+     */
+    public int getTotal(int estimate, int gap) {
+        if(size == 0) {
+            return 0;
+        }
+        return getOffset(size, estimate, gap) - gap;
+    }
+
+    /**
+     * Returns the row covering the given offset, the gap following a row is considered
+     * a part of the row
+     *
+     * @param offset the offset
+     * @param estimate the height used for rows that weren't measured
+     * @param gap the gap between rows
+     * @return the row offset, -1 for a negative offset and size() for an offset beyond the last row
+     */
+    public int find(int offset, int estimate, int gap) {
+        if(offset < 0) {
+            return -1;
+        }
+        int pos = 0;
+        int sum = 0;
+        int step = 1;
+        while(step * 2 <= size) {
+            step *= 2;
+        }
+        while(step > 0) {
+            int next = pos + step;
+            if(next <= size) {
+                int s = sum + heightTree[next] + unmeasuredTree[next] * estimate + step * gap;
+                if(s <= offset) {
+                    pos = next;
+                    sum = s;
+                }
+            }
+            step >>= 1;
+        }
+        return pos;
+    }
+
+    private void rebuild() {
+        for(int iter = 1 ; iter <= size ; iter++) {
+            int h = heights[iter - 1];
+            if(h < 0) {
+                heightTree[iter] = 0;
+                unmeasuredTree[iter] = 1;
+            } else {
+                heightTree[iter] = h;
+                unmeasuredTree[iter] = 0;
+            }
+        }
+        for(int iter = 1 ; iter <= size ; iter++) {
+            int parent = iter + (iter & (-iter));
+            if(parent <= size) {
+                heightTree[parent] += heightTree[iter];
+                unmeasuredTree[parent] += unmeasuredTree[iter];
+            }
+        }
+        if(size + 1 < heightTree.length) {
+            heightTree[size + 1] = 0;
+            unmeasuredTree[size + 1] = 0;
+        }
+    }
+
+    private void update(int[] tree, int row, int delta) {
+        for(int iter = row + 1 ; iter <= size ; iter += iter & (-iter)) {
+            tree[iter] += delta;
+        }
+    }
+
+    /**
+     * Sum of the first count elements
+     */
+    private static int prefix(int[] tree, int count) {
+        int sum = 0;
+        for(int iter = count ; iter > 0 ; iter -= iter & (-iter)) {
+            sum += tree[iter];
+        }
+        return sum;
+    }
+}
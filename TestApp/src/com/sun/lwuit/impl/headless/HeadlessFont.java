@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+/**
+ * Built-in bitmap font of the headless implementation. Glyphs are 5x7 pixel cells
+ * covering printable ASCII scaled by an integer factor according to the font size,
+ * the system and proportional faces trim the empty glyph columns,
+ * bold and italic styles are synthesized when drawing. Characters outside of the
+ * ASCII range are rendered as a box.
+ */
+class HeadlessFont {
+    // constants matching the MIDP font constants used by the LWUIT font API
+    static final int FACE_SYSTEM = 0;
+    static final int FACE_MONOSPACE = 32;
+    static final int FACE_PROPORTIONAL = 64;
+    static final int STYLE_PLAIN = 0;
+    static final int STYLE_BOLD = 1;
+    static final int STYLE_ITALIC = 2;
+    static final int STYLE_UNDERLINED = 4;
+    static final int SIZE_SMALL = 8;
+    static final int SIZE_MEDIUM = 0;
+    static final int SIZE_LARGE = 16;
+
+    static final int GLYPH_WIDTH = 5;
+    static final int GLYPH_HEIGHT = 7;
+    private static final int FIRST_CHAR = 32;
+    private static final int LAST_CHAR = 126;
+
+    /**
+     * Glyph bitmaps for the characters 32 - 126, every glyph holds 35 bits row by row
+     * with the most significant bit at the top left corner
+     */
+    private static final long[] GLYPHS = {
+        0x000000000L, 0x108421004L, 0x294000000L, 0x295f57d4aL,
+        0x11f4717c4L, 0x632222263L, 0x22944564dL, 0x108000000L,
+        0x088842082L, 0x208210888L, 0x009575480L, 0x0084f9080L,
+        0x000003088L, 0x0000f8000L, 0x00000018cL, 0x002222200L,
+        0x3a33ae62eL, 0x11842108eL, 0x3a211111fL, 0x7c441062eL,
+        0x08ca97c42L, 0x7e1e0862eL, 0x1910f462eL, 0x7c2222108L,
+        0x3a317462eL, 0x3a317844cL, 0x018c03180L, 0x018c03088L,
+        0x088882082L, 0x001f07c00L, 0x208208888L, 0x3a2111004L,
+        0x3a216d6aeL, 0x3a31fc631L, 0x7a31f463eL, 0x3a308422eL,
+        0x72518c65cL, 0x7e10f421fL, 0x7e10f4210L, 0x3a30bc62fL,
+        0x4631fc631L, 0x38842108eL, 0x1c4210a4cL, 0x4654c5251L,
+        0x42108421fL, 0x4775ac631L, 0x4639ace31L, 0x3a318c62eL,
+        0x7a31f4210L, 0x3a318d64dL, 0x7a31f5251L, 0x3e107043eL,
+        0x7c8421084L, 0x46318c62eL, 0x46318c544L, 0x4631ad6aaL,
+        0x462a22a31L, 0x462a21084L, 0x7c222221fL, 0x39084210eL,
+        0x020820820L, 0x38421084eL, 0x115100000L, 0x00000001fL,
+        0x208000000L, 0x000e0be2fL, 0x4216cc63eL, 0x000e8422eL,
+        0x042d9c62fL, 0x000e8fe0eL, 0x1928e2108L, 0x01f18bc2eL,
+        0x4216cc631L, 0x100c2108eL, 0x080610a4cL, 0x4212a6292L,
+        0x30842108eL, 0x001aad631L, 0x0016cc631L, 0x000e8c62eL,
+        0x001e8fa10L, 0x000d9bc21L, 0x0016cc210L, 0x000e8383eL,
+        0x211c42126L, 0x00118c66dL, 0x00118c544L, 0x00118d6aaL,
+        0x001151151L, 0x00118bc2eL, 0x001f1111fL, 0x088441082L,
+        0x108421084L, 0x208411088L, 0x0008a8800L
+    };
+
+    /**
+     * Left bearing and width of every glyph for the proportional face
+     */
+    private static byte[] glyphLeft;
+    private static byte[] glyphWidth;
+
+    final int face;
+    final int style;
+    final int size;
+    final int scale;
+    private final int height;
+
+    HeadlessFont(int face, int style, int size) {
+        this.face = face;
+        this.style = style;
+        this.size = size;
+        switch(size) {
+            case SIZE_SMALL:
+                scale = 1;
+                break;
+            case SIZE_LARGE:
+                scale = 3;
+                break;
+            default:
+                scale = 2;
+                break;
+        }
+        height = (GLYPH_HEIGHT + 2) * scale;
+    }
+
+    private static synchronized void initMetrics() {
+        if(glyphLeft != null) {
+            return;
+        }
+        byte[] left = new byte[GLYPHS.length];
+        byte[] width = new byte[GLYPHS.length];
+        for(int iter = 0 ; iter < GLYPHS.length ; iter++) {
+            int min = GLYPH_WIDTH;
+            int max = -1;
+            for(int col = 0 ; col < GLYPH_WIDTH ; col++) {
+                for(int row = 0 ; row < GLYPH_HEIGHT ; row++) {
+                    if(isSet(GLYPHS[iter], col, row)) {
+                        min = Math.min(min, col);
+                        max = Math.max(max, col);
+                    }
+                }
+            }
+            if(max < 0) {
+                // space
+                left[iter] = 0;
+                width[iter] = 3;
+            } else {
+                left[iter] = (byte)min;
+                width[iter] = (byte)(max - min + 1);
+            }
+        }
+        glyphWidth = width;
+        glyphLeft = left;
+    }
+
+    private static boolean isSet(long glyph, int col, int row) {
+        return ((glyph >>> (34 - row * GLYPH_WIDTH - col)) & 1) != 0;
+    }
+
+    /**
+     * Returns the font height including the line spacing
+     *
+     * @return the height in pixels
+     */
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the advance of the given character
+     *
+     * @param ch the character
+     * @return width in pixels
+     */
+    int charWidth(char ch) {
+        int w;
+        if(face != FACE_MONOSPACE && ch >= FIRST_CHAR && ch <= LAST_CHAR) {
+            initMetrics();
+            w = (glyphWidth[ch - FIRST_CHAR] + 1) * scale;
+        } else {
+            w = (GLYPH_WIDTH + 1) * scale;
+        }
+        if((style & STYLE_BOLD) != 0) {
+            w++;
+        }
+        return w;
+    }
+
+    /**
+     * Returns the advance of the given characters
+     *
+     * @param ch the characters
+     * @param offset offset of the first character
+     * @param length number of characters
+     * @return width in pixels
+     */
+    int charsWidth(char[] ch, int offset, int length) {
+        int w = 0;
+        int end = offset + length;
+        for(int iter = offset ; iter < end ; iter++) {
+            w += charWidth(ch[iter]);
+        }
+        return w;
+    }
+
+    /**
+     * Returns the advance of the given string
+     *
+     * @param str the string
+     * @return width in pixels
+     */
+    int stringWidth(String str) {
+        int w = 0;
+        int len = str.length();
+        for(int iter = 0 ; iter < len ; iter++) {
+            w += charWidth(str.charAt(iter));
+        }
+        return w;
+    }
+
+    /**
+     * Draws the string with its top left corner at the given position
+     *
+     * @param g the graphics context
+     * @param str the string to draw
+     * @param x the x position
+     * @param y the y position
+     */
+    void drawString(HeadlessGraphics g, String str, int x, int y) {
+        int top = y + scale;
+        int len = str.length();
+        int startX = x;
+        boolean bold = (style & STYLE_BOLD) != 0;
+        boolean italic = (style & STYLE_ITALIC) != 0;
+        for(int iter = 0 ; iter < len ; iter++) {
+            char ch = str.charAt(iter);
+            if(ch >= FIRST_CHAR && ch <= LAST_CHAR) {
+                long glyph = GLYPHS[ch - FIRST_CHAR];
+                int left = 0;
+                if(face != FACE_MONOSPACE) {
+                    initMetrics();
+                    left = glyphLeft[ch - FIRST_CHAR];
+                }
+                for(int row = 0 ; row < GLYPH_HEIGHT ; row++) {
+                    // slant the upper rows to the right
+                    int shift = 0;
+                    if(italic) {
+                        shift = (GLYPH_HEIGHT - 1 - row) * scale / 3;
+                    }
+                    for(int col = 0 ; col < GLYPH_WIDTH ; col++) {
+                        if(isSet(glyph, col, row)) {
+                            int px = x + (col - left) * scale + shift;
+                            int py = top + row * scale;
+                            g.fillRect(px, py, scale, scale);
+                            if(bold) {
+                                g.fillRect(px + 1, py, scale, scale);
+                            }
+                        }
+                    }
+                }
+            } else if(ch != ' ' && ch != '\n' && ch != '\r' && ch != '\t') {
+                g.drawRect(x + scale / 2, top, (GLYPH_WIDTH - 1) * scale, (GLYPH_HEIGHT - 1) * scale);
+            }
+            x += charWidth(ch);
+        }
+        if((style & STYLE_UNDERLINED) != 0) {
+            g.fillRect(startX, top + GLYPH_HEIGHT * scale, x - startX, Math.max(1, scale / 2));
+        }
+    }
+}
@@ -0,0 +1,518 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+/**
+ * Native graphics context of the headless implementation, rasterizes directly into
+ * the pixel array of a {@link HeadlessImage}. Translation isn't supported natively
+ * so all coordinates are absolute. The alpha value applies to all the drawing
+ * operations and is combined with the per pixel alpha of images.
+ */
+class HeadlessGraphics {
+    private final HeadlessImage image;
+    private int clipX;
+    private int clipY;
+    private int clipWidth;
+    private int clipHeight;
+    private int color;
+    private int alpha = 0xff;
+    private HeadlessFont font;
+
+    HeadlessGraphics(HeadlessImage image, HeadlessFont font) {
+        this.image = image;
+        this.font = font;
+        clipWidth = image.width;
+        clipHeight = image.height;
+    }
+
+    HeadlessImage getImage() {
+        return image;
+    }
+
+    int getColor() {
+        return color;
+    }
+
+    void setColor(int color) {
+        this.color = color & 0xffffff;
+    }
+
+    int getAlpha() {
+        return alpha;
+    }
+
+    void setAlpha(int alpha) {
+        this.alpha = Math.max(0, Math.min(0xff, alpha));
+    }
+
+    HeadlessFont getFont() {
+        return font;
+    }
+
+    void setFont(HeadlessFont font) {
+        this.font = font;
+    }
+
+    int getClipX() {
+        return clipX;
+    }
+
+    int getClipY() {
+        return clipY;
+    }
+
+    int getClipWidth() {
+        return clipWidth;
+    }
+
+    int getClipHeight() {
+        return clipHeight;
+    }
+
+    void setClip(int x, int y, int width, int height) {
+        clipX = x;
+        clipY = y;
+        clipWidth = Math.max(0, width);
+        clipHeight = Math.max(0, height);
+    }
+
+    void clipRect(int x, int y, int width, int height) {
+        int x2 = Math.min(clipX + clipWidth, x + width);
+        int y2 = Math.min(clipY + clipHeight, y + height);
+        clipX = Math.max(clipX, x);
+        clipY = Math.max(clipY, y);
+        clipWidth = Math.max(0, x2 - clipX);
+        clipHeight = Math.max(0, y2 - clipY);
+    }
+
+    private int minX() {
+        return Math.max(0, clipX);
+    }
+
+    private int minY() {
+        return Math.max(0, clipY);
+    }
+
+    private int maxX() {
+        return Math.min(image.width, clipX + clipWidth);
+    }
+
+    private int maxY() {
+        return Math.min(image.height, clipY + clipHeight);
+    }
+
+    /**
+     * Composites the source pixel over the destination pixel using the source over rule
+     *
+     * @param dest the destination pixel
+     * @param src the source pixel
+     * @param srcAlpha the alpha of the source pixel 0 - 255
+     * @return the resulting pixel
+     */
+    static int blend(int dest, int src, int srcAlpha) {
+        if(srcAlpha >= 0xff) {
+            return 0xff000000 | src;
+        }
+        if(srcAlpha <= 0) {
+            return dest;
+        }
+        int destAlpha = dest >>> 24;
+        int sr = (src >> 16) & 0xff;
+        int sg = (src >> 8) & 0xff;
+        int sb = src & 0xff;
+        int dr = (dest >> 16) & 0xff;
+        int dg = (dest >> 8) & 0xff;
+        int db = dest & 0xff;
+        if(destAlpha == 0xff) {
+            dr += (sr - dr) * srcAlpha / 0xff;
+            dg += (sg - dg) * srcAlpha / 0xff;
+            db += (sb - db) * srcAlpha / 0xff;
+            return 0xff000000 | (dr << 16) | (dg << 8) | db;
+        }
+        int destWeight = destAlpha * (0xff - srcAlpha) / 0xff;
+        int outAlpha = srcAlpha + destWeight;
+        if(outAlpha == 0) {
+            return 0;
+        }
+        dr = (sr * srcAlpha + dr * destWeight) / outAlpha;
+        dg = (sg * srcAlpha + dg * destWeight) / outAlpha;
+        db = (sb * srcAlpha + db * destWeight) / outAlpha;
+        return (outAlpha << 24) | (dr << 16) | (dg << 8) | db;
+    }
+
+    /**
+     * Fills a horizontal span with the current color, x2 is exclusive
+     */
+    private void span(int x1, int x2, int y) {
+        if(y < minY() || y >= maxY()) {
+            return;
+        }
+        x1 = Math.max(x1, minX());
+        x2 = Math.min(x2, maxX());
+        if(x1 >= x2) {
+            return;
+        }
+        int[] rgb = image.rgb;
+        int pos = y * image.width + x1;
+        int end = pos + x2 - x1;
+        if(alpha == 0xff) {
+            int c = 0xff000000 | color;
+            for( ; pos < end ; pos++) {
+                rgb[pos] = c;
+            }
+        } else {
+            for( ; pos < end ; pos++) {
+                rgb[pos] = blend(rgb[pos], color, alpha);
+            }
+        }
+    }
+
+    private void pixel(int x, int y) {
+        if(x >= minX() && x < maxX() && y >= minY() && y < maxY()) {
+            int pos = y * image.width + x;
+            image.rgb[pos] = blend(image.rgb[pos], color, alpha);
+        }
+    }
+
+    void fillRect(int x, int y, int width, int height) {
+        int y2 = Math.min(y + height, maxY());
+        for(int row = Math.max(y, minY()) ; row < y2 ; row++) {
+            span(x, x + width, row);
+        }
+    }
+
+    void drawRect(int x, int y, int width, int height) {
+        if(width < 0 || height < 0) {
+            return;
+        }
+        if(width == 0 || height == 0) {
+            fillRect(x, y, width + 1, height + 1);
+            return;
+        }
+        span(x, x + width + 1, y);
+        span(x, x + width + 1, y + height);
+        fillRect(x, y + 1, 1, height - 1);
+        fillRect(x + width, y + 1, 1, height - 1);
+    }
+
+    void drawLine(int x1, int y1, int x2, int y2) {
+        if(y1 == y2) {
+            span(Math.min(x1, x2), Math.max(x1, x2) + 1, y1);
+            return;
+        }
+        int dx = Math.abs(x2 - x1);
+        int dy = -Math.abs(y2 - y1);
+        int sx = x1 < x2 ? 1 : -1;
+        int sy = y1 < y2 ? 1 : -1;
+        int err = dx + dy;
+        while(true) {
+            pixel(x1, y1);
+            if(x1 == x2 && y1 == y2) {
+                return;
+            }
+            int e2 = err * 2;
+            if(e2 >= dy) {
+                err += dy;
+                x1 += sx;
+            }
+            if(e2 <= dx) {
+                err += dx;
+                y1 += sy;
+            }
+        }
+    }
+
+    /**
+     * Returns the horizontal inset of the rounded corner at the given distance from
+     * the straight section of the rectangle
+     */
+    private static int cornerInset(double radiusX, double radiusY, double dy) {
+        if(dy <= 0 || radiusY <= 0) {
+            return 0;
+        }
+        double n = dy / radiusY;
+        if(n >= 1) {
+            return (int)(radiusX + 0.5);
+        }
+        return (int)(radiusX - radiusX * Math.sqrt(1 - n * n) + 0.5);
+    }
+
+    void fillRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        double rx = Math.min(arcWidth, width) / 2.0;
+        double ry = Math.min(arcHeight, height) / 2.0;
+        int y2 = Math.min(y + height, maxY());
+        for(int row = Math.max(y, minY()) ; row < y2 ; row++) {
+            double center = row + 0.5;
+            double dy = 0;
+            if(center < y + ry) {
+                dy = y + ry - center;
+            } else if(center > y + height - ry) {
+                dy = center - (y + height - ry);
+            }
+            int inset = cornerInset(rx, ry, dy);
+            span(x + inset, x + width - inset, row);
+        }
+    }
+
+    void drawRoundRect(int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        arcWidth = Math.min(arcWidth, width);
+        arcHeight = Math.min(arcHeight, height);
+        int hx = arcWidth / 2;
+        int hy = arcHeight / 2;
+        if(hx < 1 || hy < 1) {
+            drawRect(x, y, width, height);
+            return;
+        }
+        span(x + hx, x + width - hx + 1, y);
+        span(x + hx, x + width - hx + 1, y + height);
+        fillRect(x, y + hy, 1, height - hy * 2 + 1);
+        fillRect(x + width, y + hy, 1, height - hy * 2 + 1);
+        drawArc(x, y, arcWidth, arcHeight, 90, 90);
+        drawArc(x + width - arcWidth, y, arcWidth, arcHeight, 0, 90);
+        drawArc(x, y + height - arcHeight, arcWidth, arcHeight, 180, 90);
+        drawArc(x + width - arcWidth, y + height - arcHeight, arcWidth, arcHeight, 270, 90);
+    }
+
+    /**
+     * Approximates atan2 in degrees within a fraction of a degree, CLDC doesn't
+     * include the inverse trigonometric functions
+     *
+     * @return angle in the range 0 - 360 counter clockwise from the positive x axis
+     */
+    static double atan2Degrees(double y, double x) {
+        if(x == 0 && y == 0) {
+            return 0;
+        }
+        double ax = Math.abs(x);
+        double ay = Math.abs(y);
+        double z;
+        boolean swapped = ay > ax;
+        if(swapped) {
+            z = ax / ay;
+        } else {
+            z = ay / ax;
+        }
+        // atan(z) for 0 <= z <= 1
+        double a = Math.PI / 4 * z + 0.273 * z * (1 - z);
+        if(swapped) {
+            a = Math.PI / 2 - a;
+        }
+        if(x < 0) {
+            a = Math.PI - a;
+        }
+        if(y < 0) {
+            a = Math.PI * 2 - a;
+        }
+        return Math.toDegrees(a);
+    }
+
+    void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        if(width <= 0 || height <= 0 || arcAngle == 0) {
+            return;
+        }
+        if(arcAngle < 0) {
+            startAngle += arcAngle;
+            arcAngle = -arcAngle;
+        }
+        startAngle = ((startAngle % 360) + 360) % 360;
+        boolean full = arcAngle >= 360;
+        long w = width;
+        long h = height;
+        long limit = w * w * h * h;
+        int y2 = Math.min(y + height, maxY());
+        int x1 = Math.max(x, minX());
+        int x2 = Math.min(x + width, maxX());
+        for(int row = Math.max(y, minY()) ; row < y2 ; row++) {
+            // coordinates are doubled so the pixel center is an integer
+            long dy = row * 2 + 1 - (y * 2 + height);
+            int start = -1;
+            for(int col = x1 ; col < x2 ; col++) {
+                long dx = col * 2 + 1 - (x * 2 + width);
+                boolean inside = dx * dx * h * h + dy * dy * w * w <= limit;
+                if(inside && !full) {
+                    // angles are relative to the bounding rectangle so 45 degrees
+                    // always points at the top right corner
+                    double angle = atan2Degrees(-dy * w, dx * h) - startAngle;
+                    if(angle < 0) {
+                        angle += 360;
+                    }
+                    inside = angle <= arcAngle;
+                }
+                if(inside) {
+                    if(start < 0) {
+                        start = col;
+                    }
+                } else if(start > -1) {
+                    span(start, col, row);
+                    start = -1;
+                }
+            }
+            if(start > -1) {
+                span(start, x2, row);
+            }
+        }
+    }
+
+    void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+        if(width < 0 || height < 0 || arcAngle == 0) {
+            return;
+        }
+        if(arcAngle < 0) {
+            startAngle += arcAngle;
+            arcAngle = -arcAngle;
+        }
+        arcAngle = Math.min(arcAngle, 360);
+        double rx = width / 2.0;
+        double ry = height / 2.0;
+        double cx = x + rx;
+        double cy = y + ry;
+        // roughly one segment for every two pixels of the circumference
+        int segments = Math.max(4, (int)((rx + ry) * Math.PI * arcAngle / 360.0));
+        int lastX = 0;
+        int lastY = 0;
+        for(int iter = 0 ; iter <= segments ; iter++) {
+            double radians = Math.toRadians(startAngle + arcAngle * iter / (double)segments);
+            int px = (int)Math.floor(cx + rx * Math.cos(radians) + 0.5);
+            int py = (int)Math.floor(cy - ry * Math.sin(radians) + 0.5);
+            if(iter == 0) {
+                pixel(px, py);
+            } else if(px != lastX || py != lastY) {
+                drawSegment(lastX, lastY, px, py);
+            }
+            lastX = px;
+            lastY = py;
+        }
+    }
+
+    /**
+     * Draws a line without its first pixel so consecutive segments don't blend the
+     * shared point twice
+     */
+    private void drawSegment(int x1, int y1, int x2, int y2) {
+        int dx = Math.abs(x2 - x1);
+        int dy = -Math.abs(y2 - y1);
+        int sx = x1 < x2 ? 1 : -1;
+        int sy = y1 < y2 ? 1 : -1;
+        int err = dx + dy;
+        while(x1 != x2 || y1 != y2) {
+            int e2 = err * 2;
+            if(e2 >= dy) {
+                err += dy;
+                x1 += sx;
+            }
+            if(e2 <= dx) {
+                err += dx;
+                y1 += sy;
+            }
+            pixel(x1, y1);
+        }
+    }
+
+    /**
+     * Fills the polygon using the even odd rule sampling the pixel centers
+     */
+    void fillPolygon(int[] xPoints, int[] yPoints, int nPoints) {
+        if(nPoints < 3) {
+            return;
+        }
+        int yMin = yPoints[0];
+        int yMax = yPoints[0];
+        for(int iter = 1 ; iter < nPoints ; iter++) {
+            yMin = Math.min(yMin, yPoints[iter]);
+            yMax = Math.max(yMax, yPoints[iter]);
+        }
+        yMin = Math.max(yMin, minY());
+        yMax = Math.min(yMax, maxY());
+        int[] crossings = new int[nPoints];
+        for(int row = yMin ; row < yMax ; row++) {
+            double center = row + 0.5;
+            int count = 0;
+            for(int iter = 0 ; iter < nPoints ; iter++) {
+                int next = (iter + 1) % nPoints;
+                int ya = yPoints[iter];
+                int yb = yPoints[next];
+                if((ya <= center) != (yb <= center)) {
+                    double t = (center - ya) / (yb - ya);
+                    double cross = xPoints[iter] + t * (xPoints[next] - xPoints[iter]);
+                    crossings[count] = (int)Math.floor(cross + 0.5);
+                    count++;
+                }
+            }
+            // insertion sort, the number of crossings is small
+            for(int i = 1 ; i < count ; i++) {
+                int v = crossings[i];
+                int j = i - 1;
+                while(j >= 0 && crossings[j] > v) {
+                    crossings[j + 1] = crossings[j];
+                    j--;
+                }
+                crossings[j + 1] = v;
+            }
+            for(int iter = 1 ; iter < count ; iter += 2) {
+                span(crossings[iter - 1], crossings[iter], row);
+            }
+        }
+    }
+
+    /**
+     * Draws ARGB data with the current alpha applied on top of the per pixel alpha
+     */
+    void drawRGB(int[] rgbData, int offset, int scanlength, int x, int y, int w, int h, boolean processAlpha) {
+        int sx1 = Math.max(x, minX());
+        int sy1 = Math.max(y, minY());
+        int sx2 = Math.min(x + w, maxX());
+        int sy2 = Math.min(y + h, maxY());
+        if(sx1 >= sx2 || sy1 >= sy2) {
+            return;
+        }
+        int[] dest = image.rgb;
+        int len = sx2 - sx1;
+        for(int row = sy1 ; row < sy2 ; row++) {
+            int src = offset + (row - y) * scanlength + (sx1 - x);
+            int pos = row * image.width + sx1;
+            if(!processAlpha && alpha == 0xff) {
+                for(int iter = 0 ; iter < len ; iter++) {
+                    dest[pos + iter] = 0xff000000 | rgbData[src + iter];
+                }
+                continue;
+            }
+            for(int iter = 0 ; iter < len ; iter++) {
+                int p = rgbData[src + iter];
+                int a = alpha;
+                if(processAlpha) {
+                    a = (p >>> 24) * alpha / 0xff;
+                }
+                dest[pos + iter] = blend(dest[pos + iter], p & 0xffffff, a);
+            }
+        }
+    }
+
+    void drawImage(HeadlessImage img, int x, int y) {
+        drawRGB(img.rgb, 0, img.width, x, y, img.width, img.height, img.alpha);
+    }
+
+    void drawString(String str, int x, int y) {
+        font.drawString(this, str, x, y);
+    }
+}
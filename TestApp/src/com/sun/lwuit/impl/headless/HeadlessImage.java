@@ -0,0 +1,65 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+/**
+ * Native image of the headless implementation, an ARGB pixel array that is also
+ * used as the frame buffer of the display.
+ */
+class HeadlessImage {
+    final int width;
+    final int height;
+    final int[] rgb;
+    final boolean mutable;
+
+    /**
+     * Indicates the image may contain pixels that aren't fully opaque, allows drawing
+     * opaque images with a plain array copy
+     */
+    boolean alpha;
+
+    HeadlessImage(int[] rgb, int width, int height, boolean mutable) {
+        this.rgb = rgb;
+        this.width = width;
+        this.height = height;
+        this.mutable = mutable;
+        alpha = mutable;
+        if(!mutable) {
+            alpha = false;
+            for(int iter = 0 ; iter < rgb.length ; iter++) {
+                if((rgb[iter] & 0xff000000) != 0xff000000) {
+                    alpha = true;
+                    break;
+                }
+            }
+        }
+    }
+
+    HeadlessImage(int width, int height, int fillColor) {
+        this(new int[width * height], width, height, true);
+        for(int iter = 0 ; iter < rgb.length ; iter++) {
+            rgb[iter] = fillColor;
+        }
+    }
+}
@@ -0,0 +1,788 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+import com.sun.lwuit.Component;
+import com.sun.lwuit.Display;
+import com.sun.lwuit.impl.LWUITImplementation;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An implementation of LWUIT that renders into an in memory ARGB frame buffer using
+ * a pure Java rasterizer and requires no MIDP runtime. This allows running LWUIT
+ * forms on a desktop JVM or a server to measure paint/layout performance
+ * deterministically, render screenshots for regression checks and drive the UI with
+ * synthetic input using {@link InputInjector}.
+ * <p>The implementation is installed using the {@link HeadlessImplementationFactory}
+ * before initializing the display:
+ * <pre>
+ * ImplementationFactory.setInstance(new HeadlessImplementationFactory(240, 320));
+ * Display.init(null);
+ * </pre>
+ * Fonts are rendered from a built-in bitmap font and images are decoded from PNG
+ * data, other image formats aren't supported.
+ *
+ * @see InputInjector
+ */
+public class HeadlessImplementation extends LWUITImplementation {
+    /**
+     * Key code of the left softkey
+     */
+    public static final int KEY_LEFT_SOFTKEY = -6;
+
+    /**
+     * Key code of the right softkey
+     */
+    public static final int KEY_RIGHT_SOFTKEY = -7;
+
+    /**
+     * Key code of the clear/backspace key
+     */
+    public static final int KEY_CLEAR = -8;
+
+    /**
+     * Key code of the back key
+     */
+    public static final int KEY_BACK = -11;
+
+    /**
+     * Key code of the up game key
+     */
+    public static final int KEY_UP = -1;
+
+    /**
+     * Key code of the down game key
+     */
+    public static final int KEY_DOWN = -2;
+
+    /**
+     * Key code of the left game key
+     */
+    public static final int KEY_LEFT = -3;
+
+    /**
+     * Key code of the right game key
+     */
+    public static final int KEY_RIGHT = -4;
+
+    /**
+     * Key code of the fire game key
+     */
+    public static final int KEY_FIRE = -5;
+
+    private static final int[] LEFT_SOFTKEY = new int[] {KEY_LEFT_SOFTKEY};
+    private static final int[] RIGHT_SOFTKEY = new int[] {KEY_RIGHT_SOFTKEY};
+
+    private HeadlessImage screen;
+    private HeadlessGraphics screenGraphics;
+    private HeadlessFont defaultFont;
+    private boolean touchDevice = true;
+    private String editResult;
+
+    private int frameCount;
+    private long lastFrameTime;
+    private long totalFrameTime;
+    private long maxFrameTime;
+    private int flushCount;
+    private long flushedPixels;
+
+    /**
+     * Creates a headless implementation with the given screen size
+     *
+     * @param width the width of the screen
+     * @param height the height of the screen
+     */
+    public HeadlessImplementation(int width, int height) {
+        defaultFont = new HeadlessFont(HeadlessFont.FACE_SYSTEM, HeadlessFont.STYLE_PLAIN, HeadlessFont.SIZE_MEDIUM);
+        createScreen(width, height);
+    }
+
+    private void createScreen(int width, int height) {
+        HeadlessImage s = new HeadlessImage(Math.max(1, width), Math.max(1, height), 0xffffffff);
+        screenGraphics = new HeadlessGraphics(s, defaultFont);
+        screen = s;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void init(Object m) {
+    }
+
+    /**
+     * Changes the size of the screen and notifies LWUIT of the change, the content of
+     * the screen is discarded
+     *
+     * @param width the new width of the screen
+     * @param height the new height of the screen
+     */
+    public void setDisplaySize(int width, int height) {
+        createScreen(width, height);
+        if(Display.isInitialized()) {
+            sizeChanged(screen.width, screen.height);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getDisplayWidth() {
+        return screen.width;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getDisplayHeight() {
+        return screen.height;
+    }
+
+    /**
+     * Returns a copy of the screen pixels, the copy is performed on the EDT between
+     * paint cycles so it never contains a partially painted frame
+     *
+     * @return the ARGB pixels of the screen in rows
+     */
+    public int[] getScreenshot() {
+        final int[][] result = new int[1][];
+        Runnable r = new Runnable() {
+            public void run() {
+                HeadlessImage s = screen;
+                result[0] = new int[s.rgb.length];
+                System.arraycopy(s.rgb, 0, result[0], 0, s.rgb.length);
+            }
+        };
+        if(!Display.isInitialized() || Display.getInstance().isEdt()) {
+            r.run();
+        } else {
+            Display.getInstance().callSeriallyAndWait(r);
+        }
+        return result[0];
+    }
+
+    /**
+     * Sets the text that the next native text editing session will commit, by default
+     * editing completes immediately leaving the text unchanged
+     *
+     * @param text the text the next edited component receives or null to keep the text
+     */
+    public void setNextEditResult(String text) {
+        editResult = text;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void editString(Component cmp, int maxSize, int constraint, String text, int initiatingKeycode) {
+        String result = text;
+        if(editResult != null) {
+            result = editResult;
+            editResult = null;
+        }
+        if(result == null) {
+            result = "";
+        }
+        if(maxSize > 0 && result.length() > maxSize) {
+            result = result.substring(0, maxSize);
+        }
+        Display.getInstance().onEditingComplete(cmp, result);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void paintDirty() {
+        int flushes = flushCount;
+        long start = System.currentTimeMillis();
+        super.paintDirty();
+        if(flushes != flushCount) {
+            frameRendered(System.currentTimeMillis() - start);
+        }
+    }
+
+    private void frameRendered(long time) {
+        frameCount++;
+        lastFrameTime = time;
+        totalFrameTime += time;
+        maxFrameTime = Math.max(maxFrameTime, time);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void flushGraphics(int x, int y, int width, int height) {
+        flushCount++;
+        flushedPixels += width * height;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void flushGraphics() {
+        // full screen flushes are performed by transitions outside of paintDirty
+        flushCount++;
+        flushedPixels += screen.width * screen.height;
+        frameRendered(0);
+    }
+
+    /**
+     * Returns the number of frames rendered since the last reset, a frame is a paint
+     * cycle that flushed at least one region or a full screen flush
+     *
+     * @return the number of frames
+     */
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Returns the time in milliseconds spent painting the last frame
+     *
+     * @return the paint time of the last frame
+     */
+    public long getLastFrameTime() {
+        return lastFrameTime;
+    }
+
+    /**
+     * Returns the total time in milliseconds spent painting frames since the last reset
+     *
+     * @return the total paint time
+     */
+    public long getTotalFrameTime() {
+        return totalFrameTime;
+    }
+
+    /**
+     * Returns the longest time in milliseconds spent painting a single frame since the
+     * last reset
+     *
+     * @return the maximum paint time
+     */
+    public long getMaxFrameTime() {
+        return maxFrameTime;
+    }
+
+    /**
+     * Returns the number of flushGraphics calls since the last reset
+     *
+     * @return the number of flushes
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Returns the number of pixels flushed to the screen since the last reset
+     *
+     * @return the flushed area in pixels
+     */
+    public long getFlushedPixels() {
+        return flushedPixels;
+    }
+
+    /**
+     * Resets the frame and flush statistics
+     */
+    public void resetStatistics() {
+        frameCount = 0;
+        lastFrameTime = 0;
+        totalFrameTime = 0;
+        maxFrameTime = 0;
+        flushCount = 0;
+        flushedPixels = 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void getRGB(Object nativeImage, int[] arr, int offset, int x, int y, int width, int height) {
+        HeadlessImage img = (HeadlessImage)nativeImage;
+        for(int row = 0 ; row < height ; row++) {
+            System.arraycopy(img.rgb, (y + row) * img.width + x, arr, offset + row * width, width);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createImage(int[] rgb, int width, int height) {
+        int[] arr = new int[width * height];
+        System.arraycopy(rgb, 0, arr, 0, arr.length);
+        return new HeadlessImage(arr, width, height, false);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createImage(String path) throws IOException {
+        InputStream i = getResourceAsStream(getClass(), path);
+        if(i == null) {
+            throw new IOException("Resource not found: " + path);
+        }
+        try {
+            return createImage(i);
+        } finally {
+            i.close();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createImage(InputStream i) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        int size = i.read(buffer);
+        while(size > -1) {
+            out.write(buffer, 0, size);
+            size = i.read(buffer);
+        }
+        byte[] data = out.toByteArray();
+        return PNGDecoder.decode(data, 0, data.length);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createMutableImage(int width, int height, int fillColor) {
+        return new HeadlessImage(width, height, fillColor);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createImage(byte[] bytes, int offset, int len) {
+        try {
+            return PNGDecoder.decode(bytes, offset, len);
+        } catch(IOException err) {
+            // matches the behavior of MIDP for undecodable data
+            throw new IllegalArgumentException(err.getMessage());
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getImageWidth(Object i) {
+        return ((HeadlessImage)i).width;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getImageHeight(Object i) {
+        return ((HeadlessImage)i).height;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object scale(Object nativeImage, int width, int height) {
+        HeadlessImage img = (HeadlessImage)nativeImage;
+        int[] arr = new int[width * height];
+        // nearest neighbor scaling in 16.16 fixed point
+        int stepX = (img.width << 16) / width;
+        int stepY = (img.height << 16) / height;
+        int srcY = 0;
+        for(int y = 0 ; y < height ; y++) {
+            int rowOffset = (srcY >> 16) * img.width;
+            int srcX = 0;
+            for(int x = 0 ; x < width ; x++) {
+                arr[y * width + x] = img.rgb[rowOffset + (srcX >> 16)];
+                srcX += stepX;
+            }
+            srcY += stepY;
+        }
+        return new HeadlessImage(arr, width, height, false);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isAlphaMutableImageSupported() {
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isAlphaGlobal() {
+        return true;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int numColors() {
+        return 16777216;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getSoftkeyCount() {
+        return 2;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int[] getSoftkeyCode(int index) {
+        if(index == 0) {
+            return LEFT_SOFTKEY;
+        }
+        if(index == 1) {
+            return RIGHT_SOFTKEY;
+        }
+        return null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getClearKeyCode() {
+        return KEY_CLEAR;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getBackspaceKeyCode() {
+        return KEY_CLEAR;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getBackKeyCode() {
+        return KEY_BACK;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getGameAction(int keyCode) {
+        switch(keyCode) {
+            case KEY_UP:
+                return Display.GAME_UP;
+            case KEY_DOWN:
+                return Display.GAME_DOWN;
+            case KEY_LEFT:
+                return Display.GAME_LEFT;
+            case KEY_RIGHT:
+                return Display.GAME_RIGHT;
+            case KEY_FIRE:
+                return Display.GAME_FIRE;
+        }
+        return 0;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getKeyCode(int gameAction) {
+        return getGameKeyCode(gameAction);
+    }
+
+    /**
+     * Returns the key code this implementation maps to the given game action
+     */
+    static int getGameKeyCode(int gameAction) {
+        switch(gameAction) {
+            case Display.GAME_UP:
+                return KEY_UP;
+            case Display.GAME_DOWN:
+                return KEY_DOWN;
+            case Display.GAME_LEFT:
+                return KEY_LEFT;
+            case Display.GAME_RIGHT:
+                return KEY_RIGHT;
+            case Display.GAME_FIRE:
+                return KEY_FIRE;
+        }
+        return 0;
+    }
+
+    /**
+     * Indicates whether the implementation reports a touch screen, this must be set
+     * before the display is initialized
+     *
+     * @param touchDevice true for a touch device (the default)
+     */
+    public void setTouchDevice(boolean touchDevice) {
+        this.touchDevice = touchDevice;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean isTouchDevice() {
+        return touchDevice;
+    }
+
+    private static HeadlessGraphics g(Object graphics) {
+        return (HeadlessGraphics)graphics;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getColor(Object graphics) {
+        return g(graphics).getColor();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setColor(Object graphics, int RGB) {
+        g(graphics).setColor(RGB);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setAlpha(Object graphics, int alpha) {
+        g(graphics).setAlpha(alpha);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getAlpha(Object graphics) {
+        return g(graphics).getAlpha();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setNativeFont(Object graphics, Object font) {
+        g(graphics).setFont(font(font));
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getClipX(Object graphics) {
+        return g(graphics).getClipX();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getClipY(Object graphics) {
+        return g(graphics).getClipY();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getClipWidth(Object graphics) {
+        return g(graphics).getClipWidth();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getClipHeight(Object graphics) {
+        return g(graphics).getClipHeight();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setClip(Object graphics, int x, int y, int width, int height) {
+        g(graphics).setClip(x, y, width, height);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void clipRect(Object graphics, int x, int y, int width, int height) {
+        g(graphics).clipRect(x, y, width, height);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawLine(Object graphics, int x1, int y1, int x2, int y2) {
+        g(graphics).drawLine(x1, y1, x2, y2);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void fillRect(Object graphics, int x, int y, int width, int height) {
+        g(graphics).fillRect(x, y, width, height);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawRect(Object graphics, int x, int y, int width, int height) {
+        g(graphics).drawRect(x, y, width, height);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawRoundRect(Object graphics, int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        g(graphics).drawRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void fillRoundRect(Object graphics, int x, int y, int width, int height, int arcWidth, int arcHeight) {
+        g(graphics).fillRoundRect(x, y, width, height, arcWidth, arcHeight);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void fillArc(Object graphics, int x, int y, int width, int height, int startAngle, int arcAngle) {
+        g(graphics).fillArc(x, y, width, height, startAngle, arcAngle);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawArc(Object graphics, int x, int y, int width, int height, int startAngle, int arcAngle) {
+        g(graphics).drawArc(x, y, width, height, startAngle, arcAngle);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void fillPolygon(Object graphics, int[] xPoints, int[] yPoints, int nPoints) {
+        g(graphics).fillPolygon(xPoints, yPoints, nPoints);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawString(Object graphics, String str, int x, int y) {
+        g(graphics).drawString(str, x, y);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawImage(Object graphics, Object img, int x, int y) {
+        g(graphics).drawImage((HeadlessImage)img, x, y);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void drawRGB(Object graphics, int[] rgbData, int offset, int x, int y, int w, int h, boolean processAlpha) {
+        g(graphics).drawRGB(rgbData, offset, w, x, y, w, h, processAlpha);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object getNativeGraphics() {
+        return screenGraphics;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object getNativeGraphics(Object image) {
+        return new HeadlessGraphics((HeadlessImage)image, defaultFont);
+    }
+
+    private HeadlessFont font(Object nativeFont) {
+        if(nativeFont == null) {
+            return defaultFont;
+        }
+        return (HeadlessFont)nativeFont;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int charsWidth(Object nativeFont, char[] ch, int offset, int length) {
+        return font(nativeFont).charsWidth(ch, offset, length);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int stringWidth(Object nativeFont, String str) {
+        return font(nativeFont).stringWidth(str);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int charWidth(Object nativeFont, char ch) {
+        return font(nativeFont).charWidth(ch);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getHeight(Object nativeFont) {
+        return font(nativeFont).getHeight();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object getDefaultFont() {
+        return defaultFont;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getFace(Object nativeFont) {
+        return font(nativeFont).face;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getSize(Object nativeFont) {
+        return font(nativeFont).size;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getStyle(Object nativeFont) {
+        return font(nativeFont).style;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object createFont(int face, int style, int size) {
+        return new HeadlessFont(face, style, size);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+import com.sun.lwuit.Display;
+
+/**
+ * Synthesizes key and pointer input for an application running on top of the
+ * {@link HeadlessImplementation}. Events are delivered through the Display exactly
+ * like events arriving from a native platform and are processed asynchronously by
+ * the EDT, {@link #flush()} blocks until all the injected events were handled and
+ * the resulting repaints were performed.
+ * <p>The injector must not be used on the EDT.
+ */
+public class InputInjector {
+    private static final Runnable NOOP = new Runnable() {
+        public void run() {
+        }
+    };
+
+    /**
+     * Sends a key press event
+     *
+     * @param keyCode the key code
+     */
+    public void keyPress(int keyCode) {
+        Display.getInstance().keyPressed(keyCode);
+    }
+
+    /**
+     * Sends a key release event
+     *
+     * @param keyCode the key code
+     */
+    public void keyRelease(int keyCode) {
+        Display.getInstance().keyReleased(keyCode);
+    }
+
+    /**
+     * Sends a key press followed by a key release
+     *
+     * @param keyCode the key code
+     */
+    public void keyType(int keyCode) {
+        keyPress(keyCode);
+        keyRelease(keyCode);
+    }
+
+    /**
+     * Presses and releases the key mapped to the given game action
+     *
+     * @param gameAction one of the Display.GAME_* constants
+     */
+    public void gameKey(int gameAction) {
+        keyType(HeadlessImplementation.getGameKeyCode(gameAction));
+    }
+
+    /**
+     * Types the characters of the given string as individual key presses
+     *
+     * @param text the text to type
+     */
+    public void typeText(String text) {
+        int len = text.length();
+        for(int iter = 0 ; iter < len ; iter++) {
+            keyType(text.charAt(iter));
+        }
+    }
+
+    /**
+     * Sends a pointer press event
+     *
+     * @param x the x position of the pointer
+     * @param y the y position of the pointer
+     */
+    public void pointerPress(int x, int y) {
+        Display.getInstance().pointerPressed(new int[] {x}, new int[] {y});
+    }
+
+    /**
+     * Sends a pointer drag event
+     *
+     * @param x the x position of the pointer
+     * @param y the y position of the pointer
+     */
+    public void pointerDrag(int x, int y) {
+        Display.getInstance().pointerDragged(new int[] {x}, new int[] {y});
+    }
+
+    /**
+     * Sends a pointer release event
+     *
+     * @param x the x position of the pointer
+     * @param y the y position of the pointer
+     */
+    public void pointerRelease(int x, int y) {
+        Display.getInstance().pointerReleased(new int[] {x}, new int[] {y});
+    }
+
+    /**
+     * Presses and releases the pointer at the given position
+     *
+     * @param x the x position of the pointer
+     * @param y the y position of the pointer
+     */
+    public void tap(int x, int y) {
+        pointerPress(x, y);
+        pointerRelease(x, y);
+    }
+
+    /**
+     * Presses the pointer at the start position, drags it along a straight line to
+     * the destination position and releases it there
+     *
+     * @param startX the x position of the press
+     * @param startY the y position of the press
+     * @param destX the x position of the release
+     * @param destY the y position of the release
+     * @param steps the number of drag events sent between the press and the release
+     * @param delay the time in milliseconds between drag events, 0 for no delay
+     */
+    public void drag(int startX, int startY, int destX, int destY, int steps, int delay) {
+        pointerPress(startX, startY);
+        for(int iter = 1 ; iter <= steps ; iter++) {
+            pointerDrag(startX + (destX - startX) * iter / steps, startY + (destY - startY) * iter / steps);
+            if(delay > 0) {
+                try {
+                    Thread.sleep(delay);
+                } catch(InterruptedException ignor) {
+                }
+            }
+        }
+        pointerRelease(destX, destY);
+    }
+
+    /**
+     * Blocks until the events injected so far were processed by the EDT and the
+     * repaints they triggered were painted. Serial calls are only processed while a
+     * form is showing.
+     */
+    public void flush() {
+        Display d = Display.getInstance();
+        d.callSeriallyAndWait(NOOP);
+        // repaints requested by the pending serial calls are painted in the next cycle
+        d.callSeriallyAndWait(NOOP);
+    }
+}
@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.impl.headless;
+
+import java.io.IOException;
+
+/**
+ * Pure Java PNG decoder used by the headless implementation to load images from
+ * resource files, supports all the standard color types and bit depths including
+ * palette transparency and Adam7 interlacing. Ancillary chunks other than tRNS are
+ * ignored (no gamma or color space correction is performed).
+ */
+class PNGDecoder {
+    private static final int[] ADAM7_X = {0, 4, 0, 2, 0, 1, 0};
+    private static final int[] ADAM7_Y = {0, 0, 4, 0, 2, 0, 1};
+    private static final int[] ADAM7_DX = {8, 8, 4, 4, 2, 2, 1};
+    private static final int[] ADAM7_DY = {8, 8, 8, 4, 4, 2, 2};
+
+    private int width;
+    private int height;
+    private int bitDepth;
+    private int colorType;
+    private int interlace;
+    private int[] palette;
+    private int transparentGray = -1;
+    private int transparentRGB = -1;
+
+    private PNGDecoder() {
+    }
+
+    /**
+     * Indicates whether the given data starts with the PNG signature
+     *
+     * @param data the image data
+     * @param offset offset within the data
+     * @param len the length of the data
+     * @return true if this is a PNG file
+     */
+    public static boolean isPNG(byte[] data, int offset, int len) {
+        return len > 8 && (data[offset] & 0xff) == 0x89 && data[offset + 1] == 'P' &&
+                data[offset + 2] == 'N' && data[offset + 3] == 'G';
+    }
+
+    /**
+     * Decodes the PNG data into an immutable image
+     *
+     * @param data the image data
+     * @param offset offset within the data
+     * @param len the length of the data
+     * @return the decoded image
+     * @throws IOException if the data isn't a valid PNG file
+     */
+    public static HeadlessImage decode(byte[] data, int offset, int len) throws IOException {
+        if(!isPNG(data, offset, len)) {
+            throw new IOException("Not a PNG file");
+        }
+        return new PNGDecoder().decodeImpl(data, offset + 8, offset + len);
+    }
+
+    private HeadlessImage decodeImpl(byte[] data, int pos, int end) throws IOException {
+        byte[] idat = new byte[0];
+        int idatLength = 0;
+        while(pos + 8 <= end) {
+            int chunkLength = readInt(data, pos);
+            int type = readInt(data, pos + 4);
+            int chunk = pos + 8;
+            if(chunkLength < 0 || chunk + chunkLength > end) {
+                throw new IOException("Truncated PNG chunk");
+            }
+            switch(type) {
+                case 0x49484452: // IHDR
+                    width = readInt(data, chunk);
+                    height = readInt(data, chunk + 4);
+                    bitDepth = data[chunk + 8] & 0xff;
+                    colorType = data[chunk + 9] & 0xff;
+                    interlace = data[chunk + 12] & 0xff;
+                    if(width <= 0 || height <= 0) {
+                        throw new IOException("Illegal PNG size");
+                    }
+                    break;
+                case 0x504c5445: // PLTE
+                    palette = new int[chunkLength / 3];
+                    for(int iter = 0 ; iter < palette.length ; iter++) {
+                        int p = chunk + iter * 3;
+                        palette[iter] = 0xff000000 | ((data[p] & 0xff) << 16) |
+                                ((data[p + 1] & 0xff) << 8) | (data[p + 2] & 0xff);
+                    }
+                    break;
+                case 0x74524e53: // tRNS
+                    if(colorType == 3 && palette != null) {
+                        for(int iter = 0 ; iter < chunkLength && iter < palette.length ; iter++) {
+                            palette[iter] = (palette[iter] & 0xffffff) | ((data[chunk + iter] & 0xff) << 24);
+                        }
+                    } else if(colorType == 0) {
+                        transparentGray = ((data[chunk] & 0xff) << 8) | (data[chunk + 1] & 0xff);
+                    } else if(colorType == 2) {
+                        // only the most significant byte of every channel is compared
+                        transparentRGB = ((data[chunk] & 0xff) << 16) | ((data[chunk + 2] & 0xff) << 8) |
+                                (data[chunk + 4] & 0xff);
+                    }
+                    break;
+                case 0x49444154: // IDAT
+                    if(idatLength + chunkLength > idat.length) {
+                        byte[] b = new byte[Math.max(idat.length * 2, idatLength + chunkLength)];
+                        System.arraycopy(idat, 0, b, 0, idatLength);
+                        idat = b;
+                    }
+                    System.arraycopy(data, chunk, idat, idatLength, chunkLength);
+                    idatLength += chunkLength;
+                    break;
+                case 0x49454e44: // IEND
+                    pos = end;
+                    continue;
+            }
+            // skip the chunk data and CRC
+            pos = chunk + chunkLength + 4;
+        }
+        if(width == 0) {
+            throw new IOException("Missing PNG header");
+        }
+        if(colorType == 3 && palette == null) {
+            throw new IOException("Missing PNG palette");
+        }
+
+        int channels;
+        switch(colorType) {
+            case 0:
+                channels = 1;
+                break;
+            case 2:
+                channels = 3;
+                break;
+            case 3:
+                channels = 1;
+                break;
+            case 4:
+                channels = 2;
+                break;
+            case 6:
+                channels = 4;
+                break;
+            default:
+                throw new IOException("Unsupported PNG color type " + colorType);
+        }
+        int bitsPerPixel = channels * bitDepth;
+
+        // zlib header (2 bytes) precedes the deflate stream
+        byte[] raw = new Inflater(idat, 2, idatLength - 2).inflate();
+        int[] rgb = new int[width * height];
+        int rawPos = 0;
+        if(interlace == 0) {
+            decodePass(raw, rawPos, rgb, 0, 0, 1, 1, width, height, bitsPerPixel);
+        } else {
+            for(int pass = 0 ; pass < 7 ; pass++) {
+                int passW = (width - ADAM7_X[pass] + ADAM7_DX[pass] - 1) / ADAM7_DX[pass];
+                int passH = (height - ADAM7_Y[pass] + ADAM7_DY[pass] - 1) / ADAM7_DY[pass];
+                if(passW <= 0 || passH <= 0) {
+                    continue;
+                }
+                rawPos = decodePass(raw, rawPos, rgb, ADAM7_X[pass], ADAM7_Y[pass], ADAM7_DX[pass],
+                        ADAM7_DY[pass], passW, passH, bitsPerPixel);
+            }
+        }
+        return new HeadlessImage(rgb, width, height, false);
+    }
+
+    /**
+     * Unfilters the scanlines of a single pass and converts them to ARGB
+     *
+     * @return the position after the pass within the raw data
+     */
+    private int decodePass(byte[] raw, int pos, int[] rgb, int startX, int startY, int dx, int dy,
+            int passW, int passH, int bitsPerPixel) throws IOException {
+        int stride = (passW * bitsPerPixel + 7) / 8;
+        int bpp = Math.max(1, bitsPerPixel / 8);
+        byte[] prev = new byte[stride];
+        byte[] line = new byte[stride];
+        for(int row = 0 ; row < passH ; row++) {
+            if(pos + stride + 1 > raw.length) {
+                throw new IOException("Truncated PNG data");
+            }
+            int filter = raw[pos] & 0xff;
+            System.arraycopy(raw, pos + 1, line, 0, stride);
+            pos += stride + 1;
+            unfilter(filter, line, prev, bpp);
+            int y = startY + row * dy;
+            for(int col = 0 ; col < passW ; col++) {
+                rgb[y * width + startX + col * dx] = pixel(line, col, bitsPerPixel);
+            }
+            byte[] t = prev;
+            prev = line;
+            line = t;
+        }
+        return pos;
+    }
+
+    private static void unfilter(int filter, byte[] line, byte[] prev, int bpp) throws IOException {
+        int len = line.length;
+        switch(filter) {
+            case 0:
+                break;
+            case 1:
+                for(int iter = bpp ; iter < len ; iter++) {
+                    line[iter] += line[iter - bpp];
+                }
+                break;
+            case 2:
+                for(int iter = 0 ; iter < len ; iter++) {
+                    line[iter] += prev[iter];
+                }
+                break;
+            case 3:
+                for(int iter = 0 ; iter < len ; iter++) {
+                    int left = iter >= bpp ? line[iter - bpp] & 0xff : 0;
+                    line[iter] += (byte)((left + (prev[iter] & 0xff)) >> 1);
+                }
+                break;
+            case 4:
+                for(int iter = 0 ; iter < len ; iter++) {
+                    int a = iter >= bpp ? line[iter - bpp] & 0xff : 0;
+                    int b = prev[iter] & 0xff;
+                    int c = iter >= bpp ? prev[iter - bpp] & 0xff : 0;
+                    int p = a + b - c;
+                    int pa = Math.abs(p - a);
+                    int pb = Math.abs(p - b);
+                    int pc = Math.abs(p - c);
+                    int predictor;
+                    if(pa <= pb && pa <= pc) {
+                        predictor = a;
+                    } else if(pb <= pc) {
+                        predictor = b;
+                    } else {
+                        predictor = c;
+                    }
+                    line[iter] += (byte)predictor;
+                }
+                break;
+            default:
+                throw new IOException("Illegal PNG filter " + filter);
+        }
+    }
+
+    /**
+     * Returns the sample at the given index of a scanline, 16 bit samples are
+     * reduced to their most significant byte and smaller samples are scaled to 8 bit
+     * (palette indices are returned as is)
+     */
+    private int sample(byte[] line, int index) {
+        switch(bitDepth) {
+            case 8:
+                return line[index] & 0xff;
+            case 16:
+                return line[index * 2] & 0xff;
+            default:
+                int bitPos = index * bitDepth;
+                int b = line[bitPos >> 3] & 0xff;
+                int value = (b >> (8 - bitDepth - (bitPos & 7))) & ((1 << bitDepth) - 1);
+                if(colorType == 3) {
+                    return value;
+                }
+                return value * 255 / ((1 << bitDepth) - 1);
+        }
+    }
+
+    private int pixel(byte[] line, int col, int bitsPerPixel) {
+        switch(colorType) {
+            case 0: {
+                int g = sample(line, col);
+                if(transparentGray > -1 && isTransparentGray(line, col)) {
+                    return 0;
+                }
+                return 0xff000000 | (g << 16) | (g << 8) | g;
+            }
+            case 2: {
+                int c = (sample(line, col * 3) << 16) | (sample(line, col * 3 + 1) << 8) | sample(line, col * 3 + 2);
+                if(c == transparentRGB) {
+                    return c;
+                }
+                return 0xff000000 | c;
+            }
+            case 3: {
+                int index = sample(line, col);
+                if(index < palette.length) {
+                    return palette[index];
+                }
+                return 0;
+            }
+            case 4: {
+                int g = sample(line, col * 2);
+                return (sample(line, col * 2 + 1) << 24) | (g << 16) | (g << 8) | g;
+            }
+            default:
+                return (sample(line, col * 4 + 3) << 24) | (sample(line, col * 4) << 16) |
+                        (sample(line, col * 4 + 1) << 8) | sample(line, col * 4 + 2);
+        }
+    }
+
+    private boolean isTransparentGray(byte[] line, int col) {
+        if(bitDepth == 16) {
+            return (((line[col * 2] & 0xff) << 8) | (line[col * 2 + 1] & 0xff)) == transparentGray;
+        }
+        if(bitDepth == 8) {
+            return (line[col] & 0xff) == transparentGray;
+        }
+        int bitPos = col * bitDepth;
+        int b = line[bitPos >> 3] & 0xff;
+        return ((b >> (8 - bitDepth - (bitPos & 7))) & ((1 << bitDepth) - 1)) == transparentGray;
+    }
+
+    private static int readInt(byte[] data, int pos) {
+        return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16) |
+                ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+    }
+
+    /**
+     * Minimal deflate (RFC 1951) decoder
+     */
+    static class Inflater {
+        private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13, 15, 17, 19, 23, 27, 31,
+            35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195, 227, 258};
+        private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1, 1, 2, 2, 2, 2,
+            3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+        private static final int[] DIST_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17, 25, 33, 49, 65, 97, 129, 193,
+            257, 385, 513, 769, 1025, 1537, 2049, 3073, 4097, 6145, 8193, 12289, 16385, 24577};
+        private static final int[] DIST_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3, 4, 4, 5, 5, 6, 6,
+            7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+        private static final int[] CODE_LENGTH_ORDER = {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+        private byte[] in;
+        private int pos;
+        private int end;
+        private int bitBuffer;
+        private int bitCount;
+        private byte[] out = new byte[4096];
+        private int outLength;
+
+        Inflater(byte[] in, int offset, int length) {
+            this.in = in;
+            this.pos = offset;
+            this.end = offset + length;
+        }
+
+        byte[] inflate() throws IOException {
+            boolean last = false;
+            while(!last) {
+                last = bits(1) == 1;
+                int type = bits(2);
+                switch(type) {
+                    case 0:
+                        stored();
+                        break;
+                    case 1:
+                        huffman(fixedLiteralTable(), fixedDistanceTable());
+                        break;
+                    case 2:
+                        dynamic();
+                        break;
+                    default:
+                        throw new IOException("Illegal deflate block");
+                }
+            }
+            byte[] result = new byte[outLength];
+            System.arraycopy(out, 0, result, 0, outLength);
+            return result;
+        }
+
+        private int bits(int count) throws IOException {
+            while(bitCount < count) {
+                if(pos >= end) {
+                    throw new IOException("Truncated deflate stream");
+                }
+                bitBuffer |= (in[pos] & 0xff) << bitCount;
+                pos++;
+                bitCount += 8;
+            }
+            int value = bitBuffer & ((1 << count) - 1);
+            bitBuffer >>>= count;
+            bitCount -= count;
+            return value;
+        }
+
+        private void ensure(int extra) {
+            if(outLength + extra > out.length) {
+                byte[] b = new byte[Math.max(out.length * 2, outLength + extra)];
+                System.arraycopy(out, 0, b, 0, outLength);
+                out = b;
+            }
+        }
+
+        private void stored() throws IOException {
+            bitBuffer = 0;
+            bitCount = 0;
+            if(pos + 4 > end) {
+                throw new IOException("Truncated deflate stream");
+            }
+            int len = (in[pos] & 0xff) | ((in[pos + 1] & 0xff) << 8);
+            pos += 4;
+            if(pos + len > end) {
+                throw new IOException("Truncated deflate stream");
+            }
+            ensure(len);
+            System.arraycopy(in, pos, out, outLength, len);
+            outLength += len;
+            pos += len;
+        }
+
+        /**
+         * Builds a canonical huffman decoding table, the table is indexed by code length
+         * and holds the count of codes per length followed by the symbols sorted by code
+         */
+        private static int[][] buildTable(int[] lengths, int count) {
+            int[] counts = new int[16];
+            for(int iter = 0 ; iter < count ; iter++) {
+                counts[lengths[iter]]++;
+            }
+            counts[0] = 0;
+            int[] offsets = new int[16];
+            for(int iter = 1 ; iter < 16 ; iter++) {
+                offsets[iter] = offsets[iter - 1] + counts[iter - 1];
+            }
+            int[] symbols = new int[count];
+            for(int iter = 0 ; iter < count ; iter++) {
+                if(lengths[iter] != 0) {
+                    symbols[offsets[lengths[iter]]] = iter;
+                    offsets[lengths[iter]]++;
+                }
+            }
+            return new int[][] {counts, symbols};
+        }
+
+        private int decodeSymbol(int[][] table) throws IOException {
+            int[] counts = table[0];
+            int code = 0;
+            int first = 0;
+            int index = 0;
+            for(int len = 1 ; len < 16 ; len++) {
+                code |= bits(1);
+                int count = counts[len];
+                if(code - count < first) {
+                    return table[1][index + (code - first)];
+                }
+                index += count;
+                first += count;
+                first <<= 1;
+                code <<= 1;
+            }
+            throw new IOException("Illegal huffman code");
+        }
+
+        private static int[][] fixedLiteralTable() {
+            int[] lengths = new int[288];
+            for(int iter = 0 ; iter < 288 ; iter++) {
+                if(iter < 144) {
+                    lengths[iter] = 8;
+                } else if(iter < 256) {
+                    lengths[iter] = 9;
+                } else if(iter < 280) {
+                    lengths[iter] = 7;
+                } else {
+                    lengths[iter] = 8;
+                }
+            }
+            return buildTable(lengths, 288);
+        }
+
+        private static int[][] fixedDistanceTable() {
+            int[] lengths = new int[30];
+            for(int iter = 0 ; iter < 30 ; iter++) {
+                lengths[iter] = 5;
+            }
+            return buildTable(lengths, 30);
+        }
+
+        private void dynamic() throws IOException {
+            int literals = bits(5) + 257;
+            int distances = bits(5) + 1;
+            int codeLengths = bits(4) + 4;
+            int[] lengths = new int[19];
+            for(int iter = 0 ; iter < codeLengths ; iter++) {
+                lengths[CODE_LENGTH_ORDER[iter]] = bits(3);
+            }
+            int[][] lengthTable = buildTable(lengths, 19);
+            lengths = new int[literals + distances];
+            int index = 0;
+            while(index < literals + distances) {
+                int symbol = decodeSymbol(lengthTable);
+                if(symbol < 16) {
+                    lengths[index] = symbol;
+                    index++;
+                    continue;
+                }
+                int repeat;
+                int value = 0;
+                if(symbol == 16) {
+                    if(index == 0) {
+                        throw new IOException("Illegal deflate code lengths");
+                    }
+                    value = lengths[index - 1];
+                    repeat = 3 + bits(2);
+                } else if(symbol == 17) {
+                    repeat = 3 + bits(3);
+                } else {
+                    repeat = 11 + bits(7);
+                }
+                if(index + repeat > lengths.length) {
+                    throw new IOException("Illegal deflate code lengths");
+                }
+                while(repeat > 0) {
+                    lengths[index] = value;
+                    index++;
+                    repeat--;
+                }
+            }
+            int[] literalLengths = new int[literals];
+            int[] distanceLengths = new int[distances];
+            System.arraycopy(lengths, 0, literalLengths, 0, literals);
+            System.arraycopy(lengths, literals, distanceLengths, 0, distances);
+            huffman(buildTable(literalLengths, literals), buildTable(distanceLengths, distances));
+        }
+
+        private void huffman(int[][] literalTable, int[][] distanceTable) throws IOException {
+            while(true) {
+                int symbol = decodeSymbol(literalTable);
+                if(symbol < 256) {
+                    ensure(1);
+                    out[outLength] = (byte)symbol;
+                    outLength++;
+                    continue;
+                }
+                if(symbol == 256) {
+                    return;
+                }
+                symbol -= 257;
+                if(symbol >= LENGTH_BASE.length) {
+                    throw new IOException("Illegal deflate length");
+                }
+                int length = LENGTH_BASE[symbol] + bits(LENGTH_EXTRA[symbol]);
+                int distSymbol = decodeSymbol(distanceTable);
+                if(distSymbol >= DIST_BASE.length) {
+                    throw new IOException("Illegal deflate distance");
+                }
+                int distance = DIST_BASE[distSymbol] + bits(DIST_EXTRA[distSymbol]);
+                if(distance > outLength) {
+                    throw new IOException("Illegal deflate distance");
+                }
+                ensure(length);
+                int from = outLength - distance;
+                for(int iter = 0 ; iter < length ; iter++) {
+                    out[outLength] = out[from + iter];
+                    outLength++;
+                }
+            }
+        }
+    }
+}
@@ -638,6 +638,19 @@ public class GameCanvasImplementation extends LWUITImplementation {
 
     }
 
+    /**
+     * @inheritDoc
+     */
+    protected int getMaxDirtyRegions() {
+        // with the flush graphics bug every region flushes the whole screen so
+        // the dirty regions are merged into a single bounding box
+        Form current = getCurrentForm();
+        if (flushGraphicsBug && (current == null || !current.hasMedia())) {
+            return 1;
+        }
+        return super.getMaxDirtyRegions();
+    }
+
     /**
      * @inheritDoc
      */
@@ -450,6 +450,13 @@ public class BorderLayout extends Layout {
         return (String)landscapeSwap.get(portraitPosition);
     }
 
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+
     /**
      * @inheritDoc
      */
@@ -166,6 +166,13 @@ public class BoxLayout extends Layout{
         return "BoxLayout Y";
     }
 
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+
     /**
      * @inheritDoc
      */
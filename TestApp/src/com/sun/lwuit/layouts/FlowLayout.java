@@ -326,6 +326,13 @@ public class FlowLayout extends Layout{
         this.orientation = orientation;
     }
 
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+
     /**
      * @inheritDoc
      */
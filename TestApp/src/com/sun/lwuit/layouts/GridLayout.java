@@ -189,6 +189,13 @@ public class GridLayout extends Layout{
         return columns;
     }
 
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+
     /**
      * @inheritDoc
      */
@@ -762,6 +762,7 @@ public class GroupLayout extends Layout {
     }
     
     private void invalidateHost() {
+        isValid = false;
         host.invalidate();
         host.repaint();
     }
@@ -844,9 +845,15 @@ public class GroupLayout extends Layout {
             calculateAutopadding(verticalGroup, VERTICAL, SPECIFIC_SIZE, 0,
                     height);
         }
-        // Step 3: set the size of the groups.
-        horizontalGroup.setSize(HORIZONTAL, 0, width);
-        verticalGroup.setSize(VERTICAL, 0, height);
+        // Step 3: set the size of the groups. The size of a group is unset
+        // when any spring within it changed, otherwise the sizes resolved by
+        // the previous layout of that axis still apply.
+        if (horizontalGroup.getSize() != width) {
+            horizontalGroup.setSize(HORIZONTAL, 0, width);
+        }
+        if (verticalGroup.getSize() != height) {
+            verticalGroup.setSize(VERTICAL, 0, height);
+        }
         
         // Step 4: apply the size to the components.
         Enumeration componentInfo = componentInfos.elements();
@@ -857,6 +864,13 @@ public class GroupLayout extends Layout {
         }
     }
     
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+    
     /**
      * Returns the maximum size for the specified container.
      *
@@ -929,6 +943,22 @@ public class GroupLayout extends Layout {
     
     private void prepare(int sizeType) {
         boolean visChanged = false;
+        // Step 0: If valid, only clear the springs of the components whose
+        // preferred size changed and of the groups containing them. Changes
+        // to the springs, to the visibility or to linked sizes invalidate
+        // all the springs.
+        if (isValid && !springsChanged) {
+            for (Enumeration cis = componentInfos.elements();
+                     cis.hasMoreElements();) {
+                ComponentInfo ci = (ComponentInfo)cis.nextElement();
+                if (!ci.updateSprings()) {
+                    isValid = false;
+                    break;
+                }
+            }
+        } else {
+            isValid = false;
+        }
         // Step 1: If not-valid, clear springs and update visibility.
         if (!isValid) {
             isValid = true;
@@ -941,6 +971,7 @@ public class GroupLayout extends Layout {
                     visChanged = true;
                 }
                 ci.clearCachedSize();
+                ci.updatePreferredSize();
             }
         }
         // Step 2: Make sure components are bound to ComponentInfos
@@ -2821,6 +2852,20 @@ public class GroupLayout extends Layout {
             }
             return baseline;
         }
+
+        /**
+         * Returns true if a baseline was calculated and the baseline of the
+         * component changed since, e.g. due to a style change that didn't
+         * affect the preferred size.
+         */
+        boolean isBaselineChanged() {
+            if (baseline == -1) {
+                return false;
+            }
+            int cached = baseline;
+            baseline = -1;
+            return getBaseline() != cached;
+        }
         
         int getBaselineResizeBehavior() {
             return getComponent().getBaselineResizeBehavior();
@@ -3318,6 +3363,10 @@ public class GroupLayout extends Layout {
 
         private boolean visible;
         private Boolean honorsVisibility;
+
+        // Preferred size of the component the springs were calculated from
+        private int preferredWidth = UNSET;
+        private int preferredHeight = UNSET;
         
         ComponentInfo(Component component) {
             this.component = component;
@@ -3359,19 +3408,72 @@ public class GroupLayout extends Layout {
          * @return true if the visibility changed
          */
         boolean updateVisibility() {
+            boolean newVisible = isComponentVisible();
+            if (visible != newVisible) {
+                visible = newVisible;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean isComponentVisible() {
             boolean honorsVisibility;
             if (this.honorsVisibility == null) {
                 honorsVisibility = GroupLayout.this.getHonorsVisibility();
             } else {
                 honorsVisibility = this.honorsVisibility.booleanValue();
             }
-            boolean newVisible = (honorsVisibility) ?
-                component.isVisible() : true;
-            if (visible != newVisible) {
-                visible = newVisible;
-                return true;
+            return (honorsVisibility) ? component.isVisible() : true;
+        }
+
+        /**
+         * Updates the cached preferred size of the component.
+         */
+        void updatePreferredSize() {
+            Dimension d = component.getPreferredSize();
+            preferredWidth = d.getWidth();
+            preferredHeight = d.getHeight();
+        }
+
+        /**
+         * Clears the springs of the component, and of the groups containing
+         * them, if the preferred size of the component changed since they
+         * were calculated. A change in width clears the vertical spring too
+         * as the baseline of the component depends on its width, a change
+         * in the baseline alone clears the vertical spring.
+         *
+         * @return false if the springs can't be cleared individually since
+         *         the visibility changed or the size is linked to other
+         *         components
+         */
+        boolean updateSprings() {
+            if (visible != isComponentVisible()) {
+                return false;
+            }
+            int width = preferredWidth;
+            int height = preferredHeight;
+            updatePreferredSize();
+            if (width != preferredWidth) {
+                if (isLinked(HORIZONTAL) || isLinked(VERTICAL)) {
+                    return false;
+                }
+                unsetSpring(horizontalSpring, HORIZONTAL);
+                unsetSpring(verticalSpring, VERTICAL);
+            } else if (height != preferredHeight ||
+                    verticalSpring.isBaselineChanged()) {
+                if (isLinked(VERTICAL)) {
+                    return false;
+                }
+                unsetSpring(verticalSpring, VERTICAL);
+            }
+            return true;
+        }
+
+        private void unsetSpring(ComponentSpring spring, int axis) {
+            spring.setSize(axis, spring.getOrigin(), UNSET);
+            for (Spring s = spring.getParent(); s != null; s = s.getParent()) {
+                s.unset();
             }
-            return false;
         }
         
         public void setBounds(int insetX, int insetY, int parentWidth, boolean ltr) {
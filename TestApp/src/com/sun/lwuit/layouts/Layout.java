@@ -94,6 +94,19 @@ public abstract class Layout {
         return false;
     }
 
+    /**
+     * This method returns true if the arrangement produced by the Layout depends
+     * only on the size, padding and orientation of the container and on the
+     * preferred size, margin, visibility and bounds of its children. A container
+     * skips such a layout when none of these changed since it last ran unless it
+     * was explicitly invalidated.
+     *
+     * @return true if the layout may be skipped when its inputs didn't change
+     */
+    public boolean isIncrementalLayoutSupported(){
+        return false;
+    }
+
     /**
      * @inheritDoc
      */
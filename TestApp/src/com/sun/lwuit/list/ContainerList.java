@@ -28,13 +28,18 @@ import java.util.Vector;
 import com.sun.lwuit.Component;
 import com.sun.lwuit.Container;
 import com.sun.lwuit.Display;
+import com.sun.lwuit.Form;
 import com.sun.lwuit.Graphics;
 import com.sun.lwuit.events.ActionEvent;
 import com.sun.lwuit.events.ActionListener;
 import com.sun.lwuit.events.DataChangedListener;
 import com.sun.lwuit.events.SelectionListener;
 import com.sun.lwuit.geom.Dimension;
+import com.sun.lwuit.impl.RowHeightIndex;
+import com.sun.lwuit.layouts.BoxLayout;
+import com.sun.lwuit.layouts.GridLayout;
 import com.sun.lwuit.layouts.Layout;
+import com.sun.lwuit.plaf.Style;
 import com.sun.lwuit.util.EventDispatcher;
 
 /**
@@ -47,6 +52,12 @@ import com.sun.lwuit.util.EventDispatcher;
  * actual state other than layout information. The big advantage with this class is
  * the ability to leverage elaborate LWUIT layouts such as Grid, Table &amp; flow layout
  * to provide other ways of rendering the content of a list model.
+ * <p>When the container list scrolls on the Y axis and uses a {@link BoxLayout} on
+ * the Y axis or a {@link GridLayout} with a fixed number of columns and more than one
+ * row it only creates entries for the rows within the viewport (plus a couple of rows
+ * beyond its edges) and recycles them as the list scrolls. Rows that were never shown
+ * are assumed to be as tall as the average row shown so far which is used to estimate
+ * the scroll height. Other layouts get one entry per model item.
  *
  * @author Shai Almog
  */
@@ -56,6 +67,44 @@ public class ContainerList extends Container {
     private Listeners listener;
     private EventDispatcher dispatcher = new EventDispatcher();
 
+    /**
+     * Number of rows bound beyond each edge of the viewport so focus traversal always
+     * finds the next row
+     */
+    private static final int OVERSCAN_ROWS = 2;
+
+    /**
+     * Indicates the entries are a pool recycled for the visible rows rather than one
+     * entry per model item
+     */
+    private boolean virtual;
+
+    /**
+     * Measured row heights (including the entry margins) for a box layout
+     */
+    private RowHeightIndex rowHeights;
+    private int measuredRows;
+    private int measuredTotal;
+
+    /**
+     * The tallest and widest entry measured so far including margins
+     */
+    private int cellHeight;
+    private int cellWidth;
+
+    /**
+     * The row height used by the grid layout which might exceed the cell height when
+     * the grid is stretched
+     */
+    private int gridRowHeight;
+
+    /**
+     * The item range and selection the entries were bound to
+     */
+    private int boundFirst = -1;
+    private int boundLast = -1;
+    private int boundSelection = -1;
+
     /**
      * Default constructor
      */
@@ -73,9 +122,9 @@ public class ContainerList extends Container {
     }
 
     private void init(ListModel m) {
-        setModel(m);
         setUIID("ContainerList");
         setScrollableY(true);
+        setModel(m);
     }
 
     /**
@@ -96,6 +145,9 @@ public class ContainerList extends Container {
      */
     public void setRenderer(CellRenderer r) {
         renderer = r;
+        if(virtual) {
+            resetRows();
+        }
         repaint();
     }
 
@@ -106,6 +158,477 @@ public class ContainerList extends Container {
         return renderer;
     }
 
+    /**
+     * @inheritDoc
+     */
+    public void setLayout(Layout layout) {
+        super.setLayout(layout);
+        if(model != null) {
+            updateEntryMode();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setScrollableY(boolean scrollableY) {
+        super.setScrollableY(scrollableY);
+        if(model != null) {
+            updateEntryMode();
+        }
+    }
+
+    /**
+     * Indicates whether the current layout allows recycling entries for the visible rows
+     */
+    private boolean isVirtualLayout() {
+        if(!isScrollableY()) {
+            return false;
+        }
+        Layout l = getLayout();
+        if(l instanceof BoxLayout) {
+            return ((BoxLayout)l).getAxis() == BoxLayout.Y_AXIS;
+        }
+        if(l instanceof GridLayout) {
+            // a grid with a single row doesn't grow with its components
+            GridLayout g = (GridLayout)l;
+            return !g.isAutoFit() && g.getRows() > 1;
+        }
+        return false;
+    }
+
+    /**
+     * Switches between recycled entries and an entry per item when the layout changes
+     */
+    private void updateEntryMode() {
+        boolean v = isVirtualLayout();
+        if(v != virtual) {
+            virtual = v;
+            removeAll();
+            if(virtual) {
+                resetRows();
+                bindEntries();
+            } else {
+                updateComponentCount();
+            }
+        }
+    }
+
+    /**
+     * Discards all the measured rows and entry bindings
+     */
+    private void resetRows() {
+        rowHeights = new RowHeightIndex(getRowCount());
+        measuredRows = 0;
+        measuredTotal = 0;
+        cellHeight = 0;
+        cellWidth = 0;
+        boundFirst = -1;
+        setShouldCalcPreferredSize(true);
+    }
+
+    /**
+     * Updates the measured rows of a box layout to match a change in the model
+     */
+    private void updateRows(int status, int index) {
+        if(getLayout() instanceof GridLayout) {
+            boundFirst = -1;
+            setShouldCalcPreferredSize(true);
+            return;
+        }
+        int size = model.getSize();
+        int rows = rowHeights.size();
+        if(status == DataChangedListener.ADDED && rows + 1 == size) {
+            rowHeights.insert(Math.max(0, Math.min(index, rows)));
+        } else if(status == DataChangedListener.REMOVED && rows - 1 == size) {
+            index = Math.max(0, Math.min(index, rows - 1));
+            forgetRow(index);
+            rowHeights.remove(index);
+        } else if(status == DataChangedListener.CHANGED && rows == size && index > -1 && index < rows) {
+            forgetRow(index);
+            rowHeights.invalidate(index);
+        } else {
+            resetRows();
+            return;
+        }
+        boundFirst = -1;
+        setShouldCalcPreferredSize(true);
+    }
+
+    private void forgetRow(int row) {
+        int h = rowHeights.getHeight(row);
+        if(h > -1) {
+            measuredRows--;
+            measuredTotal -= h;
+        }
+    }
+
+    private int getColumns() {
+        Layout l = getLayout();
+        if(l instanceof GridLayout) {
+            return Math.max(1, ((GridLayout)l).getColumns());
+        }
+        return 1;
+    }
+
+    private int getRowCount() {
+        int columns = getColumns();
+        int rows = (model.getSize() + columns - 1) / columns;
+        Layout l = getLayout();
+        if(l instanceof GridLayout) {
+            rows = Math.max(rows, ((GridLayout)l).getRows());
+        }
+        return rows;
+    }
+
+    /**
+     * The height assumed for rows that weren't measured yet
+     */
+    private int getEstimatedRowHeight() {
+        if(measuredRows == 0) {
+            return Math.max(1, cellHeight);
+        }
+        return Math.max(1, measuredTotal / measuredRows);
+    }
+
+    private int getRowOffset(int row) {
+        if(getLayout() instanceof GridLayout) {
+            return row * gridRowHeight;
+        }
+        return rowHeights.getOffset(row, getEstimatedRowHeight(), 0);
+    }
+
+    private int getRowAt(int y) {
+        int row;
+        if(getLayout() instanceof GridLayout) {
+            row = y / Math.max(1, gridRowHeight);
+        } else {
+            row = rowHeights.find(y, getEstimatedRowHeight(), 0);
+        }
+        return Math.max(0, Math.min(row, getRowCount() - 1));
+    }
+
+    private int getContentHeight() {
+        if(getLayout() instanceof GridLayout) {
+            return getRowCount() * cellHeight;
+        }
+        return rowHeights.getTotal(getEstimatedRowHeight(), 0);
+    }
+
+    /**
+     * Measures the entry with the renderer and records the size of its row, returns
+     * true if the scroll height changed as a result
+     */
+    private boolean measure(Entry e) {
+        Dimension d = e.calcPreferredSize();
+        Style s = e.getStyle();
+        int h = d.getHeight() + s.getMargin(false, TOP) + s.getMargin(false, BOTTOM);
+        int w = d.getWidth() + s.getMargin(false, LEFT) + s.getMargin(false, RIGHT);
+        boolean changed = w > cellWidth;
+        cellWidth = Math.max(cellWidth, w);
+        if(getLayout() instanceof GridLayout) {
+            if(h > cellHeight) {
+                cellHeight = h;
+                changed = true;
+            }
+        } else {
+            int row = e.offset;
+            if(rowHeights.getHeight(row) != h) {
+                forgetRow(row);
+                measuredRows++;
+                measuredTotal += h;
+                rowHeights.setHeight(row, h);
+                changed = true;
+            }
+            cellHeight = Math.max(cellHeight, h);
+        }
+        return changed;
+    }
+
+    /**
+     * Measures a first entry if nothing was measured yet, this is needed to estimate
+     * how many rows fit in the viewport
+     */
+    private void ensureMeasured() {
+        if(measuredRows == 0 && cellHeight == 0 && model.getSize() > 0) {
+            Entry e;
+            if(getComponentCount() == 0) {
+                e = new Entry(0);
+                addComponent(e);
+            } else {
+                e = (Entry)getComponentAt(0);
+            }
+            measure(e);
+        }
+    }
+
+    /**
+     * Binds the recycled entries to the rows within the viewport and the selected item,
+     * measures the rows that weren't measured and positions the entries
+     */
+    private void bindEntries() {
+        int size = model.getSize();
+        if(size == 0) {
+            if(getComponentCount() > 0) {
+                removeAll();
+            }
+            boundFirst = -1;
+            return;
+        }
+        ensureMeasured();
+        Style s = getStyle();
+        int padTop = s.getPadding(false, TOP);
+        int columns = getColumns();
+        int rows = getRowCount();
+        if(getLayout() instanceof GridLayout) {
+            int height = getLayoutHeight() - getBottomGap() - padTop - s.getPadding(false, BOTTOM);
+            gridRowHeight = Math.max(cellHeight, height / Math.max(1, rows));
+        }
+        boolean changed = false;
+        for(int pass = 0 ; pass < 3 ; pass++) {
+            int top = Math.max(0, getScrollY() - padTop);
+            int firstRow = Math.max(0, getRowAt(top) - OVERSCAN_ROWS);
+            int lastRow = Math.min(rows - 1, getRowAt(top + getHeight()) + OVERSCAN_ROWS);
+            int first = firstRow * columns;
+            int last = Math.min(size - 1, lastRow * columns + columns - 1);
+            int selected = model.getSelectedIndex();
+            if(selected >= size) {
+                selected = -1;
+            }
+            if(first == boundFirst && last == boundLast && selected == boundSelection) {
+                break;
+            }
+            boundFirst = first;
+            boundLast = last;
+            boundSelection = selected;
+            if(bindRange(first, last, selected)) {
+                changed = true;
+            } else {
+                break;
+            }
+        }
+        if(changed) {
+            setShouldCalcPreferredSize(true);
+        }
+        positionEntries();
+    }
+
+    /**
+     * Rebinds the entries to the given item range, the selected item and the first and
+     * last items reusing the entries whose item remains bound. The first and last items
+     * are always bound so focus traversal can cycle and find the first entry. Returns
+     * true if a newly bound row changed the scroll height
+     */
+    private boolean bindRange(int first, int last, int selected) {
+        Form f = getComponentForm();
+        if(f != null && selected > -1) {
+            Component focused = f.getFocused();
+            if(focused instanceof Entry && focused.getParent() == this) {
+                // the focused entry always represents the selection
+                ((Entry)focused).offset = selected;
+            }
+        }
+        int count = last - first + 1;
+        Entry[] window = new Entry[count];
+        int[] pinned = new int[] {selected, 0, model.getSize() - 1};
+        Entry[] pinnedEntries = new Entry[pinned.length];
+        Vector free = null;
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Entry e = (Entry)getComponentAt(iter);
+            int off = e.offset;
+            if(off >= first && off <= last && window[off - first] == null) {
+                window[off - first] = e;
+                continue;
+            }
+            boolean kept = false;
+            for(int p = 0 ; p < pinned.length ; p++) {
+                // the same item might be pinned more than once
+                if(off == pinned[p] && pinnedEntries[p] == null) {
+                    pinnedEntries[p] = e;
+                    kept = true;
+                }
+            }
+            if(!kept) {
+                if(free == null) {
+                    free = new Vector();
+                }
+                free.addElement(e);
+            }
+        }
+        boolean changed = false;
+        for(int iter = 0 ; iter < count ; iter++) {
+            if(window[iter] == null) {
+                window[iter] = obtainEntry(free, first + iter);
+                if(measureIfNeeded(window[iter])) {
+                    changed = true;
+                }
+            }
+        }
+        for(int p = 0 ; p < pinned.length ; p++) {
+            int off = pinned[p];
+            if(off > -1 && (off < first || off > last) && pinnedEntries[p] == null) {
+                pinnedEntries[p] = obtainEntry(free, off);
+                // the same item might be pinned more than once
+                for(int other = p + 1 ; other < pinned.length ; other++) {
+                    if(pinned[other] == off) {
+                        pinnedEntries[other] = pinnedEntries[p];
+                    }
+                }
+                if(measureIfNeeded(pinnedEntries[p])) {
+                    changed = true;
+                }
+            }
+        }
+        if(free != null) {
+            for(int iter = 0 ; iter < free.size() ; iter++) {
+                removeComponent((Component)free.elementAt(iter));
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Returns the entry bound to the given item or null if the item isn't bound
+     */
+    private Entry getEntry(int offset) {
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Entry e = (Entry)getComponentAt(iter);
+            if(e.offset == offset) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private Entry obtainEntry(Vector free, int offset) {
+        Entry e;
+        if(free != null && free.size() > 0) {
+            e = (Entry)free.elementAt(free.size() - 1);
+            free.removeElementAt(free.size() - 1);
+            e.offset = offset;
+        } else {
+            e = new Entry(offset);
+            addComponent(e);
+        }
+        return e;
+    }
+
+    private boolean measureIfNeeded(Entry e) {
+        if(getLayout() instanceof GridLayout || rowHeights.getHeight(e.offset) < 0) {
+            return measure(e);
+        }
+        return false;
+    }
+
+    /**
+     * Places the bound entries at the position of their rows
+     */
+    private void positionEntries() {
+        Style s = getStyle();
+        boolean rtl = isRTL();
+        int width = getLayoutWidth() - getSideGap() - s.getPadding(false, RIGHT) - s.getPadding(false, LEFT);
+        int x = s.getPadding(rtl, LEFT);
+        if(rtl) {
+            x += getSideGap();
+        }
+        int y = s.getPadding(false, TOP);
+        boolean grid = getLayout() instanceof GridLayout;
+        int columns = getColumns();
+        int cellW = width / columns;
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Entry e = (Entry)getComponentAt(iter);
+            Style es = e.getStyle();
+            int marginLeft = es.getMargin(rtl, LEFT);
+            int marginRight = es.getMargin(rtl, RIGHT);
+            int marginTop = es.getMargin(false, TOP);
+            int marginBottom = es.getMargin(false, BOTTOM);
+            int row = e.offset / columns;
+            if(grid) {
+                int col = e.offset % columns;
+                if(rtl) {
+                    col = columns - 1 - col;
+                }
+                e.setX(x + col * cellW + marginLeft);
+                e.setWidth(cellW - marginLeft - marginRight);
+                e.setHeight(gridRowHeight - marginTop - marginBottom);
+            } else {
+                int h = rowHeights.getHeight(row);
+                if(h < 0) {
+                    h = getEstimatedRowHeight();
+                }
+                e.setX(x + marginLeft);
+                e.setWidth(width - marginLeft - marginRight);
+                e.setHeight(h - marginTop - marginBottom);
+            }
+            e.setY(y + getRowOffset(row) + marginTop);
+        }
+    }
+
+    /**
+     * Returns the entry bound to the selected item
+     */
+    private Component getSelectedEntry() {
+        int selected = model.getSelectedIndex();
+        if(!virtual) {
+            return getComponentAt(selected);
+        }
+        boundFirst = -1;
+        bindEntries();
+        return getEntry(selected);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Component findFirstFocusable() {
+        if(virtual) {
+            // the entries aren't ordered by their items
+            return getEntry(0);
+        }
+        return super.findFirstFocusable();
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void layoutContainer() {
+        super.layoutContainer();
+        if(virtual) {
+            bindEntries();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    protected void setScrollY(int scrollY) {
+        super.setScrollY(scrollY);
+        if(virtual && isInitialized()) {
+            bindEntries();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    protected Dimension calcPreferredSize() {
+        if(!virtual) {
+            return super.calcPreferredSize();
+        }
+        ensureMeasured();
+        Style style = getStyle();
+        Dimension d = new Dimension(cellWidth * getColumns() + style.getPadding(false, LEFT) + style.getPadding(false, RIGHT),
+                getContentHeight() + style.getPadding(false, TOP) + style.getPadding(false, BOTTOM));
+        if(style.getBorder() != null && d.getWidth() != 0 && d.getHeight() != 0) {
+            d.setWidth(Math.max(style.getBorder().getMinimumWidth(), d.getWidth()));
+            d.setHeight(Math.max(style.getBorder().getMinimumHeight(), d.getHeight()));
+        }
+        return d;
+    }
+
     private void updateComponentCount() {
         int cc = getComponentCount();
         int modelCount = model.getSize();
@@ -165,7 +688,10 @@ public class ContainerList extends Container {
         if(model != null) {
             int i = model.getSelectedIndex();
             if(i > 0) {
-                getComponentAt(i).requestFocus();
+                Component c = getSelectedEntry();
+                if(c != null) {
+                    c.requestFocus();
+                }
             }
         }
     }
@@ -182,9 +708,19 @@ public class ContainerList extends Container {
             listener = null;
         }
         this.model = model;
-        updateComponentCount();
+        virtual = isVirtualLayout();
+        if(virtual) {
+            removeAll();
+            resetRows();
+            bindEntries();
+        } else {
+            updateComponentCount();
+        }
         if(model.getSelectedIndex() > 0) {
-            getComponentAt(model.getSelectedIndex()).requestFocus();
+            Component c = getSelectedEntry();
+            if(c != null) {
+                c.requestFocus();
+            }
         }
         if (isInitialized()) {
             bindListeners();
@@ -272,7 +808,9 @@ public class ContainerList extends Container {
         }
 
         public void initComponent() {
-            offset = getParent().getComponentIndex(this);
+            if(!virtual) {
+                offset = getParent().getComponentIndex(this);
+            }
         }
 
         protected void focusGained() {
@@ -322,11 +860,19 @@ public class ContainerList extends Container {
     private class Listeners implements DataChangedListener, SelectionListener {
 
         public void dataChanged(int status, int index) {
-            updateComponentCount();
+            if(virtual) {
+                updateRows(status, index);
+                repaint();
+            } else {
+                updateComponentCount();
+            }
         }
 
         public void selectionChanged(int oldSelected, int newSelected) {
-            getComponentAt(newSelected).requestFocus();
+            Component c = getSelectedEntry();
+            if(c != null) {
+                c.requestFocus();
+            }
         }
     }
 }
@@ -95,12 +95,28 @@ public class Border {
     Border outerBorder; // A border added outside of this border (Used for CSS outline property, but can also be used for other purposes)
     String borderTitle; // border title, currently supported only for line borders
     private boolean paintOuterBorderFirst;
+    boolean stretchEdges;
+    boolean stretchCenter;
     
     private static final int TITLE_MARGIN = 10;
     private static final int TITLE_SPACE = 5;
 
 
     private static Border empty;
+
+    /**
+     * Translucent rounded backgrounds shared by all rounded borders, created lazily
+     * since the default budget depends on the display size
+     */
+    private static BorderImageCache roundRectCache;
+    private static int roundRectCacheSize = -1;
+
+    /**
+     * Tiled or stretched edges and centers of image borders at the size in which they
+     * were drawn, shared by all image borders and created lazily like the above
+     */
+    private static BorderImageCache imageBorderCache;
+    private static int imageBorderCacheSize = -1;
     
     /**
      * Prevents usage of new operator, use the factory methods in the class or subclass
@@ -714,7 +730,9 @@ public class Border {
                 (arcHeight==b.arcHeight) &&
                 (outline==b.outline) &&
                 (isSame(borderTitle, b.borderTitle)) &&
-                (isSame(outerBorder, b.outerBorder))
+                (isSame(outerBorder, b.outerBorder)) &&
+                (stretchEdges==b.stretchEdges) &&
+                (stretchCenter==b.stretchCenter)
                 );
             if(v && type == TYPE_IMAGE || type == TYPE_IMAGE_HORIZONTAL || type == TYPE_IMAGE_VERTICAL || type == TYPE_IMAGE_SCALED) {
                 for(int iter = 0 ; iter < images.length ; iter++) {
@@ -975,17 +993,31 @@ public class Border {
      * @param c component whose border should be drawn
      */
     public void paintBorderBackground(Graphics g, Component c) {
-        int x = c.getX();
-        int y = c.getY();
-        int width = c.getWidth();
-        int height = c.getHeight();
+        paintBorderBackgroundBounds(g, c.getX(), c.getY(), c.getWidth(), c.getHeight(), c);
+    }
+
+    /**
+     * Has effect when the border demands responsibility for background painting,
+     * paints the background within the given bounds rather than the bounds of the
+     * component (e.g. a single line of a component spanning several lines).
+     * 
+     * @param g graphics context to draw onto
+     * @param c component whose border should be drawn
+     * @param bounds the area to paint in the coordinates of the component bounds
+     */
+    public void paintBorderBackground(Graphics g, Component c, Rectangle bounds) {
+        paintBorderBackgroundBounds(g, bounds.getX(), bounds.getY(), 
+                bounds.getSize().getWidth(), bounds.getSize().getHeight(), c);
+    }
+
+    private void paintBorderBackgroundBounds(Graphics g, int x, int y, int width, int height, Component c) {
         if (outerBorder != null) {
             if (paintOuterBorderFirst) {
-                outerBorder.paintBorderBackground(g, c);
+                outerBorder.paintBorderBackgroundBounds(g, x, y, width, height, c);
                 paintBorderBackground(g, x + thickness, y + thickness, width - thickness * 2, height - thickness * 2, c);
             } else {
                 paintBorderBackground(g, x + thickness, y + thickness, width - thickness * 2, height - thickness * 2, c);
-                outerBorder.paintBorderBackground(g, c);
+                outerBorder.paintBorderBackgroundBounds(g, x, y, width, height, c);
            }
         } else {
             paintBorderBackground(g, x, y, width, height, c);
@@ -1068,6 +1100,14 @@ public class Border {
                             // if its transparent we don't need to do anything, if its
                             // translucent... well....
                             if(s.getBgTransparency() != 0) {
+                                int transparency = s.getBgTransparency() & 0xff;
+                                BorderImageCache cache = getRoundRectCache();
+                                Image cached = cache.get(null, width, height, arcWidth, arcHeight, g.getColor(), transparency);
+                                if(cached != null) {
+                                    g.drawImage(cached, x, y);
+                                    g.setColor(foreground);
+                                    break;
+                                }
                                 Image i = Image.createImage(width, height);
                                 int[] imageRgb;
                                 if(g.getColor() != 0xffffff) {
@@ -1087,7 +1127,7 @@ public class Border {
                                 }
                                 int removeColor = imageRgb[0];
                                 int size = width * height;
-                                int alphaInt = ((s.getBgTransparency() & 0xff) << 24) & 0xff000000;
+                                int alphaInt = (transparency << 24) & 0xff000000;
                                 for(int iter = 0 ; iter < size ; iter++) {
                                     if(removeColor == imageRgb[iter]) {
                                             imageRgb[iter] = 0;
@@ -1097,7 +1137,9 @@ public class Border {
                                         imageRgb[iter] = (imageRgb[iter] & 0xffffff) | alphaInt;
                                     }   
                                 }
-                                g.drawImage(new RGBImage(imageRgb, width, height), x, y);
+                                cached = new RGBImage(imageRgb, width, height);
+                                cache.put(cached, null, width, height, arcWidth, arcHeight, g.getColor(), transparency);
+                                g.drawImage(cached, x, y);
                             } 
                         }
                     }
@@ -1120,13 +1162,7 @@ public class Border {
                 width -= (topLeft.getWidth() + topRight.getWidth());
                 g.clipRect(x, y, width, height);
                 if(center != null){
-                    int centerWidth = center.getWidth();
-                    int centerHeight = center.getHeight();
-                    for(int xCount = x ; xCount < x + width ; xCount += centerWidth) {
-                        for(int yCount = y ; yCount < y + height ; yCount += centerHeight) {
-                            g.drawImage(center, xCount, yCount);
-                        }
-                    }
+                    drawImageArea(g, center, x, y, width, height, stretchCenter);
                 }
                 Image top = images[0];  Image bottom = images[1];
                 Image left = images[2]; Image right = images[3];
@@ -1254,10 +1290,7 @@ public class Border {
                 x += left.getWidth();
                 width -= (left.getWidth() + right.getWidth());
                 g.clipRect(x, y, width, height);
-                int centerWidth = center.getWidth();
-                for(int xCount = x ; xCount < x + width ; xCount += centerWidth) {
-                    g.drawImage(center, xCount, y);
-                }
+                drawImageArea(g, center, x, y, width, center.getHeight(), stretchCenter);
                 g.setClip(clipX, clipY, clipWidth, clipHeight);
                 break;
             }
@@ -1274,10 +1307,7 @@ public class Border {
                 y += top.getHeight();
                 height -= (top.getHeight() + bottom.getHeight());
                 g.clipRect(x, y, width, height);
-                int centerHeight = center.getHeight();
-                for(int yCount = y ; yCount < y + height ; yCount += centerHeight) {
-                    g.drawImage(center, x, yCount);
-                }
+                drawImageArea(g, center, x, y, center.getWidth(), height, stretchCenter);
                 g.setClip(clipX, clipY, clipWidth, clipHeight);
                 break;
             }
@@ -1293,10 +1323,24 @@ public class Border {
      * @param c component whose border should be drawn
      */
     public void paint(Graphics g, Component c) {
-        int x = c.getX();
-        int y = c.getY();
-        int width = c.getWidth();
-        int height = c.getHeight();
+        paintBounds(g, c.getX(), c.getY(), c.getWidth(), c.getHeight(), c);
+    }
+
+    /**
+     * Draws the border for the given component within the given bounds rather than
+     * the bounds of the component (e.g. a single line of a component spanning several
+     * lines).
+     * 
+     * @param g graphics context to draw onto
+     * @param c component whose border should be drawn
+     * @param bounds the area to paint in the coordinates of the component bounds
+     */
+    public void paint(Graphics g, Component c, Rectangle bounds) {
+        paintBounds(g, bounds.getX(), bounds.getY(), 
+                bounds.getSize().getWidth(), bounds.getSize().getHeight(), c);
+    }
+
+    private void paintBounds(Graphics g, int x, int y, int width, int height, Component c) {
          if (outerBorder!=null) {
             if(paintOuterBorderFirst) {
                 outerBorder.paint(g, x, y, width, height, c);
@@ -1616,10 +1660,7 @@ public class Border {
             currentX += left.getWidth();
             int destX = currentX + currentWidth;
             g.clipRect(currentX, y, currentWidth - left.getWidth(), center.getHeight());
-            int centerWidth = center.getWidth();
-            for(; currentX < destX ; currentX += centerWidth) {
-                g.drawImage(center, currentX, y);
-            }
+            drawImageArea(g, center, currentX, y, currentWidth - left.getWidth(), center.getHeight(), stretchEdges);
             if(arrow != null) {
                 imagePosition = Math.max(imagePosition, left.getWidth());
                 imagePosition = Math.min(imagePosition, destX - x - arrow.getWidth() - right.getWidth());
@@ -1634,10 +1675,7 @@ public class Border {
             int currentY = y + top.getHeight();
             int destY = currentY + currentHeight;
             g.clipRect(x, currentY, center.getWidth(), currentHeight - top.getHeight());
-            int centerHeight = center.getHeight();
-            for(; currentY < destY ; currentY += centerHeight) {
-                g.drawImage(center, x, currentY);
-            }
+            drawImageArea(g, center, x, currentY, center.getWidth(), currentHeight - top.getHeight(), stretchEdges);
             if(arrow != null) {
                 imagePosition = Math.max(imagePosition, top.getHeight());
                 imagePosition = Math.min(imagePosition, destY - y - arrow.getHeight() - bottom.getHeight());
@@ -1646,6 +1684,74 @@ public class Border {
         }
     }
 
+    /**
+     * Fills the given area with the tile repeated from its top left corner or stretched
+     * to the size of the area. The filled area is cached at its size so a large border
+     * is drawn with a single image regardless of the size of the tile, if the area is
+     * too large for the cache the tile is drawn repeatedly within the clip.
+     */
+    private void drawImageArea(Graphics g, Image tile, int x, int y, int width, int height, boolean stretch) {
+        if(width <= 0 || height <= 0) {
+            return;
+        }
+        int tileWidth = tile.getWidth();
+        int tileHeight = tile.getHeight();
+        if(tileWidth == width && tileHeight == height) {
+            g.drawImage(tile, x, y);
+            return;
+        }
+        BorderImageCache cache = getImageBorderCache();
+        int mode = 0;
+        if(stretch) {
+            mode = 1;
+        }
+        Image area = cache.get(tile, width, height, mode, 0, 0, 0);
+        if(area == null && cache.fits(width, height)) {
+            if(stretch) {
+                area = tile.scaled(width, height);
+            } else {
+                area = createTiledImage(tile, width, height);
+            }
+            cache.put(area, tile, width, height, mode, 0, 0, 0);
+        }
+        if(area != null) {
+            g.drawImage(area, x, y);
+            return;
+        }
+        if(stretch) {
+            g.drawImage(tile, x, y, width, height);
+            return;
+        }
+        for(int xCount = x ; xCount < x + width ; xCount += tileWidth) {
+            for(int yCount = y ; yCount < y + height ; yCount += tileHeight) {
+                g.drawImage(tile, xCount, yCount);
+            }
+        }
+    }
+
+    /**
+     * Creates an image of the given size from the tile repeated from its top left corner,
+     * the ARGB data is copied as is so translucent tiles remain translucent
+     */
+    private static Image createTiledImage(Image tile, int width, int height) {
+        int tileWidth = tile.getWidth();
+        int tileHeight = tile.getHeight();
+        int[] tileRgb = tile.getRGBCached();
+        int[] rgb = new int[width * height];
+        int rows = Math.min(tileHeight, height);
+        for(int row = 0 ; row < rows ; row++) {
+            int offset = row * width;
+            for(int col = 0 ; col < width ; col += tileWidth) {
+                System.arraycopy(tileRgb, row * tileWidth, rgb, offset + col, Math.min(tileWidth, width - col));
+            }
+        }
+        // the rows below the first tile repeat the rows above them
+        for(int row = rows ; row < height ; row++) {
+            System.arraycopy(rgb, (row - tileHeight) * width, rgb, row * width, width);
+        }
+        return Image.createImage(rgb, width, height);
+    }
+
     private void drawImageBorderLineScale(Graphics g, Image left, Image right, Image center, int x, int y, int width) {
         int currentWidth = width - right.getWidth();
         if(currentWidth > 0) {
@@ -1681,6 +1787,78 @@ public class Border {
         return defaultBorder;
     }
 
+    /**
+     * Sets the maximum number of bytes used to cache the translucent backgrounds of
+     * rounded borders on devices that don't support alpha in graphics. Every distinct
+     * size, arc, color and opacity takes width * height * 4 bytes, backgrounds larger
+     * than the budget are rendered on every paint. Defaults to the size of a single
+     * ARGB screen, 0 disables the cache.
+     *
+     * @param bytes the maximum number of bytes used by the cache
+     */
+    public static void setRoundRectCacheSize(int bytes) {
+        roundRectCacheSize = bytes;
+        if(roundRectCache != null) {
+            roundRectCache.setBudget(bytes);
+        }
+    }
+
+    /**
+     * Returns the maximum number of bytes used to cache the translucent backgrounds of
+     * rounded borders
+     *
+     * @return the maximum number of bytes used by the cache
+     */
+    public static int getRoundRectCacheSize() {
+        return getRoundRectCache().getBudget();
+    }
+
+    private static BorderImageCache getRoundRectCache() {
+        if(roundRectCache == null) {
+            if(roundRectCacheSize < 0) {
+                Display d = Display.getInstance();
+                roundRectCacheSize = d.getDisplayWidth() * d.getDisplayHeight() * 4;
+            }
+            roundRectCache = new BorderImageCache(roundRectCacheSize);
+        }
+        return roundRectCache;
+    }
+
+    /**
+     * Sets the maximum number of bytes used to cache the edges and centers of image borders
+     * at the size in which they are drawn. Every distinct image and size takes
+     * width * height * 4 bytes, pieces larger than the budget are tiled on every paint.
+     * Defaults to the size of two ARGB screens, 0 disables the cache.
+     *
+     * @param bytes the maximum number of bytes used by the cache
+     */
+    public static void setImageBorderCacheSize(int bytes) {
+        imageBorderCacheSize = bytes;
+        if(imageBorderCache != null) {
+            imageBorderCache.setBudget(bytes);
+        }
+    }
+
+    /**
+     * Returns the maximum number of bytes used to cache the edges and centers of image borders
+     *
+     * @return the maximum number of bytes used by the cache
+     */
+    public static int getImageBorderCacheSize() {
+        return getImageBorderCache().getBudget();
+    }
+
+    private static BorderImageCache getImageBorderCache() {
+        if(imageBorderCache == null) {
+            if(imageBorderCacheSize < 0) {
+                Display d = Display.getInstance();
+                imageBorderCacheSize = d.getDisplayWidth() * d.getDisplayHeight() * 8;
+            }
+            imageBorderCache = new BorderImageCache(imageBorderCacheSize);
+        }
+        return imageBorderCache;
+    }
+
     /**
      * This method returns how thick is the border in pixels, notice this doesn't apply to most border types
      * @return the Border thickness
@@ -1713,6 +1891,46 @@ public class Border {
         return paintOuterBorderFirst;
     }
 
+    /**
+     * Indicates whether the top/bottom/left/right images of an image border are stretched
+     * across the matching sides of the border rather than tiled
+     *
+     * @param stretchEdges true to stretch the edge images, false to tile them
+     */
+    public void setStretchEdges(boolean stretchEdges) {
+        this.stretchEdges = stretchEdges;
+    }
+
+    /**
+     * Indicates whether the top/bottom/left/right images of an image border are stretched
+     * across the matching sides of the border rather than tiled
+     *
+     * @return true if the edge images are stretched
+     */
+    public boolean isStretchEdges() {
+        return stretchEdges;
+    }
+
+    /**
+     * Indicates whether the background image of an image border (or the center image of a
+     * horizontal/vertical image border) is stretched to fill the border rather than tiled
+     *
+     * @param stretchCenter true to stretch the center image, false to tile it
+     */
+    public void setStretchCenter(boolean stretchCenter) {
+        this.stretchCenter = stretchCenter;
+    }
+
+    /**
+     * Indicates whether the background image of an image border (or the center image of a
+     * horizontal/vertical image border) is stretched to fill the border rather than tiled
+     *
+     * @return true if the center image is stretched
+     */
+    public boolean isStretchCenter() {
+        return stretchCenter;
+    }
+
     /**
      * This method returns the Compound Borders array.
      * The array size is 4 and the borders arranged as follows :
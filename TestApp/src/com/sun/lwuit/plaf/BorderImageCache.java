@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.plaf;
+
+import com.sun.lwuit.Image;
+import com.sun.lwuit.impl.LRUCache;
+
+/**
+ * Cache of images rendered by borders at a specific size, such as the translucent
+ * background of a rounded border or the tiled edges and center of an image border.
+ * Entries are keyed by the source image (compared by identity, may be null), the size
+ * and up to four values describing the rendering (e.g. arc, color and opacity) but not
+ * by where the image is drawn, so every component of the same size and style shares a
+ * single image and a component that is resized simply stops using the old one.
+ * The least recently used images are discarded once the bytes of their ARGB data
+ * exceed the budget.
+ */
+class BorderImageCache {
+    private LRUCache cache;
+
+    /**
+     * Reused for lookups so a cache hit doesn't allocate
+     */
+    private Entry probe = new Entry();
+
+    /**
+     * Creates a cache
+     *
+     * @param budget the maximum number of bytes in all cached images
+     */
+    public BorderImageCache(int budget) {
+        cache = new LRUCache(budget);
+    }
+
+    /**
+     * Returns a cached image
+     *
+     * @param source the image the cached image was rendered from or null
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param a rendering specific key value
+     * @param b rendering specific key value
+     * @param c rendering specific key value
+     * @param d rendering specific key value
+     * @return the image or null if it isn't cached
+     */
+    public Image get(Object source, int width, int height, int a, int b, int c, int d) {
+        probe.set(source, width, height, a, b, c, d);
+        Entry e = (Entry)cache.get(probe);
+        probe.source = null;
+        if(e == null) {
+            return null;
+        }
+        return e.image;
+    }
+
+    /**
+     * Returns true if an image of the given size fits within the budget and would be cached
+     *
+     * @param width the width of the image
+     * @param height the height of the image
+     * @return true if the image would be cached
+     */
+    public boolean fits(int width, int height) {
+        return cache.fits(width * height * 4);
+    }
+
+    /**
+     * Adds an image to the cache, images larger than the budget aren't cached
+     *
+     * @param image the image
+     * @param source the image the cached image was rendered from or null
+     * @param width the width of the image
+     * @param height the height of the image
+     * @param a rendering specific key value
+     * @param b rendering specific key value
+     * @param c rendering specific key value
+     * @param d rendering specific key value
+     */
+    public void put(Image image, Object source, int width, int height, int a, int b, int c, int d) {
+        if(!fits(width, height)) {
+            return;
+        }
+        Entry e = new Entry();
+        e.set(source, width, height, a, b, c, d);
+        e.image = image;
+        cache.put(e, width * height * 4);
+    }
+
+    /**
+     * Returns the maximum number of bytes in all cached images
+     *
+     * @return the budget in bytes
+     */
+    public int getBudget() {
+        return cache.getBudget();
+    }
+
+    /**
+     * Sets the maximum number of bytes in all cached images discarding images
+     * exceeding the new budget
+     *
+     * @param budget the budget in bytes
+     */
+    public void setBudget(int budget) {
+        cache.setBudget(budget);
+    }
+
+    /**
+     * Returns the number of bytes in all cached images
+     *
+     * @return the number of cached bytes
+     */
+    public int getBytes() {
+        return cache.getWeight();
+    }
+
+    /**
+     * Discards all the cached images
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    static class Entry extends LRUCache.Entry {
+        Object source;
+        int width;
+        int height;
+        int a;
+        int b;
+        int c;
+        int d;
+        Image image;
+
+        void set(Object source, int width, int height, int a, int b, int c, int d) {
+            this.source = source;
+            this.width = width;
+            this.height = height;
+            this.a = a;
+            this.b = b;
+            this.c = c;
+            this.d = d;
+        }
+
+        public int hashCode() {
+            int h = 0;
+            if(source != null) {
+                h = System.identityHashCode(source);
+            }
+            h = 31 * h + width;
+            h = 31 * h + height;
+            h = 31 * h + a;
+            h = 31 * h + b;
+            h = 31 * h + c;
+            return 31 * h + d;
+        }
+
+        public boolean equals(Object o) {
+            Entry e = (Entry)o;
+            return source == e.source && width == e.width && height == e.height &&
+                    a == e.a && b == e.b && c == e.c && d == e.d;
+        }
+    }
+}
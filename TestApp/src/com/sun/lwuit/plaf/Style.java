@@ -338,8 +338,8 @@ public class Style {
     private int bgColor = 0xFFFFFF;
     private Font font = Font.getDefaultFont();
     private Image bgImage;
-    private int[] padding = new int[4];
-    private int[] margin = new int[4];
+    private int[] padding;
+    private int[] margin;
 
     /**
      * Indicates the units used for padding elements, if null pixels are used if not this is a 4 element array containing values
@@ -417,6 +417,13 @@ public class Style {
 
     private EventDispatcher listeners;
 
+    /**
+     * Indicates the padding, margin and gradient arrays might be shared with a style
+     * copied from this style or that this style was copied from, the arrays are
+     * copied before they are modified
+     */
+    private boolean sharedArrays;
+
     Object roundRectCache;
 
     /**
@@ -426,6 +433,8 @@ public class Style {
      * The Default values for each Component can be changed by using the UIManager class
      */
     public Style() {
+        padding = new int[4];
+        margin = new int[4];
         setPadding(3, 3, 3, 3);
         setMargin(2, 2, 2, 2);
         modifiedFlag = 0;
@@ -435,31 +444,49 @@ public class Style {
      * Creates a full copy of the given style. Notice that if the original style was modified 
      * manually (by invoking setters on it) it would not chnage when changing a theme/look and feel,
      * however this newly created style would change in such a case.
+     * <p>The copy shares the padding, margin and gradient values with the original style
+     * until either of them is modified so copying a style is cheap.
      * 
      * @param style the style to copy
      */
     public Style(Style style) {
-        this(style.getFgColor(), style.getBgColor(), 0, 0, style.getFont(), style.getBgTransparency(),
-                style.getBgImage(), true);
-        setPadding(style.padding[Component.TOP],
-                style.padding[Component.BOTTOM],
-                style.padding[Component.LEFT],
-                style.padding[Component.RIGHT]);
-        setMargin(style.margin[Component.TOP],
-                style.margin[Component.BOTTOM],
-                style.margin[Component.LEFT],
-                style.margin[Component.RIGHT]);
-        setPaddingUnit(style.paddingUnit);
-        setMarginUnit(style.marginUnit);
-        setBorder(style.getBorder());
-        modifiedFlag = 0;
+        fgColor = style.fgColor;
+        bgColor = style.bgColor;
+        font = style.font;
+        transparency = style.getBgTransparency();
+        bgImage = style.bgImage;
+        padding = style.padding;
+        margin = style.margin;
+        paddingUnit = style.paddingUnit;
+        marginUnit = style.marginUnit;
+        border = style.border;
         align = style.align;
         backgroundType = style.backgroundType;
         backgroundAlignment = style.backgroundAlignment;
         textDecoration = style.textDecoration;
-        if(style.backgroundGradient != null) {
-            backgroundGradient = new Object[style.backgroundGradient.length];
-            System.arraycopy(style.backgroundGradient, 0, backgroundGradient, 0, backgroundGradient.length);
+        backgroundGradient = style.backgroundGradient;
+        sharedArrays = true;
+        style.sharedArrays = true;
+    }
+
+    /**
+     * Copies the padding, margin and gradient arrays if they might be shared with
+     * another style so they can be modified
+     */
+    private void unshareArrays() {
+        if(sharedArrays) {
+            sharedArrays = false;
+            int[] arr = new int[4];
+            System.arraycopy(padding, 0, arr, 0, 4);
+            padding = arr;
+            arr = new int[4];
+            System.arraycopy(margin, 0, arr, 0, 4);
+            margin = arr;
+            if(backgroundGradient != null) {
+                Object[] g = new Object[backgroundGradient.length];
+                System.arraycopy(backgroundGradient, 0, g, 0, g.length);
+                backgroundGradient = g;
+            }
         }
     }
 
@@ -475,28 +502,6 @@ public class Style {
         this(fgColor, bgColor, f, transparency, null, BACKGROUND_IMAGE_SCALED);
     }
 
-    /**
-     * Creates a new style with the given attributes
-     * 
-     * @param fgColor foreground color
-     * @param bgColor background color
-     * @param fgSelectionColor foreground selection color
-     * @param bgSelectionColor background selection color
-     * @param f font
-     * @param transparency transparency value
-     * @param im background image
-     * @param scaledImage whether the image should be scaled or tiled
-     */
-    private Style(int fgColor, int bgColor, int fgSelectionColor, int bgSelectionColor, Font f, byte transparency, Image im, boolean scaledImage) {
-        this();
-        this.fgColor = fgColor;
-        this.bgColor = bgColor;
-        this.font = f;
-        this.transparency = transparency;
-        this.bgImage = im;        
-    }
-
-
     /**
      * Creates a new style with the given attributes
      *
@@ -1084,6 +1089,7 @@ public class Style {
                 padding[Component.BOTTOM] != bottom ||
                 padding[Component.LEFT] != left ||
                 padding[Component.RIGHT] != right) {
+            unshareArrays();
             padding[Component.TOP] = top;
             padding[Component.BOTTOM] = bottom;
             padding[Component.LEFT] = left;
@@ -1120,6 +1126,7 @@ public class Style {
                 margin[Component.BOTTOM] != bottom ||
                 margin[Component.LEFT] != left ||
                 margin[Component.RIGHT] != right) {
+            unshareArrays();
             margin[Component.TOP] = top;
             margin[Component.BOTTOM] = bottom;
             margin[Component.LEFT] = left;
@@ -1362,6 +1369,7 @@ public class Style {
      */
     public void setBackgroundGradientStartColor(int backgroundGradientStartColor, boolean override) {
         if (((Integer) getBackgroundGradient()[0]).intValue() != backgroundGradientStartColor) {
+            unshareArrays();
             getBackgroundGradient()[0] = new Integer(backgroundGradientStartColor);
             if (!override) {
                 modifiedFlag |= BACKGROUND_GRADIENT_MODIFIED;
@@ -1379,6 +1387,7 @@ public class Style {
      */
     public void setBackgroundGradientEndColor(int backgroundGradientEndColor, boolean override) {
         if (((Integer) getBackgroundGradient()[1]).intValue() != backgroundGradientEndColor) {
+            unshareArrays();
             getBackgroundGradient()[1] = new Integer(backgroundGradientEndColor);
             if (!override) {
                 modifiedFlag |= BACKGROUND_GRADIENT_MODIFIED;
@@ -1397,6 +1406,7 @@ public class Style {
      */
     public void setBackgroundGradientRelativeX(float backgroundGradientRelativeX, boolean override) {
         if (((Float) getBackgroundGradient()[2]).floatValue() != backgroundGradientRelativeX) {
+            unshareArrays();
             getBackgroundGradient()[2] = new Float(backgroundGradientRelativeX);
             if (!override) {
                 modifiedFlag |= BACKGROUND_GRADIENT_MODIFIED;
@@ -1414,6 +1424,7 @@ public class Style {
      */
     public void setBackgroundGradientRelativeY(float backgroundGradientRelativeY, boolean override) {
         if (((Float) getBackgroundGradient()[3]).floatValue() != backgroundGradientRelativeY) {
+            unshareArrays();
             getBackgroundGradient()[3] = new Float(backgroundGradientRelativeY);
             if (!override) {
                 modifiedFlag |= BACKGROUND_GRADIENT_MODIFIED;
@@ -1432,6 +1443,7 @@ public class Style {
      */
     public void setBackgroundGradientRelativeSize(float backgroundGradientRelativeSize, boolean override) {
         if (((Float) getBackgroundGradient()[4]).floatValue() != backgroundGradientRelativeSize) {
+            unshareArrays();
             getBackgroundGradient()[4] = new Float(backgroundGradientRelativeSize);
             if (!override) {
                 modifiedFlag |= BACKGROUND_GRADIENT_MODIFIED;
@@ -1515,6 +1527,7 @@ public class Style {
             throw new IllegalArgumentException("padding cannot be negative");
         }
         if (padding[orientation] != gap) {
+            unshareArrays();
             padding[orientation] = gap;
 
             if (!override) {
@@ -1541,6 +1554,7 @@ public class Style {
             throw new IllegalArgumentException("margin cannot be negative");
         }
         if (margin[orientation] != gap) {
+            unshareArrays();
             margin[orientation] = gap;
             if (!override) {
                 modifiedFlag |= MARGIN_MODIFIED;
@@ -37,6 +37,7 @@ import com.sun.lwuit.TextField;
 import com.sun.lwuit.VirtualKeyboard;
 import com.sun.lwuit.events.ActionEvent;
 import com.sun.lwuit.events.ActionListener;
+import com.sun.lwuit.events.StyleListener;
 import com.sun.lwuit.util.EventDispatcher;
 
 /**
@@ -48,8 +49,33 @@ import com.sun.lwuit.util.EventDispatcher;
 public class UIManager {
 
 	private LookAndFeel current = new DefaultLookAndFeel();
+
+    /**
+     * Style templates resolved from the theme keyed by the component id, every value is
+     * an array indexed by the STYLE_* state constants. Templates are never handed out
+     * directly, components receive copies that share their values until modified.
+     */
     private Hashtable styles = new Hashtable();
-    private Hashtable selectedStyles = new Hashtable();
+
+    /**
+     * Style templates of the custom style types other than pressed and disabled keyed
+     * by the component id and the type prefix
+     */
+    private Hashtable customStyles = new Hashtable();
+    private static final int STYLE_UNSELECTED = 0;
+    private static final int STYLE_SELECTED = 1;
+    private static final int STYLE_PRESSED = 2;
+    private static final int STYLE_DISABLED = 3;
+
+    /**
+     * Installed styles might be modified after they were installed, in that case the
+     * templates derived from them are created again
+     */
+    private StyleListener installedStyleListener = new StyleListener() {
+        public void styleChanged(String propertyName, Style source) {
+            resetDerivedStyles();
+        }
+    };
     private Hashtable themeProps;
     private Hashtable themeConstants = new Hashtable();
     static UIManager instance = new UIManager();
@@ -122,14 +148,7 @@ public class UIManager {
      * @param style the style object to install
      */
     public void setComponentStyle(String id, Style style) {
-        if (id == null || id.length() == 0) {
-            //if no id return the default style
-            id = "";
-        } else {
-            id = id + ".";
-        }
-
-        styles.put(id, style);
+        installStyle(id, STYLE_UNSELECTED, style);
     }
 
     /**
@@ -139,14 +158,7 @@ public class UIManager {
      * @param style the style object to install
      */
     public void setComponentSelectedStyle(String id, Style style) {
-        if (id == null || id.length() == 0) {
-            //if no id return the default style
-            id = "";
-        } else {
-            id = id + ".";
-        }
-
-        selectedStyles.put(id, style);
+        installStyle(id, STYLE_SELECTED, style);
     }
 
     /**
@@ -190,41 +202,91 @@ public class UIManager {
 
     private Style getComponentStyleImpl(String id, boolean selected, String prefix) {
         try {
-            Style style = null;
+            return new Style(getStyleTemplate(id, selected, prefix));
+        } catch(Throwable err) {
+            // fail gracefully for an illegal style, this is useful for the resource editor
+            err.printStackTrace();
+            return new Style(defaultStyle);
+        }
+    }
 
-            if (id == null || id.length() == 0) {
-                //if no id return the default style
-                id = "";
-            } else {
-                id = id + ".";
+    /**
+     * Returns the shared style template for the given id and state creating it from the
+     * theme the first time it is requested, the template must not be modified
+     */
+    private Style getStyleTemplate(String id, boolean selected, String prefix) {
+        int state;
+        if (selected) {
+            state = STYLE_SELECTED;
+        } else if (prefix.length() == 0) {
+            state = STYLE_UNSELECTED;
+        } else if (prefix.equals("press#")) {
+            state = STYLE_PRESSED;
+        } else if (prefix.equals("dis#")) {
+            state = STYLE_DISABLED;
+        } else {
+            String key = toThemeId(id) + prefix;
+            Style style = (Style) customStyles.get(key);
+            if (style == null) {
+                style = createStyle(toThemeId(id), prefix, false);
+                customStyles.put(key, style);
             }
+            return style;
+        }
+        Style[] templates = getStyleTemplates(id);
+        Style style = templates[state];
+        if (style == null) {
+            style = createStyle(toThemeId(id), prefix, selected);
+            templates[state] = style;
+        }
+        return style;
+    }
 
-            if (selected) {
-                style = (Style) selectedStyles.get(id);
+    private void installStyle(String id, int state, Style style) {
+        Style[] templates = getStyleTemplates(id);
+        if (templates[state] != null) {
+            templates[state].removeStyleListener(installedStyleListener);
+        }
+        templates[state] = style;
+        style.addStyleListener(installedStyleListener);
+        resetDerivedStyles();
+    }
 
-                if (style == null) {
-                    style = createStyle(id, prefix, true);
-                    selectedStyles.put(id, style);
-                }
-            } else {
-                if (prefix.length() == 0) {
-                    style = (Style) styles.get(id);
+    private Style[] getStyleTemplates(String id) {
+        if (id == null) {
+            id = "";
+        }
+        Style[] templates = (Style[]) styles.get(id);
+        if (templates == null) {
+            templates = new Style[4];
+            styles.put(id, templates);
+        }
+        return templates;
+    }
 
-                    if (style == null) {
-                        style = createStyle(id, prefix, false);
-                        styles.put(id, style);
-                    }
-                } else {
-                    return createStyle(id, prefix, false);
-                }
-            }
+    /**
+     * Converts a component id to the prefix of its keys in the theme
+     */
+    private static String toThemeId(String id) {
+        if (id == null || id.length() == 0) {
+            //if no id return the default style
+            return "";
+        }
+        return id + ".";
+    }
 
-            return new Style(style);
-        } catch(Throwable err) {
-            // fail gracefully for an illegal style, this is useful for the resource editor
-            err.printStackTrace();
-            return new Style(defaultStyle);
+    /**
+     * Discards the templates of the styles that weren't cached before the templates
+     * were introduced so they still pick up changes to the styles they derive from
+     */
+    private void resetDerivedStyles() {
+        Enumeration e = styles.elements();
+        while (e.hasMoreElements()) {
+            Style[] templates = (Style[]) e.nextElement();
+            templates[STYLE_PRESSED] = null;
+            templates[STYLE_DISABLED] = null;
         }
+        customStyles.clear();
     }
 
     /**
@@ -760,8 +822,8 @@ public class UIManager {
     void setThemePropsImpl(Hashtable themeProps) {
         resetThemeProps(themeProps);
         styles.clear();
+        customStyles.clear();
         themeConstants.clear();
-        selectedStyles.clear();
         imageCache.clear();
         if (themelisteners != null) {
             themelisteners.fireActionEvent(new ActionEvent(themeProps));
@@ -771,6 +833,7 @@ public class UIManager {
     }
 
     private void buildTheme(Hashtable themeProps) {
+        resetDerivedStyles();
         Enumeration e = themeProps.keys();
         while (e.hasMoreElements()) {
             String key = (String) e.nextElement();
@@ -23,6 +23,9 @@
  */
 package com.sun.lwuit.table;
 
+import java.util.Vector;
+
+import com.sun.lwuit.Display;
 import com.sun.lwuit.events.DataChangedListener;
 import com.sun.lwuit.util.EventDispatcher;
 
@@ -31,10 +34,11 @@ import com.sun.lwuit.util.EventDispatcher;
  *
  * @author Shai Almog
  */
-public class DefaultTableModel implements TableModel {
+public class DefaultTableModel implements RowRangeTableModel {
     Object[][] data;
     String[] columnNames;
     private EventDispatcher dispatcher = new EventDispatcher();
+    private Vector rowRangeListeners;
     private boolean editable;
 
     /**
@@ -110,6 +114,107 @@ public class DefaultTableModel implements TableModel {
         dispatcher.fireDataChangeEvent(column, row);
     }
 
+    /**
+     * Inserts rows into the table, a single rows inserted event is fired for all the rows
+     *
+     * @param row the offset at which the rows are inserted, getRowCount() appends the rows
+     * @param rows the data of the new rows
+     */
+    public void insertRows(int row, Object[][] rows) {
+        if(rows.length == 0) {
+            return;
+        }
+        Object[][] d = new Object[data.length + rows.length][];
+        System.arraycopy(data, 0, d, 0, row);
+        System.arraycopy(rows, 0, d, row, rows.length);
+        System.arraycopy(data, row, d, row + rows.length, data.length - row);
+        data = d;
+        fireRowRangeEvent(DataChangedListener.ADDED, row, row + rows.length - 1);
+    }
+
+    /**
+     * Removes rows from the table, a single rows deleted event is fired for all the rows
+     *
+     * @param row the offset of the first row to remove
+     * @param count the number of rows to remove
+     */
+    public void removeRows(int row, int count) {
+        if(count < 1) {
+            return;
+        }
+        Object[][] d = new Object[data.length - count][];
+        System.arraycopy(data, 0, d, 0, row);
+        System.arraycopy(data, row + count, d, row, d.length - row);
+        data = d;
+        fireRowRangeEvent(DataChangedListener.REMOVED, row, row + count - 1);
+    }
+
+    /**
+     * Replaces the values of existing rows, a single rows updated event is fired for all
+     * the rows
+     *
+     * @param row the offset of the first row to replace
+     * @param rows the new data of the rows
+     */
+    public void setRows(int row, Object[][] rows) {
+        if(rows.length == 0) {
+            return;
+        }
+        System.arraycopy(rows, 0, data, row, rows.length);
+        fireRowRangeEvent(DataChangedListener.CHANGED, row, row + rows.length - 1);
+    }
+
+    /**
+     * Fires the row range event on the EDT
+     */
+    private void fireRowRangeEvent(final int type, final int firstRow, final int lastRow) {
+        if(rowRangeListeners == null || rowRangeListeners.size() == 0) {
+            return;
+        }
+        if(!Display.getInstance().isEdt()) {
+            Display.getInstance().callSerially(new Runnable() {
+                public void run() {
+                    fireRowRangeEvent(type, firstRow, lastRow);
+                }
+            });
+            return;
+        }
+        RowRangeListener[] array = new RowRangeListener[rowRangeListeners.size()];
+        rowRangeListeners.copyInto(array);
+        for(int iter = 0 ; iter < array.length ; iter++) {
+            switch(type) {
+                case DataChangedListener.ADDED:
+                    array[iter].rowsInserted(firstRow, lastRow);
+                    break;
+                case DataChangedListener.REMOVED:
+                    array[iter].rowsDeleted(firstRow, lastRow);
+                    break;
+                default:
+                    array[iter].rowsUpdated(firstRow, lastRow);
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void addRowRangeListener(RowRangeListener l) {
+        if(rowRangeListeners == null) {
+            rowRangeListeners = new Vector();
+        }
+        rowRangeListeners.addElement(l);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void removeRowRangeListener(RowRangeListener l) {
+        if(rowRangeListeners != null) {
+            rowRangeListeners.removeElement(l);
+        }
+    }
+
     /**
      * @inheritDoc
      */
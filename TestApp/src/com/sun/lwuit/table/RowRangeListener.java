@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.table;
+
+/**
+ * Invoked by a {@link RowRangeTableModel} when a contiguous range of rows is inserted,
+ * deleted or updated allowing the table to process the whole range at once rather than
+ * a cell at a time.
+ */
+public interface RowRangeListener {
+    /**
+     * Invoked after rows were inserted to the model
+     *
+     * @param firstRow the offset of the first inserted row
+     * @param lastRow the offset of the last inserted row (inclusive)
+     */
+    public void rowsInserted(int firstRow, int lastRow);
+
+    /**
+     * Invoked after rows were deleted from the model
+     *
+     * @param firstRow the offset the first deleted row had before the deletion
+     * @param lastRow the offset the last deleted row had before the deletion (inclusive)
+     */
+    public void rowsDeleted(int firstRow, int lastRow);
+
+    /**
+     * Invoked after the values of rows within the model were changed
+     *
+     * @param firstRow the offset of the first updated row
+     * @param lastRow the offset of the last updated row (inclusive)
+     */
+    public void rowsUpdated(int firstRow, int lastRow);
+}
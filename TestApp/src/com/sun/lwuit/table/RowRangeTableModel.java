@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.table;
+
+/**
+ * A table model that notifies about changes to ranges of rows in addition to the per
+ * cell data changed events of the {@link TableModel}. The table uses these events to
+ * update a large table without rebuilding or revalidating it for every cell.
+ */
+public interface RowRangeTableModel extends TableModel {
+    /**
+     * Adds a listener to the row range events
+     *
+     * @param l the new listener
+     */
+    public void addRowRangeListener(RowRangeListener l);
+
+    /**
+     * Removes a listener to the row range events
+     *
+     * @param l the listener to remove
+     */
+    public void removeRowRangeListener(RowRangeListener l);
+}
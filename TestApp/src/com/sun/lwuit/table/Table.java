@@ -23,6 +23,8 @@
  */
 package com.sun.lwuit.table;
 
+import java.util.Vector;
+
 import com.sun.lwuit.Component;
 import com.sun.lwuit.Container;
 import com.sun.lwuit.Display;
@@ -34,11 +36,19 @@ import com.sun.lwuit.TextField;
 import com.sun.lwuit.events.ActionEvent;
 import com.sun.lwuit.events.ActionListener;
 import com.sun.lwuit.events.DataChangedListener;
+import com.sun.lwuit.geom.Dimension;
+import com.sun.lwuit.impl.RowHeightIndex;
+import com.sun.lwuit.layouts.Layout;
 import com.sun.lwuit.plaf.Style;
 
 /**
  * The table class represents a grid of data that can be used for rendering a grid
  * of components/labels. The table reflects and updates the underlying model data.
+ * <p>A {@link #setVirtualized(boolean) virtualized} table only creates cells for the rows
+ * and columns within its viewport and recycles them as it scrolls, row heights are measured
+ * when rows are first shown and column widths are declared or sampled from the first rows.
+ * A model implementing {@link RowRangeTableModel} allows such a table to process row range
+ * changes without rebuilding.
  *
  * @author Shai Almog
  */
@@ -93,6 +103,64 @@ public class Table extends Container {
      */
     private boolean potentiallyDirtyModel;
 
+    /**
+     * Number of rows and columns bound beyond each edge of the viewport of a virtualized
+     * table so focus traversal always finds the next cell
+     */
+    private static final int OVERSCAN = 2;
+
+    private boolean virtualized;
+
+    /**
+     * Column widths declared in percentage of the table width for a virtualized table
+     */
+    private int[] columnWidthPercentages;
+
+    /**
+     * Number of rows measured to determine the column widths of a virtualized table
+     */
+    private int columnSampleSize = 20;
+
+    /**
+     * Preferred widths (including margins) of the columns sampled from the first rows and
+     * the number of model rows that were sampled
+     */
+    private int[] sampledWidths;
+    private int sampledRows;
+
+    /**
+     * Widths and positions of the columns of a virtualized table in the last layout
+     */
+    private int[] columnWidths;
+    private int[] columnPositions;
+
+    /**
+     * Measured heights of the table rows including the header row
+     */
+    private RowHeightIndex rowHeights;
+    private int measuredRows;
+    private int measuredTotal;
+
+    /**
+     * The table rows and columns the cells of a virtualized table were bound to
+     */
+    private int boundFirstRow = -1;
+    private int boundLastRow = -1;
+    private int boundFirstColumn = -1;
+    private int boundLastColumn = -1;
+    private Component boundFocus;
+
+    /**
+     * The scroll position the cells of a virtualized table were bound for
+     */
+    private int boundScrollX;
+    private int boundScrollY;
+
+    /**
+     * Indicates the cell margins depend on the position of the cell
+     */
+    private boolean positionalMargins;
+
     /**
      * Constructor for usage by GUI builder and automated tools, normally one
      * should use the version that accepts the model
@@ -128,6 +196,26 @@ public class Table extends Container {
         updateModel();
     }
 
+    /**
+     * Create a table with a new model
+     *
+     * @param model the model underlying this table
+     * @param includeHeader Indicates whether the table should render a table header as the first row
+     * @param virtualized Indicates whether the table only creates cells for the rows and
+     * columns within its viewport
+     * @see #setVirtualized(boolean)
+     */
+    public Table(TableModel model, boolean includeHeader, boolean virtualized) {
+        setUIID("Table");
+        this.includeHeader = includeHeader;
+        this.model = model;
+        this.virtualized = virtualized;
+        if(virtualized) {
+            setScrollableY(true);
+        }
+        updateModel();
+    }
+
     /**
      * Returns the selected row in the table
      *
@@ -170,6 +258,10 @@ public class Table extends Container {
                 selectionColumn = getCellColumn(c);
             }
         }
+        if(virtualized) {
+            resetCells(selectionRow, selectionColumn);
+            return;
+        }
         removeAll();
         int columnCount = model.getColumnCount();
 
@@ -212,6 +304,456 @@ public class Table extends Container {
         }
     }
 
+    /**
+     * Discards the cells and measurements of a virtualized table and binds new cells
+     */
+    private void resetCells(int selectionRow, int selectionColumn) {
+        removeAll();
+        rowHeights = new RowHeightIndex(getTableRowCount());
+        measuredRows = 0;
+        measuredTotal = 0;
+        sampledWidths = null;
+        boundFirstRow = -1;
+        if(!(getLayout() instanceof VirtualLayout)) {
+            setLayout(new VirtualLayout());
+        }
+        setShouldCalcPreferredSize(true);
+        bindCells();
+        if(selectionColumn > -1) {
+            Component cell = getCell(selectionRow + getHeaderRows(), selectionColumn);
+            if(cell != null) {
+                cell.requestFocus();
+            }
+        }
+    }
+
+    /**
+     * The number of table rows the header occupies
+     */
+    private int getHeaderRows() {
+        if(includeHeader) {
+            return 1;
+        }
+        return 0;
+    }
+
+    /**
+     * The number of table rows including the header row
+     */
+    private int getTableRowCount() {
+        return model.getRowCount() + getHeaderRows();
+    }
+
+    /**
+     * The table row of a cell of a virtualized table
+     */
+    private int getTableRow(Component cell) {
+        return getCellRow(cell) + getHeaderRows();
+    }
+
+    /**
+     * Returns the bound cell at the given table row and column or null if the cell isn't bound
+     */
+    private Component getCell(int tableRow, int column) {
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Component c = getComponentAt(iter);
+            if(getTableRow(c) == tableRow && getCellColumn(c) == column) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    private Component getFocusedCell() {
+        Form f = getComponentForm();
+        if(f != null) {
+            Component c = f.getFocused();
+            if(c != null && c.getParent() == this) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The height assumed for rows that weren't measured yet
+     */
+    private int getEstimatedRowHeight() {
+        if(measuredRows == 0) {
+            return 1;
+        }
+        return Math.max(1, measuredTotal / measuredRows);
+    }
+
+    /**
+     * The position of the table row relative to the top padding
+     */
+    private int getRowOffset(int tableRow) {
+        return rowHeights.getOffset(tableRow, getEstimatedRowHeight(), 0);
+    }
+
+    private int getRowHeight(int tableRow) {
+        int h = rowHeights.getHeight(tableRow);
+        if(h < 0) {
+            return getEstimatedRowHeight();
+        }
+        return h;
+    }
+
+    private int getRowAt(int y) {
+        int row = rowHeights.find(y, getEstimatedRowHeight(), 0);
+        return Math.max(0, Math.min(row, getTableRowCount() - 1));
+    }
+
+    /**
+     * Records the height of the cell in the row height unless the row is already taller,
+     * returns true if the row height changed
+     */
+    private boolean measureCell(Component cell, int tableRow) {
+        Style s = cell.getStyle();
+        int h = cell.getPreferredH() + s.getMargin(false, Component.TOP) + s.getMargin(false, Component.BOTTOM);
+        int old = rowHeights.getHeight(tableRow);
+        if(h <= old) {
+            return false;
+        }
+        if(old < 0) {
+            measuredRows++;
+            measuredTotal += h;
+        } else {
+            measuredTotal += h - old;
+        }
+        rowHeights.setHeight(tableRow, h);
+        return true;
+    }
+
+    /**
+     * Discards the measured heights of the given table rows
+     */
+    private void forgetRows(int firstRow, int count) {
+        for(int iter = firstRow ; iter < firstRow + count ; iter++) {
+            int h = rowHeights.getHeight(iter);
+            if(h > -1) {
+                measuredRows--;
+                measuredTotal -= h;
+                rowHeights.invalidate(iter);
+            }
+        }
+    }
+
+    /**
+     * Measures the header and the first rows of the model to determine the preferred width
+     * of every column, the heights of the measured rows are recorded as well
+     */
+    private void sampleColumns() {
+        if(sampledWidths != null) {
+            return;
+        }
+        int columns = model.getColumnCount();
+        sampledWidths = new int[columns];
+        sampledRows = Math.min(columnSampleSize, model.getRowCount());
+        for(int r = -getHeaderRows() ; r < sampledRows ; r++) {
+            for(int c = 0 ; c < columns ; c++) {
+                Object value;
+                if(r < 0) {
+                    value = model.getColumnName(c);
+                } else {
+                    value = model.getValueAt(r, c);
+                }
+                if(value != null) {
+                    Component cell = createCellImpl(value, r, c, r > -1 && model.isCellEditable(r, c));
+                    if(positionalMargins) {
+                        updateCellMargins(cell, r + getHeaderRows(), c);
+                    }
+                    Style s = cell.getStyle();
+                    sampledWidths[c] = Math.max(sampledWidths[c], cell.getPreferredW() + s.getMargin(false, Component.LEFT) + s.getMargin(false, Component.RIGHT));
+                    measureCell(cell, r + getHeaderRows());
+                }
+            }
+        }
+    }
+
+    /**
+     * Calculates the column widths and positions of a virtualized table similarly to the
+     * table layout
+     */
+    private void updateColumns() {
+        sampleColumns();
+        Style s = getStyle();
+        boolean rtl = isRTL();
+        int left = s.getPadding(rtl, Component.LEFT);
+        int right = s.getPadding(rtl, Component.RIGHT);
+        int pWidth = getLayoutWidth() - getSideGap() - left - right;
+        int columns = sampledWidths.length;
+        columnWidths = new int[columns];
+        columnPositions = new int[columns];
+        boolean[] modifiable = new boolean[columns];
+        int totalWidth = 0;
+        int totalModifiablePixels = 0;
+        for(int iter = 0 ; iter < columns ; iter++) {
+            if(columnWidthPercentages != null && iter < columnWidthPercentages.length && columnWidthPercentages[iter] > 0) {
+                columnWidths[iter] = columnWidthPercentages[iter] * pWidth / 100;
+            } else {
+                columnWidths[iter] = sampledWidths[iter];
+                modifiable[iter] = true;
+                totalModifiablePixels += columnWidths[iter];
+            }
+            columnWidths[iter] = Math.min(pWidth, columnWidths[iter]);
+            totalWidth += columnWidths[iter];
+        }
+
+        // distribute the columns sensibly if no room is available, like the table layout
+        if(!isScrollableX() && pWidth < totalWidth && totalModifiablePixels > 0) {
+            int totalPixelsNecessary = totalModifiablePixels - (totalWidth - pWidth);
+            for(int iter = 0 ; iter < columns ; iter++) {
+                if(modifiable[iter]) {
+                    columnWidths[iter] = (int)(((float)columnWidths[iter]) / ((float)totalModifiablePixels) * totalPixelsNecessary);
+                }
+            }
+        }
+        int currentX = left;
+        for(int iter = 0 ; iter < columns ; iter++) {
+            if(rtl) {
+                currentX += columnWidths[iter];
+                columnPositions[iter] = pWidth - currentX;
+            } else {
+                columnPositions[iter] = currentX;
+                currentX += columnWidths[iter];
+            }
+        }
+    }
+
+    /**
+     * Binds the cells of a virtualized table to the rows and columns within the viewport,
+     * measures the rows that weren't measured and positions the cells
+     */
+    private void bindCells() {
+        boundScrollX = getScrollX();
+        boundScrollY = getScrollY();
+        int rows = getTableRowCount();
+        int columns = model.getColumnCount();
+        if(rows == 0 || columns == 0) {
+            if(getComponentCount() > 0) {
+                removeAll();
+            }
+            boundFirstRow = -1;
+            return;
+        }
+        updateColumns();
+        int top = getStyle().getPadding(false, Component.TOP);
+        boolean changed = false;
+        for(int pass = 0 ; pass < 3 ; pass++) {
+            int y = Math.max(0, getScrollY() - top);
+            int firstRow = Math.max(0, getRowAt(y) - OVERSCAN);
+            int lastRow = Math.min(rows - 1, getRowAt(y + getHeight()) + OVERSCAN);
+            int firstColumn = 0;
+            int lastColumn = columns - 1;
+            if(isScrollableX()) {
+                int x = getScrollX();
+                int x2 = x + getWidth();
+                firstColumn = columns;
+                lastColumn = -1;
+                for(int iter = 0 ; iter < columns ; iter++) {
+                    if(columnPositions[iter] < x2 && columnPositions[iter] + columnWidths[iter] > x) {
+                        firstColumn = Math.min(firstColumn, iter);
+                        lastColumn = Math.max(lastColumn, iter);
+                    }
+                }
+                if(lastColumn < 0) {
+                    firstColumn = 0;
+                    lastColumn = 0;
+                }
+                firstColumn = Math.max(0, firstColumn - OVERSCAN);
+                lastColumn = Math.min(columns - 1, lastColumn + OVERSCAN);
+            }
+            Component focus = getFocusedCell();
+            if(firstRow == boundFirstRow && lastRow == boundLastRow && firstColumn == boundFirstColumn &&
+                    lastColumn == boundLastColumn && focus == boundFocus) {
+                break;
+            }
+            boundFirstRow = firstRow;
+            boundLastRow = lastRow;
+            boundFirstColumn = firstColumn;
+            boundLastColumn = lastColumn;
+            boundFocus = focus;
+            if(bindRange(firstRow, lastRow, firstColumn, lastColumn, focus)) {
+                changed = true;
+            } else {
+                break;
+            }
+        }
+        if(changed) {
+            setShouldCalcPreferredSize(true);
+        }
+        positionCells();
+    }
+
+    /**
+     * Rebinds the cells to the given rows and columns, the first and last table rows are
+     * always bound so focus traversal can find the first cell and cycle. The focused cell
+     * is always kept. Cells remain ordered by row and column and cells that are no longer
+     * needed are recycled for newly bound cells of the same column. Returns true if a
+     * newly bound cell changed a row height
+     */
+    private boolean bindRange(int firstRow, int lastRow, int firstColumn, int lastColumn, Component focus) {
+        int rows = getTableRowCount();
+        int columns = model.getColumnCount();
+        Vector[] free = null;
+        for(int iter = getComponentCount() - 1 ; iter >= 0 ; iter--) {
+            Component c = getComponentAt(iter);
+            int row = getTableRow(c);
+            int column = getCellColumn(c);
+            if(c == focus || (column >= firstColumn && column <= lastColumn &&
+                    ((row >= firstRow && row <= lastRow) || row == 0 || row == rows - 1))) {
+                continue;
+            }
+            removeComponent(c);
+            if(column > -1 && column < columns) {
+                if(free == null) {
+                    free = new Vector[columns];
+                }
+                if(free[column] == null) {
+                    free[column] = new Vector();
+                }
+                free[column].addElement(c);
+            }
+        }
+        boolean changed = false;
+        int pos = 0;
+        for(int row = 0 ; row < rows ; row++) {
+            if(row > 0 && row < firstRow) {
+                row = firstRow;
+            } else if(row > lastRow && row < rows - 1) {
+                row = rows - 1;
+            }
+            int modelRow = row - getHeaderRows();
+            for(int column = firstColumn ; column <= lastColumn ; column++) {
+                // skip kept cells ordered before this one such as the focused cell
+                int cc = getComponentCount();
+                while(pos < cc && compareCell(getComponentAt(pos), row, column) < 0) {
+                    pos++;
+                }
+                if(pos < cc && compareCell(getComponentAt(pos), row, column) == 0) {
+                    pos++;
+                    continue;
+                }
+                Object value;
+                boolean editable = false;
+                if(modelRow < 0) {
+                    value = model.getColumnName(column);
+                } else {
+                    value = model.getValueAt(modelRow, column);
+                    editable = model.isCellEditable(modelRow, column);
+                }
+
+                // null should be returned for spanned over values
+                if(value == null) {
+                    continue;
+                }
+                Component cell = obtainCell(free, value, modelRow, column, editable);
+                addComponent(pos, cell);
+                pos++;
+                if(measureCell(cell, row)) {
+                    changed = true;
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Compares the position of the cell to the given table row and column
+     */
+    private int compareCell(Component cell, int row, int column) {
+        int r = getTableRow(cell);
+        if(r != row) {
+            return r - row;
+        }
+        return getCellColumn(cell) - column;
+    }
+
+    /**
+     * Recycles a free cell of the same column for the value or creates a new cell
+     */
+    private Component obtainCell(Vector[] free, Object value, int row, int column, boolean editable) {
+        if(free != null && free[column] != null && free[column].size() > 0) {
+            Vector v = free[column];
+            Component cell = (Component)v.elementAt(v.size() - 1);
+            v.removeElementAt(v.size() - 1);
+            if(updateCell(cell, value, row, column, editable)) {
+                cell.putClientProperty("row", new Integer(row));
+                cell.putClientProperty("column", new Integer(column));
+                if(positionalMargins) {
+                    updateCellMargins(cell, row + getHeaderRows(), column);
+                }
+                return cell;
+            }
+        }
+        Component cell = createCellImpl(value, row, column, editable);
+        if(positionalMargins) {
+            updateCellMargins(cell, row + getHeaderRows(), column);
+        }
+        return cell;
+    }
+
+    /**
+     * Places the cells of a virtualized table within their rows and columns
+     */
+    private void positionCells() {
+        int top = getStyle().getPadding(false, Component.TOP);
+        boolean rtl = isRTL();
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Component c = getComponentAt(iter);
+            int row = getTableRow(c);
+            int column = getCellColumn(c);
+            Style s = c.getStyle();
+            int leftMargin = s.getMargin(rtl, Component.LEFT);
+            int topMargin = s.getMargin(false, Component.TOP);
+            c.setX(columnPositions[column] + leftMargin);
+            c.setY(top + getRowOffset(row) + topMargin);
+            c.setWidth(columnWidths[column] - leftMargin - s.getMargin(rtl, Component.RIGHT));
+            c.setHeight(getRowHeight(row) - topMargin - s.getMargin(false, Component.BOTTOM));
+        }
+    }
+
+    /**
+     * Rebinds a cell that is no longer visible to a new value so it can be reused instead
+     * of creating a new cell. This method is only invoked for a virtualized table with a
+     * cell that was created for the same column. The default implementation only updates
+     * the labels created by the default {@link #createCell(Object, int, int, boolean)} for
+     * cells that aren't editable and returns false for any other cell, subclasses that
+     * create their own cells or customize the cells created by createCell should
+     * override it to update them.
+     *
+     * @param cell a cell that was created by createCell for the same column
+     * @param value the new value object
+     * @param row row number, -1 for the header rows
+     * @param column column number
+     * @param editable true if the cell is editable
+     * @return true if the cell was updated, false to create a new cell instead
+     */
+    protected boolean updateCell(Component cell, Object value, int row, int column, boolean editable) {
+        if(cell.getClientProperty("defaultCell") == null) {
+            return false;
+        }
+        if(row == -1) {
+            if(cell.getClass() == Label.class && "TableHeader".equals(cell.getUIID())) {
+                ((Label)cell).setText((String)value);
+                ((Label)cell).setAlignment(titleAlignment);
+                return true;
+            }
+            return false;
+        }
+        // text fields hold editing state so editable cells are always created again
+        if(!editable && cell.getClass() == Label.class && "TableCell".equals(cell.getUIID())) {
+            ((Label)cell).setText("" + value);
+            ((Label)cell).setAlignment(cellAlignment);
+            return true;
+        }
+        return false;
+    }
+
     /**
      * @inheritDoc
      */
@@ -226,128 +768,167 @@ public class Table extends Container {
                 rows++;
             }
             g.setColor(getStyle().getFgColor());
-            TableLayout t = (TableLayout)getLayout();
-            int actualWidth = Math.max(getWidth(), getScrollDimension().getWidth());
-            int actualHeight = Math.max(getHeight(), getScrollDimension().getHeight());
-
-            if ((collapseBorder) || (innerBorder!=INNER_BORDERS_ALL) || // inner borders cols/rows are supported only in collapsed mode
-                (t.hasHorizontalSpanning()) || (t.hasVerticalSpanning())) { // TODO - We currently don't support separate borders for tables with spanned cells
-                if ((innerBorder==INNER_BORDERS_ALL) || (innerBorder==INNER_BORDERS_ROWS)) {
-                    if(t.hasVerticalSpanning()) {
-                        // iterate over the components and draw a line on the side of all
-                        // the components other than the ones that are at the last column.
-                        for(int cellRow = 0 ; cellRow < rows - 1; cellRow++) {
-                            for(int cellColumn = 0 ; cellColumn < cols ; cellColumn++) {
-                                // if this isn't the last row
-                                if(cellRow + t.getCellVerticalSpan(cellRow, cellColumn) - 1 != rows - 1) {
-                                    // if this is a spanned through cell we don't want to draw a line here
-                                    if(t.isCellSpannedThroughHorizontally(cellRow, cellColumn)) {
-                                        continue;
-                                    }
-
-                                    int x = t.getColumnPosition(cellColumn);
-                                    int y = t.getRowPosition(cellRow);
-                                    int rowHeight = t.getRowPosition(cellRow + t.getCellVerticalSpan(cellRow, cellColumn)) - y;
-                                    int columnWidth;
-                                    if(cellColumn < getModel().getColumnCount() - 1) {
-                                        columnWidth = t.getColumnPosition(cellColumn + 1) - x;
-                                    } else {
-                                        columnWidth = getWidth() - y;
-                                    }
-
-                                    if ((innerBorder!=INNER_BORDERS_ROWS) || (shouldDrawInnerBorderAfterRow(cellRow))) {
-                                        g.drawLine(x, y + rowHeight, x + columnWidth, y + rowHeight);
-                                    }
+            if(!virtualized) {
+                paintBorders(g, (TableLayout)getLayout(), rows, cols, 0, rows - 1);
+            } else if(rows > 0 && cols > 0 && columnPositions != null && boundFirstRow > -1) {
+                // spanning isn't supported by a virtualized table
+                paintBorders(g, null, rows, cols, boundFirstRow, boundLastRow);
+            }
+            g.translate(-xPos, -yPos);
+        }
+    }
+
+    /**
+     * Draws the borders of the table rows between the first and last row, the table
+     * layout is null for a virtualized table
+     */
+    private void paintBorders(Graphics g, TableLayout t, int rows, int cols, int firstRow, int lastRow) {
+        int actualWidth = Math.max(getWidth(), getScrollDimension().getWidth());
+        int actualHeight = Math.max(getHeight(), getScrollDimension().getHeight());
+        boolean horizontalSpanning = t != null && t.hasHorizontalSpanning();
+        boolean verticalSpanning = t != null && t.hasVerticalSpanning();
+
+        if ((collapseBorder) || (innerBorder!=INNER_BORDERS_ALL) || // inner borders cols/rows are supported only in collapsed mode
+            (horizontalSpanning) || (verticalSpanning)) { // TODO - We currently don't support separate borders for tables with spanned cells
+            if ((innerBorder==INNER_BORDERS_ALL) || (innerBorder==INNER_BORDERS_ROWS)) {
+                if(verticalSpanning) {
+                    // iterate over the components and draw a line on the side of all
+                    // the components other than the ones that are at the last column.
+                    for(int cellRow = 0 ; cellRow < rows - 1; cellRow++) {
+                        for(int cellColumn = 0 ; cellColumn < cols ; cellColumn++) {
+                            // if this isn't the last row
+                            if(cellRow + t.getCellVerticalSpan(cellRow, cellColumn) - 1 != rows - 1) {
+                                // if this is a spanned through cell we don't want to draw a line here
+                                if(t.isCellSpannedThroughHorizontally(cellRow, cellColumn)) {
+                                    continue;
+                                }
+
+                                int x = t.getColumnPosition(cellColumn);
+                                int y = t.getRowPosition(cellRow);
+                                int rowHeight = t.getRowPosition(cellRow + t.getCellVerticalSpan(cellRow, cellColumn)) - y;
+                                int columnWidth;
+                                if(cellColumn < getModel().getColumnCount() - 1) {
+                                    columnWidth = t.getColumnPosition(cellColumn + 1) - x;
+                                } else {
+                                    columnWidth = getWidth() - y;
+                                }
+
+                                if ((innerBorder!=INNER_BORDERS_ROWS) || (shouldDrawInnerBorderAfterRow(cellRow))) {
+                                    g.drawLine(x, y + rowHeight, x + columnWidth, y + rowHeight);
                                 }
                             }
                         }
-                    } else {
-                        // this is much faster since we don't need to check spanning
-                        for(int row = 1 ; row < rows; row++) {
-                            int y = t.getRowPosition(row);
-                            if ((innerBorder!=INNER_BORDERS_ROWS) || (shouldDrawInnerBorderAfterRow(row-1))) {
-                                g.drawLine(0, y, actualWidth, y);
-                            }
-                            //g.drawLine(0+2, y+2, actualWidth-2, y+2);
-
+                    }
+                } else {
+                    // this is much faster since we don't need to check spanning
+                    int last = Math.min(rows - 1, lastRow + 1);
+                    for(int row = Math.max(1, firstRow) ; row <= last; row++) {
+                        int y = getRowPosition(t, row);
+                        if ((innerBorder!=INNER_BORDERS_ROWS) || (shouldDrawInnerBorderAfterRow(row-1))) {
+                            g.drawLine(0, y, actualWidth, y);
                         }
+                        //g.drawLine(0+2, y+2, actualWidth-2, y+2);
+
                     }
                 }
+            }
 
-                if ((innerBorder==INNER_BORDERS_ALL) || (innerBorder==INNER_BORDERS_COLS)) {
-                    if(t.hasHorizontalSpanning()) {
-                        // iterate over the components and draw a line on the side of all
-                        // the components other than the ones that are at the last column.
-                        for(int cellRow = 0 ; cellRow < rows ; cellRow++) {
-                            for(int cellColumn = 0 ; cellColumn < cols - 1 ; cellColumn++) {
-                                // if this isn't the last column
-                                if(cellColumn + t.getCellHorizontalSpan(cellRow, cellColumn) - 1 != cols - 1) {
-                                    // if this is a spanned through cell we don't want to draw a line here
-                                    if(t.isCellSpannedThroughVertically(cellRow, cellColumn)) {
-                                        continue;
-                                    }
-
-                                    int x = t.getColumnPosition(cellColumn);
-                                    int y = t.getRowPosition(cellRow);
-                                    int rowHeight;
-                                    int columnWidth = t.getColumnPosition(cellColumn + t.getCellHorizontalSpan(cellRow, cellColumn)) - x;
-                                    if(cellRow < getModel().getRowCount() - 1) {
-                                        rowHeight = t.getRowPosition(cellRow + 1) - y;
-                                    } else {
-                                        rowHeight = getHeight() - y;
-                                    }
-
-                                    g.drawLine(x + columnWidth, y, x + columnWidth, y + rowHeight);
+            if ((innerBorder==INNER_BORDERS_ALL) || (innerBorder==INNER_BORDERS_COLS)) {
+                if(horizontalSpanning) {
+                    // iterate over the components and draw a line on the side of all
+                    // the components other than the ones that are at the last column.
+                    for(int cellRow = 0 ; cellRow < rows ; cellRow++) {
+                        for(int cellColumn = 0 ; cellColumn < cols - 1 ; cellColumn++) {
+                            // if this isn't the last column
+                            if(cellColumn + t.getCellHorizontalSpan(cellRow, cellColumn) - 1 != cols - 1) {
+                                // if this is a spanned through cell we don't want to draw a line here
+                                if(t.isCellSpannedThroughVertically(cellRow, cellColumn)) {
+                                    continue;
                                 }
+
+                                int x = t.getColumnPosition(cellColumn);
+                                int y = t.getRowPosition(cellRow);
+                                int rowHeight;
+                                int columnWidth = t.getColumnPosition(cellColumn + t.getCellHorizontalSpan(cellRow, cellColumn)) - x;
+                                if(cellRow < getModel().getRowCount() - 1) {
+                                    rowHeight = t.getRowPosition(cellRow + 1) - y;
+                                } else {
+                                    rowHeight = getHeight() - y;
+                                }
+
+                                g.drawLine(x + columnWidth, y, x + columnWidth, y + rowHeight);
                             }
                         }
-                    } else {
-                        for(int col = 1 ; col < cols ; col++) {
-                            int x = t.getColumnPosition(col);
-                            g.drawLine(x, 0, x, actualHeight);
-                            //g.drawLine(x+2, 0+2, x+2, actualHeight-2);
-                        }
+                    }
+                } else {
+                    for(int col = 1 ; col < cols ; col++) {
+                        int x = getColumnPosition(t, col);
+                        g.drawLine(x, 0, x, actualHeight);
+                        //g.drawLine(x+2, 0+2, x+2, actualHeight-2);
                     }
                 }
-            } else { // separate border
-                //if ((!t.hasHorizontalSpanning()) && (!t.hasVerticalSpanning())) {
-                    for(int row = 0 ; row < rows; row++) {
-                        int y = t.getRowPosition(row);
-                        int h;
-                        if (row+1<rows) {
-                            h=t.getRowPosition(row+1)-y;
+            }
+        } else { // separate border
+            //if ((!t.hasHorizontalSpanning()) && (!t.hasVerticalSpanning())) {
+                for(int row = firstRow ; row <= lastRow; row++) {
+                    int y = getRowPosition(t, row);
+                    int h;
+                    if (row+1<rows) {
+                        h=getRowPosition(t, row+1)-y;
+                    } else {
+                        h=getY()+actualHeight-y-2;
+                    }
+                    for(int col = 0 ; col < cols ; col++) {
+                        int x = getColumnPosition(t, col);
+                        int w;
+                        if (col+1<cols) {
+                            w=getColumnPosition(t, col+1)-x;
                         } else {
-                            h=getY()+actualHeight-y-2;
+                            w=getX()+actualWidth-x-2;
                         }
-                        for(int col = 0 ; col < cols ; col++) {
-                            int x = t.getColumnPosition(col);
-                            int w;
-                            if (col+1<cols) {
-                                w=t.getColumnPosition(col+1)-x;
-                            } else {
-                                w=getX()+actualWidth-x-2;
+                        Component comp;
+                        if(t != null) {
+                            comp=t.getComponentAt(row, col);
+                        } else {
+                            comp=getCell(row, col);
+                        }
+                        if ((comp != null) && (comp.isVisible()) &&
+                                ((drawEmptyCellsBorder) ||
+                                 ((comp.getWidth()-comp.getStyle().getPadding(false, Component.RIGHT) - comp.getStyle().getPadding(false, Component.LEFT)>0) &&
+                                  (comp.getHeight()-comp.getStyle().getPadding(false, Component.TOP) - comp.getStyle().getPadding(false, Component.BOTTOM)>0)))) {
+                            int rightMargin=comp.getStyle().getMargin(Component.RIGHT);
+                            int bottomMargin=comp.getStyle().getMargin(Component.BOTTOM);
+                            if (col==0) {
+                                rightMargin*=2; // Since the first cell includes margins from both sides (left/right) so the next cell location is farther away - but we don't want to paint the border up to it
                             }
-                            Component comp=t.getComponentAt(row, col);
-                            if ((comp.isVisible()) &&
-                                    ((drawEmptyCellsBorder) ||
-                                     ((comp.getWidth()-comp.getStyle().getPadding(false, Component.RIGHT) - comp.getStyle().getPadding(false, Component.LEFT)>0) &&
-                                      (comp.getHeight()-comp.getStyle().getPadding(false, Component.TOP) - comp.getStyle().getPadding(false, Component.BOTTOM)>0)))) {
-                                int rightMargin=comp.getStyle().getMargin(Component.RIGHT);
-                                int bottomMargin=comp.getStyle().getMargin(Component.BOTTOM);
-                                if (col==0) {
-                                    rightMargin*=2; // Since the first cell includes margins from both sides (left/right) so the next cell location is farther away - but we don't want to paint the border up to it
-                                }
-                                if (row==0) {
-                                    bottomMargin*=2;
-                                }
-                                g.drawRect(x+comp.getStyle().getMargin(Component.LEFT), y+comp.getStyle().getMargin(Component.TOP), w-2-rightMargin, h-2-bottomMargin);
+                            if (row==0) {
+                                bottomMargin*=2;
                             }
+                            g.drawRect(x+comp.getStyle().getMargin(Component.LEFT), y+comp.getStyle().getMargin(Component.TOP), w-2-rightMargin, h-2-bottomMargin);
                         }
                     }
-            }
+                }
+        }
+    }
 
-            g.translate(-xPos, -yPos);
+    /**
+     * The position of the table row, the table layout is null for a virtualized table
+     */
+    private int getRowPosition(TableLayout t, int row) {
+        if(t == null) {
+            return getStyle().getPadding(false, Component.TOP) + getRowOffset(row);
+        }
+        return t.getRowPosition(row);
+    }
+
+    /**
+     * The position of the column, the table layout is null for a virtualized table
+     */
+    private int getColumnPosition(TableLayout t, int column) {
+        if(t == null) {
+            return columnPositions[column];
         }
+        return t.getColumnPosition(column);
     }
 
     private Component createCellImpl(Object value, final int row, final int column, boolean editable) {
@@ -391,6 +972,7 @@ public class Table extends Container {
             header.setUIID("TableHeader");
             header.setAlignment(titleAlignment);
             header.setFocusable(true);
+            header.putClientProperty("defaultCell", Boolean.TRUE);
             return header;
         }
         if(editable) {
@@ -403,6 +985,7 @@ public class Table extends Container {
         cell.setUIID("TableCell");
         cell.setAlignment(cellAlignment);
         cell.setFocusable(true);
+        cell.putClientProperty("defaultCell", Boolean.TRUE);
         return cell;
     }
 
@@ -417,6 +1000,9 @@ public class Table extends Container {
             potentiallyDirtyModel = false;
         }
         model.addDataChangeListener(listener);
+        if(model instanceof RowRangeTableModel) {
+            ((RowRangeTableModel)model).addRowRangeListener(listener);
+        }
     }
 
     /**
@@ -429,6 +1015,9 @@ public class Table extends Container {
         if(!Display.getInstance().isVirtualKeyboardShowing()) {
             potentiallyDirtyModel = true;
             model.removeDataChangeListener(listener);
+            if(model instanceof RowRangeTableModel) {
+                ((RowRangeTableModel)model).removeRowRangeListener(listener);
+            }
         } else {
             potentiallyDirtyModel = false;
         }
@@ -454,6 +1043,123 @@ public class Table extends Container {
         return model;
     }
 
+    /**
+     * Indicates whether the table only creates cells for the rows and columns within its
+     * viewport and recycles them as it scrolls. A virtualized table scrolls on the Y axis,
+     * lays out its cells in a grid without spanning and doesn't invoke
+     * {@link #createCellConstraint(Object, int, int)}. Row heights are measured as rows are
+     * shown, column widths are taken from {@link #setColumnWidthPercentages(int[])} or
+     * sampled from the header and the first rows of the model.
+     *
+     * @param virtualized true to create cells only for the visible rows and columns
+     */
+    public void setVirtualized(boolean virtualized) {
+        if(this.virtualized != virtualized) {
+            this.virtualized = virtualized;
+            if(virtualized) {
+                setScrollableY(true);
+            }
+            updateModel();
+            if(isInitialized()) {
+                revalidate();
+            } else {
+                setShouldCalcPreferredSize(true);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the table only creates cells for the rows and columns within its
+     * viewport
+     *
+     * @return true if the table is virtualized
+     */
+    public boolean isVirtualized() {
+        return virtualized;
+    }
+
+    /**
+     * Declares the widths of the columns of a virtualized table in percentage of the table
+     * width, columns without a positive percentage use their sampled width
+     *
+     * @param columnWidthPercentages the width percentage of each column or null to sample all
+     * the columns
+     */
+    public void setColumnWidthPercentages(int[] columnWidthPercentages) {
+        this.columnWidthPercentages = columnWidthPercentages;
+        if(virtualized) {
+            setShouldCalcPreferredSize(true);
+            revalidate();
+        }
+    }
+
+    /**
+     * Returns the widths of the columns of a virtualized table in percentage of the table width
+     *
+     * @return the width percentage of each column or null
+     */
+    public int[] getColumnWidthPercentages() {
+        return columnWidthPercentages;
+    }
+
+    /**
+     * Sets the number of rows measured to determine the widths of the columns of a
+     * virtualized table, the header is always measured
+     *
+     * @param columnSampleSize the number of rows to measure
+     */
+    public void setColumnSampleSize(int columnSampleSize) {
+        this.columnSampleSize = columnSampleSize;
+        if(virtualized) {
+            sampledWidths = null;
+            setShouldCalcPreferredSize(true);
+            revalidate();
+        }
+    }
+
+    /**
+     * Returns the number of rows measured to determine the widths of the columns of a
+     * virtualized table
+     *
+     * @return the number of rows to measure
+     */
+    public int getColumnSampleSize() {
+        return columnSampleSize;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    protected void setScrollX(int scrollX) {
+        super.setScrollX(scrollX);
+        if(virtualized && isInitialized()) {
+            bindCells();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    protected void setScrollY(int scrollY) {
+        super.setScrollY(scrollY);
+        if(virtualized && isInitialized()) {
+            bindCells();
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public boolean animate() {
+        boolean val = super.animate();
+
+        // drag and fling motions move the scroll position without invoking the setters
+        if(virtualized && isInitialized() && (getScrollX() != boundScrollX || getScrollY() != boundScrollY)) {
+            bindCells();
+        }
+        return val;
+    }
+
     /**
      * Indicates whether the table border should be drawn
      *
@@ -547,13 +1253,23 @@ public class Table extends Container {
     }
 
     private void updateMargins() {
-        TableLayout t = (TableLayout)getLayout();
-        int hSpace=horizontalBorderSpacing;
-        int vSpace=verticalBorderSpacing;
-        if (collapseBorder) { // not relevant for collapse border
-            hSpace=0;
-            vSpace=0;
+        if(virtualized) {
+            positionalMargins = true;
+            rowHeights = new RowHeightIndex(getTableRowCount());
+            measuredRows = 0;
+            measuredTotal = 0;
+            sampledWidths = null;
+            int cc = getComponentCount();
+            for(int iter = 0 ; iter < cc ; iter++) {
+                Component cmp = getComponentAt(iter);
+                int row = getTableRow(cmp);
+                updateCellMargins(cmp, row, getCellColumn(cmp));
+                measureCell(cmp, row);
+            }
+            refreshCells();
+            return;
         }
+        TableLayout t = (TableLayout)getLayout();
         if ((!t.hasHorizontalSpanning()) && (!t.hasVerticalSpanning())) {
             for(int row = 0 ; row < t.getRows(); row++) {
                 for(int col = 0 ; col < t.getColumns() ; col++) {
@@ -564,10 +1280,7 @@ public class Table extends Container {
                         // parent of cmp can be null as well - TODO - check why
                     }
                     if (cmp!=null) {
-                        int leftMargin=(col==0)?hSpace:0;
-                        int topMargin=(row==0)?vSpace:0;
-                        cmp.getUnselectedStyle().setMargin(topMargin, vSpace, leftMargin, hSpace);
-                        cmp.getSelectedStyle().setMargin(topMargin, vSpace, leftMargin, hSpace);
+                        updateCellMargins(cmp, row, col);
                     }
                 }
             }
@@ -575,6 +1288,19 @@ public class Table extends Container {
         repaint();
     }
 
+    private void updateCellMargins(Component cmp, int row, int col) {
+        int hSpace=horizontalBorderSpacing;
+        int vSpace=verticalBorderSpacing;
+        if (collapseBorder) { // not relevant for collapse border
+            hSpace=0;
+            vSpace=0;
+        }
+        int leftMargin=(col==0)?hSpace:0;
+        int topMargin=(row==0)?vSpace:0;
+        cmp.getUnselectedStyle().setMargin(topMargin, vSpace, leftMargin, hSpace);
+        cmp.getSelectedStyle().setMargin(topMargin, vSpace, leftMargin, hSpace);
+    }
+
 
     /**
      * Indicates the alignment of the title see label alignment for details
@@ -725,11 +1451,138 @@ public class Table extends Container {
         return super.setPropertyValue(name, value);
     }
 
-    class Listener implements DataChangedListener, ActionListener {
+    /**
+     * Updates the cells of a virtualized table after the values of the given model rows
+     * changed, cells that can't be updated are replaced
+     */
+    private void updateRows(int firstRow, int lastRow, int column) {
+        int header = getHeaderRows();
+        Component focus = getFocusedCell();
+        int focusRow = -1;
+        int focusColumn = -1;
+        for(int iter = getComponentCount() - 1 ; iter >= 0 ; iter--) {
+            Component c = getComponentAt(iter);
+            int row = getCellRow(c);
+            int col = getCellColumn(c);
+            if(row < firstRow || row > lastRow || (column > -1 && col != column)) {
+                continue;
+            }
+            Object value = model.getValueAt(row, col);
+            if(value == null || !updateCell(c, value, row, col, model.isCellEditable(row, col))) {
+                if(c == focus) {
+                    focusRow = row;
+                    focusColumn = col;
+                }
+                removeComponent(c);
+            }
+        }
+        forgetRows(firstRow + header, lastRow - firstRow + 1);
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Component c = getComponentAt(iter);
+            int row = getCellRow(c);
+            if(row >= firstRow && row <= lastRow) {
+                measureCell(c, row + header);
+            }
+        }
+        refreshCells();
+        if(focusColumn > -1) {
+            Component c = getCell(focusRow + header, focusColumn);
+            if(c != null) {
+                c.requestFocus();
+            }
+        }
+    }
+
+    /**
+     * Shifts the cells of a virtualized table after rows were inserted to the model
+     */
+    private void insertRows(int firstRow, int count) {
+        int cc = getComponentCount();
+        for(int iter = 0 ; iter < cc ; iter++) {
+            Component c = getComponentAt(iter);
+            int row = getCellRow(c);
+            if(row >= firstRow) {
+                c.putClientProperty("row", new Integer(row + count));
+            }
+        }
+        rowHeights.insert(firstRow + getHeaderRows(), count);
+
+        // the widths are only sampled again while the sample is incomplete to keep them stable
+        if(sampledRows < columnSampleSize) {
+            sampledWidths = null;
+        }
+        refreshCells();
+    }
+
+    /**
+     * Removes and shifts the cells of a virtualized table after rows were deleted from the model
+     */
+    private void deleteRows(int firstRow, int count) {
+        int lastRow = firstRow + count - 1;
+        for(int iter = getComponentCount() - 1 ; iter >= 0 ; iter--) {
+            Component c = getComponentAt(iter);
+            int row = getCellRow(c);
+            if(row >= firstRow && row <= lastRow) {
+                removeComponent(c);
+            } else if(row > lastRow) {
+                c.putClientProperty("row", new Integer(row - count));
+            }
+        }
+        forgetRows(firstRow + getHeaderRows(), count);
+        rowHeights.remove(firstRow + getHeaderRows(), count);
+        refreshCells();
+    }
+
+    /**
+     * Binds and lays out the cells of a virtualized table again without revalidating the form
+     */
+    private void refreshCells() {
+        boundFirstRow = -1;
+        setShouldCalcPreferredSize(true);
+        if(isInitialized()) {
+            layoutContainer();
+            repaint();
+        }
+    }
+
+    /**
+     * Lays out the bound cells of a virtualized table, the preferred size is derived from the
+     * sampled column widths and the measured row heights
+     */
+    private class VirtualLayout extends Layout {
+        /**
+         * @inheritDoc
+         */
+        public void layoutContainer(Container parent) {
+            bindCells();
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public Dimension getPreferredSize(Container parent) {
+            Style s = getStyle();
+            int w = s.getPadding(false, Component.LEFT) + s.getPadding(false, Component.RIGHT);
+            int h = s.getPadding(false, Component.TOP) + s.getPadding(false, Component.BOTTOM);
+            sampleColumns();
+            for(int iter = 0 ; iter < sampledWidths.length ; iter++) {
+                w += sampledWidths[iter];
+            }
+            h += rowHeights.getTotal(getEstimatedRowHeight(), 0);
+            return new Dimension(w, h);
+        }
+    }
+
+    class Listener implements DataChangedListener, ActionListener, RowRangeListener {
         /**
          * @inheritDoc
          */
         public final void dataChanged(int row, int column) {
+            if(virtualized) {
+                updateRows(row, row, column);
+                return;
+            }
             Object value = model.getValueAt(row, column);
             boolean e = model.isCellEditable(row, column);
             Component cell = createCellImpl(value, row, column, e);
@@ -758,5 +1611,41 @@ public class Table extends Container {
             int column = getCellColumn(t);
             getModel().setValueAt(row, column, t.getText());
         }
+
+        /**
+         * @inheritDoc
+         */
+        public void rowsInserted(int firstRow, int lastRow) {
+            if(virtualized) {
+                insertRows(firstRow, lastRow - firstRow + 1);
+            } else {
+                updateModel();
+                revalidate();
+            }
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public void rowsDeleted(int firstRow, int lastRow) {
+            if(virtualized) {
+                deleteRows(firstRow, lastRow - firstRow + 1);
+            } else {
+                updateModel();
+                revalidate();
+            }
+        }
+
+        /**
+         * @inheritDoc
+         */
+        public void rowsUpdated(int firstRow, int lastRow) {
+            if(virtualized) {
+                updateRows(firstRow, lastRow, -1);
+            } else {
+                updateModel();
+                revalidate();
+            }
+        }
     }
 }
@@ -847,6 +847,13 @@ public class TableLayout extends Layout {
         return "TableLayout";
     }
 
+    /**
+     * @inheritDoc
+     */
+    public boolean isIncrementalLayoutSupported() {
+        return true;
+    }
+
     /**
      * @inheritDoc
      */
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.tree;
+
+import java.util.Vector;
+
+/**
+ * A tree model that delivers the children of a node asynchronously in pages, this is
+ * used by a flattened tree to show a large branch without blocking the EDT.
+ * The getChildrenAsync method is called on the EDT and has to return immediately, the pages
+ * can be fetched on any thread and delivered to the callback from any thread.
+ *
+ * Note that getChildren should be implemented as well since a tree that isn't
+ * flattened fetches the children synchronously.
+ */
+public interface AsyncTreeModel extends TreeModel {
+
+    /**
+     * Called by a flattened tree when a node is expanded and when the placeholder row following
+     * the last delivered page of children is shown.
+     * This method should return immediately and fetch the page on another thread, when the page
+     * is ready the callback should be invoked.
+     *
+     * @param parent the node whose children are requested, null for the root of the tree
+     * @param offset the offset of the first requested child
+     * @param count the maximum number of children to deliver
+     * @param callback the callback to invoke with the page
+     */
+    public void getChildrenAsync(Object parent, int offset, int count, ChildrenCallback callback);
+
+    /**
+     * This interface is implemented by the flattened tree to receive pages of children
+     */
+    public interface ChildrenCallback {
+
+        /**
+         * Called when a page of children is ready, the method can be invoked from any thread
+         *
+         * @param parent the node whose children were fetched
+         * @param offset the offset of the first child in the page
+         * @param children the children in the page
+         * @param hasMore true if the parent has more children following this page
+         */
+        public void childrenReady(Object parent, int offset, Vector children, boolean hasMore);
+
+    }
+
+}
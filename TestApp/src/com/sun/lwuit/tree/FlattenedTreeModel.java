@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.tree;
+
+import com.sun.lwuit.events.DataChangedListener;
+import com.sun.lwuit.events.SelectionListener;
+import com.sun.lwuit.list.ListModel;
+import com.sun.lwuit.util.EventDispatcher;
+import java.util.Vector;
+
+/**
+ * List model representing the visible rows of an expanded tree as parallel arrays of
+ * nodes, depths and state flags. Children are added to the rows only when their parent
+ * is expanded and a node is asked whether it is a leaf only when it is first rendered.
+ * Expanding or collapsing a node shifts the rows following it and fires a single event
+ * regardless of the number of rows.
+ */
+class FlattenedTreeModel implements ListModel {
+    private static final byte EXPANDED = 1;
+    private static final byte LEAF_KNOWN = 2;
+    private static final byte LEAF = 4;
+
+    private TreeModel model;
+    private Object[] nodes = new Object[16];
+    private int[] depths = new int[16];
+    private byte[] flags = new byte[16];
+    private int size;
+    private int selectedIndex;
+    private EventDispatcher dataListener = new EventDispatcher();
+    private EventDispatcher selectionListener = new EventDispatcher();
+
+    /**
+     * Creates an empty model
+     *
+     * @param model the tree model used to determine which nodes are leaves
+     */
+    public FlattenedTreeModel(TreeModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Placeholder row standing for a page of children that wasn't fetched yet
+     */
+    static class Page {
+        Object parent;
+        int offset;
+        boolean requested;
+
+        Page(Object parent, int offset) {
+            this.parent = parent;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public Object getItemAt(int index) {
+        if(index < size && index >= 0) {
+            return nodes[index];
+        }
+        return null;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the depth of the row, the children of the root are at depth 0
+     *
+     * @param row the row offset
+     * @return the depth of the row
+     */
+    public int getDepth(int row) {
+        return depths[row];
+    }
+
+    /**
+     * Indicates whether the node in the row is expanded
+     *
+     * @param row the row offset
+     * @return true if the children of the node follow it
+     */
+    public boolean isExpanded(int row) {
+        return (flags[row] & EXPANDED) != 0;
+    }
+
+    /**
+     * Marks the node in the row as expanded or collapsed, the children are
+     * added or removed separately
+     *
+     * @param row the row offset
+     * @param expanded true if the node is expanded
+     */
+    public void setExpanded(int row, boolean expanded) {
+        if(expanded) {
+            flags[row] |= EXPANDED;
+        } else {
+            flags[row] &= ~EXPANDED;
+        }
+        dataListener.fireDataChangeEvent(row, DataChangedListener.CHANGED);
+    }
+
+    /**
+     * Indicates whether the node in the row is a leaf, the tree model is queried
+     * once per row
+     *
+     * @param row the row offset
+     * @return true if the node is a leaf
+     */
+    public boolean isLeaf(int row) {
+        byte f = flags[row];
+        if((f & LEAF_KNOWN) == 0) {
+            f |= LEAF_KNOWN;
+            if(nodes[row] instanceof Page || model.isLeaf(nodes[row])) {
+                f |= LEAF;
+            }
+            flags[row] = f;
+        }
+        return (f & LEAF) != 0;
+    }
+
+    /**
+     * Returns the number of rows following the given row that belong to its subtree
+     *
+     * @param row the row offset
+     * @return the number of visible descendants of the row
+     */
+    public int getDescendantCount(int row) {
+        int depth = depths[row];
+        int end = row + 1;
+        while(end < size && depths[end] > depth) {
+            end++;
+        }
+        return end - row - 1;
+    }
+
+    /**
+     * Returns the row of the given object compared by identity
+     *
+     * @param node the node or page placeholder
+     * @return the row offset or -1 if the object isn't visible
+     */
+    public int indexOf(Object node) {
+        for(int iter = 0 ; iter < size ; iter++) {
+            if(nodes[iter] == node) {
+                return iter;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Inserts collapsed rows for the given nodes
+     *
+     * @param row the offset of the first new row
+     * @param children the nodes to insert
+     * @param depth the depth of the new rows
+     */
+    public void insertRows(int row, Vector children, int depth) {
+        int count = children.size();
+        if(count == 0) {
+            return;
+        }
+        openGap(row, count);
+        for(int iter = 0 ; iter < count ; iter++) {
+            nodes[row + iter] = children.elementAt(iter);
+            depths[row + iter] = depth;
+        }
+        dataListener.fireDataChangeEvent(row, DataChangedListener.ADDED);
+    }
+
+    /**
+     * Inserts a single collapsed row
+     *
+     * @param row the offset of the new row
+     * @param node the node to insert
+     * @param depth the depth of the new row
+     */
+    public void insertRow(int row, Object node, int depth) {
+        openGap(row, 1);
+        nodes[row] = node;
+        depths[row] = depth;
+        dataListener.fireDataChangeEvent(row, DataChangedListener.ADDED);
+    }
+
+    /**
+     * Removes rows from the model
+     *
+     * @param row the offset of the first row to remove
+     * @param count the number of rows to remove
+     */
+    public void removeRows(int row, int count) {
+        if(count <= 0) {
+            return;
+        }
+        System.arraycopy(nodes, row + count, nodes, row, size - row - count);
+        System.arraycopy(depths, row + count, depths, row, size - row - count);
+        System.arraycopy(flags, row + count, flags, row, size - row - count);
+        int oldSize = size;
+        size -= count;
+        for(int iter = size ; iter < oldSize ; iter++) {
+            nodes[iter] = null;
+        }
+        if(selectedIndex >= row + count) {
+            selectedIndex -= count;
+        } else if(selectedIndex >= row) {
+            selectedIndex = Math.max(0, Math.min(row - 1, size - 1));
+        }
+        dataListener.fireDataChangeEvent(row, DataChangedListener.REMOVED);
+    }
+
+    /**
+     * Makes room for collapsed rows at the offset, the selection is shifted so the
+     * selected node stays selected
+     */
+    private void openGap(int row, int count) {
+        if(size + count > nodes.length) {
+            int capacity = Math.max(nodes.length * 2, size + count);
+            Object[] n = new Object[capacity];
+            int[] d = new int[capacity];
+            byte[] f = new byte[capacity];
+            System.arraycopy(nodes, 0, n, 0, size);
+            System.arraycopy(depths, 0, d, 0, size);
+            System.arraycopy(flags, 0, f, 0, size);
+            nodes = n;
+            depths = d;
+            flags = f;
+        }
+        System.arraycopy(nodes, row, nodes, row + count, size - row);
+        System.arraycopy(depths, row, depths, row + count, size - row);
+        System.arraycopy(flags, row, flags, row + count, size - row);
+        for(int iter = 0 ; iter < count ; iter++) {
+            flags[row + iter] = 0;
+        }
+        if(selectedIndex >= row && size > 0) {
+            selectedIndex += count;
+        }
+        size += count;
+    }
+
+    /**
+     * Removes all the rows
+     */
+    public void removeAll() {
+        if(size > 0) {
+            for(int iter = 0 ; iter < size ; iter++) {
+                nodes[iter] = null;
+            }
+            size = 0;
+            selectedIndex = 0;
+            dataListener.fireDataChangeEvent(-1, DataChangedListener.REMOVED);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public int getSelectedIndex() {
+        return selectedIndex;
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void setSelectedIndex(int index) {
+        int oldIndex = selectedIndex;
+        this.selectedIndex = index;
+        selectionListener.fireSelectionEvent(oldIndex, selectedIndex);
+    }
+
+    /**
+     * Adds a collapsed node at the root level of the tree
+     *
+     * @param item the node to add
+     */
+    public void addItem(Object item) {
+        insertRow(size, item, 0);
+    }
+
+    /**
+     * Removes the row and its visible descendants
+     *
+     * @param index the row offset
+     */
+    public void removeItem(int index) {
+        if(index < size && index >= 0) {
+            removeRows(index, getDescendantCount(index) + 1);
+        }
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void addDataChangedListener(DataChangedListener l) {
+        dataListener.addListener(l);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void removeDataChangedListener(DataChangedListener l) {
+        dataListener.removeListener(l);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void addSelectionListener(SelectionListener l) {
+        selectionListener.addListener(l);
+    }
+
+    /**
+     * @inheritDoc
+     */
+    public void removeSelectionListener(SelectionListener l) {
+        selectionListener.removeListener(l);
+    }
+}
@@ -31,13 +31,16 @@ import com.sun.lwuit.Container;
 import com.sun.lwuit.Display;
 import com.sun.lwuit.Image;
 import com.sun.lwuit.Label;
+import com.sun.lwuit.List;
 import com.sun.lwuit.animations.CommonTransitions;
 import com.sun.lwuit.events.ActionEvent;
 import com.sun.lwuit.events.ActionListener;
 import com.sun.lwuit.geom.Dimension;
 import com.sun.lwuit.layouts.BorderLayout;
 import com.sun.lwuit.layouts.BoxLayout;
+import com.sun.lwuit.list.ListCellRenderer;
 import com.sun.lwuit.plaf.Style;
+import com.sun.lwuit.plaf.UIManager;
 import com.sun.lwuit.util.EventDispatcher;
 
 /**
@@ -45,6 +48,9 @@ import com.sun.lwuit.util.EventDispatcher;
  * with no limit. The tree is bound to a model that can provide data with free form depth such as file system
  * or similarly structured data.
  * To customize the look of the tree the component can be derived and component creation can be replaced.
+ * <p>A flattened tree renders its visible rows through a list instead of creating a component per node,
+ * children are fetched only when their parent is expanded and an {@link AsyncTreeModel} can deliver them
+ * in pages. This mode doesn't call createNodeComponent.
  *
  * @author Shai Almog
  */
@@ -61,6 +67,9 @@ public class Tree extends Container {
     private static Image openFolder;
     private static Image nodeImage;
     private int depthIndent = 15;
+    private List rowList;
+    private FlattenedTreeModel rows;
+    private int pageSize = 50;
     /**
      * Constructor for usage by GUI builder and automated tools, normally one
      * should use the version that accepts the model
@@ -148,13 +157,85 @@ public class Tree extends Container {
      * @param model represents the contents of the tree
      */
     public Tree(TreeModel model) {
+        this(model, false);
+    }
+
+    /**
+     * Construct a tree with the given tree model
+     *
+     * @param model represents the contents of the tree
+     * @param flattened true to render the visible rows through a list rather than
+     * creating a component for every node
+     */
+    public Tree(TreeModel model, boolean flattened) {
         this.model = model;
-        setLayout(new BoxLayout(BoxLayout.Y_AXIS));
-        buildBranch(null, 0, this);
-        setScrollableY(true);
+        buildTree(flattened);
         setUIID("Tree");
     }
 
+    private void buildTree(boolean flattened) {
+        if(flattened) {
+            rowList = new List();
+            rowList.setUIID("Container");
+            rowList.setRenderer(new NodeRenderer());
+            rowList.addActionListener(expansionListener);
+            buildRows();
+            setLayout(new BorderLayout());
+            addComponent(BorderLayout.CENTER, rowList);
+        } else {
+            rowList = null;
+            rows = null;
+            setLayout(new BoxLayout(BoxLayout.Y_AXIS));
+            buildBranch(null, 0, this);
+        }
+        setScrollableY(!flattened);
+    }
+
+    /**
+     * Indicates whether the tree renders its visible rows through a list
+     *
+     * @return true if the tree is flattened
+     */
+    public boolean isFlattened() {
+        return rowList != null;
+    }
+
+    /**
+     * Toggles the flattened mode in which the visible rows of the tree are rendered through
+     * a list, children are fetched only when their parent is expanded. The tree is rebuilt
+     * collapsed.
+     *
+     * @param flattened true to render the visible rows through a list
+     */
+    public void setFlattened(boolean flattened) {
+        if(flattened != isFlattened()) {
+            removeAll();
+            buildTree(flattened);
+            if(isInitialized()) {
+                revalidate();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of children requested in a single page from an asynchronous model
+     *
+     * @return the page size
+     */
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    /**
+     * Sets the number of children requested in a single page from an asynchronous model
+     * in the flattened mode
+     *
+     * @param pageSize the page size
+     */
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
     /**
      * Returns the tree model instance
      *
@@ -171,8 +252,12 @@ public class Tree extends Container {
      */
     public void setModel(TreeModel model) {
         this.model = model;
-        removeAll();
-        buildBranch(null, 0, this);
+        if(rowList != null) {
+            buildRows();
+        } else {
+            removeAll();
+            buildBranch(null, 0, this);
+        }
     }
 
     /**
@@ -236,6 +321,13 @@ public class Tree extends Container {
      * @return the object selected within the tree
      */
     public Object getSelectedItem() {
+        if(rowList != null) {
+            Object o = rows.getItemAt(rowList.getSelectedIndex());
+            if(o instanceof FlattenedTreeModel.Page) {
+                return null;
+            }
+            return o;
+        }
         Component c = getComponentForm().getFocused();
         if(c != null) {
             return c.getClientProperty(KEY_OBJECT);
@@ -243,6 +335,64 @@ public class Tree extends Container {
         return null;
     }
 
+    /**
+     * Replaces the rows of the flattened tree with the collapsed children of the root
+     */
+    private void buildRows() {
+        rows = new FlattenedTreeModel(model);
+        insertChildren(null, 0, 0);
+        rowList.setModel(rows);
+    }
+
+    /**
+     * Inserts the children of a node into the flattened rows, an asynchronous model
+     * receives a placeholder row and a request for the first page
+     */
+    private void insertChildren(Object parent, int row, int depth) {
+        if(model instanceof AsyncTreeModel) {
+            FlattenedTreeModel.Page p = new FlattenedTreeModel.Page(parent, 0);
+            rows.insertRow(row, p, depth);
+            requestPage(p);
+        } else {
+            Vector children = model.getChildren(parent);
+            if(children != null) {
+                rows.insertRows(row, children, depth);
+            }
+        }
+    }
+
+    private void requestPage(FlattenedTreeModel.Page p) {
+        if(!p.requested) {
+            p.requested = true;
+            ((AsyncTreeModel)model).getChildrenAsync(p.parent, p.offset, pageSize, new PageHandler(p));
+        }
+    }
+
+    /**
+     * Expands or collapses the node in the given row of the flattened tree or fires
+     * the leaf listener for a leaf
+     */
+    private void toggleRow(int row) {
+        if(row < 0 || row >= rows.getSize()) {
+            return;
+        }
+        Object node = rows.getItemAt(row);
+        if(node instanceof FlattenedTreeModel.Page) {
+            return;
+        }
+        if(rows.isLeaf(row)) {
+            leafListener.fireActionEvent(new ActionEvent(node));
+            return;
+        }
+        if(rows.isExpanded(row)) {
+            rows.setExpanded(row, false);
+            rows.removeRows(row + 1, rows.getDescendantCount(row));
+        } else {
+            rows.setExpanded(row, true);
+            insertChildren(node, row + 1, rows.getDepth(row) + 1);
+        }
+    }
+
     /**
      * Adds the child components of a tree branch to the given container.
      */
@@ -329,13 +479,26 @@ public class Tree extends Container {
         Dimension d = super.calcPreferredSize();
 
         // if the tree is entirely collapsed try to reserve at least 6 rows for the content
-        int count = getComponentCount();
-        for(int iter = 0 ; iter < count ; iter++) {
-            if(getComponentAt(iter) instanceof Container) {
+        int size;
+        if(rowList != null) {
+            size = rows.getSize();
+            for(int iter = 0 ; iter < size ; iter++) {
+                if(rows.getDepth(iter) > 0) {
+                    return d;
+                }
+            }
+            if(size == 0) {
                 return d;
             }
+        } else {
+            int count = getComponentCount();
+            for(int iter = 0 ; iter < count ; iter++) {
+                if(getComponentAt(iter) instanceof Container) {
+                    return d;
+                }
+            }
+            size = model.getChildren(null).size();
         }
-        int size = model.getChildren(null).size();
         if(size < 6) {
             return new Dimension(Math.max(d.getWidth(), Display.getInstance().getDisplayWidth() / 4 * 3),
                     d.getHeight() / size * 6);
@@ -356,6 +519,10 @@ public class Tree extends Container {
         }
 
         public void actionPerformed(ActionEvent evt) {
+            if(evt.getSource() == rowList) {
+                toggleRow(rowList.getSelectedIndex());
+                return;
+            }
             if(current != null) {
                 leafListener.fireActionEvent(new ActionEvent(current));
                 return;
@@ -369,4 +536,111 @@ public class Tree extends Container {
             }
         }
     }
+
+    /**
+     * Renders the rows of the flattened tree using a single button
+     */
+    private class NodeRenderer implements ListCellRenderer {
+        private Button renderer = new Button();
+
+        public NodeRenderer() {
+            renderer.setUIID("TreeNode");
+        }
+
+        public Component getListCellRendererComponent(List list, Object value, int index, boolean isSelected) {
+            if(!Display.getInstance().shouldRenderSelection(list)) {
+                isSelected = false;
+            }
+            int depth = 0;
+            if(index > -1 && index < rows.getSize()) {
+                depth = rows.getDepth(index);
+                if(value instanceof FlattenedTreeModel.Page) {
+                    FlattenedTreeModel.Page p = (FlattenedTreeModel.Page)value;
+                    if(!p.requested) {
+                        // the model can't be modified while the list is painting
+                        Display.getInstance().callSerially(new PageHandler(p));
+                    }
+                    renderer.setText(UIManager.getInstance().localize("Tree.loading", "Loading..."));
+                    renderer.setIcon(null);
+                } else {
+                    renderer.setText(childToDisplayLabel(value));
+                    if(rows.isLeaf(index)) {
+                        renderer.setIcon(nodeImage);
+                    } else {
+                        if(rows.isExpanded(index)) {
+                            renderer.setIcon(openFolder);
+                        } else {
+                            renderer.setIcon(folder);
+                        }
+                    }
+                }
+            } else {
+                renderer.setText(childToDisplayLabel(value));
+            }
+            updateNodeComponentStyle(renderer.getSelectedStyle(), depth);
+            updateNodeComponentStyle(renderer.getUnselectedStyle(), depth);
+            updateNodeComponentStyle(renderer.getPressedStyle(), depth);
+            renderer.setFocus(isSelected);
+            return renderer;
+        }
+
+        public Component getListFocusComponent(List list) {
+            return null;
+        }
+    }
+
+    /**
+     * Requests a page of children and inserts it into the flattened rows in place of its
+     * placeholder, this class unifies both tasks into a single class to reduce the size overhead
+     */
+    private class PageHandler implements AsyncTreeModel.ChildrenCallback, Runnable {
+        private FlattenedTreeModel.Page page;
+        private FlattenedTreeModel owner;
+        private Vector children;
+        private boolean hasMore;
+        private boolean delivered;
+
+        public PageHandler(FlattenedTreeModel.Page page) {
+            this.page = page;
+            owner = rows;
+        }
+
+        public void childrenReady(Object parent, int offset, Vector children, boolean hasMore) {
+            if(children == null) {
+                children = new Vector();
+            }
+            this.children = children;
+            this.hasMore = hasMore;
+            delivered = true;
+            if(Display.getInstance().isEdt()) {
+                run();
+            } else {
+                Display.getInstance().callSerially(this);
+            }
+        }
+
+        public void run() {
+            if(owner != rows) {
+                // the model was replaced
+                return;
+            }
+            if(!delivered) {
+                if(owner.indexOf(page) > -1) {
+                    requestPage(page);
+                }
+                return;
+            }
+            int row = owner.indexOf(page);
+            if(row < 0) {
+                // the parent was collapsed
+                return;
+            }
+            int depth = owner.getDepth(row);
+            owner.removeRows(row, 1);
+            if(hasMore && children.size() > 0) {
+                owner.insertRow(row, new FlattenedTreeModel.Page(page.parent, page.offset + children.size()), depth);
+            }
+            owner.insertRows(row, children, depth);
+        }
+    }
 }
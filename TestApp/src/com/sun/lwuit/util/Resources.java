@@ -48,6 +48,10 @@ import com.sun.lwuit.plaf.Style;
  * A resource is loaded entirely into memory since random file access is not supported
  * in Java ME, any other approach would be inefficient. This means that memory must
  * be made available to accommodate the resource file. 
+ * <p>When lazy loading is enabled a resource file opened by name (or from a byte
+ * array stream) is only scanned when it is opened, images, fonts, data and
+ * localization entries are decoded when they are first requested and kept according
+ * to the cache policy.
  * 
  * @author Shai Almog
  */
@@ -94,6 +98,25 @@ public class Resources {
     static final int BORDER_TYPE_IMAGE_HORIZONTAL = 10;
     static final int BORDER_TYPE_IMAGE_VERTICAL = 11;
 
+    /**
+     * Cache policy keeping lazily loaded entries in memory once they are decoded
+     */
+    public static final int CACHE_HARD = 0;
+
+    /**
+     * Cache policy keeping lazily loaded entries in soft/weak references, an entry
+     * is decoded again if it was collected
+     */
+    public static final int CACHE_SOFT = 1;
+
+    /**
+     * Cache policy decoding lazily loaded entries whenever they are requested
+     */
+    public static final int CACHE_NONE = 2;
+
+    private static boolean lazyLoading;
+    private static int cachePolicy = CACHE_HARD;
+
     // for use by the resource editor
     private static Class classLoader = Resources.class;
 
@@ -123,6 +146,25 @@ public class Resources {
     private Hashtable resources = new Hashtable();
     
     private DataInputStream input; 
+
+    /**
+     * The offset and length within the file of the entries that weren't decoded yet
+     * keyed by name, null unless the file was opened lazily
+     */
+    private Hashtable entries;
+
+    /**
+     * Soft/weak references to decoded entries for the CACHE_SOFT policy
+     */
+    private Hashtable softCache;
+    private int entryCachePolicy;
+
+    /**
+     * The name used to reopen the resource file or the stream that is reset to read
+     * a lazily loaded entry
+     */
+    private String sourceName;
+    private InputStream sourceStream;
     
     // for internal use by the resource editor, creates an empty resource
     Resources() {
@@ -131,6 +173,16 @@ public class Resources {
     Resources(InputStream input) throws IOException {
         openFile(input);
     }
+
+    Resources(InputStream input, String name) throws IOException {
+        // other streams would have to buffer the whole file to be reset, taking more
+        // memory than loading it entirely
+        if(lazyLoading && (name != null || input instanceof ByteArrayInputStream)) {
+            openFile(input, name, true);
+        } else {
+            openFile(input);
+        }
+    }
     
     void clear() {
         majorVersion = 0;
@@ -138,6 +190,10 @@ public class Resources {
         resourceTypes.clear();
         resources.clear();
         input = null;
+        entries = null;
+        softCache = null;
+        sourceName = null;
+        sourceStream = null;
     }
     
     /**
@@ -147,7 +203,28 @@ public class Resources {
     }
 
     void openFile(InputStream input) throws IOException {
+        openFile(input, null, false);
+    }
+
+    /**
+     * Reads the entries of the resource file, when opening lazily the entries that can be
+     * skipped are only indexed so they can be read again from the named resource or by
+     * resetting the stream
+     */
+    private void openFile(InputStream input, String name, boolean lazy) throws IOException {
         clear();
+        CountingInputStream counter = null;
+        Hashtable index = null;
+        if(lazy) {
+            if(name == null) {
+                input.mark(Integer.MAX_VALUE);
+                sourceStream = input;
+            }
+            sourceName = name;
+            counter = new CountingInputStream(input);
+            input = counter;
+            index = new Hashtable();
+        }
         this.input = new DataInputStream(input);
         int resourceCount = this.input.readShort();
         if(resourceCount < 0) {
@@ -177,50 +254,135 @@ public class Resources {
                 case MAGIC_HEADER:
                     readHeader();
                     continue;
-                case MAGIC_THEME:
-                    setResource(id, MAGIC_THEME, loadTheme(id, magic == MAGIC_THEME));
-                    continue;
-                case MAGIC_IMAGE:
-                    setResource(id, magic, createImage());
-                    continue;
-                case MAGIC_FONT:
-                    setResource(id, magic, loadFont(this.input, id, false));
-                    continue;
-                case MAGIC_DATA:
-                    setResource(id, magic, createData());
-                    continue;
-                case MAGIC_UI:
-                    setResource(id, magic, createData());
-                    continue;
-                case MAGIC_L10N:
-                    setResource(id, magic, loadL10N());
+            }
+            byte type = getEntryType(magic);
+            if(counter != null) {
+                int offset = counter.getCount();
+                if(skipEntry(magic)) {
+                    index.put(id, new int[] {magic, offset, counter.getCount() - offset});
+                    resourceTypes.put(id, new Byte(type));
                     continue;
+                }
+            }
+            setResource(id, type, readEntry(id, magic));
+        }
 
-                // legacy file support to be removed
-                case MAGIC_IMAGE_LEGACY:
-                    setResource(id, MAGIC_IMAGE, createImage());
-                    continue;
-                case MAGIC_INDEXED_IMAGE_LEGACY:
-                    setResource(id, MAGIC_IMAGE, createPackedImage8());
-                    continue;
-                case MAGIC_THEME_LEGACY:
-                    setResource(id, MAGIC_THEME, loadTheme(id, magic == MAGIC_THEME));
-                    continue;
-                case MAGIC_FONT_LEGACY:
-                    setResource(id, MAGIC_FONT, loadFont(this.input, id, false));
-                    continue;
-                case MAGIC_INDEXED_FONT_LEGACY:
-                    setResource(id, MAGIC_FONT, loadFont(this.input, id, true));
-                    continue;
-                case MAGIC_ANIMATION_LEGACY:
-                    setResource(id, MAGIC_IMAGE, loadAnimation(this.input));
-                    continue;
-                default:
-                    throw new IOException("Corrupt theme file unrecognized magic number: " + Integer.toHexString(magic & 0xff));
+        // the index is only available once the scan is complete, entries decoded during
+        // the scan (themes) refer to entries that weren't loaded yet by name
+        if(lazy) {
+            entries = index;
+            entryCachePolicy = cachePolicy;
+            if(entryCachePolicy == CACHE_SOFT) {
+                softCache = new Hashtable();
             }
+            this.input = null;
         }
     }
 
+    /**
+     * Returns the type under which the entry with the given magic number is stored
+     */
+    private static byte getEntryType(byte magic) throws IOException {
+        switch(magic) {
+            case MAGIC_THEME:
+            case MAGIC_THEME_LEGACY:
+                return MAGIC_THEME;
+            case MAGIC_IMAGE:
+            case MAGIC_IMAGE_LEGACY:
+            case MAGIC_INDEXED_IMAGE_LEGACY:
+            case MAGIC_ANIMATION_LEGACY:
+                return MAGIC_IMAGE;
+            case MAGIC_FONT:
+            case MAGIC_FONT_LEGACY:
+            case MAGIC_INDEXED_FONT_LEGACY:
+                return MAGIC_FONT;
+            case MAGIC_DATA:
+            case MAGIC_UI:
+            case MAGIC_L10N:
+                return magic;
+            default:
+                throw new IOException("Corrupt theme file unrecognized magic number: " + Integer.toHexString(magic & 0xff));
+        }
+    }
+
+    /**
+     * Decodes the entry with the given magic number from the input
+     */
+    private Object readEntry(String id, byte magic) throws IOException {
+        switch(magic) {
+            case MAGIC_THEME:
+                return loadTheme(id, magic == MAGIC_THEME);
+            case MAGIC_IMAGE:
+                return createImage();
+            case MAGIC_FONT:
+                return loadFont(this.input, id, false);
+            case MAGIC_DATA:
+                return createData();
+            case MAGIC_UI:
+                return createData();
+            case MAGIC_L10N:
+                return loadL10N();
+
+            // legacy file support to be removed
+            case MAGIC_IMAGE_LEGACY:
+                return createImage();
+            case MAGIC_INDEXED_IMAGE_LEGACY:
+                return createPackedImage8();
+            case MAGIC_THEME_LEGACY:
+                return loadTheme(id, magic == MAGIC_THEME);
+            case MAGIC_FONT_LEGACY:
+                return loadFont(this.input, id, false);
+            case MAGIC_INDEXED_FONT_LEGACY:
+                return loadFont(this.input, id, true);
+            case MAGIC_ANIMATION_LEGACY:
+                return loadAnimation(this.input);
+            default:
+                throw new IOException("Corrupt theme file unrecognized magic number: " + Integer.toHexString(magic & 0xff));
+        }
+    }
+
+    /**
+     * Sets whether resource files opened from now on are loaded lazily. A lazily loaded
+     * file opened by name is scanned once and every image, font, data or localization
+     * entry is read again from the file and decoded when it is first requested.
+     * Streams are loaded lazily only if they are byte array streams which are kept by
+     * the resource object, other streams are always loaded entirely. If an entry can't be
+     * read when it is requested the getter throws a RuntimeException.
+     *
+     * @param lazy true to load resources lazily, false by default
+     */
+    public static void setLazyLoading(boolean lazy) {
+        lazyLoading = lazy;
+    }
+
+    /**
+     * Indicates whether resource files opened from now on are loaded lazily
+     *
+     * @return true if resources are loaded lazily
+     */
+    public static boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    /**
+     * Sets the policy used to keep entries decoded by lazily loaded resource files
+     * opened from now on
+     *
+     * @param policy one of CACHE_HARD (the default), CACHE_SOFT or CACHE_NONE
+     */
+    public static void setCachePolicy(int policy) {
+        cachePolicy = policy;
+    }
+
+    /**
+     * Returns the policy used to keep entries decoded by lazily loaded resource files
+     *
+     * @return one of CACHE_HARD, CACHE_SOFT or CACHE_NONE
+     */
+    public static int getCachePolicy() {
+        return cachePolicy;
+    }
+
     /**
      * Sets the password to use for password protected resource files
      * 
@@ -341,6 +503,9 @@ public class Resources {
      * For internal use only
      */
     void setResource(String id, byte type, Object value) {
+        if(entries != null) {
+            entries.remove(id);
+        }
         if(value == null) {
             resources.remove(id);
             resourceTypes.remove(id);
@@ -544,7 +709,7 @@ public class Resources {
             if(is == null) {
                 throw new IOException(resource + " not found");
             }
-            Resources r = new Resources(is);
+            Resources r = new Resources(is, resource);
             is.close();
             lastLoadedName = resource;
             cachedResource = Display.getInstance().createSoftWeakRef(r);
@@ -568,7 +733,7 @@ public class Resources {
      * @throws java.io.IOException if opening/reading the resource fails
      */
     public static Resources open(InputStream resource) throws IOException {
-        return new Resources(resource);
+        return new Resources(resource, null);
     }
 
     /**
@@ -578,7 +743,7 @@ public class Resources {
      * @return cached image instance
      */
     public Image getImage(String id) {
-        return (Image)resources.get(id);
+        return (Image)getResourceObject(id);
     }
 
     /**
@@ -589,7 +754,7 @@ public class Resources {
      * @deprecated use getImage(String) instead
      */
     public StaticAnimation getAnimation(String id) {
-        return (StaticAnimation)resources.get(id);
+        return (StaticAnimation)getResourceObject(id);
     }
     
     /**
@@ -599,7 +764,7 @@ public class Resources {
      * @return newly created input stream that allows reading the data of the resource
      */
     public InputStream getData(String id) {
-        return new ByteArrayInputStream((byte[])resources.get(id));
+        return new ByteArrayInputStream((byte[])getResourceObject(id));
     }
     
     /**
@@ -609,7 +774,7 @@ public class Resources {
      * @return newly created input stream that allows reading the ui of the resource
      */
     InputStream getUi(String id) {
-        byte[] d = (byte[])resources.get(id);
+        byte[] d = (byte[])getResourceObject(id);
         if(d == null) {
             throw new RuntimeException("UI Resource Not Found: " + id);
         }
@@ -624,7 +789,7 @@ public class Resources {
      * @return Hashtable containing key value pairs for localized data
      */
     public Hashtable getL10N(String id, String locale) {
-        return (Hashtable)((Hashtable)resources.get(id)).get(locale);
+        return (Hashtable)((Hashtable)getResourceObject(id)).get(locale);
     }
 
     /**
@@ -634,7 +799,7 @@ public class Resources {
      * @return enumeration of strings containing bundle names
      */
     public Enumeration listL10NLocales(String id) {
-        return ((Hashtable)resources.get(id)).keys();
+        return ((Hashtable)getResourceObject(id)).keys();
     }
 
     /**
@@ -644,7 +809,7 @@ public class Resources {
      * @return cached font instance
      */
     public Font getFont(String id) {
-        return (Font)resources.get(id);
+        return (Font)getResourceObject(id);
     }
 
     /**
@@ -676,7 +841,7 @@ public class Resources {
                         if(key.endsWith("Image")) {
                             o = getImage((String)value);
                         } else {
-                            o = resources.get(value);
+                            o = getResourceObject((String)value);
                         }
                         if(o == null) {
                             throw new IllegalArgumentException("Theme entry for " + key + " could not be found: " + value);
@@ -750,7 +915,305 @@ public class Resources {
     }
     
     Object getResourceObject(String res) {
-        return resources.get(res);
+        Object o = resources.get(res);
+        if(o != null || entries == null) {
+            return o;
+        }
+        int[] entry = (int[])entries.get(res);
+        if(entry == null) {
+            return null;
+        }
+        if(softCache != null) {
+            Object ref = softCache.get(res);
+            if(ref != null) {
+                o = Display.getInstance().extractHardRef(ref);
+                if(o != null) {
+                    return o;
+                }
+            }
+        }
+        o = loadEntry(res, entry);
+        if(o != null) {
+            switch(entryCachePolicy) {
+                case CACHE_HARD:
+                    resources.put(res, o);
+                    break;
+                case CACHE_SOFT:
+                    softCache.put(res, Display.getInstance().createSoftWeakRef(o));
+                    break;
+            }
+        }
+        return o;
+    }
+
+    /**
+     * Reads an entry of a lazily loaded file and decodes it, entries referenced by the
+     * entry (e.g. timeline images) might be loaded while it is decoded
+     *
+     * @throws RuntimeException if the entry can't be read, the getters don't declare
+     * an IOException since an eagerly loaded file is read when it is opened
+     */
+    private synchronized Object loadEntry(String id, int[] entry) {
+        DataInputStream previous = input;
+        try {
+            input = new DataInputStream(new ByteArrayInputStream(readEntryData(entry[1], entry[2])));
+            return readEntry(id, (byte)entry[0]);
+        } catch(IOException err) {
+            throw new RuntimeException("Failed to load resource " + id + ": " + err.toString());
+        } finally {
+            input = previous;
+        }
+    }
+
+    private byte[] readEntryData(int offset, int length) throws IOException {
+        InputStream is;
+        if(sourceName != null) {
+            is = Display.getInstance().getResourceAsStream(classLoader, sourceName);
+            if(is == null) {
+                throw new IOException(sourceName + " not found");
+            }
+        } else {
+            is = sourceStream;
+            is.reset();
+        }
+        try {
+            DataInputStream d = new DataInputStream(is);
+            skipFully(d, offset);
+            byte[] data = new byte[length];
+            d.readFully(data);
+            return data;
+        } finally {
+            if(sourceName != null) {
+                is.close();
+            }
+        }
+    }
+
+    private static void skipFully(DataInputStream input, int size) throws IOException {
+        while(size > 0) {
+            int skipped = (int)input.skip(size);
+            if(skipped <= 0) {
+                // some streams won't skip past their buffer, reading fails at the end of the stream
+                input.readByte();
+                skipped = 1;
+            }
+            size -= skipped;
+        }
+    }
+
+    private void skipUTF() throws IOException {
+        skipFully(input, input.readUnsignedShort());
+    }
+
+    /**
+     * Skips the entry with the given magic number without decoding it, returns false
+     * without reading anything if the entry must be decoded
+     */
+    private boolean skipEntry(byte magic) throws IOException {
+        switch(magic) {
+            case MAGIC_IMAGE:
+            case MAGIC_IMAGE_LEGACY:
+                skipImage();
+                return true;
+            case MAGIC_INDEXED_IMAGE_LEGACY:
+                skipPackedImage8();
+                return true;
+            case MAGIC_ANIMATION_LEGACY:
+                skipAnimation();
+                return true;
+            case MAGIC_FONT:
+            case MAGIC_FONT_LEGACY:
+                skipFont(false);
+                return true;
+            case MAGIC_INDEXED_FONT_LEGACY:
+                skipFont(true);
+                return true;
+            case MAGIC_DATA:
+            case MAGIC_UI:
+                skipFully(input, input.readInt());
+                return true;
+            case MAGIC_L10N:
+                int keys = input.readShort();
+                int languages = input.readShort();
+                for(int iter = 0 ; iter < keys ; iter++) {
+                    skipUTF();
+                }
+                for(int iter = 0 ; iter < languages * (keys + 1) ; iter++) {
+                    skipUTF();
+                }
+                return true;
+        }
+
+        // themes are small and refer to the other entries by name
+        return false;
+    }
+
+    private void skipImage() throws IOException {
+        if(majorVersion == 0 && minorVersion == 0) {
+            skipFully(input, input.readInt());
+            return;
+        }
+        int type = input.readByte() & 0xff;
+        switch(type) {
+            // PNG/JPEG file
+            case 0xf1:
+            case 0xf2:
+                skipFully(input, input.readInt());
+                return;
+            case 0xF3:
+                skipPackedImage8();
+                return;
+            case 0xF4:
+                skipAnimation();
+                return;
+            case 0xF5:
+                skipFully(input, input.readInt());
+                skipUTF();
+                input.readBoolean();
+                loadSVGRatios(input);
+                skipFully(input, input.readInt());
+                return;
+            case 0xf7:
+                skipFully(input, input.readInt());
+                skipUTF();
+                input.readBoolean();
+                readMultiImage(input, true);
+                return;
+            case 0xF6:
+                readMultiImage(input, true);
+                return;
+            case 0xEF:
+                // timeline
+                input.readInt();
+                input.readInt();
+                input.readInt();
+                int count = input.readShort();
+                for(int iter = 0 ; iter < count ; iter++) {
+                    skipUTF();
+                    skipFully(input, 16);
+                    if(input.readInt() > -1) {
+                        skipFully(input, 8);
+                    }
+                    // motion x/y followed by width, height, opacity and orientation
+                    for(int motion = 0 ; motion < 6 ; motion++) {
+                        if(input.readBoolean()) {
+                            if(motion < 2) {
+                                skipFully(input, 8);
+                            } else {
+                                skipFully(input, 12);
+                            }
+                        }
+                    }
+                }
+                return;
+            default:
+                throw new IOException("Illegal type while creating image: " + Integer.toHexString(type));
+        }
+    }
+
+    private void skipPackedImage8() throws IOException {
+        int size = input.readByte() & 0xff;
+        if(size == 0) {
+            size = 256;
+        }
+        skipFully(input, size * 4);
+        int width = input.readShort();
+        int height = input.readShort();
+        skipFully(input, width * height);
+    }
+
+    private void skipAnimation() throws IOException {
+        int paletteSize = input.readByte() & 0xff;
+        skipFully(input, paletteSize * 4);
+        int width = input.readShort();
+        int height = input.readShort();
+        int numberOfFrames = input.readByte() & 0xff;
+        input.readInt();
+        input.readBoolean();
+        skipFully(input, width * height);
+        for(int iter = 1 ; iter < numberOfFrames ; iter++) {
+            input.readInt();
+            if(input.readBoolean()) {
+                skipFully(input, width * height);
+            } else {
+                input.readBoolean();
+                int nextRow = input.readShort();
+                while(nextRow != -1) {
+                    skipFully(input, width);
+                    nextRow = input.readShort();
+                }
+            }
+        }
+    }
+
+    private void skipFont(boolean packed) throws IOException {
+        if(majorVersion == 0 && minorVersion == 0) {
+            if(packed) {
+                skipPackedImage8();
+            } else {
+                skipImage();
+            }
+            skipFully(input, input.readShort() * 3);
+            skipUTF();
+            return;
+        }
+        input.readByte();
+        if(input.readBoolean()) {
+            skipFully(input, input.readInt());
+        }
+        if(input.readBoolean()) {
+            skipUTF();
+        }
+        if(input.readBoolean()) {
+            skipImage();
+            skipFully(input, input.readShort() * 3);
+            skipUTF();
+            readRenderingHint(input);
+        }
+    }
+
+    /**
+     * Counts the bytes read from the resource file so the entries can be located
+     */
+    private static class CountingInputStream extends InputStream {
+        private InputStream in;
+        private int count;
+
+        CountingInputStream(InputStream in) {
+            this.in = in;
+        }
+
+        int getCount() {
+            return count;
+        }
+
+        public int read() throws IOException {
+            int b = in.read();
+            if(b > -1) {
+                count++;
+            }
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int r = in.read(b, off, len);
+            if(r > 0) {
+                count += r;
+            }
+            return r;
+        }
+
+        public long skip(long n) throws IOException {
+            long r = in.skip(n);
+            if(r > 0) {
+                count += (int)r;
+            }
+            return r;
+        }
+
+        public int available() throws IOException {
+            return in.available();
+        }
     }
     
     Image createImage() throws IOException {
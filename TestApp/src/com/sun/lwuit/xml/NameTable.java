@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.xml;
+
+/**
+ * Interned table of the tag, attribute and char entity names encountered by the parser.
+ * Names are looked up directly from the character range in the parser buffer so a
+ * name that was already seen doesn't allocate, and equal names share a single String
+ * instance. The table stops growing past a fixed size to keep hostile documents from
+ * consuming memory, names beyond the limit are returned without being interned.
+ */
+class NameTable {
+    private static final int MAX_NAMES = 2048;
+    private String[] names = new String[64];
+    private int count;
+
+    /**
+     * Returns the interned name for the given character range
+     *
+     * @param buf the characters
+     * @param offset the offset of the name
+     * @param length the length of the name
+     * @param lowerCase true to return the lower case form of the name
+     * @return the interned name
+     */
+    public String get(char[] buf, int offset, int length, boolean lowerCase) {
+        // identical to String.hashCode of the resulting name
+        int hash = 0;
+        for(int iter = 0 ; iter < length ; iter++) {
+            char c = buf[offset + iter];
+            if(lowerCase) {
+                c = Character.toLowerCase(c);
+            }
+            hash = 31 * hash + c;
+        }
+        int mask = names.length - 1;
+        int slot = mix(hash) & mask;
+        while(names[slot] != null) {
+            if(matches(names[slot], buf, offset, length, lowerCase)) {
+                return names[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        String name;
+        if(lowerCase) {
+            char[] lower = new char[length];
+            for(int iter = 0 ; iter < length ; iter++) {
+                lower[iter] = Character.toLowerCase(buf[offset + iter]);
+            }
+            name = new String(lower);
+        } else {
+            name = new String(buf, offset, length);
+        }
+        if(count < MAX_NAMES) {
+            names[slot] = name;
+            count++;
+            if(count * 2 > names.length) {
+                grow();
+            }
+        }
+        return name;
+    }
+
+    private static boolean matches(String name, char[] buf, int offset, int length, boolean lowerCase) {
+        if(name.length() != length) {
+            return false;
+        }
+        for(int iter = 0 ; iter < length ; iter++) {
+            char c = buf[offset + iter];
+            if(lowerCase) {
+                c = Character.toLowerCase(c);
+            }
+            if(name.charAt(iter) != c) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private void grow() {
+        String[] old = names;
+        names = new String[old.length * 2];
+        int mask = names.length - 1;
+        for(int iter = 0 ; iter < old.length ; iter++) {
+            if(old[iter] != null) {
+                int slot = mix(old[iter].hashCode()) & mask;
+                while(names[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                names[slot] = old[iter];
+            }
+        }
+    }
+}
@@ -26,16 +26,51 @@ package com.sun.lwuit.xml;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Hashtable;
+import java.util.Vector;
 
 import com.sun.lwuit.html.HTMLUtils;
 
 /**
  * The parser class is used to parse an XML document into a DOM object (Element).
+ * <p>At its core the parser is a pull parser: once an input is set with setInput, every
+ * call to next advances the parser to the next tag or text and returns the event type.
+ * The input is read in blocks into an internal buffer, names are interned and text and
+ * attribute values are collected from character ranges. Parsing a document into a DOM
+ * (parse) and the callback based event parser (eventParser) are both implemented on top
+ * of the pull parser and neither of them recurses, so deeply nested documents don't
+ * exhaust the stack.
  * 
  * @author Ofir Leitner
  */
 public class XMLParser {
-    private static final Element END_TAG = new Element();
+    /**
+     * Event type indicating no event was read yet
+     */
+    public static final int START_DOCUMENT = 0;
+
+    /**
+     * Event type indicating the end of the input was reached
+     */
+    public static final int END_DOCUMENT = 1;
+
+    /**
+     * Event type indicating a start tag was read, the tag name and attributes are available
+     */
+    public static final int START_TAG = 2;
+
+    /**
+     * Event type indicating an end tag was read, empty tags (i.e. &lt;br/&gt;) are followed by
+     * an end tag event as well
+     */
+    public static final int END_TAG = 3;
+
+    /**
+     * Event type indicating text or a CDATA section was read
+     */
+    public static final int TEXT = 4;
+
+    private static final int BUFFER_SIZE = 4096;
+
     private boolean eventParser;
     ParserCallback parserCallback;
     boolean includeWhitespacesBetweenTags; // For HTML white spaces between tags are significant to seperate words, in XML less so and it mostly creates garbage elements (Text with one space)
@@ -77,6 +112,48 @@ public class XMLParser {
     */
    private static final String CDATA_STR = "DATA[";
 
+   /**
+    * The reader the parser pulls the document from, null once the end of the input was reached
+    */
+   private Reader reader;
+
+   /**
+    * Characters read from the reader, the characters between pos and limit weren't parsed yet.
+    * When mark isn't -1 the characters from mark onwards are kept when the buffer is refilled,
+    * this keeps a name contiguous in the buffer while it is being read.
+    */
+   private char[] buf;
+   private int pos;
+   private int limit;
+   private int mark = -1;
+
+   private NameTable names = new NameTable();
+   private ContentReader contentReader;
+
+   private int eventType = START_DOCUMENT;
+   private String name;
+   private String rawName;
+
+   /**
+    * Indicates the current tag has no content, it is followed by a generated end tag event
+    */
+   private boolean emptyElementTag;
+   private boolean pendingEndTag;
+
+   private char[] text = new char[256];
+   private int textLength;
+   private String textString;
+   private boolean whitespace;
+
+   private int attributeCount;
+   private String[] attributeNames = new String[8];
+   private String[] attributeRawNames = new String[8];
+   private String[] attributeValues = new String[8];
+   private int[] attributeValueOffsets = new int[8];
+   private int[] attributeValueLengths = new int[8];
+   private char[] values = new char[256];
+   private int valuesLength;
+
 
    /**
     * Constructs the XMLParser
@@ -236,7 +313,8 @@ public class XMLParser {
         eventParser = false;
         Element rootElement=createNewElement("ROOT"); // ROOT is a "dummy" element that all other document elements are added to
         try {
-            parseTagContent(rootElement, is);
+            setInput(is);
+            buildDocument(rootElement);
         } catch (IOException ioe) {
             ioe.printStackTrace();
         }
@@ -270,6 +348,84 @@ public class XMLParser {
         return rootElement;
     }
 
+    /**
+     * Builds the DOM by pulling the events of the document, open elements are kept in a
+     * stack rather than in recursive calls
+     *
+     * @param rootElement The element all the document elements are added to
+     * @throws IOException if an I/O error in the stream is encountered
+     */
+    private void buildDocument(Element rootElement) throws IOException {
+        Vector openElements = new Vector();
+        Element element = rootElement;
+        int event = next();
+        while (event != END_DOCUMENT) {
+            if (event == TEXT) {
+                // white spaces between tags are only significant after the first child
+                if ((!whitespace) || (element.getNumChildren()>0)) {
+                    element.addChild(createNewTextElement(getText()));
+                }
+            } else if (event == START_TAG) {
+                Element childElement=createNewElement(name);
+                element.addChild(childElement);
+                if (!isSupported(childElement)) {
+                    notifyError(ParserCallback.ERROR_TAG_NOT_SUPPORTED, name, null, null, "The tag '"+name+"' is not supported in "+getSupportedStandardName());
+                    if (!shouldEvaluate(childElement)) {
+                        // If tag is not supported we skip it all till the closing tag.
+                        // This is especially important for the script tag which may contain '<' and '>' which might confuse the parser
+                        skipElement();
+                        event = next();
+                        continue;
+                    }
+                }
+                for (int i=0;i<attributeCount;i++) {
+                    String attribute=attributeNames[i];
+                    String value=getAttributeValue(i);
+                    int error=childElement.setAttribute(attribute, value);
+                    if (error==ParserCallback.ERROR_ATTRIBUTE_NOT_SUPPORTED) {
+                        notifyError(error, name, attribute, value, "Attribute '"+attribute+"' is not supported for tag '"+name+"'.");
+                    } else if (error==ParserCallback.ERROR_ATTIBUTE_VALUE_INVALID) {
+                        notifyError(error, name, attribute, value, "Attribute '"+attribute+"' in tag '"+name+"' has an invalid value ("+value+")");
+                    }
+                }
+                if (pendingEndTag) { // the element has no content, the generated end tag isn't needed
+                    pendingEndTag=false;
+                } else if (!parseElementContent(childElement, getContentReader())) {
+                    openElements.addElement(element);
+                    element=childElement;
+                }
+            } else { // END_TAG
+                if (rawName.equalsIgnoreCase(element.getTagName())) {
+                    if (openElements.size()==0) {
+                        return;
+                    }
+                    element=(Element)openElements.lastElement();
+                    openElements.removeElementAt(openElements.size()-1);
+                } else if (isEmptyTag(rawName)) {
+                    // do nothing, someone chose to close an empty tag i.e. <img ....></img> or <br></br>
+                } else {
+                    notifyError(ParserCallback.ERROR_NO_CLOSE_TAG, element.getTagName(), null, null, "Malformed XML - no appropriate closing tag for "+element.getTagName());
+                }
+            }
+            event = next();
+        }
+    }
+
+    /**
+     * Invoked after the start tag of an element with content was parsed, allows subclasses to
+     * read the content of the element directly from the given reader instead of parsing it as
+     * XML (i.e. embedded style sheets). The reader continues from the character following the
+     * start tag.
+     *
+     * @param element The element whose content follows
+     * @param is The reader containing the rest of the document
+     * @return true if the content and the closing tag were consumed, false to parse the content as XML
+     * @throws IOException if an I/O error in the stream is encountered
+     */
+    protected boolean parseElementContent(Element element,Reader is) throws IOException {
+        return false;
+    }
+
     /**
      * Creates a new element. This should be overriden by parsers that use a subclass of Element.
      * 
@@ -304,7 +460,31 @@ public class XMLParser {
      */
     public void eventParser(Reader r) throws IOException {
         eventParser = true;
-        parseTagContent(null, r);
+        setInput(r);
+        int event = next();
+        while (event != END_DOCUMENT) {
+            if (event == TEXT) {
+                if (!whitespace) {
+                    textElement(getText());
+                }
+            } else if (event == START_TAG) {
+                boolean processTag = startTag(rawName);
+                if (!processTag || !isSupported(null)) {
+                    notifyError(ParserCallback.ERROR_TAG_NOT_SUPPORTED, name, null, null, "The tag '"+name+"' is not supported in "+getSupportedStandardName());
+                    if (!processTag || !shouldEvaluate(null)) {
+                        skipElement();
+                        event = next();
+                        continue;
+                    }
+                }
+                for (int i=0;i<attributeCount;i++) {
+                    attribute(name, attributeRawNames[i], getAttributeValue(i));
+                }
+            } else { // END_TAG
+                endTag(rawName);
+            }
+            event = next();
+        }
     }
 
     /**
@@ -346,439 +526,620 @@ public class XMLParser {
     protected void attribute(String tag, String attributeName, String value) {
     }
 
-
     /**
-     * Checks if this character is a legal character for char entities
-     * 
-     * @param c The character to check
-     * @return true if legal, false otherwise
+     * Sets the reader the pull parser reads the document from and resets the parser state,
+     * the document is then read by calling next
+     *
+     * @param r the reader from which the data should be parsed
      */
-    private boolean isLegalCharEntityCharacter(char c) {
-        return (((c>='a') && (c<='z')) || ((c>='A') && (c<='Z')) || ((c>='0') && (c<='9')) || (c=='#'));
+    public void setInput(Reader r) {
+        reader=r;
+        if (buf==null) {
+            buf=new char[BUFFER_SIZE];
+        }
+        pos=0;
+        limit=0;
+        mark=-1;
+        eventType=START_DOCUMENT;
+        name=null;
+        rawName=null;
+        emptyElementTag=false;
+        pendingEndTag=false;
+        textLength=0;
+        textString=null;
+        attributeCount=0;
     }
 
     /**
-     * Parses tags content, accumulating text and child elements .
-     * Upon bumping a start tag character it calls the parseTag method.
-     * This method is called at first from the parse method, and later on from parseTag (which creates the recursion).
+     * Advances the pull parser to the next tag or text of the document.
+     * Comments, processing instructions and doctypes are skipped, white spaces between tags
+     * are only reported (as a single space) if setIncludeWhitespacesBetweenTags was set.
      *
-     * @param element The current parent element
-     * @param is The InputStream containing the XML
+     * @return the event type: START_TAG, END_TAG, TEXT or END_DOCUMENT
      * @throws IOException if an I/O error in the stream is encountered
      */
-    protected void parseTagContent(Element element,Reader is) throws IOException {
-        String text=null;
-        boolean leadingSpace=false;
-        char c=(char)is.read();
-        String charEntity=null;
-
-        while((byte)c!=-1) {
+    public int next() throws IOException {
+        attributeCount=0;
+        valuesLength=0;
+        if (pendingEndTag) {
+            pendingEndTag=false;
+            eventType=END_TAG;
+            return eventType;
+        }
+        emptyElementTag=false;
+        while (true) {
+            int c=peek();
+            if (c==-1) {
+                eventType=END_DOCUMENT;
+                return eventType;
+            }
             if (c=='<') {
-                if ((includeWhitespacesBetweenTags) && (leadingSpace) && (text==null) && (element!=null) && (element.getNumChildren()>0)) { 
-                    leadingSpace=false;
-                    text=" ";
-                }
-                    
-                if (text!=null) {
-                    // Mistakenly "collected" something that is not a char entity, perhaps
-                    // misuse of the & character (instead of using &apos;)
-                    if (charEntity!=null) { 
-                        text+="&"+charEntity;
-                        charEntity=null;
-                    }
-                    if (leadingSpace) {
-                        text=" "+text;
-                    }
-                    if(element != null) {
-                        Element textElement=createNewTextElement(text);
-                        element.addChild(textElement);
-                    } else {
-                        textElement(text);
-                    }
-                    text=null;
-                    leadingSpace=false;
-                    
+                pos++;
+                int type=parseMarkup();
+                if (type!=-1) {
+                    eventType=type;
+                    return type;
                 }
+            } else if (parseText()) {
+                eventType=TEXT;
+                return TEXT;
+            }
+        }
+    }
 
+    /**
+     * Returns the type of the current event
+     *
+     * @return the type of the event returned by the last call to next
+     */
+    public int getEventType() {
+        return eventType;
+    }
 
-                Element childElement=parseTag(is);
-                if (childElement==END_TAG) { //was actually an ending tag
-                    String closingTag="";
-                    c=(char)is.read();
-                    while ((c!='>')) {
-                        closingTag+=c;
-                        c=(char)is.read();
-                    }
-                    if(eventParser) {
-                        endTag(closingTag);
-                    }
+    /**
+     * Returns the lower case name of the current start or end tag
+     *
+     * @return the tag name
+     */
+    public String getName() {
+        return name;
+    }
 
-                    if(element != null) {
-                        if (closingTag.equalsIgnoreCase(element.getTagName())) {
-                            return;
-                        } else if (isEmptyTag(closingTag)) {
-                            // do nothing, someone chose to close an empty tag i.e. <img ....></img> or <br></br>
-                        } else {
-                            notifyError(ParserCallback.ERROR_NO_CLOSE_TAG, element.getTagName(), null, null, "Malformed XML - no appropriate closing tag for "+element.getTagName());
-                        }
-                    }
-                } else {
-                    if (element != null && !childElement.isComment) {
-                        element.addChild(childElement);
-                    }
-                }
-            } else if (text!=null) {
-                if (charEntity!=null) {
-                    if (c==';') { //end
-                        text+=convertCharEntity(charEntity);
-                        charEntity=null;
-                    } else if (isLegalCharEntityCharacter(c)) {
-                        charEntity+=c;
-                    } else {
-                        text+="&"+charEntity+c;
-                        charEntity=null;
-                    }
-                } else if (c=='&') { //start char entity
-                    charEntity=""; // The & is not included in the string we accumulate
-                } else {
-                    text+=c;
-                }
-            } else if (!isWhiteSpace(c)) {
-                if (c=='&') { //text starts with a character entity (i.e. &nbsp;)
-                    charEntity=""; // The & is not included in the string we accumulate
-                    text=""; //Initalize text so it won't be null
-                } else {
-                    text=""+c;
-                }
-            } else { // leading space is relevant also for newline and other whitespaces //if (c==' ') {
-                leadingSpace=true;
-            }
-            c=(char)is.read();
+    /**
+     * Returns the current text
+     *
+     * @return the text of the current text event
+     */
+    public String getText() {
+        if (textString==null) {
+            textString=new String(text, 0, textLength);
         }
+        return textString;
     }
 
     /**
-     * Checks if the specified character is a white space or not.
-     * Exposed to packaage since used by HTMLComponent as well
+     * Indicates whether the current text event consists of white spaces between tags
      *
-     * @param ch The character to check
-     * @return true if the character is a white space, false otherwise
+     * @return true for white spaces between tags
      */
-    protected boolean isWhiteSpace(char ch) { 
-        return ((ch==' ') || (ch=='\n') || (ch=='\t') || (ch==10) || (ch==13));
+    public boolean isWhitespace() {
+        return whitespace;
     }
 
     /**
-     * This method collects the tag name and all of its attributes.
-     * For comments and XML declarations this will call the parseCommentOrXMLDeclaration method.
-     * Note that this method returns an Element with a name and attrbutes, but not its content/children which will be done by parseTagContent
+     * Indicates whether the current tag has no content, i.e. it was closed in the start tag
+     * (&lt;br/&gt;) or it is an empty tag according to isEmptyTag. Such a start tag is followed
+     * by an end tag event.
      *
-     * @param is The InputStream containing the XML
-     * @return The parsed element 
-     * @throws IOException if an I/O error in the stream is encountered
+     * @return true if the tag has no content
      */
-    protected Element parseTag(Reader is) throws IOException {
-        String tagName="";
-        String curAttribute="";
-        String curValue="";
-        //boolean procInst=false; // Support for the styleshhet processing instruction was removed, as it is not supported in most browsers, and it causes problems by adding tags before the HTML element (Makign the document with multiple roots)
+    public boolean isEmptyElementTag() {
+        return emptyElementTag;
+    }
 
-        char c=(char)is.read();
-        if (c=='/') {
-            return END_TAG; //end tag
-        } else if (c=='!') {
-            c=(char)is.read();
-            char c2=(char)is.read();
-            if ((c=='-') && (c2=='-')) { //comment
-                return parseCommentOrXMLDeclaration(is,"-->");
-            } else if ((c=='[') && (c2=='C')) { // CDATA?
-                c=(char)is.read();
-                int idx=0;
-                while ((idx<CDATA_STR.length()) && (c==CDATA_STR.charAt(idx))) {
-                    idx++;
-                    if (idx<CDATA_STR.length()) {
-                        c=(char)is.read();
-                    }
-                }
-                if (idx==CDATA_STR.length()) { //found CDATA
-                    return parseCommentOrXMLDeclaration(is,"]]>"); //parse doctypes i.e. <!DOCTYPE .... > as comments as well - i.e. ignore them
-                } else { // some other unknown tag
-                    return parseCommentOrXMLDeclaration(is,">"); //parse doctypes i.e. <!DOCTYPE .... > as comments as well - i.e. ignore them
-                }
+    /**
+     * Returns the number of attributes of the current start tag
+     *
+     * @return the number of attributes
+     */
+    public int getAttributeCount() {
+        return attributeCount;
+    }
+
+    /**
+     * Returns the lower case name of the given attribute of the current start tag
+     *
+     * @param index the attribute offset
+     * @return the attribute name
+     */
+    public String getAttributeName(int index) {
+        return attributeNames[index];
+    }
 
+    /**
+     * Returns the value of the given attribute of the current start tag
+     *
+     * @param index the attribute offset
+     * @return the attribute value
+     */
+    public String getAttributeValue(int index) {
+        if (attributeValues[index]==null) {
+            attributeValues[index]=new String(values, attributeValueOffsets[index], attributeValueLengths[index]);
+        }
+        return attributeValues[index];
+    }
+
+    /**
+     * Skips the content and the closing tag of the element whose start tag was just read,
+     * the next call to next returns the event following the element.
+     * The closing tag is looked up without parsing the content since it may contain '&lt;'
+     * and '&gt;' characters (i.e. scripts).
+     *
+     * @throws IOException if an I/O error in the stream is encountered
+     */
+    public void skipElement() throws IOException {
+        if (eventType!=START_TAG) {
+            throw new IllegalStateException("skipElement can only be invoked after a start tag");
+        }
+        if (pendingEndTag) {
+            pendingEndTag=false;
+            return;
+        }
+        String endTag="</"+name+">";
+        int index=0;
+        while (index<endTag.length()) {
+            int c=read();
+            if (c==-1) {
+                return;
+            }
+            c=Character.toLowerCase((char)c);
+            if (c==endTag.charAt(index)) {
+                index++;
+            } else if (c=='<') {
+                index=1;
             } else {
-                return parseCommentOrXMLDeclaration(is,">"); //parse doctypes i.e. <!DOCTYPE .... > as comments as well - i.e. ignore them
+                index=0;
             }
-        } else if (c=='?') {
-            //procInst=true;
-            //c=(char)is.read();
-            return parseCommentOrXMLDeclaration(is,">"); //parse XML declaration i.e. <?xml version="1.0" encoding="ISO-8859-1"?> as comments as well - i.e. ignore them
         }
+    }
+
+    /**
+     * Returns a reader that continues from the current position of the parser
+     */
+    private Reader getContentReader() {
+        if (contentReader==null) {
+            contentReader=new ContentReader();
+        }
+        return contentReader;
+    }
 
-         //read and ignore any whitespaces before tag name
-        while (isWhiteSpace(c)) {
-            c=(char)is.read();
+    /**
+     * Refills the buffer when all of its characters were consumed. Characters from mark onwards
+     * are moved to the start of the buffer, the buffer grows if they occupy all of it.
+     *
+     * @return false if the end of the input was reached
+     */
+    private boolean fill() throws IOException {
+        if (reader==null) {
+            return false;
+        }
+        if (mark==-1) {
+            pos=0;
+            limit=0;
+        } else if (mark>0) {
+            System.arraycopy(buf, mark, buf, 0, limit-mark);
+            pos-=mark;
+            limit-=mark;
+            mark=0;
+        } else if (limit==buf.length) {
+            char[] newBuf=new char[buf.length*2];
+            System.arraycopy(buf, 0, newBuf, 0, limit);
+            buf=newBuf;
+        }
+        int count=reader.read(buf, limit, buf.length-limit);
+        while (count==0) {
+            count=reader.read(buf, limit, buf.length-limit);
         }
+        if (count<0) {
+            reader=null;
+            return false;
+        }
+        limit+=count;
+        return true;
+    }
 
-        //collect tag name
-        while ((!isWhiteSpace(c)) && (c!='>') && (c!='/')) {
-            tagName+=c;
-            c=(char)is.read();
+    private int peek() throws IOException {
+        if ((pos==limit) && (!fill())) {
+            return -1;
         }
+        return buf[pos];
+    }
 
-         //read and ignore any whitespaces after tag name
-        while (isWhiteSpace(c)) {
-            c=(char)is.read();
+    private int read() throws IOException {
+        if ((pos==limit) && (!fill())) {
+            return -1;
         }
+        return buf[pos++];
+    }
 
-        boolean processTag = true;
-        if(eventParser) {
-            processTag = startTag(tagName);
+    private void skipWhiteSpaces() throws IOException {
+        int c=peek();
+        while ((c!=-1) && (isWhiteSpace((char)c))) {
+            pos++;
+            c=peek();
         }
-        tagName=tagName.toLowerCase();
-        // We do not support any processing instructions
-        /*if (procInst) {
-            if (tagName.equals("xml-stylesheet")) { // The XML processing instruction <?xml-stylesheet ... ?> has the same parameters as <link .. > and behaves the same way
-                tagName="link";
-            } else { // Processing instruction not supported - read till its end
-                c=(char)is.read();
-                while (c!='>') {
-                    c=(char)is.read();
-                }
-                Element procInstElem=createNewElement("unsupported");
-                procInstElem.isComment=true;
-                return procInstElem;
+    }
+
+    /**
+     * Collects text up to the next tag, leading white spaces are replaced by a single space.
+     * Text that isn't followed by a tag is dropped.
+     *
+     * @return true if a text event was read
+     */
+    private boolean parseText() throws IOException {
+        textLength=0;
+        textString=null;
+        boolean leadingSpace=false;
+        int c=peek();
+        while ((c!=-1) && (c!='<') && (isWhiteSpace((char)c))) { // leading space is relevant also for newline and other whitespaces
+            leadingSpace=true;
+            pos++;
+            c=peek();
+        }
+        if (c==-1) {
+            return false;
+        }
+        if (c=='<') {
+            if ((leadingSpace) && (includeWhitespacesBetweenTags)) {
+                whitespace=true;
+                appendText(' ');
+                return true;
             }
-        }*/
-        Element element = null;
-        if(!eventParser) {
-            element=createNewElement(tagName);
-        }
-
-        if (!processTag || !isSupported(element)) {
-            notifyError(ParserCallback.ERROR_TAG_NOT_SUPPORTED, tagName, null, null, "The tag '"+tagName+"' is not supported in "+getSupportedStandardName());
-            if (!processTag || !shouldEvaluate(element)) {
-                // If tag is not supported we skip it all till the closing tag.
-                // This is especially important for the script tag which may contain '<' and '>' which might confuse the parser
-                char lastChar=c;
-                while (c!='>') { // Read till the end of the tag
-                    lastChar=c;
-                    c=(char)is.read();
+            return false;
+        }
+        whitespace=false;
+        if (leadingSpace) {
+            appendText(' ');
+        }
+        while (true) {
+            int start=pos;
+            while ((pos<limit) && (buf[pos]!='<') && (buf[pos]!='&')) {
+                pos++;
+            }
+            appendText(buf, start, pos-start);
+            if (pos<limit) {
+                if (buf[pos]=='<') {
+                    return true;
                 }
-                if (lastChar!='/') { // If this is an empty tag, no need to search for its closing tag as there's none...
-                    String endTag="</"+tagName+">";
-                    int index=0;
-                    while(index<endTag.length()) {
-                        c=(char)is.read();
-
-                        if ((c>='A') && (c<='Z')) {
-                            c=(char)(c-'A'+'a');
-                        }
-                        if (c==endTag.charAt(index)) {
-                            index++;
-                        } else {
-                            index=0;
-                        }
+                pos++; // The & is not included in the text
+                String charEntity=readCharEntityName();
+                c=peek();
+                if (c==';') {
+                    pos++;
+                    appendText(convertCharEntity(charEntity));
+                } else {
+                    // Mistakenly "collected" something that is not a char entity, perhaps
+                    // misuse of the & character (instead of using &apos;)
+                    appendText('&');
+                    appendText(charEntity);
+                    if ((c!=-1) && (c!='<')) {
+                        pos++;
+                        appendText((char)c);
                     }
                 }
-
-                return element;
+            } else if (!fill()) {
+                return false;
             }
         }
+    }
 
-        if (c=='>') { //tag declartion ended, process content
-            if (!isEmptyTag(tagName)) {
-                parseTagContent(element, is);
+    /**
+     * Parses the markup following a '&lt;' character
+     *
+     * @return the event type or -1 if the markup was a comment/declaration that should be skipped
+     */
+    private int parseMarkup() throws IOException {
+        int c=read();
+        if (c==-1) {
+            return -1;
+        }
+        if (c=='/') {
+            skipWhiteSpaces();
+            readTagName();
+            skipPast(">", false);
+            return END_TAG;
+        }
+        if (c=='!') {
+            c=read();
+            int c2=read();
+            if ((c=='-') && (c2=='-')) { //comment
+                skipPast("-->", false);
+                return -1;
             }
-            return element;
-        } else if (c=='/') { // || ((procInst) && (c=='?'))) { //closed tag - no content
-            c=(char)is.read();
-            if (c=='>') {
-                if(eventParser) {
-                    endTag(tagName);
+            if ((c=='[') && (c2=='C')) { // CDATA?
+                int idx=0;
+                while ((idx<CDATA_STR.length()) && (peek()==CDATA_STR.charAt(idx))) {
+                    pos++;
+                    idx++;
+                }
+                if (idx==CDATA_STR.length()) { //found CDATA, converted to a text node
+                    textLength=0;
+                    textString=null;
+                    whitespace=false;
+                    skipPast("]]>", true);
+                    return TEXT;
                 }
-                return element;
-            } else {
-                notifyError(ParserCallback.ERROR_UNEXPECTED_CHARACTER, tagName, null, null, "XML malformed - no > after /");
             }
+            skipPast(">", false); //parse doctypes i.e. <!DOCTYPE .... > as comments as well - i.e. ignore them
+            return -1;
         }
+        if (c=='?') {
+            skipPast(">", false); //XML declarations i.e. <?xml version="1.0" encoding="ISO-8859-1"?> are ignored
+            return -1;
+        }
+        pos--;
+        parseStartTag();
+        return START_TAG;
+    }
 
-
-        while(true) {
-            curAttribute=""+c;
-            c=(char)is.read();
-            while ((!isWhiteSpace(c)) && (c!='=') && (c!='>')) {
-                curAttribute+=c;
-                c=(char)is.read();
-            }
-
-            if (c=='>') { // tag close char shouldn't be found here, but if the XML is slightly malformed we return the element
-                notifyError(ParserCallback.ERROR_UNEXPECTED_TAG_CLOSING, tagName,curAttribute,null, "Unexpected tag closing in tag "+tagName+", attribute="+curAttribute);
-                if (!isEmptyTag(tagName)) {
-                    parseTagContent(element, is);
+    /**
+     * Consumes the input up to and including the given terminator (of up to 3 characters)
+     *
+     * @param end the terminator
+     * @param collect true to append the consumed characters excluding the terminator to the text
+     */
+    private void skipPast(String end,boolean collect) throws IOException {
+        int endLength=end.length();
+        char last=end.charAt(endLength-1);
+        int prev1=-1;
+        int prev2=-1;
+        int c=read();
+        while (c!=-1) {
+            if ((c==last) && ((endLength<2) || (prev1==end.charAt(endLength-2))) &&
+                    ((endLength<3) || (prev2==end.charAt(endLength-3)))) {
+                if (collect) {
+                    textLength-=endLength-1;
                 }
-                return element;
+                return;
             }
-
-             //read and ignore any whitespaces after attribute name
-            while (isWhiteSpace(c)) {
-                c=(char)is.read();
+            if (collect) {
+                appendText((char)c);
             }
+            prev2=prev1;
+            prev1=c;
+            c=read();
+        }
+    }
 
-            if (c!='=') {
-                notifyError(ParserCallback.ERROR_UNEXPECTED_CHARACTER, tagName, curAttribute, null, "Unexpected character "+c+", expected '=' after attribute "+curAttribute+" in tag "+tagName);
-                if (c=='>') { // tag close char shouldn't be found here, but if the XML is slightly malformed we return the element
-                    if (!isEmptyTag(tagName)) {
-                        parseTagContent(element, is);
-                    }
-                    return element;
-                }
-
-
-                continue; //if attribute is not followed by = then process the next attribute
+    /**
+     * Reads a tag name into name (lower case) and rawName (as written)
+     */
+    private void readTagName() throws IOException {
+        mark=pos;
+        while (true) {
+            while ((pos<limit) && (!isWhiteSpace(buf[pos])) && (buf[pos]!='>') && (buf[pos]!='/')) {
+                pos++;
             }
-
-            c=(char)is.read();
-             //read and ignore any whitespaces before attribute value
-            while (isWhiteSpace(c)) {
-                c=(char)is.read();
+            if ((pos<limit) || (!fill())) {
+                break;
             }
+        }
+        rawName=names.get(buf, mark, pos-mark, false);
+        name=names.get(buf, mark, pos-mark, true);
+        mark=-1;
+    }
 
-            char quote=' ';
-
+    private String readCharEntityName() throws IOException {
+        mark=pos;
+        while (true) {
+            while ((pos<limit) && (isLegalCharEntityCharacter(buf[pos]))) {
+                pos++;
+            }
+            if ((pos<limit) || (!fill())) {
+                break;
+            }
+        }
+        String charEntity=names.get(buf, mark, pos-mark, false);
+        mark=-1;
+        return charEntity;
+    }
 
-            if ((c=='"') || (c=='\'')) {
-                quote=c;
-            } else {
-                curValue+=c;
-            }
-
-            String charEntity=null;
-            boolean ended=false;
-            while (!ended) {
-                c=(char)is.read();
-                if (c==quote) {
-                    ended=true;
-                    c=(char)is.read();
-                } else if ((quote==' ') && ((c=='/') || (c=='>') || (isWhiteSpace(c)))) {
-                    ended=true;
-                } else if (c=='&') {
-                    if (charEntity!=null) {
-                        curValue+="&"+charEntity; // Wasn't a char entit, probably a url as a parameter : i.e. param="/test?p=val&pw=val2&p3=val3
-                    }
-                    charEntity="";
-                } else {
-                    if (charEntity!=null) {
-                        if (c==';') {
-                            curValue+=convertCharEntity(charEntity);
-                            charEntity=null;
-                        } else if (isLegalCharEntityCharacter(c)) {
-                            charEntity+=c;
-                        } else {
-                            curValue+="&"+charEntity+c;
-                            charEntity=null;
-                        }
-                    } else {
-                        curValue+=c;
-                    }
+    /**
+     * Parses the tag name and the attributes of a start tag
+     */
+    private void parseStartTag() throws IOException {
+        skipWhiteSpaces(); //read and ignore any whitespaces before tag name
+        readTagName();
+        skipWhiteSpaces(); //read and ignore any whitespaces after tag name
+        while (true) {
+            int c=peek();
+            if (c==-1) {
+                break;
+            }
+            if (c=='>') { //tag declartion ended
+                pos++;
+                break;
+            }
+            if (c=='/') { //closed tag - no content
+                pos++;
+                if (peek()=='>') {
+                    pos++;
+                    emptyElementTag=true;
+                    break;
                 }
+                notifyError(ParserCallback.ERROR_UNEXPECTED_CHARACTER, name, null, null, "XML malformed - no > after /");
+                continue;
             }
+            parseAttribute();
+            skipWhiteSpaces(); //read and ignore any whitespaces after attribute/value pair
+        }
+        if ((!emptyElementTag) && (isEmptyTag(name))) {
+            emptyElementTag=true;
+        }
+        pendingEndTag=emptyElementTag;
+    }
 
-            if (charEntity!=null) { // Mistaken something else for a char entity - for example an action which is action="http://domain/test.html?param1=val1&param2=val2"
-                curValue+="&"+charEntity;
-                charEntity=null;
+    /**
+     * Parses a single attribute/value pair, values are collected into the shared values buffer
+     */
+    private void parseAttribute() throws IOException {
+        mark=pos;
+        pos++; // the first character always belongs to the name
+        while (true) {
+            while ((pos<limit) && (!isWhiteSpace(buf[pos])) && (buf[pos]!='=') && (buf[pos]!='>') && (buf[pos]!='/')) {
+                pos++;
+            }
+            if ((pos<limit) || (!fill())) {
+                break;
+            }
+        }
+        String attributeRawName=names.get(buf, mark, pos-mark, false);
+        String attribute=names.get(buf, mark, pos-mark, true);
+        mark=-1;
+
+        int c=peek();
+        if ((c=='>') || (c=='/')) { // tag close char shouldn't be found here, but if the XML is slightly malformed we return the element
+            notifyError(ParserCallback.ERROR_UNEXPECTED_TAG_CLOSING, name,attribute,null, "Unexpected tag closing in tag "+name+", attribute="+attribute);
+            return;
+        }
+        skipWhiteSpaces(); //read and ignore any whitespaces after attribute name
+        c=peek();
+        if (c!='=') { //if attribute is not followed by = then process the next attribute
+            if (c!=-1) {
+                notifyError(ParserCallback.ERROR_UNEXPECTED_CHARACTER, name, attribute, null, "Unexpected character "+(char)c+", expected '=' after attribute "+attribute+" in tag "+name);
             }
+            return;
+        }
+        pos++;
+        skipWhiteSpaces(); //read and ignore any whitespaces before attribute value
 
-            if(eventParser) {
-                attribute(tagName, curAttribute, curValue);
+        int quote=peek();
+        if ((quote=='"') || (quote=='\'')) {
+            pos++;
+        } else {
+            quote=-1;
+        }
+        int offset=valuesLength;
+        while (true) {
+            int start=pos;
+            if (quote==-1) {
+                while ((pos<limit) && (buf[pos]!='&') && (buf[pos]!='/') && (buf[pos]!='>') && (!isWhiteSpace(buf[pos]))) {
+                    pos++;
+                }
             } else {
-                curAttribute=curAttribute.toLowerCase();
-                int error=element.setAttribute(curAttribute, curValue);
-
-                if (error==ParserCallback.ERROR_ATTRIBUTE_NOT_SUPPORTED) {
-                    notifyError(error, tagName, curAttribute, curValue, "Attribute '"+curAttribute+"' is not supported for tag '"+tagName+"'.");
-                    //notifyError(error, tagName, curAttribute, curValue, "Attribute '"+curAttribute+"' is not supported for tag '"+tagName+"'. Supported attributes: "+element.getSupportedAttributesList());
-                } else if (error==ParserCallback.ERROR_ATTIBUTE_VALUE_INVALID) {
-                    notifyError(error, tagName, curAttribute, curValue, "Attribute '"+curAttribute+"' in tag '"+tagName+"' has an invalid value ("+curValue+")");
+                while ((pos<limit) && (buf[pos]!='&') && (buf[pos]!=quote)) {
+                    pos++;
                 }
             }
-
-             //read and ignore any whitespaces after attribute/value pair
-            while (isWhiteSpace(c)) {
-                c=(char)is.read();
-            }
-
-            if (c=='>') { //tag declartion ended, process content
-                if (!isEmptyTag(tagName)) {
-                    parseTagContent(element, is);
+            appendValue(buf, start, pos-start);
+            if (pos==limit) {
+                if (!fill()) {
+                    break;
                 }
-                return element;
-            } else if (c=='/') { // || ((procInst) && (c=='?'))) { //closed tag - no content
-                c=(char)is.read();
-                if (c=='>') {
-                    return element;
-                } else {
-                    notifyError(ParserCallback.ERROR_UNEXPECTED_CHARACTER, tagName, curAttribute, curValue, "XML malformed - no > after /");
+                continue;
+            }
+            if (buf[pos]!='&') { // the closing quote or the end of an unquoted value
+                if (quote!=-1) {
+                    pos++;
                 }
+                break;
             }
+            pos++;
+            String charEntity=readCharEntityName();
+            if (peek()==';') {
+                pos++;
+                appendValue(convertCharEntity(charEntity));
+            } else { // Wasn't a char entity, probably a url as a parameter : i.e. param="/test?p=val&pw=val2&p3=val3
+                appendValue("&");
+                appendValue(charEntity);
+            }
+        }
+
+        if (attributeCount==attributeNames.length) {
+            int size=attributeCount*2;
+            attributeNames=growArray(attributeNames, size);
+            attributeRawNames=growArray(attributeRawNames, size);
+            attributeValues=growArray(attributeValues, size);
+            int[] arr=new int[size];
+            System.arraycopy(attributeValueOffsets, 0, arr, 0, attributeCount);
+            attributeValueOffsets=arr;
+            arr=new int[size];
+            System.arraycopy(attributeValueLengths, 0, arr, 0, attributeCount);
+            attributeValueLengths=arr;
+        }
+        attributeNames[attributeCount]=attribute;
+        attributeRawNames[attributeCount]=attributeRawName;
+        attributeValues[attributeCount]=null;
+        attributeValueOffsets[attributeCount]=offset;
+        attributeValueLengths[attributeCount]=valuesLength-offset;
+        attributeCount++;
+    }
 
-            curAttribute="";
-            curValue="";
+    private static String[] growArray(String[] arr,int size) {
+        String[] newArr=new String[size];
+        System.arraycopy(arr, 0, newArr, 0, arr.length);
+        return newArr;
+    }
 
+    private void appendText(char c) {
+        if (textLength==text.length) {
+            char[] newText=new char[text.length*2];
+            System.arraycopy(text, 0, newText, 0, textLength);
+            text=newText;
         }
-        
+        text[textLength]=c;
+        textLength++;
     }
 
-    /**
-     * This utility method is used to parse comments and XML declarations in the XML.
-     * The comment/declaration is returned as an Element, but is flagged as a comment since both comments and XML declarations are not part of the XML DOM.
-     * This method can be overridden to process specific XML declarations
-     *
-     * @param is The inputstream
-     * @param endTag The endtag to look for
-     * @return An Element representing the comment or XML declartaion
-     * @throws IOException
-     */
-    protected Element parseCommentOrXMLDeclaration(Reader is,String endTag) throws IOException {
-        int endTagPos=0;
-        String text="";
-        boolean ended=false;
-        while (!ended) {
-            char c=(char)is.read();
-            if (c==endTag.charAt(endTagPos)) {
-                endTagPos++;
-                if (endTagPos==endTag.length()) {
-                    ended=true;
-                }
-            } else {
-                if (endTagPos!=0) { //add - or -- if it wasn't an end tag eventually
-                    text+=endTag.substring(0, endTagPos);
-                    endTagPos=0;
-                }
-                text+=c;
-            }
+    private void appendText(char[] chars,int offset,int length) {
+        if (textLength+length>text.length) {
+            char[] newText=new char[Math.max(text.length*2, textLength+length)];
+            System.arraycopy(text, 0, newText, 0, textLength);
+            text=newText;
         }
+        System.arraycopy(chars, offset, text, textLength, length);
+        textLength+=length;
+    }
 
-        String elementName=null;
-        if (endTag.equals("-->")) {
-            elementName="comment";
-        } else if (endTag.equals(">")) {
-            elementName="XML declaration";
-        } else { //CDATA
-            if(eventParser) {
-                textElement(text);
-                return null;
-            }
-            return createNewTextElement(text);
+    private void appendText(String str) {
+        for (int i=0;i<str.length();i++) {
+            appendText(str.charAt(i));
         }
+    }
 
-        if(eventParser) {
-            return null;
+    private void appendValue(char[] chars,int offset,int length) {
+        if (valuesLength+length>values.length) {
+            char[] newValues=new char[Math.max(values.length*2, valuesLength+length)];
+            System.arraycopy(values, 0, newValues, 0, valuesLength);
+            values=newValues;
         }
-        Element comment = createNewElement(elementName);
-        comment.setAttribute("content", text);
-        comment.isComment=true;
-        return comment;
+        System.arraycopy(chars, offset, values, valuesLength, length);
+        valuesLength+=length;
+    }
+
+    private void appendValue(String str) {
+        appendValue(str.toCharArray(), 0, str.length());
+    }
+
+    /**
+     * Checks if this character is a legal character for char entities
+     * 
+     * @param c The character to check
+     * @return true if legal, false otherwise
+     */
+    private boolean isLegalCharEntityCharacter(char c) {
+        return (((c>='a') && (c<='z')) || ((c>='A') && (c<='Z')) || ((c>='0') && (c<='9')) || (c=='#'));
+    }
+
+    /**
+     * Checks if the specified character is a white space or not.
+     * Exposed to packaage since used by HTMLComponent as well
+     *
+     * @param ch The character to check
+     * @return true if the character is a white space, false otherwise
+     */
+    protected boolean isWhiteSpace(char ch) { 
+        return ((ch==' ') || (ch=='\n') || (ch=='\t') || (ch==10) || (ch==13));
     }
 
     /**
@@ -845,4 +1206,26 @@ public class XMLParser {
         this.parserCallback=parserCallback;
     }
 
-}
\ No newline at end of file
+    /**
+     * Reader continuing from the current position of the parser, used to hand the content
+     * of an element to a different parser
+     */
+    private class ContentReader extends Reader {
+        public int read() throws IOException {
+            return XMLParser.this.read();
+        }
+
+        public int read(char[] cbuf, int off, int len) throws IOException {
+            if ((pos==limit) && (!fill())) {
+                return -1;
+            }
+            int count=Math.min(len, limit-pos);
+            System.arraycopy(buf, pos, cbuf, off, count);
+            pos+=count;
+            return count;
+        }
+
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008, 2010, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores
+ * CA 94065 USA or visit www.oracle.com if you need additional information or
+ * have any questions.
+ */
+package com.sun.lwuit.table;
+
+import com.sun.lwuit.Component;
+import com.sun.lwuit.Display;
+import com.sun.lwuit.Form;
+import com.sun.lwuit.impl.ImplementationFactory;
+import com.sun.lwuit.impl.headless.HeadlessImplementationFactory;
+import com.sun.lwuit.impl.headless.InputInjector;
+import com.sun.lwuit.layouts.BorderLayout;
+import com.sun.lwuit.plaf.Style;
+
+/**
+ * Flings a virtualized table on top of the headless implementation and verifies the
+ * bound cells follow the scroll position. Run the main method with the LWUIT classes
+ * in the classpath, the process exits with a non zero status on failure.
+ */
+public class VirtualTableTest {
+    private static final int ROWS = 5000;
+
+    private Table table;
+
+    public static void main(String[] argv) throws Exception {
+        ImplementationFactory.setInstance(new HeadlessImplementationFactory(240, 320));
+        Display.init(null);
+        try {
+            new VirtualTableTest().testFlingRebindsRows();
+            System.out.println("VirtualTableTest passed");
+            System.exit(0);
+        } catch(RuntimeException err) {
+            err.printStackTrace();
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Drags the table quickly so it keeps scrolling after the release and checks the
+     * viewport is covered by cells bound to the rows at the scroll position
+     */
+    public void testFlingRebindsRows() throws Exception {
+        Display d = Display.getInstance();
+        d.callSeriallyAndWait(new Runnable() {
+            public void run() {
+                Object[][] data = new Object[ROWS][3];
+                for(int r = 0 ; r < ROWS ; r++) {
+                    for(int c = 0 ; c < 3 ; c++) {
+                        data[r][c] = "R" + r + "C" + c;
+                    }
+                }
+                Form f = new Form("Table");
+                f.setLayout(new BorderLayout());
+                f.setScrollable(false);
+                table = new Table(new DefaultTableModel(new String[] {"A", "B", "C"}, data), true, true);
+                f.addComponent(BorderLayout.CENTER, table);
+                f.show();
+            }
+        });
+        InputInjector input = new InputInjector();
+        input.flush();
+        input.drag(120, 300, 120, 60, 8, 10);
+
+        // wait for the fling motion to settle
+        int scroll = -1;
+        for(int iter = 0 ; iter < 50 ; iter++) {
+            Thread.sleep(100);
+            input.flush();
+            int current = table.getScrollY();
+            if(current == scroll) {
+                break;
+            }
+            scroll = current;
+        }
+        if(scroll <= table.getHeight()) {
+            throw new RuntimeException("The fling didn't scroll the table: " + scroll);
+        }
+        d.callSeriallyAndWait(new Runnable() {
+            public void run() {
+                assertCovered(table.getScrollY() + 1);
+                assertCovered(table.getScrollY() + table.getHeight() / 2);
+                assertCovered(table.getScrollY() + table.getHeight() - 1);
+            }
+        });
+    }
+
+    /**
+     * Verifies a cell of the first column other than the first or last row, which are
+     * always bound, contains the given y position of the table
+     */
+    private void assertCovered(int y) {
+        int count = table.getComponentCount();
+        for(int iter = 0 ; iter < count ; iter++) {
+            Component c = table.getComponentAt(iter);
+            int row = table.getCellRow(c);
+            if(row > 0 && row < ROWS - 1 && table.getCellColumn(c) == 0) {
+                Style s = c.getStyle();
+                int top = c.getY() - s.getMargin(false, Component.TOP);
+                int bottom = c.getY() + c.getHeight() + s.getMargin(false, Component.BOTTOM);
+                if(top <= y && bottom > y) {
+                    return;
+                }
+            }
+        }
+        throw new RuntimeException("No row is bound at " + y + " scrollY " + table.getScrollY());
+    }
+}